@@ -0,0 +1,161 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.cbor;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.apache.wicket.request.http.WebRequest;
+import org.apache.wicket.request.http.WebResponse;
+import org.wicketstuff.rest.contenthandling.ITypedObjectSerialDeserial;
+import org.wicketstuff.rest.contenthandling.RestMimeTypes;
+import org.wicketstuff.rest.resource.RestResourceSettings;
+import org.wicketstuff.rest.resource.jackson.JacksonSerialDeserial;
+import org.wicketstuff.rest.resource.jackson.ObjectMapperCache;
+import org.wicketstuff.rest.utils.http.HttpUtils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+/**
+ * Object serializer/deserializer that works with the binary format CBOR
+ * ({@link RestMimeTypes#APPLICATION_CBOR}) and uses the CBOR data format of
+ * <a href="https://github.com/FasterXML/jackson">Jackson library</a>. 
+ * Objects are encoded and decoded while they are written to the response 
+ * and read from the request, and they are mapped like
+ * {@link JacksonSerialDeserial} does, so the same classes can be exchanged
+ * both as JSON and as CBOR.<br/>
+ * To let clients choose CBOR while browsers keep using JSON, register this
+ * serial/deserial next to a JSON one and make CBOR negotiable:
+ * 
+ * <pre>
+ * MultiFormatSerialDeserial multiFormat = new MultiFormatSerialDeserial();
+ * 
+ * multiFormat.registerSerDeser(new JacksonSerialDeserial(), RestMimeTypes.APPLICATION_JSON);
+ * multiFormat.registerSerDeser(new CborSerialDeserial(), RestMimeTypes.APPLICATION_CBOR);
+ * 
+ * RestResourceSettings settings = new RestResourceSettings()
+ * 		.addNegotiableMimeType(RestMimeTypes.APPLICATION_CBOR);
+ * </pre>
+ * 
+ * @author andrea del bene
+ * @see RestResourceSettings#addNegotiableMimeType(String)
+ */
+public class CborSerialDeserial implements ITypedObjectSerialDeserial {
+	private static final ObjectMapper DEFAULT_MAPPER = JacksonSerialDeserial
+			.newObjectMapper(new CBORFactory());
+
+	private final ObjectMapperCache mapperCache;
+
+	public CborSerialDeserial() {
+		this(DEFAULT_MAPPER);
+	}
+
+	/**
+	 * Builds a serializer/deserializer that uses the given mapper, which must
+	 * be built with a {@link CBORFactory}.
+	 * 
+	 * @param mapper
+	 *            the mapper to use.
+	 * @see JacksonSerialDeserial#newObjectMapper(com.fasterxml.jackson.core.JsonFactory)
+	 */
+	public CborSerialDeserial(ObjectMapper mapper) {
+		this.mapperCache = new ObjectMapperCache(mapper);
+	}
+
+	@Override
+	public void objectToResponse(Object targetObject, WebResponse response, String mimeType)
+			throws Exception {
+		objectToResponse(targetObject, targetObject == null ? Object.class : targetObject.getClass(),
+				response, mimeType);
+	}
+
+	@Override
+	public void objectToResponse(Object targetObject, Type targetType, WebResponse response,
+			String mimeType) throws Exception {
+		mapperCache.getWriter(targetType).writeValue(response.getOutputStream(), targetObject);
+	}
+
+	/**
+	 * Writes the elements as a CBOR array of indefinite length, through a
+	 * single generator bound to the output of the response. Newline-delimited
+	 * sequences are written in the same way, as CBOR has no line delimiters.
+	 */
+	@Override
+	public void elementsToResponse(Iterator<?> elements, Type elementType, WebResponse response,
+			String mimeType, int flushInterval) throws Exception {
+		JsonGenerator generator = mapperCache.getMapper().getFactory()
+				.createGenerator(response.getOutputStream());
+		int writtenElements = 0;
+
+		generator.writeStartArray();
+
+		while (elements.hasNext()) {
+			Object element = elements.next();
+
+			mapperCache.getWriter(getElementType(element, elementType)).writeValue(generator,
+					element);
+
+			if (++writtenElements % flushInterval == 0) {
+				generator.flush();
+				response.flush();
+			}
+		}
+
+		generator.writeEndArray();
+		generator.close();
+	}
+
+	private static Type getElementType(Object element, Type elementType) {
+		if (elementType instanceof ParameterizedType || elementType instanceof GenericArrayType)
+			return elementType;
+
+		return element == null ? Object.class : element.getClass();
+	}
+
+	@Override
+	public <T> T requestToObject(WebRequest request, Class<T> targetClass, String mimeType)
+			throws Exception {
+		return targetClass.cast(requestToObject(request, (Type)targetClass, mimeType));
+	}
+
+	@Override
+	public Object requestToObject(WebRequest request, Type targetType, String mimeType)
+			throws Exception {
+		return mapperCache.getReader(targetType).readValue(
+				HttpUtils.getRequestInputStream(request));
+	}
+
+	/**
+	 * Creates the readers and the writers of the given types.
+	 * 
+	 * @see ObjectMapperCache#warmUp(Collection)
+	 */
+	@Override
+	public void warmUp(Collection<Type> types) {
+		mapperCache.warmUp(types);
+	}
+
+	@Override
+	public boolean isMimeTypeSupported(String mimeType) {
+		return RestMimeTypes.APPLICATION_CBOR.equals(mimeType);
+	}
+}
@@ -0,0 +1,102 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.cbor;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.mock.MockWebResponse;
+import org.apache.wicket.protocol.http.servlet.ServletWebRequest;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.wicketstuff.rest.contenthandling.RestMimeTypes;
+import org.wicketstuff.rest.utils.test.BufferedMockRequest;
+
+public class TestCborSerialDeserial {
+	private WicketTester tester;
+
+	private List<PersonPojo> personList;
+
+	@Before
+	public void setUp() {
+		tester = new WicketTester(new MockApplication());
+	}
+
+	@After
+	public void tearDown() {
+		tester.destroy();
+	}
+
+	@Test
+	public void testObjectRoundTrip() throws Exception {
+		CborSerialDeserial serialDeserial = new CborSerialDeserial();
+		MockWebResponse response = new MockWebResponse();
+
+		serialDeserial.objectToResponse(new PersonPojo("Zoë", "zoe@gmail.com", "secret"),
+				response, RestMimeTypes.APPLICATION_CBOR);
+
+		byte[] cbor = response.getBinaryResponse();
+
+		// CBOR maps start with major type 5
+		Assert.assertEquals(5, (cbor[0] & 0xff) >> 5);
+
+		PersonPojo person = serialDeserial.requestToObject(newRequest(cbor), PersonPojo.class,
+				RestMimeTypes.APPLICATION_CBOR);
+
+		Assert.assertEquals("Zoë", person.getName());
+		Assert.assertEquals("zoe@gmail.com", person.getEmail());
+		Assert.assertEquals("secret", person.getPassword());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testStreamedElementsRoundTrip() throws Exception {
+		CborSerialDeserial serialDeserial = new CborSerialDeserial();
+		Type listType = getClass().getDeclaredField("personList").getGenericType();
+		List<PersonPojo> persons = Arrays.asList(new PersonPojo("Mary", "m.smith@gmail.com",
+				"pwd1"), new PersonPojo("John", "j.smith@gmail.com", "pwd2"));
+		MockWebResponse response = new MockWebResponse();
+
+		serialDeserial.warmUp(Arrays.asList(listType));
+		serialDeserial.elementsToResponse(persons.iterator(), PersonPojo.class, response,
+				RestMimeTypes.APPLICATION_CBOR, 1);
+
+		// elements are written as a CBOR array that can be read as a list
+		List<PersonPojo> readPersons = (List<PersonPojo>) serialDeserial.requestToObject(
+				newRequest(response.getBinaryResponse()), listType,
+				RestMimeTypes.APPLICATION_CBOR);
+
+		Assert.assertEquals(2, readPersons.size());
+		Assert.assertEquals("Mary", readPersons.get(0).getName());
+		Assert.assertEquals("j.smith@gmail.com", readPersons.get(1).getEmail());
+	}
+
+	private ServletWebRequest newRequest(byte[] body) {
+		BufferedMockRequest request = new BufferedMockRequest(tester.getApplication(),
+				tester.getHttpSession(), tester.getServletContext(), "POST");
+
+		request.setBinaryRequestBody(body);
+		request.setContentType(RestMimeTypes.APPLICATION_CBOR);
+
+		return new ServletWebRequest(request, "");
+	}
+}
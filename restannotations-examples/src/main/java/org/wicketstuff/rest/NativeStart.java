@@ -0,0 +1,102 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest;
+
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.EnumSet;
+
+import org.apache.wicket.protocol.http.WicketFilter;
+import org.apache.wicket.util.io.IOUtils;
+import org.eclipse.jetty.server.DispatcherType;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.servlet.DefaultServlet;
+import org.eclipse.jetty.servlet.FilterHolder;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+
+/**
+ * Starts the example application on an embedded Jetty server without
+ * deploying a web application, hence it can be compiled to a native
+ * executable (see the 'native' profile of this module).<br/>
+ * Arguments: the port to listen on (8080 by default) and, optionally,
+ * '--smoke-test' to request the persons resource once and exit with a non
+ * zero status if the response is not the expected one.
+ */
+public class NativeStart {
+	private static final String SMOKE_TEST_ARG = "--smoke-test";
+
+	public static void main(String[] args) throws Exception {
+		int port = 8080;
+		boolean smokeTest = false;
+
+		for (String arg : args) {
+			if (SMOKE_TEST_ARG.equals(arg))
+				smokeTest = true;
+			else
+				port = Integer.parseInt(arg);
+		}
+
+		Server server = new Server(port);
+		ServletContextHandler context = new ServletContextHandler(ServletContextHandler.SESSIONS);
+		FilterHolder wicketFilter = new FilterHolder(new WicketFilter(new WicketApplication()));
+
+		wicketFilter.setInitParameter(WicketFilter.FILTER_MAPPING_PARAM, "/*");
+		context.setContextPath("/");
+		context.addFilter(wicketFilter, "/*", EnumSet.of(DispatcherType.REQUEST));
+		context.addServlet(DefaultServlet.class, "/");
+		server.setHandler(context);
+		server.start();
+
+		if (!smokeTest) {
+			server.join();
+			return;
+		}
+
+		boolean passed;
+
+		try {
+			passed = requestPersons(port);
+		} finally {
+			server.stop();
+		}
+
+		System.out.println(passed ? "Smoke test passed." : "Smoke test failed.");
+		System.exit(passed ? 0 : 1);
+	}
+
+	/**
+	 * Requests the persons resource and checks its response.
+	 */
+	private static boolean requestPersons(int port) throws Exception {
+		HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port
+				+ "/personsmanager/persons").openConnection();
+		InputStream inputStream = null;
+
+		try {
+			if (connection.getResponseCode() != HttpURLConnection.HTTP_OK)
+				return false;
+
+			inputStream = connection.getInputStream();
+
+			return IOUtils.toString(inputStream, "UTF-8").contains("Freddie Mercury");
+		} finally {
+			IOUtils.closeQuietly(inputStream);
+			connection.disconnect();
+		}
+	}
+}
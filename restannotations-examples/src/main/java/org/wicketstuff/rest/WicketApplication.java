@@ -20,9 +20,7 @@ import java.nio.charset.Charset;
 
 import org.apache.wicket.markup.html.WebPage;
 import org.apache.wicket.protocol.http.WebApplication;
-import org.apache.wicket.request.resource.IResource;
-import org.apache.wicket.request.resource.ResourceReference;
-import org.wicketstuff.rest.resource.PersonsRestResource;
+import org.wicketstuff.rest.resource.ResourceIndex;
 
 /**
  * Application object for your web application. If you want to run this
@@ -43,13 +41,6 @@ public class WicketApplication extends WebApplication{
 	public void init() {
 		super.init();
 		
-		mountResource("/personsmanager", new ResourceReference("restReference") {
-			PersonsRestResource resource = new PersonsRestResource();
-			@Override
-			public IResource getResource() {
-				return resource;
-			}
-
-		});
+		ResourceIndex.mountAll(this);
 	}
 }
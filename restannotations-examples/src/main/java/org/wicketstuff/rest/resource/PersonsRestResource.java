@@ -20,11 +20,13 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.wicketstuff.rest.annotations.MethodMapping;
+import org.wicketstuff.rest.annotations.ResourcePath;
 import org.wicketstuff.rest.annotations.parameters.RequestBody;
 import org.wicketstuff.rest.domain.PersonPojo;
 import org.wicketstuff.rest.resource.gson.GsonRestResource;
 import org.wicketstuff.rest.utils.http.HttpMethod;
 
+@ResourcePath("/personsmanager")
 public class PersonsRestResource extends GsonRestResource {
 	private final List<PersonPojo> persons = new ArrayList<PersonPojo>();
 	
@@ -49,4 +51,9 @@ public class PersonsRestResource extends GsonRestResource {
 	public void createPerson(@RequestBody PersonPojo personPojo) {
 		persons.add(personPojo);
 	}
+	
+	@MethodMapping(value = "/persons/batch", httpMethod = HttpMethod.POST)
+	public void createPersons(@RequestBody List<PersonPojo> personPojos) {
+		persons.addAll(personPojos);
+	}
 }
@@ -16,11 +16,30 @@
  */
 package org.wicketstuff.rest;
 
+import java.io.InputStream;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.net.URL;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+
+import org.apache.wicket.util.io.IOUtils;
 import org.apache.wicket.util.tester.WicketTester;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.wicketstuff.rest.annotations.MethodMapping;
 import org.wicketstuff.rest.domain.PersonPojo;
+import org.wicketstuff.rest.resource.DispatchedRestResource;
+import org.wicketstuff.rest.resource.MethodMappingInfo;
+import org.wicketstuff.rest.resource.PersonsRestResource;
+import org.wicketstuff.rest.resource.ResourceIndex;
+import org.wicketstuff.rest.resource.RestResourceSettings;
+import org.wicketstuff.rest.resource.RouteModel;
+import org.wicketstuff.rest.utils.reflection.MethodParameter;
+import org.wicketstuff.rest.utils.reflection.ReflectiveMethodInvoker;
+import org.wicketstuff.rest.utils.reflection.ResourceDispatchers;
 import org.wicketstuff.rest.utils.test.BufferedMockRequest;
 
 import com.google.gson.Gson;
@@ -56,4 +75,129 @@ public class TestPersonResource extends Assert
 		
 		assertTrue(tester.getLastResponseAsString().contains(jsonObj));
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void testCreatePersons()
+	{
+		BufferedMockRequest mockRequest = new BufferedMockRequest(tester.getApplication(), tester.getHttpSession(),
+				tester.getServletContext(), "POST");
+		List<PersonPojo> persons = Arrays.asList(new PersonPojo("James", "Smith", "changeit"),
+				new PersonPojo("Anna", "Smith", "changeit"));
+		
+		mockRequest.setTextAsRequestBody(gson.toJson(persons));
+		
+		tester.setRequest(mockRequest);
+		tester.executeUrl("./personsmanager/persons/batch");
+		
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./personsmanager/persons");
+		
+		assertTrue(tester.getLastResponseAsString().contains(gson.toJson(persons.get(0))));
+		assertTrue(tester.getLastResponseAsString().contains(gson.toJson(persons.get(1))));
+	}
+	
+	@Test
+	public void testGeneratedDispatcher()
+	{
+		assertNotNull(ResourceDispatchers.findDispatcher(PersonsRestResource.class));
+		
+		RouteModel routeModel = RouteModel.forClass(PersonsRestResource.class,
+				new RestResourceSettings());
+		
+		for (MethodMappingInfo mappingInfo : routeModel.getMappedMethods())
+		{
+			assertFalse(mappingInfo.getInvoker() instanceof ReflectiveMethodInvoker);
+		}
+	}
+
+	@Test
+	public void testGeneratedRoutes() throws Exception
+	{
+		RouteModel routeModel = RouteModel.forClass(DispatchedRestResource.class,
+				new RestResourceSettings());
+		List<MethodMappingInfo> mappedMethods = routeModel.getMappedMethods();
+		
+		assertEquals(3, mappedMethods.size());
+		assertTrue(routeModel.isUsingAuthorization());
+		
+		// generated routes are the same that are read with reflection
+		for (MethodMappingInfo mappingInfo : mappedMethods)
+		{
+			Method method = mappingInfo.getMethod();
+			MethodMappingInfo reflectedInfo = new MethodMappingInfo(
+					method.getAnnotation(MethodMapping.class), method);
+			
+			assertEquals(method.getName(), mappingInfo.getMethodName());
+			assertEquals(reflectedInfo.getHttpMethod(), mappingInfo.getHttpMethod());
+			assertEquals(reflectedInfo.getSegments().toString(), mappingInfo.getSegments().toString());
+			assertEquals(reflectedInfo.getMimeInputFormat(), mappingInfo.getMimeInputFormat());
+			assertEquals(reflectedInfo.getMimeOutputFormat(), mappingInfo.getMimeOutputFormat());
+			assertEquals(reflectedInfo.isResolutionCacheable(), mappingInfo.isResolutionCacheable());
+			assertEquals(reflectedInfo.getRoles(), mappingInfo.getRoles());
+			assertSameType(reflectedInfo.getGenericReturnType(), mappingInfo.getGenericReturnType());
+			assertFalse(mappingInfo.getInvoker() instanceof ReflectiveMethodInvoker);
+			
+			MethodParameter[] reflectedParameters = reflectedInfo.getMethodParameters();
+			MethodParameter[] parameters = mappingInfo.getMethodParameters();
+			
+			assertEquals(reflectedParameters.length, parameters.length);
+			
+			for (int i = 0; i < parameters.length; i++)
+			{
+				assertEquals(reflectedParameters[i].getParameterClass(), parameters[i].getParameterClass());
+				assertSameType(reflectedParameters[i].getGenericType(), parameters[i].getGenericType());
+				assertEquals(reflectedParameters[i].getValueSource(), parameters[i].getValueSource());
+				assertEquals(reflectedParameters[i].getValueName(), parameters[i].getValueName());
+				assertEquals(reflectedParameters[i].getValueIndex(), parameters[i].getValueIndex());
+				assertEquals(reflectedParameters[i].isRequired(), parameters[i].isRequired());
+				assertEquals(reflectedParameters[i].getDeaultValue(), parameters[i].getDeaultValue());
+			}
+		}
+	}
+
+	private static void assertSameType(Type expected, Type actual)
+	{
+		assertEquals(expected, actual);
+		assertEquals(actual, expected);
+		assertEquals(expected.hashCode(), actual.hashCode());
+	}
+
+	@Test
+	public void testResourceIndex()
+	{
+		ResourceIndex.Entry personsEntry = null;
+		
+		for (ResourceIndex.Entry entry : ResourceIndex.load(getClass().getClassLoader()))
+		{
+			if (entry.getResourceClassName().equals(PersonsRestResource.class.getName()))
+				personsEntry = entry;
+		}
+		
+		assertNotNull(personsEntry);
+		assertEquals("/personsmanager", personsEntry.getMountPath());
+		assertTrue(personsEntry.getRoutes().contains("GET /persons getAllPersons()"));
+		assertTrue(personsEntry.getRoutes().contains("DELETE /persons/{personIndex} deletePerson(int)"));
+	}
+
+	@Test
+	public void testNativeImageConfiguration() throws Exception
+	{
+		// test classes have their own configuration, native-image reads all of them
+		Enumeration<URL> configFiles = getClass().getClassLoader().getResources(
+				"META-INF/native-image/org.wicketstuff/wicketstuff-restannotations-generated/reflect-config.json");
+		StringBuilder reflectConfig = new StringBuilder();
+		
+		while (configFiles.hasMoreElements())
+		{
+			InputStream configStream = configFiles.nextElement().openStream();
+			
+			reflectConfig.append(IOUtils.toString(configStream, "UTF-8"));
+			configStream.close();
+		}
+		
+		assertTrue(reflectConfig.toString().contains("\"" + PersonsRestResource.class.getName() + "\""));
+		assertTrue(reflectConfig.toString().contains("\"" + PersonPojo.class.getName() + "\""));
+		assertTrue(reflectConfig.toString().contains("\"" + ResourceDispatchers.getDispatcherClassName(
+				PersonsRestResource.class.getName()) + "\""));
+	}
+}
@@ -0,0 +1,59 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource;
+
+import java.util.List;
+import java.util.Map;
+
+import org.wicketstuff.rest.annotations.AuthorizeInvocation;
+import org.wicketstuff.rest.annotations.MethodMapping;
+import org.wicketstuff.rest.annotations.parameters.CookieParam;
+import org.wicketstuff.rest.annotations.parameters.HeaderParam;
+import org.wicketstuff.rest.annotations.parameters.MatrixParam;
+import org.wicketstuff.rest.annotations.parameters.PathParam;
+import org.wicketstuff.rest.annotations.parameters.RequestBody;
+import org.wicketstuff.rest.annotations.parameters.RequestParam;
+import org.wicketstuff.rest.contenthandling.RestMimeTypes;
+import org.wicketstuff.rest.resource.gson.GsonRestResource;
+import org.wicketstuff.rest.utils.http.HttpMethod;
+
+/**
+ * Resource whose routes are read from its generated dispatcher. It uses every
+ * kind of parameter binding, so that they can be compared with the ones read
+ * with reflection.
+ */
+public class DispatchedRestResource extends GsonRestResource {
+
+	@MethodMapping("/items/{id:\\d+}/{name}")
+	public String getItem(int id, @PathParam("name") String name,
+			@RequestParam(value = "page", required = false, defaultValue = "1") int page) {
+		return name;
+	}
+
+	@AuthorizeInvocation({ "ADMIN", "USER" })
+	@MethodMapping(value = "/items", httpMethod = HttpMethod.POST)
+	public void saveItems(@RequestBody Map<String, List<? extends Number>[]> items,
+			@HeaderParam("X-Tag") String tag,
+			@CookieParam(value = "label", required = false, defaultValue = "none \"quoted\"") String label) {
+	}
+
+	@MethodMapping(value = "/pages/{section}", produces = RestMimeTypes.TEXT_PLAIN, cacheResolution = false)
+	public List<? super Integer>[] getPages(String section,
+			@MatrixParam(segmentIndex = 1, parameterName = "size") int size) {
+		return null;
+	}
+}
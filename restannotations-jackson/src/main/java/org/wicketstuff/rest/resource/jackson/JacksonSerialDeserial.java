@@ -0,0 +1,217 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.jackson;
+
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
+import javax.servlet.ServletRequest;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.request.http.WebRequest;
+import org.apache.wicket.request.http.WebResponse;
+import org.wicketstuff.rest.contenthandling.RestMimeTypes;
+import org.wicketstuff.rest.contenthandling.serialdeserial.TextualObjectSerialDeserial;
+import org.wicketstuff.rest.utils.http.HttpUtils;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * Object serializer/deserializer that works with JSON format and uses
+ * <a href="https://github.com/FasterXML/jackson">Jackson library</a>.<br/>
+ * An {@link ObjectReader} and an {@link ObjectWriter} are created once for
+ * every type and then reused by all requests (see {@link ObjectMapperCache}).
+ * Objects are written as UTF-8 bytes directly to the output stream of the
+ * response and read directly from the input stream of the request, without
+ * going through a character writer or reader.<br/>
+ * By default all instances share an {@link ObjectMapper} configured like
+ * Gson: objects are mapped by their fields and unknown properties are
+ * ignored, so resources can switch from {@code GsonSerialDeserial} without
+ * changing their JSON. Unlike Gson, Jackson needs a constructor without
+ * arguments (it can be private) to deserialize a class.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class JacksonSerialDeserial extends TextualObjectSerialDeserial {
+	private static final ObjectMapper DEFAULT_MAPPER = newObjectMapper();
+
+	private final ObjectMapperCache mapperCache;
+
+	public JacksonSerialDeserial() {
+		this(DEFAULT_MAPPER);
+	}
+
+	/**
+	 * Builds a serializer/deserializer that uses the given mapper. The mapper
+	 * must not be configured anymore after this instance has been created, as
+	 * readers and writers keep the configuration they were created with.
+	 * 
+	 * @param mapper
+	 *            the mapper to use.
+	 */
+	public JacksonSerialDeserial(ObjectMapper mapper) {
+		super("UTF-8", RestMimeTypes.APPLICATION_JSON);
+		this.mapperCache = new ObjectMapperCache(mapper);
+	}
+
+	/**
+	 * Creates a mapper with the default configuration of this class. It can be
+	 * used as starting point to build a custom mapper.
+	 * 
+	 * @return a new mapper.
+	 */
+	public static ObjectMapper newObjectMapper() {
+		return newObjectMapper(new JsonFactory());
+	}
+
+	/**
+	 * Creates a mapper with the default configuration of this class that
+	 * reads and writes the format of the given factory (e.g. a binary format
+	 * like CBOR or Smile).
+	 * 
+	 * @param factory
+	 *            the factory of parsers and generators.
+	 * @return a new mapper.
+	 */
+	public static ObjectMapper newObjectMapper(JsonFactory factory) {
+		ObjectMapper mapper = new ObjectMapper(factory);
+
+		mapper.setVisibility(PropertyAccessor.ALL, Visibility.NONE);
+		mapper.setVisibility(PropertyAccessor.FIELD, Visibility.ANY);
+		mapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+		// streams belong to the container and are flushed by it
+		mapper.disable(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		mapper.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+		mapper.configure(JsonParser.Feature.AUTO_CLOSE_SOURCE, false);
+
+		return mapper;
+	}
+
+	@Override
+	public void objectToResponse(Object targetObject, Type targetType, WebResponse response,
+			String mimeType) throws Exception {
+		if (RestMimeTypes.TEXT_PLAIN.equals(mimeType)) {
+			super.objectToResponse(targetObject, targetType, response, mimeType);
+			return;
+		}
+
+		setCharsetResponse(response);
+		getWriter(targetType).writeValue(response.getOutputStream(), targetObject);
+	}
+
+	@Override
+	public <T> T requestToObject(WebRequest request, Class<T> targetClass, String mimeType)
+			throws Exception {
+		return targetClass.cast(requestToObject(request, (Type)targetClass, mimeType));
+	}
+
+	/**
+	 * Reads the object from the input stream of the request, unless the
+	 * request declares a charset that Jackson can't detect from the content.
+	 * In this case the body is read through a character reader.
+	 */
+	@Override
+	public Object requestToObject(WebRequest request, Type targetType, String mimeType)
+			throws Exception {
+		if (!isUnicodeRequest(request))
+			return super.requestToObject(request, targetType, mimeType);
+
+		return getReader(targetType).readValue(HttpUtils.getRequestInputStream(request));
+	}
+
+	private boolean isUnicodeRequest(WebRequest request) {
+		String charset = ((ServletRequest)request.getContainerRequest()).getCharacterEncoding();
+
+		return charset == null || charset.toUpperCase().startsWith("UTF-");
+	}
+
+	@Override
+	public String objectToString(Object targetObject, String mimeType) {
+		try {
+			return mapperCache.getMapper().writeValueAsString(targetObject);
+		} catch (JsonProcessingException e) {
+			throw new WicketRuntimeException("Object can't be serialized to JSON.", e);
+		}
+	}
+
+	@Override
+	public void objectToWriter(Object targetObject, Type targetType, Writer writer,
+			String mimeType) throws Exception {
+		getWriter(targetType).writeValue(writer, targetObject);
+	}
+
+	@Override
+	public <T> T stringToObject(String source, Class<T> targetClass, String mimeType) {
+		try {
+			return getReader(targetClass).readValue(source);
+		} catch (Exception e) {
+			throw new WicketRuntimeException("JSON content can't be deserialized to "
+					+ targetClass.getName(), e);
+		}
+	}
+
+	@Override
+	public Object readerToObject(Reader reader, Type targetType, String mimeType)
+			throws Exception {
+		return getReader(targetType).readValue(reader);
+	}
+
+	/**
+	 * Creates the readers and the writers of the given types.
+	 * 
+	 * @see ObjectMapperCache#warmUp(Collection)
+	 */
+	@Override
+	public void warmUp(Collection<Type> types) {
+		mapperCache.warmUp(types);
+	}
+
+	/**
+	 * Gets the cached writer for the given type, creating it if needed.
+	 * 
+	 * @param type
+	 *            the type of the objects to write.
+	 * @return the writer for the type.
+	 */
+	protected ObjectWriter getWriter(Type type) {
+		return mapperCache.getWriter(type);
+	}
+
+	/**
+	 * Gets the cached reader for the given type, creating it if needed.
+	 * 
+	 * @param type
+	 *            the type of the objects to read.
+	 * @return the reader for the type.
+	 */
+	protected ObjectReader getReader(Type type) {
+		return mapperCache.getReader(type);
+	}
+}
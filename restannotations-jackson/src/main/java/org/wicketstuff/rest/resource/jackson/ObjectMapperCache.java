@@ -0,0 +1,161 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.jackson;
+
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.wicketstuff.rest.utils.collections.ConcurrentLruCache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * Cache of the {@link ObjectReader}s and {@link ObjectWriter}s created by an
+ * {@link ObjectMapper}, one for every type. Readers and writers are immutable
+ * and thread-safe, so they can be shared by all requests. The mapper must not
+ * be configured anymore after the cache has been created, as readers and
+ * writers keep the configuration they were created with.<br/>
+ * Readers and writers of the types passed to {@link #warmUp(Collection)} (the
+ * types declared by mapped methods) are always kept. Those of other types
+ * (e.g. runtime classes of results) are kept in a size-bounded LRU cache.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class ObjectMapperCache {
+	/** Default maximum number of types not warmed up that are cached. */
+	public static final int DEFAULT_MAX_SIZE = 256;
+
+	private final ObjectMapper mapper;
+
+	private final ConcurrentMap<Type, ObjectWriter> warmWriters = new ConcurrentHashMap<Type, ObjectWriter>();
+
+	private final ConcurrentMap<Type, ObjectReader> warmReaders = new ConcurrentHashMap<Type, ObjectReader>();
+
+	private final ConcurrentLruCache<Type, ObjectWriter> writers;
+
+	private final ConcurrentLruCache<Type, ObjectReader> readers;
+
+	public ObjectMapperCache(ObjectMapper mapper) {
+		this(mapper, DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Class constructor.
+	 * 
+	 * @param mapper
+	 *            the mapper to use.
+	 * @param maxSize
+	 *            the maximum number of types not warmed up whose readers and
+	 *            writers are cached.
+	 */
+	public ObjectMapperCache(ObjectMapper mapper, int maxSize) {
+		this.mapper = mapper;
+		this.writers = new ConcurrentLruCache<Type, ObjectWriter>(maxSize);
+		this.readers = new ConcurrentLruCache<Type, ObjectReader>(maxSize);
+	}
+
+	/**
+	 * Gets the cached writer for the given type, creating it if needed.
+	 * 
+	 * @param type
+	 *            the type of the objects to write.
+	 * @return the writer for the type.
+	 */
+	public ObjectWriter getWriter(Type type) {
+		ObjectWriter writer = warmWriters.get(type);
+
+		if (writer == null)
+			writer = writers.get(type);
+
+		if (writer == null) {
+			writer = createWriter(type);
+			writers.put(type, writer);
+		}
+
+		return writer;
+	}
+
+	/**
+	 * Gets the cached reader for the given type, creating it if needed.
+	 * 
+	 * @param type
+	 *            the type of the objects to read.
+	 * @return the reader for the type.
+	 */
+	public ObjectReader getReader(Type type) {
+		ObjectReader reader = warmReaders.get(type);
+
+		if (reader == null)
+			reader = readers.get(type);
+
+		if (reader == null) {
+			reader = createReader(type);
+			readers.put(type, reader);
+		}
+
+		return reader;
+	}
+
+	/**
+	 * Creates the readers and the writers of the given types and keeps them
+	 * for the whole life of the cache. Jackson resolves the serializer and the
+	 * deserializer of a type when its writer and its reader are created.
+	 * 
+	 * @param types
+	 *            the types to prepare.
+	 */
+	public void warmUp(Collection<Type> types) {
+		for (Type type : types) {
+			if (!warmWriters.containsKey(type))
+				warmWriters.putIfAbsent(type, createWriter(type));
+
+			if (!warmReaders.containsKey(type))
+				warmReaders.putIfAbsent(type, createReader(type));
+		}
+	}
+
+	/**
+	 * Gets the number of types not warmed up whose writer is cached.
+	 * 
+	 * @return the number of cached writers.
+	 */
+	public int getCachedWritersCount() {
+		return writers.size();
+	}
+
+	/**
+	 * Gets the cached mapper.
+	 * 
+	 * @return the mapper.
+	 */
+	public ObjectMapper getMapper() {
+		return mapper;
+	}
+
+	private ObjectWriter createWriter(Type type) {
+		return mapper.writerFor(mapper.getTypeFactory().constructType(type));
+	}
+
+	private ObjectReader createReader(Type type) {
+		return mapper.readerFor(mapper.getTypeFactory().constructType(type));
+	}
+}
@@ -0,0 +1,133 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.jackson;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.mock.MockWebResponse;
+import org.apache.wicket.protocol.http.servlet.ServletWebRequest;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.wicketstuff.rest.contenthandling.RestMimeTypes;
+import org.wicketstuff.rest.utils.test.BufferedMockRequest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class TestJacksonSerialDeserial {
+	private WicketTester tester;
+
+	private List<PersonPojo> personList;
+
+	@Before
+	public void setUp() {
+		tester = new WicketTester(new MockApplication());
+	}
+
+	@After
+	public void tearDown() {
+		tester.destroy();
+	}
+
+	@Test
+	public void testObjectRoundTrip() throws Exception {
+		JacksonSerialDeserial serialDeserial = new JacksonSerialDeserial();
+		MockWebResponse response = new MockWebResponse();
+
+		serialDeserial.objectToResponse(new PersonPojo("Zoë", "zoe@gmail.com", "secret"),
+				response, RestMimeTypes.APPLICATION_JSON);
+
+		// the object is written as UTF-8 bytes, without passing through a writer
+		byte[] json = response.getBinaryResponse();
+
+		Assert.assertNull(response.getTextResponse());
+		Assert.assertEquals("{\"name\":\"Zoë\",\"email\":\"zoe@gmail.com\",\"password\":\"secret\"}",
+				new String(json, "UTF-8"));
+
+		PersonPojo person = serialDeserial.requestToObject(newRequest(json), PersonPojo.class,
+				RestMimeTypes.APPLICATION_JSON);
+
+		Assert.assertEquals("Zoë", person.getName());
+		Assert.assertEquals("zoe@gmail.com", person.getEmail());
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testGenericBodyRoundTrip() throws Exception {
+		JacksonSerialDeserial serialDeserial = new JacksonSerialDeserial();
+		Type listType = getClass().getDeclaredField("personList").getGenericType();
+		List<PersonPojo> persons = Arrays.asList(new PersonPojo("Mary", "m.smith@gmail.com",
+				"pwd1"), new PersonPojo("John", "j.smith@gmail.com", "pwd2"));
+		MockWebResponse response = new MockWebResponse();
+
+		serialDeserial.warmUp(Arrays.asList(listType));
+		serialDeserial.objectToResponse(persons, listType, response,
+				RestMimeTypes.APPLICATION_JSON);
+
+		List<PersonPojo> readPersons = (List<PersonPojo>) serialDeserial.requestToObject(
+				newRequest(response.getBinaryResponse()), listType,
+				RestMimeTypes.APPLICATION_JSON);
+
+		Assert.assertEquals(2, readPersons.size());
+		Assert.assertEquals("Mary", readPersons.get(0).getName());
+		Assert.assertEquals("j.smith@gmail.com", readPersons.get(1).getEmail());
+	}
+
+	@Test
+	public void testBoundedMapperCache() throws Exception {
+		ObjectMapperCache mapperCache = new ObjectMapperCache(
+				JacksonSerialDeserial.newObjectMapper(), 2);
+		Type listType = getClass().getDeclaredField("personList").getGenericType();
+
+		mapperCache.warmUp(Arrays.asList(listType));
+
+		for (Class<?> type : Arrays.asList(PersonPojo.class, String.class, Integer.class,
+				Long.class))
+			mapperCache.getWriter(type);
+
+		Assert.assertTrue(mapperCache.getCachedWritersCount() <= 2);
+		// warmed up types are never evicted
+		Assert.assertSame(mapperCache.getWriter(listType), mapperCache.getWriter(listType));
+		Assert.assertNotNull(mapperCache.getMapper());
+	}
+
+	@Test
+	public void testCustomMapper() throws Exception {
+		ObjectMapper mapper = JacksonSerialDeserial.newObjectMapper();
+		JacksonSerialDeserial serialDeserial = new JacksonSerialDeserial(mapper);
+
+		// unknown properties are ignored, like Gson does
+		PersonPojo person = serialDeserial.stringToObject(
+				"{\"name\":\"Mary\",\"age\":33}", PersonPojo.class, RestMimeTypes.APPLICATION_JSON);
+
+		Assert.assertEquals("Mary", person.getName());
+	}
+
+	private ServletWebRequest newRequest(byte[] body) {
+		BufferedMockRequest request = new BufferedMockRequest(tester.getApplication(),
+				tester.getHttpSession(), tester.getServletContext(), "POST");
+
+		request.setBinaryRequestBody(body);
+
+		return new ServletWebRequest(request, "");
+	}
+}
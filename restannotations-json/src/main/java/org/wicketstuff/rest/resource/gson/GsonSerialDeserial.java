@@ -16,10 +16,16 @@
  */
 package org.wicketstuff.rest.resource.gson;
 
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.util.Collection;
+
 import org.wicketstuff.rest.contenthandling.RestMimeTypes;
 import org.wicketstuff.rest.contenthandling.serialdeserial.TextualObjectSerialDeserial;
 
 import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
 
 /**
  * Textual object serializer/deserializer that works with JSON format and uses
@@ -45,8 +51,46 @@ public class GsonSerialDeserial extends TextualObjectSerialDeserial {
 		return gson.toJson(targetObject);
 	}
 
+	/**
+	 * Serializes the object directly to the writer, through a Gson JsonWriter.
+	 */
+	@Override
+	public void objectToWriter(Object targetObject, Writer writer, String mimeType) {
+		gson.toJson(targetObject, writer);
+	}
+
+	@Override
+	public void objectToWriter(Object targetObject, Type targetType, Writer writer,
+			String mimeType) {
+		gson.toJson(targetObject, targetType, writer);
+	}
+
 	@Override
 	public <T> T stringToObject(String source, Class<T> targetClass, String mimeType) {
 		return gson.fromJson(source, targetClass);
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Deserializes the object directly from the reader, through a Gson
+	 * JsonReader.
+	 */
+	@Override
+	public <T> T readerToObject(Reader reader, Class<T> targetClass, String mimeType) {
+		return gson.fromJson(reader, targetClass);
+	}
+
+	@Override
+	public Object readerToObject(Reader reader, Type targetType, String mimeType) {
+		return gson.fromJson(reader, targetType);
+	}
+
+	/**
+	 * Resolves the type adapters of the given types, which are then cached
+	 * by Gson and reused by requests.
+	 */
+	@Override
+	public void warmUp(Collection<Type> types) {
+		for (Type type : types)
+			gson.getAdapter(TypeToken.get(type));
+	}
+}
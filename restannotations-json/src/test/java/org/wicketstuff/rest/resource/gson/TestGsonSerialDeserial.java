@@ -0,0 +1,99 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.gson;
+
+import java.lang.reflect.Type;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.wicket.mock.MockApplication;
+import org.apache.wicket.mock.MockWebResponse;
+import org.apache.wicket.util.tester.WicketTester;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.wicketstuff.rest.contenthandling.RestMimeTypes;
+
+public class TestGsonSerialDeserial {
+	private WicketTester tester;
+
+	private List<Map<String, String>> personList;
+
+	@Before
+	public void setUp() {
+		tester = new WicketTester(new MockApplication());
+	}
+
+	@After
+	public void tearDown() {
+		tester.destroy();
+	}
+
+	@Test
+	public void testObjectStreamedToResponse() throws Exception {
+		MockWebResponse response = new MockWebResponse();
+
+		new StreamingGsonSerialDeserial().objectToResponse(newPerson("Zoë", "Müller"), response,
+				RestMimeTypes.APPLICATION_JSON);
+
+		// the object is encoded as UTF-8 while Gson writes it
+		String json = "{\"name\":\"Zoë\",\"surname\":\"Müller\"}";
+
+		Assert.assertNull(response.getTextResponse());
+		Assert.assertTrue(Arrays.equals(json.getBytes("UTF-8"), response.getBinaryResponse()));
+	}
+
+	@Test
+	public void testGenericObjectStreamedToResponse() throws Exception {
+		Type listType = getClass().getDeclaredField("personList").getGenericType();
+		List<Map<String, String>> persons = Arrays.asList(newPerson("Zoë", "Müller"),
+				newPerson("Jörg", "Ødegaard"));
+		MockWebResponse response = new MockWebResponse();
+
+		new StreamingGsonSerialDeserial().objectToResponse(persons, listType, response,
+				RestMimeTypes.APPLICATION_JSON);
+
+		String json = "[{\"name\":\"Zoë\",\"surname\":\"Müller\"},"
+				+ "{\"name\":\"Jörg\",\"surname\":\"Ødegaard\"}]";
+
+		Assert.assertNull(response.getTextResponse());
+		Assert.assertTrue(Arrays.equals(json.getBytes("UTF-8"), response.getBinaryResponse()));
+	}
+
+	private static Map<String, String> newPerson(String name, String surname) {
+		Map<String, String> person = new LinkedHashMap<String, String>();
+
+		person.put("name", name);
+		person.put("surname", surname);
+
+		return person;
+	}
+
+	/**
+	 * Serializer that fails if objects are converted to strings before being
+	 * written to the response.
+	 */
+	private static class StreamingGsonSerialDeserial extends GsonSerialDeserial {
+		@Override
+		public String objectToString(Object targetObject, String mimeType) {
+			throw new UnsupportedOperationException("Objects must not be converted to strings.");
+		}
+	}
+}
@@ -0,0 +1,335 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import org.wicketstuff.rest.annotations.MethodMapping;
+import org.wicketstuff.rest.annotations.ResourcePath;
+import org.wicketstuff.rest.resource.ResourceIndex;
+import org.wicketstuff.rest.utils.reflection.ResourceDispatchers;
+
+/**
+ * Annotation processor that writes the GraalVM native-image configuration
+ * (see {@link #CONFIG_LOCATION}) needed by the resources compiled with it.
+ * The reflection configuration registers:
+ * <ul>
+ * <li>resource classes, whose mapped methods are read with reflection and
+ * which are instantiated by {@link ResourceIndex}</li>
+ * <li>the dispatchers generated by {@link RestDispatcherProcessor}</li>
+ * <li>the annotations used on mapped methods and on their parameters</li>
+ * <li>the types of parameters and return values, together with the types of
+ * their fields, which are (de)serialized with reflection by libraries like
+ * Gson</li>
+ * </ul>
+ * The resource configuration includes the resource index. The configuration is
+ * written once, when the last round of processing is over. Incremental builds
+ * compile only some of the classes, so the classes registered by the
+ * existing configuration are kept, as long as they still exist.
+ * 
+ * @author andrea del bene
+ * 
+ */
+@SupportedAnnotationTypes({ "org.wicketstuff.rest.annotations.MethodMapping",
+		"org.wicketstuff.rest.annotations.ResourcePath" })
+public class NativeImageConfigProcessor extends AbstractProcessor {
+	/** Folder of the generated configuration inside the class output. */
+	public static final String CONFIG_LOCATION = "META-INF/native-image/org.wicketstuff/wicketstuff-restannotations-generated/";
+
+	private static final String RESOURCE_FLAGS = "\"allDeclaredConstructors\" : true, \"allDeclaredMethods\" : true";
+	private static final String DISPATCHER_FLAGS = "\"allDeclaredConstructors\" : true";
+	private static final String ANNOTATION_FLAGS = "\"allDeclaredMethods\" : true";
+	private static final String DATA_TYPE_FLAGS = "\"allDeclaredConstructors\" : true, \"allDeclaredFields\" : true, \"allDeclaredMethods\" : true";
+
+	/** An entry of the reflection configuration, as written by this processor. */
+	private static final Pattern CONFIG_ENTRY = Pattern
+			.compile("\\s*\\{ \"name\" : \"([^\"]+)\", (.*) \\},?\\s*");
+
+	/** Classes registered for reflection so far, with their JSON flags. */
+	private final Map<String, String> reflectedClasses = new TreeMap<String, String>();
+
+	/** Data types already registered (or being registered). */
+	private final Set<String> visitedTypes = new HashSet<String>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		if (roundEnv.processingOver()) {
+			if (!reflectedClasses.isEmpty())
+				writeConfiguration();
+
+			return false;
+		}
+
+		Elements elements = processingEnv.getElementUtils();
+		TypeElement methodMapping = elements.getTypeElement(MethodMapping.class.getName());
+		TypeElement resourcePath = elements.getTypeElement(ResourcePath.class.getName());
+
+		if (resourcePath != null) {
+			for (Element element : roundEnv.getElementsAnnotatedWith(resourcePath)) {
+				registerClass((TypeElement) element, RESOURCE_FLAGS);
+			}
+		}
+
+		if (methodMapping == null)
+			return false;
+
+		for (Element element : roundEnv.getElementsAnnotatedWith(methodMapping)) {
+			if (element.getKind() != ElementKind.METHOD)
+				continue;
+
+			ExecutableElement method = (ExecutableElement) element;
+			TypeElement type = (TypeElement) method.getEnclosingElement();
+
+			registerClass(type, RESOURCE_FLAGS);
+
+			if (RestDispatcherProcessor.isDispatcherGenerated(type, processingEnv))
+				reflectedClasses.put(ResourceDispatchers.getDispatcherClassName(elements
+						.getBinaryName(type).toString()), DISPATCHER_FLAGS);
+
+			registerAnnotations(method);
+			registerDataType(method.getReturnType());
+
+			for (VariableElement parameter : method.getParameters()) {
+				registerAnnotations(parameter);
+				registerDataType(parameter.asType());
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Registers a class with the given flags.
+	 */
+	private void registerClass(TypeElement type, String flags) {
+		reflectedClasses.put(processingEnv.getElementUtils().getBinaryName(type).toString(),
+				flags);
+	}
+
+	/**
+	 * Registers the types of the annotations of an element.
+	 */
+	private void registerAnnotations(Element element) {
+		for (AnnotationMirror annotation : element.getAnnotationMirrors()) {
+			TypeElement annotationType = (TypeElement) annotation.getAnnotationType().asElement();
+
+			if (!reflectedClasses.containsKey(annotationType.getQualifiedName().toString()))
+				registerClass(annotationType, ANNOTATION_FLAGS);
+		}
+	}
+
+	/**
+	 * Registers a type used as parameter or return value, together with its
+	 * type arguments, its super classes and the types of its fields. Types of
+	 * the JDK are skipped.
+	 */
+	private void registerDataType(TypeMirror type) {
+		if (type.getKind() == TypeKind.ARRAY) {
+			registerDataType(((ArrayType) type).getComponentType());
+			return;
+		}
+
+		if (type.getKind() == TypeKind.WILDCARD) {
+			TypeMirror bound = ((WildcardType) type).getExtendsBound();
+
+			if (bound != null)
+				registerDataType(bound);
+
+			return;
+		}
+
+		if (type.getKind() != TypeKind.DECLARED)
+			return;
+
+		DeclaredType declaredType = (DeclaredType) type;
+
+		for (TypeMirror typeArgument : declaredType.getTypeArguments()) {
+			registerDataType(typeArgument);
+		}
+
+		TypeElement typeElement = (TypeElement) declaredType.asElement();
+		String typeName = processingEnv.getElementUtils().getBinaryName(typeElement).toString();
+
+		if (isJdkType(typeName) || !visitedTypes.add(typeName))
+			return;
+
+		if (!reflectedClasses.containsKey(typeName))
+			reflectedClasses.put(typeName, DATA_TYPE_FLAGS);
+
+		registerDataType(typeElement.getSuperclass());
+
+		for (VariableElement field : ElementFilter.fieldsIn(typeElement.getEnclosedElements())) {
+			Set<Modifier> modifiers = field.getModifiers();
+
+			if (!modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.TRANSIENT))
+				registerDataType(field.asType());
+		}
+	}
+
+	/**
+	 * Tells if a class belongs to the JDK, whose types are handled by
+	 * native-image itself.
+	 */
+	private boolean isJdkType(String typeName) {
+		return typeName.startsWith("java.") || typeName.startsWith("javax.")
+				|| typeName.startsWith("sun.") || typeName.startsWith("com.sun.");
+	}
+
+	/**
+	 * Writes the reflection and resource configuration files.
+	 */
+	private void writeConfiguration() {
+		Map<String, String> classes = readExistingReflectConfig();
+
+		classes.putAll(reflectedClasses);
+
+		try {
+			PrintWriter writer = openConfigFile("reflect-config.json");
+
+			try {
+				writer.print("[\n");
+
+				for (Iterator<Map.Entry<String, String>> iterator = classes.entrySet()
+						.iterator(); iterator.hasNext();) {
+					Map.Entry<String, String> entry = iterator.next();
+
+					writer.print("  { \"name\" : \"" + entry.getKey() + "\", " + entry.getValue()
+							+ " }" + (iterator.hasNext() ? "," : "") + "\n");
+				}
+
+				writer.print("]\n");
+			} finally {
+				writer.close();
+			}
+
+			writer = openConfigFile("resource-config.json");
+
+			try {
+				writer.print("{\n");
+				writer.print("  \"resources\" : {\n");
+				writer.print("    \"includes\" : [\n");
+				writer.print("      { \"pattern\" : \"\\\\Q" + ResourceIndex.INDEX_LOCATION
+						+ "\\\\E\" }\n");
+				writer.print("    ]\n");
+				writer.print("  }\n");
+				writer.print("}\n");
+			} finally {
+				writer.close();
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Kind.ERROR,
+					"Error writing native-image configuration: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Reads the classes registered by the reflection configuration left in
+	 * the class output by a previous build. Classes that don't exist any more
+	 * are dropped.
+	 * 
+	 * @return the JSON flags of the registered classes, by class name.
+	 */
+	private Map<String, String> readExistingReflectConfig() {
+		Map<String, String> classes = new TreeMap<String, String>();
+		BufferedReader reader = null;
+
+		try {
+			FileObject configFile = processingEnv.getFiler().getResource(
+					StandardLocation.CLASS_OUTPUT, "", CONFIG_LOCATION + "reflect-config.json");
+			String line;
+
+			reader = new BufferedReader(new InputStreamReader(configFile.openInputStream(),
+					"UTF-8"));
+
+			while ((line = reader.readLine()) != null) {
+				Matcher matcher = CONFIG_ENTRY.matcher(line);
+
+				if (!matcher.matches())
+					continue;
+
+				String className = matcher.group(1);
+				TypeElement type = processingEnv.getElementUtils().getTypeElement(
+						className.replace('$', '.'));
+
+				if (type != null)
+					classes.put(className, matcher.group(2));
+			}
+		} catch (IOException e) {
+			// no configuration has been written yet
+		} catch (IllegalArgumentException e) {
+			// the class output can't be read
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+
+		return classes;
+	}
+
+	/**
+	 * Creates a configuration file in the class output.
+	 */
+	private PrintWriter openConfigFile(String fileName) throws IOException {
+		FileObject configFile = processingEnv.getFiler().createResource(
+				StandardLocation.CLASS_OUTPUT, "", CONFIG_LOCATION + fileName);
+
+		return new PrintWriter(new OutputStreamWriter(configFile.openOutputStream(), "UTF-8"));
+	}
+}
@@ -0,0 +1,263 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.processor;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+import org.wicketstuff.rest.annotations.MethodMapping;
+import org.wicketstuff.rest.annotations.ResourcePath;
+import org.wicketstuff.rest.resource.ResourceIndex;
+
+/**
+ * Annotation processor that writes the resource index (see
+ * {@link ResourceIndex}) listing the classes annotated with
+ * {@link ResourcePath}, together with their routes. The index is written
+ * once, when the last round of processing is over. Incremental builds compile
+ * only some of the classes, so the entries of the existing index are kept,
+ * unless their class has been compiled again or it doesn't exist (or isn't
+ * annotated) any more. The processor runs on every compilation, even if no
+ * class is annotated, so that an existing index is rewritten when the last
+ * annotation has been removed.
+ * 
+ * @author andrea del bene
+ * 
+ */
+@SupportedAnnotationTypes("*")
+public class ResourceIndexProcessor extends AbstractProcessor {
+	/** Index lines of the resources found so far, by class name. */
+	private final Map<String, String> indexedResources = new TreeMap<String, String>();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		if (roundEnv.processingOver()) {
+			Map<String, String> existingResources = readExistingIndex();
+
+			if (existingResources != null || !indexedResources.isEmpty())
+				writeIndex(existingResources);
+
+			return false;
+		}
+
+		Elements elements = processingEnv.getElementUtils();
+		TypeElement resourcePath = elements.getTypeElement(ResourcePath.class.getName());
+
+		if (resourcePath == null)
+			return false;
+
+		for (Element element : roundEnv.getElementsAnnotatedWith(resourcePath)) {
+			TypeElement type = (TypeElement) element;
+
+			if (!isInstantiable(type)) {
+				processingEnv.getMessager().printMessage(Kind.ERROR,
+						"Resources annotated with @ResourcePath must be public, concrete "
+								+ "classes with a public constructor with no arguments.", type);
+				continue;
+			}
+
+			indexedResources.put(elements.getBinaryName(type).toString(), toIndexLines(type));
+		}
+
+		return false;
+	}
+
+	/**
+	 * Checks if a resource class can be instantiated from its index entry.
+	 */
+	private boolean isInstantiable(TypeElement type) {
+		Set<Modifier> modifiers = type.getModifiers();
+
+		if (type.getKind() != ElementKind.CLASS || !modifiers.contains(Modifier.PUBLIC)
+				|| modifiers.contains(Modifier.ABSTRACT))
+			return false;
+
+		if (type.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC))
+			return false;
+
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(type
+				.getEnclosedElements())) {
+			if (constructor.getParameters().isEmpty()
+					&& constructor.getModifiers().contains(Modifier.PUBLIC))
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Builds the index lines describing a resource class and its routes.
+	 */
+	private String toIndexLines(TypeElement type) {
+		Elements elements = processingEnv.getElementUtils();
+		StringBuilder lines = new StringBuilder();
+
+		lines.append(elements.getBinaryName(type)).append('\t')
+				.append(type.getAnnotation(ResourcePath.class).value()).append('\n');
+
+		for (ExecutableElement method : ElementFilter.methodsIn(type.getEnclosedElements())) {
+			MethodMapping methodMapping = method.getAnnotation(MethodMapping.class);
+
+			if (methodMapping == null)
+				continue;
+
+			lines.append('\t').append(methodMapping.httpMethod().getMethod()).append('\t')
+					.append(methodMapping.value()).append('\t')
+					.append(RestDispatcherProcessor.getSignature(method, processingEnv.getTypeUtils()))
+					.append('\n');
+		}
+
+		return lines.toString();
+	}
+
+	/**
+	 * Writes the index file to the class output, merged with the entries of
+	 * the existing index that are still valid.
+	 * 
+	 * @param existingResources
+	 *            the still valid entries of the existing index, or null if
+	 *            there isn't any index.
+	 */
+	private void writeIndex(Map<String, String> existingResources) {
+		Map<String, String> resources = new TreeMap<String, String>();
+
+		if (existingResources != null)
+			resources.putAll(existingResources);
+
+		resources.putAll(indexedResources);
+
+		try {
+			FileObject indexFile = processingEnv.getFiler().createResource(
+					StandardLocation.CLASS_OUTPUT, "", ResourceIndex.INDEX_LOCATION);
+			PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+					indexFile.openOutputStream(), "UTF-8"));
+
+			try {
+				writer.print("# Generated by " + getClass().getName() + "\n");
+
+				for (String lines : resources.values()) {
+					writer.print(lines);
+				}
+			} finally {
+				writer.close();
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Kind.ERROR,
+					"Error writing resource index: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Reads the index left in the class output by a previous build. Entries
+	 * are dropped if their class has been indexed by this build, or if it
+	 * doesn't exist or isn't annotated with {@link ResourcePath} any more.
+	 * 
+	 * @return the index lines of the still valid entries, by class name, or
+	 *         null if no index has been written yet.
+	 */
+	private Map<String, String> readExistingIndex() {
+		Map<String, String> resources = new TreeMap<String, String>();
+		BufferedReader reader = null;
+
+		try {
+			FileObject indexFile = processingEnv.getFiler().getResource(
+					StandardLocation.CLASS_OUTPUT, "", ResourceIndex.INDEX_LOCATION);
+			String line;
+			String className = null;
+			StringBuilder lines = null;
+
+			reader = new BufferedReader(new InputStreamReader(indexFile.openInputStream(),
+					"UTF-8"));
+
+			while ((line = reader.readLine()) != null) {
+				if (line.trim().length() == 0 || line.startsWith("#"))
+					continue;
+
+				if (line.charAt(0) == '\t') {
+					if (lines != null)
+						lines.append(line).append('\n');
+
+					continue;
+				}
+
+				addValidEntry(resources, className, lines);
+				className = line.substring(0, Math.max(line.indexOf('\t'), 0));
+				lines = new StringBuilder(line).append('\n');
+			}
+
+			addValidEntry(resources, className, lines);
+		} catch (IOException e) {
+			// no index has been written yet
+			return null;
+		} catch (IllegalArgumentException e) {
+			// the class output can't be read
+			return null;
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (IOException e) {
+					// ignore
+				}
+			}
+		}
+
+		return resources;
+	}
+
+	/**
+	 * Adds an entry of the existing index, unless it's no longer valid.
+	 */
+	private void addValidEntry(Map<String, String> resources, String className,
+			StringBuilder lines) {
+		if (className == null || className.length() == 0
+				|| indexedResources.containsKey(className))
+			return;
+
+		TypeElement type = processingEnv.getElementUtils().getTypeElement(
+				className.replace('$', '.'));
+
+		if (type != null && type.getAnnotation(ResourcePath.class) != null)
+			resources.put(className, lines.toString());
+	}
+}
\ No newline at end of file
@@ -0,0 +1,710 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.type.WildcardType;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.JavaFileObject;
+
+import org.wicketstuff.rest.annotations.AuthorizeInvocation;
+import org.wicketstuff.rest.annotations.MethodMapping;
+import org.wicketstuff.rest.annotations.parameters.AnnotatedParam;
+import org.wicketstuff.rest.annotations.parameters.CookieParam;
+import org.wicketstuff.rest.annotations.parameters.HeaderParam;
+import org.wicketstuff.rest.annotations.parameters.MatrixParam;
+import org.wicketstuff.rest.annotations.parameters.PathParam;
+import org.wicketstuff.rest.annotations.parameters.RequestParam;
+import org.wicketstuff.rest.utils.http.HttpMethod;
+import org.wicketstuff.rest.utils.reflection.GenericTypes;
+import org.wicketstuff.rest.utils.reflection.IMethodInvoker;
+import org.wicketstuff.rest.utils.reflection.IResourceDispatcher;
+import org.wicketstuff.rest.utils.reflection.MethodParameter.ValueSource;
+import org.wicketstuff.rest.utils.reflection.ParameterBinding;
+import org.wicketstuff.rest.utils.reflection.ResourceDispatchers;
+import org.wicketstuff.rest.utils.reflection.RouteDescriptor;
+
+/**
+ * Annotation processor that generates a dispatcher (see
+ * {@link IResourceDispatcher}) for every class with methods annotated with
+ * {@link MethodMapping}. The dispatcher contains the route table of the class,
+ * i.e. the mapping and the parameter bindings of every mapped method (see
+ * {@link RouteDescriptor}), and calls mapped methods directly, hence resources
+ * need reflection neither to build their routes nor to invoke their methods.
+ * Resources pick up their dispatcher automatically, it's enough to have this
+ * module in the compile-time classpath.<br/>
+ * Mapped methods must be public, like resources require at runtime: other
+ * methods are reported as errors. Methods throwing checked {@link Throwable}s
+ * are described in the route table but keep being invoked with reflection. No
+ * dispatcher is generated for private classes and for classes whose mapped
+ * methods use types not visible from their package: their routes are read
+ * with reflection. Type variables are described by their erasure.
+ * 
+ * @author andrea del bene
+ * 
+ */
+@SupportedAnnotationTypes("org.wicketstuff.rest.annotations.MethodMapping")
+public class RestDispatcherProcessor extends AbstractProcessor {
+	private static final String GENERIC_TYPES = GenericTypes.class.getName();
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		Elements elements = processingEnv.getElementUtils();
+		TypeElement methodMapping = elements.getTypeElement(MethodMapping.class.getName());
+
+		if (methodMapping == null)
+			return false;
+
+		Map<TypeElement, List<ExecutableElement>> methodsByType = new LinkedHashMap<TypeElement, List<ExecutableElement>>();
+
+		for (Element element : roundEnv.getElementsAnnotatedWith(methodMapping)) {
+			if (element.getKind() != ElementKind.METHOD)
+				continue;
+
+			ExecutableElement method = (ExecutableElement) element;
+			TypeElement type = (TypeElement) method.getEnclosingElement();
+			List<ExecutableElement> methods = methodsByType.get(type);
+
+			if (!method.getModifiers().contains(Modifier.PUBLIC)) {
+				processingEnv.getMessager().printMessage(Kind.ERROR,
+						"Methods annotated with @MethodMapping must be public.", method);
+				continue;
+			}
+
+			if (methods == null) {
+				methods = new ArrayList<ExecutableElement>();
+				methodsByType.put(type, methods);
+			}
+
+			methods.add(method);
+		}
+
+		for (Map.Entry<TypeElement, List<ExecutableElement>> entry : methodsByType.entrySet()) {
+			TypeElement type = entry.getKey();
+
+			if (!isAccessible(type)) {
+				processingEnv.getMessager().printMessage(Kind.NOTE,
+						"No dispatcher can be generated for a private or local class.", type);
+				continue;
+			}
+
+			ExecutableElement inaccessibleMethod = findInaccessibleMethod(type,
+					entry.getValue(), processingEnv);
+
+			if (inaccessibleMethod != null) {
+				processingEnv.getMessager().printMessage(Kind.NOTE,
+						"No dispatcher can be generated: method uses types not visible from "
+								+ "the package of its class.", inaccessibleMethod);
+				continue;
+			}
+
+			try {
+				writeDispatcher(type, entry.getValue());
+			} catch (IOException e) {
+				processingEnv.getMessager().printMessage(Kind.ERROR,
+						"Error writing dispatcher: " + e.getMessage(), type);
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Checks if a dispatcher is generated for the given class.
+	 */
+	static boolean isDispatcherGenerated(TypeElement type, ProcessingEnvironment processingEnv) {
+		if (!isAccessible(type))
+			return false;
+
+		List<ExecutableElement> methods = new ArrayList<ExecutableElement>();
+
+		for (Element element : type.getEnclosedElements()) {
+			if (element.getKind() == ElementKind.METHOD
+					&& element.getAnnotation(MethodMapping.class) != null)
+				methods.add((ExecutableElement) element);
+		}
+
+		return findInaccessibleMethod(type, methods, processingEnv) == null;
+	}
+
+	/**
+	 * Checks if a mapped method can be called by the generated dispatcher.
+	 */
+	static boolean isDispatchable(ExecutableElement method, ProcessingEnvironment processingEnv) {
+		Types types = processingEnv.getTypeUtils();
+		Elements elements = processingEnv.getElementUtils();
+		TypeMirror exceptionType = elements.getTypeElement(Exception.class.getName()).asType();
+		TypeMirror errorType = elements.getTypeElement(Error.class.getName()).asType();
+
+		for (TypeMirror thrownType : method.getThrownTypes()) {
+			if (!types.isAssignable(thrownType, exceptionType)
+					&& !types.isAssignable(thrownType, errorType))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Checks if a class can be referenced from another class of its package.
+	 */
+	static boolean isAccessible(TypeElement type) {
+		Element element = type;
+
+		while (element instanceof TypeElement) {
+			TypeElement typeElement = (TypeElement) element;
+
+			if (typeElement.getModifiers().contains(Modifier.PRIVATE)
+					|| typeElement.getNestingKind() == NestingKind.LOCAL
+					|| typeElement.getNestingKind() == NestingKind.ANONYMOUS)
+				return false;
+
+			element = typeElement.getEnclosingElement();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Finds a mapped method whose parameters or return value use a type that
+	 * can't be referenced from the package of its class.
+	 * 
+	 * @return the method, or null if every type can be referenced.
+	 */
+	private static ExecutableElement findInaccessibleMethod(TypeElement type,
+			List<ExecutableElement> methods, ProcessingEnvironment processingEnv) {
+		PackageElement packageElement = processingEnv.getElementUtils().getPackageOf(type);
+
+		for (ExecutableElement method : methods) {
+			if (!isAccessible(method.getReturnType(), packageElement, processingEnv))
+				return method;
+
+			for (VariableElement parameter : method.getParameters()) {
+				if (!isAccessible(parameter.asType(), packageElement, processingEnv))
+					return method;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Checks if a type, its type arguments and its bounds can be referenced
+	 * from the given package.
+	 */
+	private static boolean isAccessible(TypeMirror type, PackageElement packageElement,
+			ProcessingEnvironment processingEnv) {
+		switch (type.getKind()) {
+		case ARRAY:
+			return isAccessible(((ArrayType) type).getComponentType(), packageElement,
+					processingEnv);
+		case WILDCARD:
+			WildcardType wildcardType = (WildcardType) type;
+			TypeMirror bound = wildcardType.getSuperBound() != null ? wildcardType
+					.getSuperBound() : wildcardType.getExtendsBound();
+
+			return bound == null || isAccessible(bound, packageElement, processingEnv);
+		case TYPEVAR:
+			return isAccessible(processingEnv.getTypeUtils().erasure(type), packageElement,
+					processingEnv);
+		case DECLARED:
+			break;
+		default:
+			return true;
+		}
+
+		Elements elements = processingEnv.getElementUtils();
+		Element element = ((DeclaredType) type).asElement();
+
+		while (element instanceof TypeElement) {
+			Set<Modifier> modifiers = element.getModifiers();
+
+			if (modifiers.contains(Modifier.PRIVATE)
+					|| ((TypeElement) element).getNestingKind() == NestingKind.LOCAL
+					|| ((TypeElement) element).getNestingKind() == NestingKind.ANONYMOUS)
+				return false;
+
+			if (!modifiers.contains(Modifier.PUBLIC)
+					&& !elements.getPackageOf(element).equals(packageElement))
+				return false;
+
+			element = element.getEnclosingElement();
+		}
+
+		for (TypeMirror typeArgument : ((DeclaredType) type).getTypeArguments()) {
+			if (!isAccessible(typeArgument, packageElement, processingEnv))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Writes the source of the dispatcher for the given class.
+	 */
+	private void writeDispatcher(TypeElement type, List<ExecutableElement> methods)
+			throws IOException {
+		Elements elements = processingEnv.getElementUtils();
+		String packageName = elements.getPackageOf(type).getQualifiedName().toString();
+		String dispatcherName = ResourceDispatchers.getDispatcherClassName(elements
+				.getBinaryName(type).toString());
+		String simpleName = dispatcherName.substring(dispatcherName.lastIndexOf('.') + 1);
+		String typeName = type.getQualifiedName().toString();
+		List<ExecutableElement> dispatchableMethods = new ArrayList<ExecutableElement>();
+
+		for (ExecutableElement method : methods) {
+			if (isDispatchable(method, processingEnv))
+				dispatchableMethods.add(method);
+			else
+				processingEnv.getMessager().printMessage(Kind.NOTE,
+						"Method will be invoked with reflection.", method);
+		}
+
+		JavaFileObject sourceFile = processingEnv.getFiler().createSourceFile(dispatcherName,
+				type);
+		PrintWriter writer = new PrintWriter(sourceFile.openWriter());
+
+		try {
+			if (packageName.length() > 0) {
+				writer.println("package " + packageName + ";");
+				writer.println();
+			}
+
+			writer.println("/**");
+			writer.println(" * Dispatcher of {@link " + typeName + "}.");
+			writer.println(" */");
+			writer.println("@javax.annotation.Generated(\"" + getClass().getName() + "\")");
+			writer.println("public final class " + simpleName + " implements "
+					+ IResourceDispatcher.class.getName() + " {");
+			writer.println("\tprivate static final String[] SIGNATURES = {");
+
+			for (int i = 0; i < dispatchableMethods.size(); i++) {
+				writer.println("\t\t\""
+						+ getSignature(dispatchableMethods.get(i), processingEnv.getTypeUtils())
+						+ "\"" + (i < dispatchableMethods.size() - 1 ? "," : ""));
+			}
+
+			writer.println("\t};");
+			writer.println();
+			writer.println("\tpublic " + IMethodInvoker.class.getName()
+					+ " getInvoker(String methodSignature) {");
+			writer.println("\t\tfor (int i = 0; i < SIGNATURES.length; i++) {");
+			writer.println("\t\t\tif (SIGNATURES[i].equals(methodSignature))");
+			writer.println("\t\t\t\treturn new Invoker(i);");
+			writer.println("\t\t}");
+			writer.println();
+			writer.println("\t\treturn null;");
+			writer.println("\t}");
+			writer.println();
+			writer.println("\tpublic " + RouteDescriptor.class.getName() + "[] getRoutes() {");
+			writer.println("\t\treturn new " + RouteDescriptor.class.getName() + "[] {");
+
+			for (int i = 0; i < methods.size(); i++) {
+				writeRoute(writer, typeName, methods.get(i),
+						dispatchableMethods.indexOf(methods.get(i)), i < methods.size() - 1);
+			}
+
+			writer.println("\t\t};");
+			writer.println("\t}");
+			writer.println();
+			writer.println("\tpublic boolean isUsingAuthorization() {");
+			writer.println("\t\treturn " + isUsingAuthorization(type) + ";");
+			writer.println("\t}");
+			writer.println();
+			writer.println("\tprivate static final class Invoker implements "
+					+ IMethodInvoker.class.getName() + " {");
+			writer.println("\t\tprivate final int methodIndex;");
+			writer.println();
+			writer.println("\t\tInvoker(int methodIndex) {");
+			writer.println("\t\t\tthis.methodIndex = methodIndex;");
+			writer.println("\t\t}");
+			writer.println();
+			writer.println("\t\t@SuppressWarnings(\"unchecked\")");
+			writer.println("\t\tpublic Object invoke(Object target, Object[] arguments) throws Exception {");
+			writer.println("\t\t\tswitch (methodIndex) {");
+
+			for (int i = 0; i < dispatchableMethods.size(); i++) {
+				writeInvocation(writer, typeName, dispatchableMethods.get(i), i);
+			}
+
+			writer.println("\t\t\tdefault:");
+			writer.println("\t\t\t\tthrow new IllegalStateException(\"Unknown method index \" + methodIndex);");
+			writer.println("\t\t\t}");
+			writer.println("\t\t}");
+			writer.println("\t}");
+			writer.println("}");
+		} finally {
+			writer.close();
+		}
+	}
+
+	/**
+	 * Tells if some method of the class is annotated with
+	 * {@link AuthorizeInvocation}.
+	 */
+	private static boolean isUsingAuthorization(TypeElement type) {
+		for (Element element : type.getEnclosedElements()) {
+			if (element.getKind() == ElementKind.METHOD
+					&& element.getAnnotation(AuthorizeInvocation.class) != null)
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Writes the descriptor of a mapped method in the route table.
+	 * 
+	 * @param invokerIndex
+	 *            the index of the method in the switch statement of the
+	 *            invoker, or -1 if the method must be invoked with
+	 *            reflection.
+	 */
+	private void writeRoute(PrintWriter writer, String typeName, ExecutableElement method,
+			int invokerIndex, boolean hasNext) {
+		MethodMapping methodMapping = method.getAnnotation(MethodMapping.class);
+		AuthorizeInvocation authorizeInvocation = method.getAnnotation(AuthorizeInvocation.class);
+		String[] roles = authorizeInvocation != null ? authorizeInvocation.value()
+				: new String[0];
+		StringBuilder rolesArray = new StringBuilder("new String[] {");
+
+		for (int i = 0; i < roles.length; i++)
+			rolesArray.append(i > 0 ? ", " : " ").append(toLiteral(roles[i]));
+
+		rolesArray.append(roles.length > 0 ? " }" : "}");
+
+		writer.println("\t\t\tnew " + RouteDescriptor.class.getName() + "(" + typeName
+				+ ".class, " + toLiteral(method.getSimpleName().toString()) + ",");
+		writer.println("\t\t\t\t\t" + toLiteral(methodMapping.value()) + ", "
+				+ HttpMethod.class.getName() + "." + methodMapping.httpMethod().name() + ", "
+				+ toLiteral(methodMapping.consumes()) + ", "
+				+ toLiteral(methodMapping.produces()) + ", " + methodMapping.cacheResolution()
+				+ ", " + rolesArray + ",");
+		writer.println("\t\t\t\t\t" + getClassName(method.getReturnType()) + ".class, "
+				+ getTypeExpression(method.getReturnType()) + ",");
+		writer.println("\t\t\t\t\tnew " + ParameterBinding.class.getName() + "[] {");
+
+		List<? extends VariableElement> parameters = method.getParameters();
+		int pathPosition = 0;
+
+		for (int i = 0; i < parameters.size(); i++) {
+			VariableElement parameter = parameters.get(i);
+			AnnotationMirror annotation = getAnnotationParam(parameter);
+
+			writer.println("\t\t\t\t\t\t" + getBinding(parameter, annotation, pathPosition)
+					+ (i < parameters.size() - 1 ? "," : ""));
+
+			if (annotation == null)
+				pathPosition++;
+		}
+
+		writer.println("\t\t\t\t\t}, " + (invokerIndex >= 0 ? "new Invoker(" + invokerIndex + ")"
+				: "null") + ")" + (hasNext ? "," : ""));
+	}
+
+	/**
+	 * Gets the annotation of a parameter that is annotated with
+	 * {@link AnnotatedParam}, like the reflective lookup of
+	 * {@link org.wicketstuff.rest.utils.reflection.ReflectionUtils#getAnnotationParam(java.lang.annotation.Annotation[])}.
+	 */
+	private static AnnotationMirror getAnnotationParam(VariableElement parameter) {
+		for (AnnotationMirror annotation : parameter.getAnnotationMirrors()) {
+			Element annotationType = annotation.getAnnotationType().asElement();
+
+			if (annotationType.getAnnotation(AnnotatedParam.class) != null)
+				return annotation;
+		}
+
+		return null;
+	}
+
+	/**
+	 * Gets the expression that creates the binding of a parameter, in the same
+	 * way of
+	 * {@link ParameterBinding#fromAnnotation(Class, java.lang.reflect.Type, java.lang.annotation.Annotation, int)}.
+	 */
+	private String getBinding(VariableElement parameter, AnnotationMirror annotation,
+			int pathPosition) {
+		String annotationName = annotation != null ? ((TypeElement) annotation
+				.getAnnotationType().asElement()).getQualifiedName().toString() : null;
+		ValueSource valueSource;
+		String valueName = null;
+		int valueIndex = -1;
+		boolean required = true;
+		String defaultValue = "";
+
+		if (annotation == null) {
+			valueSource = ValueSource.PATH_POSITION;
+			valueIndex = pathPosition;
+		} else if (annotationName.equals(PathParam.class.getName())) {
+			valueSource = ValueSource.PATH_PARAM;
+			valueName = parameter.getAnnotation(PathParam.class).value();
+		} else if (annotationName.equals(RequestParam.class.getName())) {
+			RequestParam requestParam = parameter.getAnnotation(RequestParam.class);
+
+			valueSource = ValueSource.REQUEST_PARAM;
+			valueName = requestParam.value();
+			required = requestParam.required();
+			defaultValue = requestParam.defaultValue();
+		} else if (annotationName.equals(HeaderParam.class.getName())) {
+			HeaderParam headerParam = parameter.getAnnotation(HeaderParam.class);
+
+			valueSource = ValueSource.HEADER_PARAM;
+			valueName = headerParam.value();
+			required = headerParam.required();
+			defaultValue = headerParam.defaultValue();
+		} else if (annotationName.equals(CookieParam.class.getName())) {
+			CookieParam cookieParam = parameter.getAnnotation(CookieParam.class);
+
+			valueSource = ValueSource.COOKIE_PARAM;
+			valueName = cookieParam.value();
+			required = cookieParam.required();
+			defaultValue = cookieParam.defaultValue();
+		} else if (annotationName.equals(MatrixParam.class.getName())) {
+			MatrixParam matrixParam = parameter.getAnnotation(MatrixParam.class);
+
+			valueSource = ValueSource.MATRIX_PARAM;
+			valueName = matrixParam.parameterName();
+			valueIndex = matrixParam.segmentIndex();
+			required = matrixParam.required();
+			defaultValue = matrixParam.defaultValue();
+		} else {
+			valueSource = ValueSource.REQUEST_BODY;
+		}
+
+		return "new " + ParameterBinding.class.getName() + "("
+				+ getClassName(parameter.asType()) + ".class, "
+				+ getTypeExpression(parameter.asType()) + ", "
+				+ ValueSource.class.getCanonicalName() + "." + valueSource.name() + ", "
+				+ toLiteral(valueName) + ", " + valueIndex + ", " + required + ", "
+				+ toLiteral(defaultValue) + ")";
+	}
+
+	/**
+	 * Gets the canonical name of the class of a type, i.e. of its erasure.
+	 */
+	private String getClassName(TypeMirror type) {
+		TypeMirror erasedType = processingEnv.getTypeUtils().erasure(type);
+
+		switch (erasedType.getKind()) {
+		case DECLARED:
+			return ((TypeElement) ((DeclaredType) erasedType).asElement()).getQualifiedName()
+					.toString();
+		case ARRAY:
+			return getClassName(((ArrayType) erasedType).getComponentType()) + "[]";
+		default:
+			// primitive types and void
+			return erasedType.getKind().name().toLowerCase(Locale.ENGLISH);
+		}
+	}
+
+	/**
+	 * Gets the expression that creates the generic type of a parameter or of
+	 * a return value (see {@link GenericTypes}). Type variables are replaced
+	 * by their erasure.
+	 */
+	private String getTypeExpression(TypeMirror type) {
+		switch (type.getKind()) {
+		case DECLARED:
+			List<? extends TypeMirror> typeArguments = ((DeclaredType) type).getTypeArguments();
+
+			if (typeArguments.isEmpty())
+				return getClassName(type) + ".class";
+
+			StringBuilder expression = new StringBuilder(GENERIC_TYPES).append(".parameterized(")
+					.append(getClassName(type)).append(".class");
+
+			for (TypeMirror typeArgument : typeArguments)
+				expression.append(", ").append(getTypeExpression(typeArgument));
+
+			return expression.append(')').toString();
+		case ARRAY:
+			TypeMirror componentType = ((ArrayType) type).getComponentType();
+
+			if (isParameterized(componentType))
+				return GENERIC_TYPES + ".arrayOf(" + getTypeExpression(componentType) + ")";
+
+			return getClassName(type) + ".class";
+		case WILDCARD:
+			WildcardType wildcardType = (WildcardType) type;
+
+			if (wildcardType.getSuperBound() != null)
+				return GENERIC_TYPES + ".supertypeOf("
+						+ getTypeExpression(wildcardType.getSuperBound()) + ")";
+
+			return GENERIC_TYPES
+					+ ".subtypeOf("
+					+ (wildcardType.getExtendsBound() != null ? getTypeExpression(wildcardType
+							.getExtendsBound()) : "java.lang.Object.class") + ")";
+		default:
+			return getClassName(type) + ".class";
+		}
+	}
+
+	/**
+	 * Checks if a type is a parameterized type or an array of parameterized
+	 * types.
+	 */
+	private static boolean isParameterized(TypeMirror type) {
+		if (type.getKind() == TypeKind.ARRAY)
+			return isParameterized(((ArrayType) type).getComponentType());
+
+		return type.getKind() == TypeKind.DECLARED
+				&& !((DeclaredType) type).getTypeArguments().isEmpty();
+	}
+
+	/**
+	 * Gets the Java literal of a string, or 'null'.
+	 */
+	static String toLiteral(String value) {
+		if (value == null)
+			return "null";
+
+		StringBuilder literal = new StringBuilder("\"");
+
+		for (int i = 0; i < value.length(); i++) {
+			char character = value.charAt(i);
+
+			switch (character) {
+			case '"':
+				literal.append("\\\"");
+				break;
+			case '\\':
+				literal.append("\\\\");
+				break;
+			case '\n':
+				literal.append("\\n");
+				break;
+			case '\r':
+				literal.append("\\r");
+				break;
+			case '\t':
+				literal.append("\\t");
+				break;
+			default:
+				if (character < 0x20 || character > 0x7e)
+					literal.append(String.format("\\u%04x", (int) character));
+				else
+					literal.append(character);
+			}
+		}
+
+		return literal.append('"').toString();
+	}
+
+	/**
+	 * Writes the case of the switch statement that calls the given method.
+	 */
+	private void writeInvocation(PrintWriter writer, String typeName, ExecutableElement method,
+			int methodIndex) {
+		StringBuilder call = new StringBuilder();
+
+		if (method.getModifiers().contains(Modifier.STATIC))
+			call.append(typeName);
+		else
+			call.append("((").append(typeName).append(") target)");
+
+		call.append('.').append(method.getSimpleName()).append('(');
+
+		List<? extends VariableElement> parameters = method.getParameters();
+
+		for (int i = 0; i < parameters.size(); i++) {
+			if (i > 0)
+				call.append(", ");
+
+			call.append('(').append(getCastType(parameters.get(i).asType())).append(") arguments[")
+					.append(i).append(']');
+		}
+
+		call.append(')');
+
+		writer.println("\t\t\tcase " + methodIndex + ":");
+
+		if (method.getReturnType().getKind() == TypeKind.VOID) {
+			writer.println("\t\t\t\t" + call + ";");
+			writer.println("\t\t\t\treturn null;");
+		} else {
+			writer.println("\t\t\t\treturn " + call + ";");
+		}
+	}
+
+	/**
+	 * Gets the type used to cast an argument of the given type. Primitive
+	 * arguments are cast to their wrapper type and then unboxed.
+	 */
+	private String getCastType(TypeMirror parameterType) {
+		Types types = processingEnv.getTypeUtils();
+		TypeMirror erasedType = types.erasure(parameterType);
+
+		if (erasedType.getKind().isPrimitive())
+			return types.boxedClass((PrimitiveType) erasedType).getQualifiedName().toString();
+
+		return erasedType.toString();
+	}
+
+	/**
+	 * Gets the signature of a method in the same format of
+	 * {@link ResourceDispatchers#getMethodSignature(java.lang.reflect.Method)}.
+	 */
+	static String getSignature(ExecutableElement method, Types types) {
+		StringBuilder signature = new StringBuilder(method.getSimpleName()).append('(');
+		List<? extends VariableElement> parameters = method.getParameters();
+
+		for (int i = 0; i < parameters.size(); i++) {
+			if (i > 0)
+				signature.append(',');
+
+			signature.append(types.erasure(parameters.get(i).asType()).toString());
+		}
+
+		return signature.append(')').toString();
+	}
+}
@@ -0,0 +1,162 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.processor;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.apache.wicket.util.io.IOUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.wicketstuff.rest.resource.ResourceIndex;
+
+/**
+ * Compiles resource classes with {@link ResourceIndexProcessor} and checks
+ * the index it writes, also across incremental builds.
+ */
+public class TestResourceIndexProcessor extends Assert {
+	private File sourceDir;
+	private File outputDir;
+
+	@Before
+	public void setUp() throws IOException {
+		sourceDir = createTempDir("sources");
+		outputDir = createTempDir("classes");
+	}
+
+	@After
+	public void tearDown() {
+		delete(sourceDir);
+		delete(outputDir);
+	}
+
+	@Test
+	public void testIndexUpdatedIncrementally() throws Exception {
+		File itemsSource = writeSource("ItemsResource", "@ResourcePath(\"/items\")");
+		File ordersSource = writeSource("OrdersResource", "@ResourcePath(\"/orders\")");
+
+		compile(itemsSource, ordersSource);
+
+		String index = readIndex();
+
+		assertTrue(index.contains("org.example.ItemsResource\t/items\n"));
+		assertTrue(index.contains("org.example.OrdersResource\t/orders\n"));
+
+		// entries of classes that aren't compiled again are kept
+		compile(writeSource("ItemsResource", "@ResourcePath(\"/products\")"));
+
+		index = readIndex();
+
+		assertTrue(index.contains("org.example.ItemsResource\t/products\n"));
+		assertFalse(index.contains("/items"));
+		assertTrue(index.contains("org.example.OrdersResource\t/orders\n"));
+
+		// the index is rewritten even if no compiled class is annotated
+		compile(writeSource("ItemsResource", ""));
+
+		index = readIndex();
+
+		assertFalse(index.contains("org.example.ItemsResource"));
+		assertTrue(index.contains("org.example.OrdersResource\t/orders\n"));
+
+		compile(writeSource("OrdersResource", ""));
+
+		assertFalse(readIndex().contains("org.example.OrdersResource"));
+	}
+
+	private File writeSource(String className, String annotation) throws IOException {
+		File sourceFile = new File(sourceDir, "org/example/" + className + ".java");
+
+		sourceFile.getParentFile().mkdirs();
+
+		Writer writer = new OutputStreamWriter(new FileOutputStream(sourceFile), "UTF-8");
+
+		try {
+			writer.write("package org.example;\n\n"
+					+ "import org.wicketstuff.rest.annotations.ResourcePath;\n\n" + annotation
+					+ "\npublic class " + className + " {\n}\n");
+		} finally {
+			writer.close();
+		}
+
+		return sourceFile;
+	}
+
+	private void compile(File... sourceFiles) throws IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null);
+
+		try {
+			Iterable<? extends JavaFileObject> compilationUnits = fileManager
+					.getJavaFileObjects(sourceFiles);
+			String classPath = outputDir.getPath() + File.pathSeparator
+					+ System.getProperty("java.class.path");
+			JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, null,
+					Arrays.asList("-d", outputDir.getPath(), "-classpath", classPath), null,
+					compilationUnits);
+
+			task.setProcessors(Arrays.asList(new ResourceIndexProcessor()));
+			assertTrue(task.call());
+		} finally {
+			fileManager.close();
+		}
+	}
+
+	private String readIndex() throws IOException {
+		InputStream indexStream = new FileInputStream(new File(outputDir,
+				ResourceIndex.INDEX_LOCATION));
+
+		try {
+			return IOUtils.toString(indexStream, "UTF-8");
+		} finally {
+			indexStream.close();
+		}
+	}
+
+	private static File createTempDir(String prefix) throws IOException {
+		File dir = File.createTempFile(prefix, "");
+
+		dir.delete();
+		dir.mkdirs();
+
+		return dir;
+	}
+
+	private static void delete(File file) {
+		File[] children = file.listFiles();
+
+		if (children != null) {
+			for (File child : children)
+				delete(child);
+		}
+
+		file.delete();
+	}
+}
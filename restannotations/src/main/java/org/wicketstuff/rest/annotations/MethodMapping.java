@@ -39,4 +39,11 @@ public @interface MethodMapping {
 	HttpMethod httpMethod() default HttpMethod.GET;
 	String consumes() default RestMimeTypes.APPLICATION_JSON;
 	String produces() default RestMimeTypes.APPLICATION_JSON;
+	/**
+	 * Tells if the method selected for a given URL can be cached together with
+	 * its path parameters (see {@link org.wicketstuff.rest.resource.RestResourceSettings#setRouteCacheSize(int)}).
+	 * Set it to false for methods mapped on URLs that are rarely requested
+	 * twice, to leave room in cache for the other methods.
+	 */
+	boolean cacheResolution() default true;
 }
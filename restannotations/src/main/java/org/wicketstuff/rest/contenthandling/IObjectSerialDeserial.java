@@ -21,6 +21,9 @@ import org.apache.wicket.request.http.WebResponse;
 
 /**
  * General interface to implement object serializers/deserializers.
+ * Serializers can also implement {@link ITypedObjectSerialDeserial} to work
+ * with the declared (generic) types of results and request bodies and to
+ * stream sequences of objects.
  * 
  * @author andrea del bene
  * 
@@ -28,6 +31,9 @@ import org.apache.wicket.request.http.WebResponse;
 public interface IObjectSerialDeserial {
 	/**
 	 * Write the object in input to the response converting it to a given MIME type.
+	 * Implementations should write to the output of the response as the object
+	 * is serialized (see {@link org.apache.wicket.request.Response#getOutputStream()}),
+	 * rather than building the whole content in memory.
 	 * 
 	 * @param targetObject
 	 *            the object instance to serialize to string.
@@ -52,7 +58,7 @@ public interface IObjectSerialDeserial {
 	 * @return the object extracted from the request.
 	 */
 	public <T> T requestToObject(WebRequest request, Class<T> argClass, String mimeType) throws Exception;
-	
+
 	/**
 	 * Check if a given MIME type is handled.
 	 * 
@@ -0,0 +1,104 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.contenthandling;
+
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.apache.wicket.request.http.WebRequest;
+import org.apache.wicket.request.http.WebResponse;
+
+/**
+ * Optional extension of {@link IObjectSerialDeserial} for serializers that
+ * work with the declared types of results and request bodies, which can be
+ * parameterized types like List&lt;Person&gt;, and that can stream sequences
+ * of objects. Resources use these methods only if their serializer implements
+ * this interface, otherwise they fall back to the methods of
+ * {@link IObjectSerialDeserial} (see {@link SerialDeserialUtils}).
+ * 
+ * @author andrea del bene
+ * 
+ */
+public interface ITypedObjectSerialDeserial extends IObjectSerialDeserial {
+	/**
+	 * Write the object in input to the response converting it to a given MIME type.
+	 * The object is serialized as an instance of the given type, which can be a 
+	 * parameterized type like List&lt;Person&gt;.
+	 * 
+	 * @param targetObject
+	 *            the object instance to serialize to string.
+	 * @param targetType
+	 *            the declared type of the object.
+	 * @param response
+	 * 			  the response object.	           
+	 * @param mimeType
+	 *            the MIME type of the response.
+	 * @throws Exception 
+	 */
+	public void objectToResponse(Object targetObject, Type targetType, WebResponse response, String mimeType) throws Exception;
+
+	/**
+	 * Write a sequence of objects to the response, one element at a time. With
+	 * {@link RestMimeTypes#APPLICATION_JSON} the elements are written as a JSON
+	 * array, with {@link RestMimeTypes#APPLICATION_NDJSON} as newline-delimited
+	 * JSON. Implementations must write the elements and their delimiters
+	 * through the same output and must not keep the whole sequence in memory.
+	 * 
+	 * @param elements
+	 *            the elements to write.
+	 * @param elementType
+	 *            the declared type of the elements, like Person for a method
+	 *            returning Iterator&lt;Person&gt;.
+	 * @param response
+	 * 			  the response object.	           
+	 * @param mimeType
+	 *            the MIME type of the response.
+	 * @param flushInterval
+	 *            the number of elements to write between two flushes of the
+	 *            response.
+	 * @throws Exception 
+	 */
+	public void elementsToResponse(Iterator<?> elements, Type elementType, WebResponse response,
+			String mimeType, int flushInterval) throws Exception;
+
+	/**
+	 * Extract an instance of a generic type form the request.
+	 * 
+	 * @param request
+	 * 			the request object.	
+	 * @param argType
+	 * 			the type of the object we want to extract, which can be a
+	 * 			parameterized type like List&lt;Person&gt;.
+	 * @param mimeType 
+	 * 			the MIME type of the request.
+	 * 
+	 * @return the object extracted from the request.
+	 */
+	public Object requestToObject(WebRequest request, Type argType, String mimeType) throws Exception;
+
+	/**
+	 * Prepares to (de)serialize objects of the given types, so that the first
+	 * requests don't have to pay the cost of inspecting them. It's invoked
+	 * when a resource is created, with the types of request bodies and 
+	 * results of its mapped methods.
+	 * 
+	 * @param types
+	 * 			the types that will be (de)serialized.
+	 */
+	public void warmUp(Collection<Type> types);
+}
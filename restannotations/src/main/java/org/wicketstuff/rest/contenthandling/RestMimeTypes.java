@@ -39,6 +39,12 @@ public class RestMimeTypes {
 	
 	public static final String APPLICATION_JSON = "application/json";
 	
+	/** Newline-delimited JSON, i.e. a JSON value on every line. */
+	public static final String APPLICATION_NDJSON = "application/x-ndjson";
+	
+	/** Concise Binary Object Representation (RFC 7049). */
+	public static final String APPLICATION_CBOR = "application/cbor";
+	
 	public static final String IMAGE_GIF = "image/gif";
 	
 	public static final String IMAGE_JPEG = "image/jpeg";
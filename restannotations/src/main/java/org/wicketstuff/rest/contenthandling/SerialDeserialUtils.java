@@ -0,0 +1,108 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.contenthandling;
+
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.wicket.request.http.WebRequest;
+import org.apache.wicket.request.http.WebResponse;
+import org.wicketstuff.rest.utils.reflection.ReflectionUtils;
+
+/**
+ * Utility class to invoke the methods of {@link ITypedObjectSerialDeserial}
+ * on any {@link IObjectSerialDeserial}. Serializers that don't implement
+ * {@link ITypedObjectSerialDeserial} are used through the methods of
+ * {@link IObjectSerialDeserial}, with the raw classes of the declared types.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class SerialDeserialUtils {
+	private SerialDeserialUtils() {
+	}
+
+	/**
+	 * Writes the object to the response as an instance of the given type.
+	 * 
+	 * @see ITypedObjectSerialDeserial#objectToResponse(Object, Type, WebResponse, String)
+	 */
+	public static void objectToResponse(IObjectSerialDeserial serialDeserial,
+			Object targetObject, Type targetType, WebResponse response, String mimeType)
+			throws Exception {
+		if (serialDeserial instanceof ITypedObjectSerialDeserial) {
+			((ITypedObjectSerialDeserial) serialDeserial).objectToResponse(targetObject,
+					targetType, response, mimeType);
+			return;
+		}
+
+		serialDeserial.objectToResponse(targetObject, response, mimeType);
+	}
+
+	/**
+	 * Writes a sequence of objects to the response. Serializers that don't
+	 * implement {@link ITypedObjectSerialDeserial} can't stream the elements,
+	 * so these are collected in a list that is written as a single object.
+	 * 
+	 * @see ITypedObjectSerialDeserial#elementsToResponse(Iterator, Type, WebResponse, String, int)
+	 */
+	public static void elementsToResponse(IObjectSerialDeserial serialDeserial,
+			Iterator<?> elements, Type elementType, WebResponse response, String mimeType,
+			int flushInterval) throws Exception {
+		if (serialDeserial instanceof ITypedObjectSerialDeserial) {
+			((ITypedObjectSerialDeserial) serialDeserial).elementsToResponse(elements,
+					elementType, response, mimeType, flushInterval);
+			return;
+		}
+
+		List<Object> elementsList = new ArrayList<Object>();
+
+		while (elements.hasNext())
+			elementsList.add(elements.next());
+
+		serialDeserial.objectToResponse(elementsList, response, mimeType);
+	}
+
+	/**
+	 * Extracts an instance of the given type from the request.
+	 * 
+	 * @see ITypedObjectSerialDeserial#requestToObject(WebRequest, Type, String)
+	 */
+	public static Object requestToObject(IObjectSerialDeserial serialDeserial,
+			WebRequest request, Type argType, String mimeType) throws Exception {
+		if (serialDeserial instanceof ITypedObjectSerialDeserial)
+			return ((ITypedObjectSerialDeserial) serialDeserial).requestToObject(request,
+					argType, mimeType);
+
+		return serialDeserial.requestToObject(request, ReflectionUtils.getRawClass(argType),
+				mimeType);
+	}
+
+	/**
+	 * Prepares the serializer for the given types. It does nothing if the
+	 * serializer doesn't implement {@link ITypedObjectSerialDeserial}.
+	 * 
+	 * @see ITypedObjectSerialDeserial#warmUp(Collection)
+	 */
+	public static void warmUp(IObjectSerialDeserial serialDeserial, Collection<Type> types) {
+		if (serialDeserial instanceof ITypedObjectSerialDeserial)
+			((ITypedObjectSerialDeserial) serialDeserial).warmUp(types);
+	}
+}
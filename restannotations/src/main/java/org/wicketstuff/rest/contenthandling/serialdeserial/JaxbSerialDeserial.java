@@ -0,0 +1,335 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.contenthandling.serialdeserial;
+
+import java.beans.Introspector;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.namespace.QName;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.wicketstuff.rest.contenthandling.RestMimeTypes;
+import org.wicketstuff.rest.utils.collections.ResultStreams;
+import org.wicketstuff.rest.utils.reflection.ReflectionUtils;
+
+/**
+ * Textual object serializer/deserializer that works with XML format and uses
+ * JAXB. A {@link JAXBContext} is created once for every class, while
+ * marshallers and unmarshallers (which are cheap to create and not
+ * thread-safe) are created from it for every object written or read. Objects
+ * are written directly to the response and read directly from the
+ * request.<br/>
+ * Collections, iterators and streams are written element by element with
+ * StAX, inside an element named {@link #COLLECTION_ELEMENT}; in the same way,
+ * request bodies are read element by element when the expected type is a
+ * parameterized collection (like List&lt;Person&gt;).<br/>
+ * Classes not annotated with {@link XmlRootElement} are written inside an
+ * element named after the class (e.g. 'person' for class Person).<br/>
+ * To support both {@link RestMimeTypes#APPLICATION_XML} and
+ * {@link RestMimeTypes#TEXT_XML}, register an instance for each type with
+ * {@link MultiFormatSerialDeserial}.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class JaxbSerialDeserial extends TextualObjectSerialDeserial {
+	/** Name of the element that contains the elements of a collection. */
+	public static final String COLLECTION_ELEMENT = "collection";
+
+	private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+	private static final XMLInputFactory INPUT_FACTORY = newInputFactory();
+
+	private final boolean formattedOutput;
+
+	private final ConcurrentMap<Class<?>, JAXBContext> contexts = new ConcurrentHashMap<Class<?>, JAXBContext>();
+
+	public JaxbSerialDeserial() {
+		this(RestMimeTypes.APPLICATION_XML);
+	}
+
+	public JaxbSerialDeserial(String mimeType) {
+		this("UTF-8", mimeType, false);
+	}
+
+	/**
+	 * Instantiates a new JAXB serial deserial.
+	 * 
+	 * @param charset
+	 *            the charset
+	 * @param mimeType
+	 *            the MIME type, either {@link RestMimeTypes#APPLICATION_XML}
+	 *            or {@link RestMimeTypes#TEXT_XML}.
+	 * @param formattedOutput
+	 *            true to indent the XML of objects that are not collections.
+	 */
+	public JaxbSerialDeserial(String charset, String mimeType, boolean formattedOutput) {
+		super(charset, mimeType);
+		this.formattedOutput = formattedOutput;
+	}
+
+	@Override
+	public String objectToString(Object targetObject, String mimeType) {
+		StringWriter writer = new StringWriter();
+
+		objectToWriter(targetObject, writer, mimeType);
+
+		return writer.toString();
+	}
+
+	@Override
+	public void objectToWriter(Object targetObject, Writer writer, String mimeType) {
+		if (targetObject == null)
+			return;
+
+		boolean elementSequence = isElementSequence(targetObject);
+
+		try {
+			if (elementSequence)
+				writeElements(ResultStreams.toIterator(targetObject), writer);
+			else
+				newMarshaller(targetObject.getClass(), false).marshal(toRootElement(targetObject),
+						writer);
+		} catch (Exception e) {
+			throw new WicketRuntimeException("Error marshalling object to XML.", e);
+		} finally {
+			if (elementSequence)
+				ResultStreams.close(targetObject);
+		}
+	}
+
+	@Override
+	public <T> T stringToObject(String source, Class<T> targetClass, String mimeType) {
+		return readerToObject(new StringReader(source), targetClass, mimeType);
+	}
+
+	@Override
+	public <T> T readerToObject(Reader reader, Class<T> targetClass, String mimeType) {
+		try {
+			XMLStreamReader xmlReader = INPUT_FACTORY.createXMLStreamReader(reader);
+
+			return newUnmarshaller(targetClass).unmarshal(xmlReader, targetClass).getValue();
+		} catch (Exception e) {
+			throw new WicketRuntimeException("Error unmarshalling object from XML.", e);
+		}
+	}
+
+	@Override
+	public Object readerToObject(Reader reader, Type targetType, String mimeType) {
+		Class<?> rawClass = ReflectionUtils.getRawClass(targetType);
+
+		if (!(targetType instanceof ParameterizedType) || !Collection.class.isAssignableFrom(rawClass))
+			return readerToObject(reader, rawClass, mimeType);
+
+		Class<?> elementClass = ReflectionUtils.getRawClass(((ParameterizedType) targetType)
+				.getActualTypeArguments()[0]);
+		Collection<Object> elements = Set.class.isAssignableFrom(rawClass) ? new LinkedHashSet<Object>()
+				: new ArrayList<Object>();
+
+		try {
+			readElements(INPUT_FACTORY.createXMLStreamReader(reader), elementClass, elements);
+		} catch (Exception e) {
+			throw new WicketRuntimeException("Error unmarshalling collection from XML.", e);
+		}
+
+		return elements;
+	}
+
+	/**
+	 * Tells if an object must be written as a sequence of elements.
+	 */
+	private boolean isElementSequence(Object targetObject) {
+		Class<?> targetClass = targetObject.getClass();
+
+		if (targetClass.isAnnotationPresent(XmlRootElement.class))
+			return false;
+
+		return targetObject instanceof Collection || ResultStreams.isStreamable(targetClass);
+	}
+
+	/**
+	 * Writes the elements of a collection one at a time. A marshaller is
+	 * created for every class of elements and it's used for the whole
+	 * collection.
+	 */
+	private void writeElements(Iterator<?> iterator, Writer writer) throws XMLStreamException,
+			JAXBException {
+		XMLStreamWriter xmlWriter = OUTPUT_FACTORY.createXMLStreamWriter(writer);
+		Map<Class<?>, Marshaller> marshallers = new HashMap<Class<?>, Marshaller>();
+
+		xmlWriter.writeStartDocument(getCharset(), "1.0");
+		xmlWriter.writeStartElement(COLLECTION_ELEMENT);
+
+		while (iterator.hasNext()) {
+			Object element = iterator.next();
+
+			if (element == null)
+				continue;
+
+			Marshaller marshaller = marshallers.get(element.getClass());
+
+			if (marshaller == null) {
+				marshaller = newMarshaller(element.getClass(), true);
+				marshallers.put(element.getClass(), marshaller);
+			}
+
+			marshaller.marshal(toRootElement(element), xmlWriter);
+		}
+
+		xmlWriter.writeEndElement();
+		xmlWriter.writeEndDocument();
+		xmlWriter.flush();
+	}
+
+	/**
+	 * Reads the children of the root element one at a time. The root element
+	 * must be named {@link #COLLECTION_ELEMENT}. Whitespace, comments and
+	 * processing instructions between the children are skipped.
+	 */
+	private void readElements(XMLStreamReader xmlReader, Class<?> elementClass,
+			Collection<Object> elements) throws XMLStreamException, JAXBException {
+		Unmarshaller unmarshaller = newUnmarshaller(elementClass);
+
+		xmlReader.nextTag();
+		xmlReader.require(XMLStreamConstants.START_ELEMENT, null, COLLECTION_ELEMENT);
+		xmlReader.nextTag();
+
+		while (xmlReader.isStartElement()) {
+			elements.add(unmarshaller.unmarshal(xmlReader, elementClass).getValue());
+			skipToTag(xmlReader);
+		}
+	}
+
+	/**
+	 * Advances the reader to the next start or end element, unless it's
+	 * already on one of them. Unlike {@link XMLStreamReader#nextTag()}, the
+	 * current event is examined before moving on, as the unmarshaller leaves
+	 * the reader on the event that follows the element it has read.
+	 * 
+	 * @throws XMLStreamException
+	 *             if anything but whitespace, comments and processing
+	 *             instructions is found.
+	 */
+	private static void skipToTag(XMLStreamReader xmlReader) throws XMLStreamException {
+		while (true) {
+			switch (xmlReader.getEventType()) {
+			case XMLStreamConstants.START_ELEMENT:
+			case XMLStreamConstants.END_ELEMENT:
+				return;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				if (!xmlReader.isWhiteSpace())
+					throw new XMLStreamException("Unexpected text between collection elements: '"
+							+ xmlReader.getText().trim() + "'.", xmlReader.getLocation());
+				break;
+			case XMLStreamConstants.COMMENT:
+			case XMLStreamConstants.PROCESSING_INSTRUCTION:
+				break;
+			default:
+				throw new XMLStreamException("Unexpected event between collection elements: "
+						+ xmlReader.getEventType() + ".", xmlReader.getLocation());
+			}
+
+			xmlReader.next();
+		}
+	}
+
+	/**
+	 * Wraps an object not annotated with {@link XmlRootElement} in an element
+	 * named after its class.
+	 */
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private Object toRootElement(Object targetObject) {
+		Class targetClass = targetObject.getClass();
+
+		if (targetClass.isAnnotationPresent(XmlRootElement.class))
+			return targetObject;
+
+		QName elementName = new QName(Introspector.decapitalize(targetClass.getSimpleName()));
+
+		return new JAXBElement(elementName, targetClass, targetObject);
+	}
+
+	private JAXBContext getContext(Class<?> targetClass) throws JAXBException {
+		JAXBContext context = contexts.get(targetClass);
+
+		if (context == null) {
+			context = JAXBContext.newInstance(targetClass);
+
+			JAXBContext existingContext = contexts.putIfAbsent(targetClass, context);
+
+			if (existingContext != null)
+				context = existingContext;
+		}
+
+		return context;
+	}
+
+	private Marshaller newMarshaller(Class<?> targetClass, boolean fragment) throws JAXBException {
+		Marshaller marshaller = getContext(targetClass).createMarshaller();
+
+		marshaller.setProperty(Marshaller.JAXB_ENCODING, getCharset());
+		marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, formattedOutput);
+		marshaller.setProperty(Marshaller.JAXB_FRAGMENT, fragment);
+
+		return marshaller;
+	}
+
+	private Unmarshaller newUnmarshaller(Class<?> targetClass) throws JAXBException {
+		return getContext(targetClass).createUnmarshaller();
+	}
+
+	/**
+	 * Creates the factory of StAX readers, with DTDs and external entities
+	 * disabled.
+	 */
+	private static XMLInputFactory newInputFactory() {
+		XMLInputFactory inputFactory = XMLInputFactory.newInstance();
+
+		inputFactory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		inputFactory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+		return inputFactory;
+	}
+}
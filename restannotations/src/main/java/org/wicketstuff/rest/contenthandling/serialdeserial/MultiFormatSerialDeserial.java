@@ -16,12 +16,18 @@
  */
 package org.wicketstuff.rest.contenthandling.serialdeserial;
 
+import java.lang.reflect.Type;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
 import org.apache.wicket.request.http.WebRequest;
 import org.apache.wicket.request.http.WebResponse;
 import org.wicketstuff.rest.contenthandling.IObjectSerialDeserial;
+import org.wicketstuff.rest.contenthandling.ITypedObjectSerialDeserial;
+import org.wicketstuff.rest.contenthandling.RestMimeTypes;
+import org.wicketstuff.rest.contenthandling.SerialDeserialUtils;
 
 /**
  * Object serializer/deserializer that supports multiple formats.
@@ -29,7 +35,7 @@ import org.wicketstuff.rest.contenthandling.IObjectSerialDeserial;
  * @author andrea del bene
  *
  */
-public class MultiFormatSerialDeserial implements IObjectSerialDeserial {
+public class MultiFormatSerialDeserial implements ITypedObjectSerialDeserial {
 	
 	private final Map<String, IObjectSerialDeserial> serialsDeserials = new HashMap<String, IObjectSerialDeserial>();
 	
@@ -43,6 +49,36 @@ public class MultiFormatSerialDeserial implements IObjectSerialDeserial {
 			serialDeserial.objectToResponse(targetObject, response, mimeType);
 	}
 
+	@Override
+	public void objectToResponse(Object targetObject, Type targetType, WebResponse response,
+			String mimeType) throws Exception {
+		
+		IObjectSerialDeserial serialDeserial = serialsDeserials.get(mimeType);
+		
+		if(serialDeserial != null)
+			SerialDeserialUtils.objectToResponse(serialDeserial, targetObject, targetType,
+					response, mimeType);
+	}
+
+	/**
+	 * Delegates to the serial/deserial registered for the given MIME type.
+	 * Newline-delimited JSON is written by the serial/deserial registered for
+	 * {@link RestMimeTypes#APPLICATION_JSON}, unless one is registered for
+	 * {@link RestMimeTypes#APPLICATION_NDJSON}.
+	 */
+	@Override
+	public void elementsToResponse(Iterator<?> elements, Type elementType, WebResponse response,
+			String mimeType, int flushInterval) throws Exception {
+		IObjectSerialDeserial serialDeserial = serialsDeserials.get(mimeType);
+		
+		if(serialDeserial == null && RestMimeTypes.APPLICATION_NDJSON.equals(mimeType))
+			serialDeserial = serialsDeserials.get(RestMimeTypes.APPLICATION_JSON);
+		
+		if(serialDeserial != null)
+			SerialDeserialUtils.elementsToResponse(serialDeserial, elements, elementType,
+					response, mimeType, flushInterval);
+	}
+
 	@Override
 	public <T> T requestToObject(WebRequest request, Class<T> targetClass, String mimeType)
 			throws Exception {
@@ -54,6 +90,24 @@ public class MultiFormatSerialDeserial implements IObjectSerialDeserial {
 		return null;
 	}
 
+	@Override
+	public Object requestToObject(WebRequest request, Type targetType, String mimeType)
+			throws Exception {
+		IObjectSerialDeserial serialDeserial = serialsDeserials.get(mimeType);
+		
+		if(serialDeserial != null)
+			return SerialDeserialUtils.requestToObject(serialDeserial, request, targetType,
+					mimeType);
+		
+		return null;
+	}
+
+	@Override
+	public void warmUp(Collection<Type> types) {
+		for (IObjectSerialDeserial serialDeserial : serialsDeserials.values())
+			SerialDeserialUtils.warmUp(serialDeserial, types);
+	}
+
 	/**
 	 * Register a new serial/deserial for the given MIME type.
 	 * @param serialDeserial
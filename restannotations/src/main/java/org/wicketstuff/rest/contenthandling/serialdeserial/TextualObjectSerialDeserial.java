@@ -16,13 +16,24 @@
  */
 package org.wicketstuff.rest.contenthandling.serialdeserial;
 
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.Collection;
+import java.util.Iterator;
+
 import javax.servlet.ServletResponse;
 
 import org.apache.wicket.request.http.WebRequest;
 import org.apache.wicket.request.http.WebResponse;
-import org.wicketstuff.rest.contenthandling.IObjectSerialDeserial;
+import org.apache.wicket.util.io.IOUtils;
+import org.wicketstuff.rest.contenthandling.ITypedObjectSerialDeserial;
 import org.wicketstuff.rest.contenthandling.RestMimeTypes;
 import org.wicketstuff.rest.utils.http.HttpUtils;
+import org.wicketstuff.rest.utils.reflection.ReflectionUtils;
 
 // TODO: Auto-generated Javadoc
 /**
@@ -31,7 +42,7 @@ import org.wicketstuff.rest.utils.http.HttpUtils;
  * @author andrea del bene
  * 
  */
-public abstract class TextualObjectSerialDeserial implements IObjectSerialDeserial {
+public abstract class TextualObjectSerialDeserial implements ITypedObjectSerialDeserial {
 	
 	/** the supported charset. */
 	private final String charset;
@@ -56,16 +67,79 @@ public abstract class TextualObjectSerialDeserial implements IObjectSerialDeseri
 	@Override
 	public void objectToResponse(Object targetObject, WebResponse response, String mimeType)
 			throws Exception {
+		objectToResponse(targetObject, targetObject == null ? Object.class : targetObject.getClass(),
+				response, mimeType);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.wicketstuff.rest.contenthandling.ITypedObjectSerialDeserial#objectToResponse(java.lang.Object, java.lang.reflect.Type, org.apache.wicket.request.http.WebResponse, java.lang.String)
+	 */
+	@Override
+	public void objectToResponse(Object targetObject, Type targetType, WebResponse response,
+			String mimeType) throws Exception {
 		setCharsetResponse(response);
 		
-		String strOutput;
+		if (RestMimeTypes.TEXT_PLAIN.equals(mimeType)) {
+			response.write(targetObject == null ? "" : targetObject.toString());
+			return;
+		}
 		
-		if(RestMimeTypes.TEXT_PLAIN.equals(mimeType))
-			strOutput = targetObject == null ? "" : targetObject.toString();
-		else
-			strOutput = objectToString(targetObject, mimeType);
+		Writer writer = new OutputStreamWriter(response.getOutputStream(), charset);
 		
-		response.write(strOutput);
+		objectToWriter(targetObject, targetType, writer, mimeType);
+		writer.flush();
+	}
+
+	/**
+	 * Writes the elements with a single writer bound to the output of the
+	 * response, which is also used for the delimiters of the sequence. Every
+	 * element is written with {@link #objectToWriter(Object, Type, Writer, String)}
+	 * as an instance of the declared type if this is generic, otherwise as an
+	 * instance of its runtime class.
+	 * 
+	 * @see org.wicketstuff.rest.contenthandling.ITypedObjectSerialDeserial#elementsToResponse(java.util.Iterator, java.lang.reflect.Type, org.apache.wicket.request.http.WebResponse, java.lang.String, int)
+	 */
+	@Override
+	public void elementsToResponse(Iterator<?> elements, Type elementType, WebResponse response,
+			String mimeType, int flushInterval) throws Exception {
+		boolean newlineDelimited = RestMimeTypes.APPLICATION_NDJSON.equals(mimeType);
+		Writer writer = new OutputStreamWriter(response.getOutputStream(), charset);
+		int writtenElements = 0;
+
+		setCharsetResponse(response);
+
+		if (!newlineDelimited)
+			writer.write('[');
+
+		while (elements.hasNext()) {
+			Object element = elements.next();
+
+			if (writtenElements > 0 && !newlineDelimited)
+				writer.write(',');
+
+			objectToWriter(element, getElementType(element, elementType), writer,
+					RestMimeTypes.APPLICATION_JSON);
+
+			if (newlineDelimited)
+				writer.write('\n');
+
+			if (++writtenElements % flushInterval == 0) {
+				writer.flush();
+				response.flush();
+			}
+		}
+
+		if (!newlineDelimited)
+			writer.write(']');
+
+		writer.flush();
+	}
+
+	private static Type getElementType(Object element, Type elementType) {
+		if (elementType instanceof ParameterizedType || elementType instanceof GenericArrayType)
+			return elementType;
+
+		return element == null ? Object.class : element.getClass();
 	}
 
 	/**
@@ -73,7 +147,7 @@ public abstract class TextualObjectSerialDeserial implements IObjectSerialDeseri
 	 *
 	 * @param response the new charset response
 	 */
-	private void setCharsetResponse(WebResponse response) {
+	protected void setCharsetResponse(WebResponse response) {
 		if (response.getContainerResponse() instanceof ServletResponse) {
 			ServletResponse sResponse = (ServletResponse) response.getContainerResponse();
 			sResponse.setCharacterEncoding(charset);
@@ -86,7 +160,26 @@ public abstract class TextualObjectSerialDeserial implements IObjectSerialDeseri
 	@Override
 	public <T> T requestToObject(WebRequest request, Class<T> targetClass, String mimeType)
 			throws Exception {
-		return stringToObject(HttpUtils.readStringFromRequest(request), targetClass, mimeType);
+		return readerToObject(HttpUtils.getRequestReader(request, charset), targetClass, mimeType);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.wicketstuff.rest.contenthandling.ITypedObjectSerialDeserial#requestToObject(org.apache.wicket.request.http.WebRequest, java.lang.reflect.Type, java.lang.String)
+	 */
+	@Override
+	public Object requestToObject(WebRequest request, Type targetType, String mimeType)
+			throws Exception {
+		return readerToObject(HttpUtils.getRequestReader(request, charset), targetType, mimeType);
+	}
+
+	/**
+	 * Does nothing by default. Subclasses can override it to inspect the
+	 * given types in advance.
+	 * 
+	 * @see org.wicketstuff.rest.contenthandling.ITypedObjectSerialDeserial#warmUp(java.util.Collection)
+	 */
+	@Override
+	public void warmUp(Collection<Type> types) {
 	}
 
 	/* (non-Javadoc)
@@ -108,6 +201,47 @@ public abstract class TextualObjectSerialDeserial implements IObjectSerialDeseri
 	 */
 	public abstract String objectToString(Object targetObject, String mimeType);
 
+	/**
+	 * Writes a textual representation of the target object to the given
+	 * writer, which is bound to the output of the response and encodes
+	 * characters with the supported charset. The default implementation writes
+	 * the value returned by {@link #objectToString(Object, String)}; override
+	 * it to serialize the object incrementally, so that the memory needed by a
+	 * response doesn't grow with the size of its content.
+	 * 
+	 * @param targetObject
+	 *            the object to write.
+	 * @param writer
+	 *            the writer to use. It must not be closed.
+	 * @param mimeType
+	 *            the target MIME type.
+	 * @throws Exception
+	 */
+	public void objectToWriter(Object targetObject, Writer writer, String mimeType)
+			throws Exception {
+		writer.write(objectToString(targetObject, mimeType));
+	}
+
+	/**
+	 * Writes a textual representation of the target object, as an instance of
+	 * the given type, to the given writer. The default implementation ignores
+	 * the type and calls {@link #objectToWriter(Object, Writer, String)}.
+	 * 
+	 * @param targetObject
+	 *            the object to write.
+	 * @param targetType
+	 *            the declared type of the object.
+	 * @param writer
+	 *            the writer to use. It must not be closed.
+	 * @param mimeType
+	 *            the target MIME type.
+	 * @throws Exception
+	 */
+	public void objectToWriter(Object targetObject, Type targetType, Writer writer,
+			String mimeType) throws Exception {
+		objectToWriter(targetObject, writer, mimeType);
+	}
+
 	/**
 	 * Extract an object instance from a string value.
 	 *
@@ -118,6 +252,48 @@ public abstract class TextualObjectSerialDeserial implements IObjectSerialDeseri
 	 * @return the extracted object.
 	 */
 	public abstract <T> T stringToObject(String source, Class<T> targetClass, String mimeType);
+
+	/**
+	 * Extract an object instance from a reader bound to the body of the
+	 * request. The default implementation reads the whole content and passes
+	 * it to {@link #stringToObject(String, Class, String)}; override it to
+	 * parse the content while it's read, without copying it in memory.
+	 * 
+	 * @param <T>
+	 *            the generic type
+	 * @param reader
+	 *            the reader of the request body. It must not be closed.
+	 * @param targetClass
+	 *            the type of the returned object.
+	 * @param mimeType
+	 *            the source MIME type.
+	 * @return the extracted object.
+	 * @throws Exception
+	 */
+	public <T> T readerToObject(Reader reader, Class<T> targetClass, String mimeType)
+			throws Exception {
+		return stringToObject(IOUtils.toString(reader), targetClass, mimeType);
+	}
+
+	/**
+	 * Extract an instance of a generic type from a reader bound to the body of
+	 * the request. The default implementation calls
+	 * {@link #readerToObject(Reader, Class, String)} with the raw class of the
+	 * type.
+	 * 
+	 * @param reader
+	 *            the reader of the request body. It must not be closed.
+	 * @param targetType
+	 *            the type of the returned object, like List&lt;Person&gt;.
+	 * @param mimeType
+	 *            the source MIME type.
+	 * @return the extracted object.
+	 * @throws Exception
+	 */
+	public Object readerToObject(Reader reader, Type targetType, String mimeType)
+			throws Exception {
+		return readerToObject(reader, ReflectionUtils.getRawClass(targetType), mimeType);
+	}
 	
 	/**
 	 * Gets the supported charset.
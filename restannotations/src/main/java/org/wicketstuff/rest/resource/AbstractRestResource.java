@@ -16,13 +16,16 @@
  */
 package org.wicketstuff.rest.resource;
 
-import java.lang.annotation.Annotation;
-import java.lang.reflect.Method;
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+
+import javax.servlet.http.Cookie;
 
 import org.apache.wicket.Application;
 import org.apache.wicket.Session;
@@ -35,23 +38,31 @@ import org.apache.wicket.request.http.WebRequest;
 import org.apache.wicket.request.http.WebResponse;
 import org.apache.wicket.request.mapper.parameter.PageParameters;
 import org.apache.wicket.request.resource.IResource;
-import org.apache.wicket.util.collections.MultiMap;
 import org.apache.wicket.util.convert.IConverter;
+import org.apache.wicket.util.string.StringValue;
 import org.wicketstuff.rest.annotations.AuthorizeInvocation;
 import org.wicketstuff.rest.annotations.MethodMapping;
 import org.wicketstuff.rest.annotations.parameters.CookieParam;
 import org.wicketstuff.rest.annotations.parameters.HeaderParam;
-import org.wicketstuff.rest.annotations.parameters.MatrixParam;
-import org.wicketstuff.rest.annotations.parameters.PathParam;
-import org.wicketstuff.rest.annotations.parameters.RequestBody;
 import org.wicketstuff.rest.annotations.parameters.RequestParam;
 import org.wicketstuff.rest.contenthandling.IObjectSerialDeserial;
+import org.wicketstuff.rest.contenthandling.ITypedObjectSerialDeserial;
 import org.wicketstuff.rest.contenthandling.RestMimeTypes;
-import org.wicketstuff.rest.resource.urlsegments.AbstractURLSegment;
+import org.wicketstuff.rest.contenthandling.SerialDeserialUtils;
+import org.wicketstuff.rest.resource.routing.IRouteSelector;
+import org.wicketstuff.rest.resource.routing.ResolvedRoute;
+import org.wicketstuff.rest.resource.routing.RouteMatch;
+import org.wicketstuff.rest.resource.routing.RouteResolutionCache;
+import org.wicketstuff.rest.resource.routing.UnmatchedRoutesFilter;
+import org.wicketstuff.rest.resource.routing.UnsafeRegExpDetector;
+import org.wicketstuff.rest.resource.urlsegments.ParsedPath;
+import org.wicketstuff.rest.utils.collections.ResultStreams;
+import org.wicketstuff.rest.utils.convert.IValueParser;
+import org.wicketstuff.rest.utils.convert.ValueParsers;
 import org.wicketstuff.rest.utils.http.HttpMethod;
 import org.wicketstuff.rest.utils.http.HttpUtils;
 import org.wicketstuff.rest.utils.reflection.MethodParameter;
-import org.wicketstuff.rest.utils.reflection.ReflectionUtils;
+import org.wicketstuff.rest.utils.regex.MatchBudgetExceededException;
 
 /**
  * Base class to build a resource that serves REST requests.
@@ -60,8 +71,11 @@ import org.wicketstuff.rest.utils.reflection.ReflectionUtils;
  * 
  */
 public abstract class AbstractRestResource<T extends IObjectSerialDeserial> implements IResource {
-	/** Multimap that stores every mapped method of the class */
-	private final MultiMap<String, MethodMappingInfo> mappedMethods = new MultiMap<String, MethodMappingInfo>();
+	/** The routes of the class, shared by all its instances */
+	private final RouteModel routeModel;
+
+	/** The engine used to select the method serving a request */
+	private final IRouteSelector routeSelector;
 
 	/**
 	 * The implementation of {@link IObjectSerialDeserial} that is used to
@@ -72,6 +86,30 @@ public abstract class AbstractRestResource<T extends IObjectSerialDeserial> impl
 	/** Role-checking strategy. */
 	private final IRoleCheckingStrategy roleCheckingStrategy;
 
+	/** Optional cache of resolved routes, null if disabled. */
+	private final RouteResolutionCache routeResolutionCache;
+
+	/** Filter used to reject unmatched requests without matching segments */
+	private final UnmatchedRoutesFilter unmatchedRoutesFilter;
+
+	/** Tells if requests are served without using the session */
+	private final boolean stateless;
+
+	/** Role checker for stateless mode */
+	private final IRequestRoleChecker requestRoleChecker;
+
+	/** Fixed locale for stateless mode, null to use the request locale */
+	private final Locale statelessLocale;
+
+	/** Tells if creating or binding a session must raise an error */
+	private final boolean failOnSessionBinding;
+
+	/** Number of streamed elements written between two flushes */
+	private final int streamingFlushInterval;
+
+	/** MIME types that requests can use instead of the declared ones. */
+	private final Set<String> negotiableMimeTypes;
+
 	/**
 	 * Constructor with no role-checker (i.e we don't use annotation
 	 * {@link AuthorizeInvocation}).
@@ -95,11 +133,44 @@ public abstract class AbstractRestResource<T extends IObjectSerialDeserial> impl
 	 *            the role-checking strategy.
 	 */
 	public AbstractRestResource(T serialDeserial, IRoleCheckingStrategy roleCheckingStrategy) {
+		this(serialDeserial, roleCheckingStrategy, new RestResourceSettings());
+	}
+
+	/**
+	 * Constructor that takes in input also the optional settings of the
+	 * resource.
+	 * 
+	 * @param serialDeserial
+	 *            General class that is used to serialize/desiarilze objects to
+	 *            string
+	 * @param roleCheckingStrategy
+	 *            the role-checking strategy. Stateless resources use the
+	 *            request role checker of the settings instead.
+	 * @param settings
+	 *            the settings of the resource.
+	 */
+	public AbstractRestResource(T serialDeserial, IRoleCheckingStrategy roleCheckingStrategy,
+			RestResourceSettings settings) {
 		this.objSerialDeserial = serialDeserial;
 		this.roleCheckingStrategy = roleCheckingStrategy;
+		this.routeResolutionCache = settings.getRouteCacheSize() > 0 ? new RouteResolutionCache(
+				settings.getRouteCacheSize()) : null;
+		this.stateless = settings.isStateless();
+		this.statelessLocale = settings.getStatelessLocale();
+		this.requestRoleChecker = settings.getRequestRoleChecker();
+		this.failOnSessionBinding = stateless && settings.isFailOnSessionBinding();
+		this.streamingFlushInterval = settings.getStreamingFlushInterval();
+		this.negotiableMimeTypes = new HashSet<String>(settings.getNegotiableMimeTypes());
 
 		configureObjSerialDeserial(serialDeserial);
-		loadAnnotatedMethods();
+
+		this.routeModel = RouteModel.forClass(getClass(), settings);
+		checkMappedMethods(settings);
+		SerialDeserialUtils.warmUp(objSerialDeserial, routeModel.getSerializedTypes());
+
+		this.routeSelector = routeModel.getRouteSelector();
+		this.unmatchedRoutesFilter = new UnmatchedRoutesFilter(routeModel.getMappedMethods(),
+				settings.getRejectedRoutesCacheSize());
 	}
 
 	/***
@@ -107,40 +178,79 @@ public abstract class AbstractRestResource<T extends IObjectSerialDeserial> impl
 	 * {@link MethodMapping}. If the annotated method returns a value, this
 	 * latter is automatically serialized to a given string format (like JSON,
 	 * XML, etc...) and written to the web response.<br/>
-	 * If no method is found to serve the current request, a 400 HTTP code is
+	 * If no method is found to serve the current request (or if matching the
+	 * request exceeds the budget set with
+	 * {@link RestResourceSettings#setRegExpStepBudget(int)}), a 400 HTTP code is
 	 * returned to the client. Similarly, a 401 HTTP code is return if the user
 	 * doesn't own one of the roles required to execute an annotated method (See
-	 * {@link AuthorizeInvocation}).
+	 * {@link AuthorizeInvocation}).<br/>
+	 * If the guard for stateless resources is enabled (see
+	 * {@link RestResourceSettings#setFailOnSessionBinding(boolean)}), an
+	 * exception is thrown when a session is created or bound while serving
+	 * the request.
 	 */
 	@Override
 	public final void respond(Attributes attributes) {
+		if (!failOnSessionBinding) {
+			dispatchRequest(attributes);
+			return;
+		}
+
+		boolean sessionExisted = Session.exists();
+		boolean sessionTemporary = !sessionExisted || Session.get().isTemporary();
+
+		dispatchRequest(attributes);
+
+		if (!sessionExisted && Session.exists())
+			throw new WicketRuntimeException(
+					"A session has been created while serving a request with a stateless resource.");
+
+		if (sessionTemporary && Session.exists() && !Session.get().isTemporary())
+			throw new WicketRuntimeException(
+					"A session has been bound while serving a request with a stateless resource.");
+	}
+
+	/**
+	 * Selects the method that must serve the current request, invokes it and
+	 * writes its result to the response.
+	 * 
+	 * @param attributes
+	 *            the current Attributes object.
+	 */
+	private void dispatchRequest(Attributes attributes) {
 		PageParameters pageParameters = attributes.getParameters();
 		WebResponse response = (WebResponse) attributes.getResponse();
 		HttpMethod httpMethod = HttpUtils.getHttpMethod((WebRequest) RequestCycle.get()
 				.getRequest());
-		int indexedParamCount = pageParameters.getIndexedCount();
+		ParsedPath parsedPath = ParsedPath.fromPageParameters(pageParameters);
 
-		// mapped method are stored concatenating the number of the segments of
-		// their URL and their HTTP method (see annotation MethodMapping)
-		List<MethodMappingInfo> mappedMethodsCandidates = mappedMethods.get(indexedParamCount + "_"
-				+ httpMethod.getMethod());
+		ResolvedRoute resolvedRoute;
+
+		try {
+			resolvedRoute = resolveRoute(httpMethod, parsedPath);
+		} catch (MatchBudgetExceededException e) {
+			response.sendError(400, "URL '" + extractUrlFromRequest()
+					+ "' can't be matched within the configured budget.");
+			return;
+		}
 
-		MethodMappingInfo mappedMethod = selectMostSuitedMethod(mappedMethodsCandidates,
-				pageParameters);
+		if (resolvedRoute != null) {
+			MethodMappingInfo mappedMethod = resolvedRoute.getMappedMethod();
 
-		if (mappedMethod != null) {
 			if (!hasAny(mappedMethod.getRoles())) {
 				response.sendError(401, "User is not allowed to invoke method on server.");
 				return;
 			}
 
 			onBeforeMethodInvoked(mappedMethod, attributes);
-			Object result = invokeMappedMethod(mappedMethod, attributes);
+			Object result = invokeMappedMethod(resolvedRoute, parsedPath, attributes);
 			onAfterMethodInvoked(mappedMethod, attributes, result);
 
 			// if the invoked method returns a value, it is written to response
-			if (result != null) {
-				serializeObjectToResponse(response, result, mappedMethod.getMimeOutputFormat());
+			if (result != null && mappedMethod.isStreamingResult()) {
+				streamElementsToResponse(response, result, mappedMethod);
+			} else if (result != null) {
+				serializeObjectToResponse(response, result, mappedMethod);
 			}
 		} else {
 			response.sendError(400, "No suitable method found for URL '" + extractUrlFromRequest()
@@ -177,79 +287,186 @@ public abstract class AbstractRestResource<T extends IObjectSerialDeserial> impl
 
 	/**
 	 * Method invoked to serialize the result of the invoked method and write
-	 * this value to the response.
+	 * this value to the response. Results are serialized as instances of
+	 * their runtime class, unless the method declares a parameterized (or
+	 * generic array) return type.
 	 * 
 	 * @param response
 	 *            The current response object.
 	 * @param result
 	 *            The object to write to response.
-	 * @param restMimeFormats
+	 * @param mappedMethod
+	 *            The invoked method.
 	 */
-	private void serializeObjectToResponse(WebResponse response, Object result, String mimeType) {
+	private void serializeObjectToResponse(WebResponse response, Object result,
+			MethodMappingInfo mappedMethod) {
+		String mimeType = negotiateOutputFormat(mappedMethod.getMimeOutputFormat());
+		Type resultType = mappedMethod.getGenericReturnType();
+
+		if (!(resultType instanceof ParameterizedType || resultType instanceof GenericArrayType))
+			resultType = result.getClass();
+
+		// the format depends on the Accept header, so caches must keep it into account
+		if (!negotiableMimeTypes.isEmpty())
+			response.setHeader("Vary", "Accept");
+
 		try {
 			response.setContentType(mimeType);
-			objSerialDeserial.objectToResponse(result, response, mimeType);
+			SerialDeserialUtils.objectToResponse(objSerialDeserial, result, resultType, response,
+					mimeType);
 		} catch (Exception e) {
 			throw new RuntimeException("Error writing object to response.", e);
 		}
 	}
 
 	/**
-	 * Method invoked to select the most suited method to serve the current
-	 * request.
+	 * Selects the MIME type used to write a result: the first negotiable type
+	 * accepted by the request, if the Accept header prefers it to the
+	 * declared type, otherwise the declared type. Accepted types are ordered
+	 * by quality factor (see {@link HttpUtils#getAcceptedMimeTypes(WebRequest)}),
+	 * so types with "q=0" are never selected.
 	 * 
-	 * @param mappedMethods
-	 *            List of {@link MethodMappingInfo} containing the informations
-	 *            of mapped methods.
-	 * @param pageParameters
-	 *            The PageParameters of the current request.
-	 * @return The "best" method found to serve the request.
+	 * @param declaredMimeType
+	 *            the MIME type produced by the invoked method.
+	 * @return the MIME type to use.
+	 * @see RestResourceSettings#addNegotiableMimeType(String)
+	 */
+	private String negotiateOutputFormat(String declaredMimeType) {
+		if (negotiableMimeTypes.isEmpty() || RestMimeTypes.TEXT_PLAIN.equals(declaredMimeType))
+			return declaredMimeType;
+
+		WebRequest request = (WebRequest) RequestCycle.get().getRequest();
+
+		for (String acceptedType : HttpUtils.getAcceptedMimeTypes(request)) {
+			if (acceptedType.equals(declaredMimeType))
+				break;
+
+			if (negotiableMimeTypes.contains(acceptedType))
+				return acceptedType;
+		}
+
+		return declaredMimeType;
+	}
+
+	/**
+	 * Writes the elements of a streamed result (see
+	 * {@link MethodMappingInfo#isStreamingResult()}) one at a time, as a JSON
+	 * array or as newline-delimited JSON (see
+	 * {@link ITypedObjectSerialDeserial#elementsToResponse(java.util.Iterator, Type, WebResponse, String, int)}).
+	 * The response is flushed every
+	 * {@link RestResourceSettings#getStreamingFlushInterval()} elements, so
+	 * it's sent with chunked transfer encoding and its elements never need to
+	 * be all in memory.
+	 * 
+	 * @param response
+	 *            The current response object.
+	 * @param result
+	 *            The iterator, iterable or stream to write to response.
+	 * @param mappedMethod
+	 *            The invoked method, which produces either
+	 *            {@link RestMimeTypes#APPLICATION_JSON} or
+	 *            {@link RestMimeTypes#APPLICATION_NDJSON}.
+	 */
+	private void streamElementsToResponse(WebResponse response, Object result,
+			MethodMappingInfo mappedMethod) {
+		String mimeType = mappedMethod.getMimeOutputFormat();
+
+		try {
+			response.setContentType(mimeType);
+			SerialDeserialUtils.elementsToResponse(objSerialDeserial,
+					ResultStreams.toIterator(result), mappedMethod.getStreamedElementType(),
+					response, mimeType, streamingFlushInterval);
+		} catch (Exception e) {
+			throw new RuntimeException("Error streaming elements to response.", e);
+		} finally {
+			ResultStreams.close(result);
+		}
+	}
+
+	/**
+	 * Resolves the route for the current request, i.e. the most suited method
+	 * to serve it and the values of its path parameters. Requests that can't
+	 * be served are rejected as soon as possible (see
+	 * {@link UnmatchedRoutesFilter}). If route cache is enabled, the route is
+	 * looked up in cache before matching segments.
+	 * 
+	 * @param httpMethod
+	 *            the HTTP method of the current request.
+	 * @param parsedPath
+	 *            The parsed path of the current request.
+	 * @return The resolved route, or null if no method can serve the request.
 	 */
-	private MethodMappingInfo selectMostSuitedMethod(List<MethodMappingInfo> mappedMethods,
-			PageParameters pageParameters) {
-		int highestScore = 0;
-		MultiMap<Integer, MethodMappingInfo> mappedMethodByScore = new MultiMap<Integer, MethodMappingInfo>();
+	private ResolvedRoute resolveRoute(HttpMethod httpMethod, ParsedPath parsedPath) {
+		String[] actualSegments = parsedPath.getActualSegments();
 
-		// no method mapped
-		if (mappedMethods == null || mappedMethods.size() == 0)
+		if (unmatchedRoutesFilter.isRejected(httpMethod, actualSegments))
 			return null;
 
-		/**
-		 * To select the "best" method, a score is assigned to every mapped
-		 * method. To calculate the score method calculateScore is executed for
-		 * every segment.
-		 */
-		for (MethodMappingInfo mappedMethod : mappedMethods) {
-			List<AbstractURLSegment> segments = mappedMethod.getSegments();
-			int score = 0;
+		String routeKey = null;
 
-			for (AbstractURLSegment segment : segments) {
-				int i = segments.indexOf(segment);
-				String currentActualSegment = AbstractURLSegment.getActualSegment(pageParameters
-						.get(i).toString());
+		if (routeResolutionCache != null || unmatchedRoutesFilter.isRejectedRoutesCacheEnabled())
+			routeKey = RouteResolutionCache.buildKey(httpMethod, actualSegments);
 
-				int partialScore = segment.calculateScore(currentActualSegment);
+		if (routeResolutionCache != null) {
+			ResolvedRoute resolvedRoute = routeResolutionCache.get(routeKey);
 
-				if (partialScore == 0) {
-					score = -1;
-					break;
-				}
+			if (resolvedRoute != null)
+				return resolvedRoute;
+		}
 
-				score += partialScore;
-			}
+		if (routeKey != null && unmatchedRoutesFilter.isRecentlyRejected(routeKey))
+			return null;
 
-			if (score >= highestScore) {
-				highestScore = score;
-				mappedMethodByScore.addValue(score, mappedMethod);
-			}
+		RouteMatch routeMatch = selectMostSuitedMethod(httpMethod, actualSegments);
+		MethodMappingInfo mappedMethod = routeMatch.getMethod();
+
+		if (mappedMethod == null) {
+			if (routeKey != null)
+				unmatchedRoutesFilter.onRejected(routeKey);
+
+			return null;
 		}
+
+		Map<String, String> pathParameters = routeMatch.getPathParameters();
+
+		if (pathParameters == null)
+			pathParameters = mappedMethod.populatePathParameters(actualSegments);
+
+		ResolvedRoute resolvedRoute = new ResolvedRoute(mappedMethod, pathParameters);
+
+		if (routeResolutionCache != null)
+			routeResolutionCache.put(routeKey, resolvedRoute);
+
+		return resolvedRoute;
+	}
+
+	/**
+	 * Method invoked to select the most suited method to serve the current
+	 * request.
+	 * 
+	 * @param httpMethod
+	 *            the HTTP method of the current request.
+	 * @param actualSegments
+	 *            the segments of the current request, without matrix
+	 *            parameters.
+	 * @return The lookup result containing the "best" method found to serve the request.
+	 */
+	private RouteMatch selectMostSuitedMethod(HttpMethod httpMethod,
+			String[] actualSegments) {
+		/**
+		 * To select the "best" method, a score is assigned to every mapped
+		 * method that matches the request. The score is the sum of the scores
+		 * of the matched segments (see AbstractURLSegment#calculateScore).
+		 */
+		RouteMatch routeMatch = routeSelector.select(httpMethod, actualSegments);
+
 		// if we have more than one method with the highest score, throw
-		// ambiguous exception.
-		if (mappedMethodByScore.get(highestScore) != null
-				&& mappedMethodByScore.get(highestScore).size() > 1)
-			throwAmbiguousMethodsException(mappedMethodByScore.get(highestScore));
+		// ambiguous exception. Provably ambiguous methods are already rejected
+		// when the resource is built (see AmbiguousRoutesDetector).
+		if (routeMatch.isAmbiguous())
+			throwAmbiguousMethodsException(routeMatch.getAmbiguousMethods());
 
-		return mappedMethodByScore.getFirstValue(highestScore);
+		return routeMatch;
 	}
 
 	/**
@@ -267,7 +484,7 @@ public abstract class AbstractRestResource<T extends IObjectSerialDeserial> impl
 			if (!methodsNames.isEmpty())
 				methodsNames += ", ";
 
-			methodsNames += urlMappingInfo.getMethod().getName();
+			methodsNames += urlMappingInfo.getMethodName();
 		}
 
 		throw new WicketRuntimeException("Ambiguous methods mapped for the current request: URL '"
@@ -286,40 +503,48 @@ public abstract class AbstractRestResource<T extends IObjectSerialDeserial> impl
 	};
 
 	/***
-	 * Internal method to load class methods annotated with
-	 * {@link MethodMapping}
+	 * Internal method to check that the methods annotated with
+	 * {@link MethodMapping} can be served by this instance.
+	 * 
+	 * @param settings
+	 *            the settings of the resource.
 	 */
-	private void loadAnnotatedMethods() {
-		Method[] methods = getClass().getDeclaredMethods();
-		boolean isUsingAuthAnnot = false;
-
-		for (int i = 0; i < methods.length; i++) {
-			Method method = methods[i];
-			MethodMapping methodMapped = method.getAnnotation(MethodMapping.class);
-			AuthorizeInvocation authorizeInvocation = method
-					.getAnnotation(AuthorizeInvocation.class);
-
-			isUsingAuthAnnot = isUsingAuthAnnot || authorizeInvocation != null;
-
-			if (methodMapped != null) {
-				HttpMethod httpMethod = methodMapped.httpMethod();
-				MethodMappingInfo urlMappingInfo = new MethodMappingInfo(methodMapped, method);
-
-				if (!isMimeTypesSupported(urlMappingInfo.getMimeInputFormat())
-						|| !isMimeTypesSupported(urlMappingInfo.getMimeOutputFormat()))
-					throw new WicketRuntimeException(
-							"Mapped methods use a MIME type not supported by obj serializer/deserializer!");
-
-				mappedMethods.addValue(
-						urlMappingInfo.getSegmentsCount() + "_" + httpMethod.getMethod(),
-						urlMappingInfo);
+	private void checkMappedMethods(RestResourceSettings settings) {
+		for (MethodMappingInfo urlMappingInfo : routeModel.getMappedMethods()) {
+			String outputFormat = urlMappingInfo.getMimeOutputFormat();
+
+			// newline-delimited JSON is written as a sequence of JSON values
+			if (RestMimeTypes.APPLICATION_NDJSON.equals(outputFormat)) {
+				if (!urlMappingInfo.isStreamingResult())
+					throw new WicketRuntimeException("Method '"
+							+ urlMappingInfo.getMethodName()
+							+ "' produces NDJSON but it doesn't return an iterator, a lazy iterable or a stream.");
+
+				outputFormat = RestMimeTypes.APPLICATION_JSON;
 			}
+
+			if (!isMimeTypesSupported(urlMappingInfo.getMimeInputFormat())
+					|| !isMimeTypesSupported(outputFormat))
+				throw new WicketRuntimeException(
+						"Mapped methods use a MIME type not supported by obj serializer/deserializer!");
 		}
+		for (String negotiableType : negotiableMimeTypes)
+			if (!isMimeTypesSupported(negotiableType))
+				throw new WicketRuntimeException("Negotiable MIME type '" + negotiableType
+						+ "' is not supported by obj serializer/deserializer!");
+
 		// if AuthorizeInvocation has been found but no role-checker has been
 		// configured, throw an exception
-		if (isUsingAuthAnnot && roleCheckingStrategy == null)
+		if (routeModel.isUsingAuthorization() && stateless && requestRoleChecker == null)
+			throw new WicketRuntimeException(
+					"Annotation AuthorizeInvocation is used but no request role checker has been set for the stateless controller!");
+
+		if (routeModel.isUsingAuthorization() && !stateless && roleCheckingStrategy == null)
 			throw new WicketRuntimeException(
 					"Annotation AuthorizeInvocation is used but no role-checking strategy has been set for the controller!");
+
+		if (settings.isRejectUnsafeRegExps() && !routeModel.getUnsafeRegExps().isEmpty())
+			UnsafeRegExpDetector.checkRoutes(routeModel.getMappedMethods(), true);
 	}
 
 	/**
@@ -339,59 +564,64 @@ public abstract class AbstractRestResource<T extends IObjectSerialDeserial> impl
 
 	/***
 	 * Invokes one of the resource methods annotated with {@link MethodMapping}.
+	 * Parameters are bound following the plan prepared by the mapped method
+	 * (see {@link MethodMappingInfo#getMethodParameters()}).
 	 * 
-	 * @param mappedMethod
-	 *            mapping info of the method.
+	 * @param resolvedRoute
+	 *            the resolved route, with the mapping info of the method and
+	 *            the values of path parameters for the current request.
+	 * @param parsedPath
+	 *            the parsed path of the current request.
 	 * @param attributes
 	 *            Attributes object for the current request.
 	 * @return the value returned by the invoked method
 	 */
-	private Object invokeMappedMethod(MethodMappingInfo mappedMethod, Attributes attributes) {
-
-		Method method = mappedMethod.getMethod();
-		List parametersValues = new ArrayList();
+	private Object invokeMappedMethod(ResolvedRoute resolvedRoute, ParsedPath parsedPath,
+			Attributes attributes) {
+		MethodMappingInfo mappedMethod = resolvedRoute.getMappedMethod();
+		MethodParameter[] methodParameters = mappedMethod.getMethodParameters();
+		Object[] parametersValues = new Object[methodParameters.length];
 
 		// Attributes objects
 		PageParameters pageParameters = attributes.getParameters();
 		WebResponse response = (WebResponse) attributes.getResponse();
-		HttpMethod httpMethod = HttpUtils.getHttpMethod((WebRequest) RequestCycle.get()
-				.getRequest());
-
-		LinkedHashMap<String, String> pathParameters = mappedMethod
-				.populatePathParameters(pageParameters);
-		Iterator<String> pathParamsIterator = pathParameters.values().iterator();
-		Class<?>[] parameterTypes = method.getParameterTypes();
 
-		for (int i = 0; i < parameterTypes.length; i++) {
-			Object paramValue = null;
-			MethodParameter methodParameter = new MethodParameter(parameterTypes[i], mappedMethod,
-					i);
-			Annotation annotation = ReflectionUtils.getAnnotationParam(i, method);
+		for (int i = 0; i < methodParameters.length; i++) {
+			MethodParameter methodParameter = methodParameters[i];
 			//retrieve parameter value
-			if (annotation != null)
-				paramValue = extractParameterValue(methodParameter, pathParameters, annotation,
-						pageParameters);
-			else
-				paramValue = extractParameterFromUrl(methodParameter, pathParamsIterator);
+			Object paramValue = extractParameterValue(methodParameter, resolvedRoute,
+					pageParameters, parsedPath);
 			//try to use the default value
-			if (paramValue == null && !methodParameter.getDeaultValue().isEmpty())
-				paramValue = toObject(methodParameter.getParameterClass(),
-						methodParameter.getDeaultValue());
+			if (paramValue == null && methodParameter.hasDefaultValue()) {
+				paramValue = methodParameter.getConvertedDefaultValue();
+
+				if (paramValue == null)
+					paramValue = toParameterValue(methodParameter,
+							methodParameter.getDeaultValue());
+			}
 
 			if (paramValue == null && methodParameter.isRequired()) {
+				HttpMethod httpMethod = HttpUtils.getHttpMethod((WebRequest) RequestCycle.get()
+						.getRequest());
+
 				response.sendError(400, "No suitable method found for URL '"
 						+ extractUrlFromRequest() + "' and HTTP method " + httpMethod);
 				return null;
 			}
 
-			parametersValues.add(paramValue);
+			parametersValues[i] = paramValue;
 		}
 
 		try {
-			return method.invoke(this, parametersValues.toArray());
+			return mappedMethod.getInvoker().invoke(this, parametersValues);
 		} catch (Exception e) {
 			response.sendError(500, "General server error.");
-			throw new RuntimeException("Error invoking method '" + method.getName() + "'", e);
+
+			if (e instanceof RuntimeException)
+				throw (RuntimeException) e;
+
+			throw new RuntimeException("Error invoking method '"
+					+ mappedMethod.getMethodName() + "'", e);
 		}
 	}
 
@@ -405,87 +635,85 @@ public abstract class AbstractRestResource<T extends IObjectSerialDeserial> impl
 	}
 
 	/**
-	 * Extract the value for an annotated-method parameter (see package
-	 * {@link org.wicketstuff.rest.annotations.parameters}).
+	 * Extract the value for a method parameter from the source it has been
+	 * bound to (see package {@link org.wicketstuff.rest.annotations.parameters}).
 	 * 
 	 * @param methodParameter
 	 *            the current method parameter.
-	 * @param pathParameters
-	 *            the values of path parameters for the current request.
-	 * @param annotation
-	 *            the annotation for the current parameter that indicates how to
-	 *            retrieve the value for the current parameter.
+	 * @param resolvedRoute
+	 *            the resolved route, with the values of path parameters for
+	 *            the current request.
 	 * @param pageParameters
 	 *            PageParameters for the current request.
+	 * @param parsedPath
+	 *            the parsed path of the current request.
 	 * @return the extracted value.
 	 */
 	private Object extractParameterValue(MethodParameter methodParameter,
-			LinkedHashMap<String, String> pathParameters, Annotation annotation,
-			PageParameters pageParameters) {
-		Object paramValue = null;
-		Class<?> argClass = methodParameter.getParameterClass();
-		String mimeInputFormat = methodParameter.getOwnerMethod().getMimeInputFormat();
-
-		if (annotation instanceof RequestBody)
-			paramValue = deserializeObjectFromRequest(argClass, mimeInputFormat);
-		else if (annotation instanceof PathParam)
-			paramValue = toObject(argClass, pathParameters.get(((PathParam) annotation).value()));
-		else if (annotation instanceof RequestParam)
-			paramValue = extractParameterFromQuery(pageParameters, (RequestParam) annotation,
-					argClass);
-		else if (annotation instanceof HeaderParam)
-			paramValue = extractParameterFromHeader((HeaderParam) annotation, argClass);
-		else if (annotation instanceof CookieParam)
-			paramValue = extractParameterFromCookies((CookieParam) annotation, argClass);
-		else if (annotation instanceof MatrixParam)
-			paramValue = extractParameterFromMatrixParams(pageParameters, (MatrixParam) annotation,
-					argClass);
-
-		return paramValue;
+			ResolvedRoute resolvedRoute, PageParameters pageParameters, ParsedPath parsedPath) {
+		String valueName = methodParameter.getValueName();
+
+		switch (methodParameter.getValueSource()) {
+		case PATH_POSITION:
+			return extractParameterFromUrl(methodParameter,
+					resolvedRoute.getPathParameterValues());
+		case PATH_PARAM:
+			return toParameterValue(methodParameter, resolvedRoute.getPathParameters().get(
+					valueName));
+		case REQUEST_PARAM:
+			return extractParameterFromQuery(pageParameters, valueName, methodParameter);
+		case HEADER_PARAM:
+			return extractParameterFromHeader(valueName, methodParameter);
+		case COOKIE_PARAM:
+			return extractParameterFromCookies(valueName, methodParameter);
+		case MATRIX_PARAM:
+			return extractParameterFromMatrixParams(parsedPath,
+					methodParameter.getValueIndex(), valueName, methodParameter);
+		case REQUEST_BODY:
+			return deserializeObjectFromRequest(methodParameter.getGenericType(), methodParameter
+					.getOwnerMethod().getMimeInputFormat());
+		default:
+			return null;
+		}
 	}
 
 	/**
 	 * Extract method parameter value from matrix parameters.
 	 * 
-	 * @param pageParameters
-	 *            PageParameters for the current request.
-	 * @param matrixParam
-	 *            the {@link MatrixParam} annotation used for the current
-	 *            parameter.
-	 * @param argClass
-	 *            the type of the current method parameter.
-	 * @return the value obtained from query parameters and converted to
-	 *         argClass.
-	 */
-	private Object extractParameterFromMatrixParams(PageParameters pageParameters,
-			MatrixParam matrixParam, Class<?> argClass) {
-		int segmentIndex = matrixParam.segmentIndex();
-		String variableName = matrixParam.parameterName();
-		String rawsSegment = pageParameters.get(segmentIndex).toString();
-		Map<String, String> matrixParameters = AbstractURLSegment
-				.getSegmentMatrixParameters(rawsSegment);
-
-		if (matrixParameters.get(variableName) == null)
+	 * @param parsedPath
+	 *            the parsed path of the current request.
+	 * @param segmentIndex
+	 *            the index of the segment that contains the matrix parameter.
+	 * @param parameterName
+	 *            the name of the matrix parameter.
+	 * @param methodParameter
+	 *            the current method parameter.
+	 * @return the value obtained from matrix parameters and converted to the
+	 *         parameter type.
+	 */
+	private Object extractParameterFromMatrixParams(ParsedPath parsedPath, int segmentIndex,
+			String parameterName, MethodParameter methodParameter) {
+		String value = parsedPath.getMatrixParameter(segmentIndex, parameterName);
+
+		if (value == null)
 			return null;
 
-		return toObject(argClass, matrixParameters.get(variableName));
+		return toParameterValue(methodParameter, value);
 	}
 
 	/**
 	 * Extract method parameter value from request header.
 	 * 
-	 * @param headerParam
-	 *            the {@link HeaderParam} annotation used for the current method
-	 *            parameter.
-	 * @param argClass
-	 *            the type of the current method parameter.
-	 * @return the extracted value converted to argClass.
+	 * @param headerName
+	 *            the name of the header (see {@link HeaderParam}).
+	 * @param methodParameter
+	 *            the current method parameter.
+	 * @return the extracted value converted to the parameter type.
 	 */
-	private Object extractParameterFromHeader(HeaderParam headerParam, Class<?> argClass) {
-		String value = headerParam.value();
+	private Object extractParameterFromHeader(String headerName, MethodParameter methodParameter) {
 		WebRequest webRequest = (WebRequest) RequestCycle.get().getRequest();
 
-		return toObject(argClass, webRequest.getHeader(value));
+		return toParameterValue(methodParameter, webRequest.getHeader(headerName));
 	}
 
 	/**
@@ -493,56 +721,66 @@ public abstract class AbstractRestResource<T extends IObjectSerialDeserial> impl
 	 * 
 	 * @param pageParameters
 	 *            the PageParameters of the current request.
-	 * @param requestParam
-	 *            the {@link RequestParam} annotation used for the current
-	 *            method parameter.
-	 * @param argClass
-	 *            the type of the current method parameter.
-	 * @return the extracted value converted to argClass.
+	 * @param parameterName
+	 *            the name of the query parameter (see {@link RequestParam}).
+	 * @param methodParameter
+	 *            the current method parameter.
+	 * @return the extracted value converted to the parameter type.
 	 */
 	private Object extractParameterFromQuery(PageParameters pageParameters,
-			RequestParam requestParam, Class<?> argClass) {
-
-		String value = requestParam.value();
+			String parameterName, MethodParameter methodParameter) {
+		StringValue value = pageParameters.get(parameterName);
 
-		if (pageParameters.get(value) == null)
+		if (value == null)
 			return null;
 
-		return toObject(argClass, pageParameters.get(value).toString());
+		return toParameterValue(methodParameter, value.toString());
 	}
 
 	/**
 	 * Extract method parameter's value from cookies.
 	 * 
-	 * @param annotation
-	 *            the {@link CookieParam} annotation used for the current method
-	 *            parameter.
-	 * @param argClass
-	 *            the type of the current method parameter.
-	 * @return the extracted value converted to argClass.
+	 * @param cookieName
+	 *            the name of the cookie (see {@link CookieParam}).
+	 * @param methodParameter
+	 *            the current method parameter.
+	 * @return the extracted value converted to the parameter type.
 	 */
-	private Object extractParameterFromCookies(CookieParam cookieParam, Class<?> argClass) {
-		String value = cookieParam.value();
+	private Object extractParameterFromCookies(String cookieName, MethodParameter methodParameter) {
 		WebRequest webRequest = (WebRequest) RequestCycle.get().getRequest();
+		Cookie cookie = webRequest.getCookie(cookieName);
 
-		if (webRequest.getCookie(value) == null)
+		if (cookie == null)
 			return null;
 
-		return toObject(argClass, webRequest.getCookie(value).getValue());
+		return toParameterValue(methodParameter, cookie.getValue());
 	}
 
 	/**
-	 * Internal method that tries to extract an instance of the given class from
-	 * the request body.
+	 * Internal method that tries to extract an instance of the given type from
+	 * the request body. The body is read with its own MIME type if this is
+	 * negotiable (see {@link RestResourceSettings#addNegotiableMimeType(String)}).
 	 * 
-	 * @param argClass
-	 *            the type we want to extract from request body.
+	 * @param argType
+	 *            the type we want to extract from request body, which can be
+	 *            a parameterized type.
+	 * @param mimeType
+	 *            the MIME type consumed by the invoked method.
 	 * @return the extracted object.
 	 */
-	private Object deserializeObjectFromRequest(Class<?> argClass, String mimeType) {
+	private Object deserializeObjectFromRequest(Type argType, String mimeType) {
 		WebRequest servletRequest = (WebRequest) RequestCycle.get().getRequest();
+
+		if (!negotiableMimeTypes.isEmpty()) {
+			String requestMimeType = HttpUtils.getRequestMimeType(servletRequest);
+
+			if (negotiableMimeTypes.contains(requestMimeType))
+				mimeType = requestMimeType;
+		}
+
 		try {
-			return objSerialDeserial.requestToObject(servletRequest, argClass, mimeType);
+			return SerialDeserialUtils.requestToObject(objSerialDeserial, servletRequest, argType,
+					mimeType);
 		} catch (Exception e) {
 			throw new RuntimeException("Error deserializing object from request", e);
 		}
@@ -553,22 +791,78 @@ public abstract class AbstractRestResource<T extends IObjectSerialDeserial> impl
 	 * 
 	 * @param methodParameter
 	 *            the current method parameter.
-	 * @param pathParamIterator
-	 *            an iterator on the current values of path parameters.
+	 * @param pathParameterValues
+	 *            the current values of path parameters.
 	 * 
 	 * @return the parameter value.
 	 */
 	private Object extractParameterFromUrl(MethodParameter methodParameter,
-			Iterator<String> pathParamIterator) {
+			String[] pathParameterValues) {
+		int pathPosition = methodParameter.getValueIndex();
+
+		if (pathPosition >= pathParameterValues.length)
+			return null;
 
-		if (!pathParamIterator.hasNext())
+		return toParameterValue(methodParameter, pathParameterValues[pathPosition]);
+	}
+
+	/**
+	 * Converts the string value of a method parameter. Values are parsed with
+	 * the built-in parser of the parameter (see {@link ValueParsers}) if there
+	 * is one and if it accepts the value. Otherwise they are converted with the
+	 * Wicket converter of the parameter type.
+	 * 
+	 * @param methodParameter
+	 *            the method parameter.
+	 * @param value
+	 *            the string value we want to convert.
+	 * @return the converted value, or null if value parameter is null
+	 */
+	private Object toParameterValue(MethodParameter methodParameter, String value) {
+		if (value == null)
 			return null;
 
-		return toObject(methodParameter.getParameterClass(), pathParamIterator.next());
+		IValueParser valueParser = methodParameter.getValueParser();
+		Locale locale = null;
+
+		if (valueParser != null) {
+			if (valueParser.isLocaleSensitive())
+				locale = getRequestLocale();
+
+			Object parsedValue = valueParser.parse(value, locale);
+
+			if (parsedValue != null)
+				return parsedValue;
+		}
+
+		if (locale == null)
+			locale = getRequestLocale();
+
+		return convertValue(methodParameter.getConverter(), methodParameter.getParameterClass(),
+				value, locale);
+	}
+
+	/**
+	 * Gets the locale used to convert the parameters of the current request.
+	 * It's the locale of the session, unless the resource is stateless (see
+	 * {@link RestResourceSettings#setStateless(boolean)}).
+	 * 
+	 * @return the locale of the current request.
+	 */
+	protected Locale getRequestLocale() {
+		if (!stateless)
+			return Session.get().getLocale();
+
+		if (statelessLocale != null)
+			return statelessLocale;
+
+		return RequestCycle.get().getRequest().getLocale();
 	}
 
 	/**
 	 * Utility method to convert string values to the corresponding objects.
+	 * The locale of the session is used if a session exists, otherwise the
+	 * locale of the current request. No session is created.
 	 * 
 	 * @param clazz
 	 *            the type of the object we want to obtain.
@@ -578,14 +872,55 @@ public abstract class AbstractRestResource<T extends IObjectSerialDeserial> impl
 	 *         if value parameter is null
 	 */
 	public static Object toObject(Class clazz, String value) throws IllegalArgumentException {
+		Locale locale = Session.exists() ? Session.get().getLocale() : RequestCycle.get()
+				.getRequest().getLocale();
+
+		return toObject(clazz, value, locale);
+	}
+
+	/**
+	 * Utility method to convert string values to the corresponding objects
+	 * with the given locale.
+	 * 
+	 * @param clazz
+	 *            the type of the object we want to obtain.
+	 * @param value
+	 *            the string value we want to convert.
+	 * @param locale
+	 *            the locale to use for the conversion (see
+	 *            {@link #getRequestLocale()}).
+	 * @return the object corresponding to the converted string value, or null
+	 *         if value parameter is null
+	 */
+	public static Object toObject(Class clazz, String value, Locale locale)
+			throws IllegalArgumentException {
 		if (value == null)
 			return null;
 		// we use the standard Wicket conversion mechanism to obtain the
 		// converted value.
-		try {
-			IConverter converter = Application.get().getConverterLocator().getConverter(clazz);
+		IConverter converter = Application.get().getConverterLocator().getConverter(clazz);
 
-			return converter.convertToObject(value, Session.get().getLocale());
+		return convertValue(converter, clazz, value, locale);
+	}
+
+	/**
+	 * Converts a string value with the given converter. If the conversion
+	 * fails, a 400 HTTP code is set for the current response.
+	 * 
+	 * @param converter
+	 *            the converter to use.
+	 * @param clazz
+	 *            the type of the object we want to obtain.
+	 * @param value
+	 *            the string value we want to convert.
+	 * @param locale
+	 *            the locale to use for the conversion.
+	 * @return the converted value, or null if the conversion fails.
+	 */
+	private static Object convertValue(IConverter<?> converter, Class<?> clazz, String value,
+			Locale locale) {
+		try {
+			return converter.convertToObject(value, locale);
 		} catch (Exception e) {
 			WebResponse response = (WebResponse) RequestCycle.get().getResponse();
 
@@ -599,7 +934,8 @@ public abstract class AbstractRestResource<T extends IObjectSerialDeserial> impl
 
 	/**
 	 * Utility method to check that the user owns one of the roles provided in
-	 * input.
+	 * input. Stateless resources check roles with their
+	 * {@link IRequestRoleChecker}, which doesn't use the session.
 	 * 
 	 * @param roles
 	 *            the checked roles.
@@ -608,8 +944,40 @@ public abstract class AbstractRestResource<T extends IObjectSerialDeserial> impl
 	protected final boolean hasAny(Roles roles) {
 		if (roles.isEmpty()) {
 			return true;
+		} else if (stateless) {
+			return requestRoleChecker.hasAnyRole(roles, (WebRequest) RequestCycle.get()
+					.getRequest());
 		} else {
 			return roleCheckingStrategy.hasAnyRole(roles);
 		}
 	}
+
+	/**
+	 * Gets the routes of the resource, shared by all the instances of the
+	 * class built with the same routing settings.
+	 * 
+	 * @return the route model.
+	 */
+	public final RouteModel getRouteModel() {
+		return routeModel;
+	}
+
+	/**
+	 * Gets the cache of resolved routes.
+	 * 
+	 * @return the route cache, or null if it has not been enabled (see
+	 *         {@link RestResourceSettings#setRouteCacheSize(int)}).
+	 */
+	public final RouteResolutionCache getRouteResolutionCache() {
+		return routeResolutionCache;
+	}
+
+	/**
+	 * Gets the filter used to reject requests that no mapped method can serve.
+	 * 
+	 * @return the filter of unmatched requests.
+	 */
+	public final UnmatchedRoutesFilter getUnmatchedRoutesFilter() {
+		return unmatchedRoutesFilter;
+	}
 }
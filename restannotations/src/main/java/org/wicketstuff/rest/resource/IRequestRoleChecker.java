@@ -0,0 +1,44 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource;
+
+import org.apache.wicket.authroles.authorization.strategies.role.Roles;
+import org.apache.wicket.request.http.WebRequest;
+
+/**
+ * Role checker for stateless resources (see
+ * {@link RestResourceSettings#setStateless(boolean)}). Unlike
+ * {@link org.apache.wicket.authroles.authorization.strategies.role.IRoleCheckingStrategy}
+ * it receives the current request, so it can authorize the caller from the
+ * request itself (e.g. from a token in its headers) without using the
+ * session.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public interface IRequestRoleChecker {
+	/**
+	 * Tells if the caller of the current request owns one of the given roles.
+	 * 
+	 * @param roles
+	 *            the required roles.
+	 * @param request
+	 *            the current request.
+	 * @return true if the caller owns one of the roles, false otherwise.
+	 */
+	public boolean hasAnyRole(Roles roles, WebRequest request);
+}
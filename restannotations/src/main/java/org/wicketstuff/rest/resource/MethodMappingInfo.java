@@ -17,18 +17,30 @@
 package org.wicketstuff.rest.resource;
 
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 
+import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.authroles.authorization.strategies.role.Roles;
 import org.apache.wicket.request.mapper.parameter.PageParameters;
 import org.wicketstuff.rest.annotations.AuthorizeInvocation;
 import org.wicketstuff.rest.annotations.MethodMapping;
 import org.wicketstuff.rest.contenthandling.RestMimeTypes;
 import org.wicketstuff.rest.resource.urlsegments.AbstractURLSegment;
+import org.wicketstuff.rest.resource.urlsegments.ParsedPath;
+import org.wicketstuff.rest.resource.urlsegments.RegExpMatchingPolicy;
+import org.wicketstuff.rest.utils.collections.ResultStreams;
 import org.wicketstuff.rest.utils.http.HttpMethod;
+import org.wicketstuff.rest.utils.reflection.IMethodInvoker;
+import org.wicketstuff.rest.utils.reflection.IResourceDispatcher;
+import org.wicketstuff.rest.utils.reflection.MethodParameter;
+import org.wicketstuff.rest.utils.reflection.ParameterBinding;
+import org.wicketstuff.rest.utils.reflection.ReflectiveMethodInvoker;
+import org.wicketstuff.rest.utils.reflection.RouteDescriptor;
 
 // TODO: Auto-generated Javadoc
 /**
@@ -47,12 +59,24 @@ public class MethodMappingInfo {
 	
 	/** Optional roles we used to annotate the method (see. {@link AuthorizeInvocation}). */
 	private final Roles roles;
-	/** The resource method we have mapped. */
-	private final Method method;
+	/** The descriptor of the mapped method. */
+	private final RouteDescriptor route;
+	/** The resource method we have mapped, looked up the first time it's needed. */
+	private volatile Method method;
 	/** The MIME type to use in input. */
 	private final String inputFormat;
 	/** The MIME type to use in output. */
 	private final String outputFormat;
+	/** Tells if the resolution of this method can be cached. */
+	private final boolean resolutionCacheable;
+	/** The binding plan of the method, with an entry for every parameter. */
+	private final MethodParameter[] methodParameters;
+	/** The invoker used to call the method. */
+	private final IMethodInvoker invoker;
+	/** The generic return type of the method. */
+	private final Type genericReturnType;
+	/** Tells if the result of the method is written element by element. */
+	private final boolean streamingResult;
 
 	/**
 	 * Class constructor.
@@ -61,14 +85,82 @@ public class MethodMappingInfo {
 	 * @param method the resource's method mapped.
 	 */
 	public MethodMappingInfo(MethodMapping methodMapped, Method method) {
-		this.httpMethod = methodMapped.httpMethod();
+		this(methodMapped, method, RegExpMatchingPolicy.DEFAULT);
+	}
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param methodMapped the method mapped
+	 * @param method the resource's method mapped.
+	 * @param regExpPolicy the policy used to match custom regular expressions.
+	 */
+	public MethodMappingInfo(MethodMapping methodMapped, Method method,
+			RegExpMatchingPolicy regExpPolicy) {
+		this(methodMapped, method, regExpPolicy, null);
+	}
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param methodMapped the method mapped
+	 * @param method the resource's method mapped.
+	 * @param regExpPolicy the policy used to match custom regular expressions.
+	 * @param invoker the invoker used to call the method. If it's null, the
+	 *        method is invoked with reflection (see {@link ReflectiveMethodInvoker}).
+	 */
+	public MethodMappingInfo(MethodMapping methodMapped, Method method,
+			RegExpMatchingPolicy regExpPolicy, IMethodInvoker invoker) {
+		this(RouteDescriptor.fromMethod(methodMapped, method, invoker), method, regExpPolicy);
+	}
+
+	/**
+	 * Class constructor used with the routes generated at compile time (see
+	 * {@link IResourceDispatcher#getRoutes()}), which doesn't use
+	 * reflection unless the method must be invoked with it.
+	 *
+	 * @param route the descriptor of the mapped method.
+	 * @param regExpPolicy the policy used to match custom regular expressions.
+	 */
+	public MethodMappingInfo(RouteDescriptor route, RegExpMatchingPolicy regExpPolicy) {
+		this(route, null, regExpPolicy);
+	}
+
+	private MethodMappingInfo(RouteDescriptor route, Method method,
+			RegExpMatchingPolicy regExpPolicy) {
+		this.route = route;
 		this.method = method;
-		this.segments = Collections.unmodifiableList(loadSegments(methodMapped.value()));
-		this.roles = loadRoles();
+		this.httpMethod = route.getHttpMethod();
+		this.segments = Collections.unmodifiableList(loadSegments(route.getPath(),
+				regExpPolicy));
+		this.roles = new Roles(route.getRoles());
 
-		this.inputFormat = methodMapped.consumes();
-		this.outputFormat = methodMapped.produces();
+		this.inputFormat = route.getConsumes();
+		this.outputFormat = route.getProduces();
+		this.resolutionCacheable = route.isCacheResolution();
+		this.methodParameters = loadMethodParameters();
+		this.invoker = route.getInvoker() != null ? route.getInvoker()
+				: new ReflectiveMethodInvoker(getMethod());
+		this.genericReturnType = route.getGenericReturnType();
+		this.streamingResult = ResultStreams.isStreamable(route.getReturnClass())
+				&& (RestMimeTypes.APPLICATION_JSON.equals(outputFormat) || RestMimeTypes.APPLICATION_NDJSON
+						.equals(outputFormat));
+	}
 
+	/**
+	 * Resolves once for all how the value of every method parameter must be
+	 * obtained from a request.
+	 * 
+	 * @return an array with the descriptors of the method parameters.
+	 */
+	private MethodParameter[] loadMethodParameters() {
+		ParameterBinding[] bindings = route.getParameters();
+		MethodParameter[] methodParameters = new MethodParameter[bindings.length];
+
+		for (int i = 0; i < bindings.length; i++)
+			methodParameters[i] = new MethodParameter(bindings[i], this, i);
+
+		return methodParameters;
 	}
 
 	/**
@@ -77,9 +169,12 @@ public class MethodMappingInfo {
 	 * 
 	 * @param urlPath
 	 *            the URL path of the method.
+	 * @param regExpPolicy
+	 *            the policy used to match custom regular expressions.
 	 * @return a list containing the segments that compose the URL in input
 	 */
-	private List<AbstractURLSegment> loadSegments(String urlPath) {
+	private List<AbstractURLSegment> loadSegments(String urlPath,
+			RegExpMatchingPolicy regExpPolicy) {
 		String[] segArray = urlPath.split("/");
 		ArrayList<AbstractURLSegment> segments = new ArrayList<AbstractURLSegment>();
 
@@ -90,29 +185,13 @@ public class MethodMappingInfo {
 			if (segment.isEmpty())
 				continue;
 
-			segmentValue = AbstractURLSegment.newSegment(segment);
+			segmentValue = AbstractURLSegment.newSegment(segment, regExpPolicy);
 			segments.add(segmentValue);
 		}
 
 		return segments;
 	}
 
-	/**
-	 * Load the optional roles used to annotate the method with.
-	 *
-	 * @return the authorization roles for the method.
-	 * {@link AuthorizeInvocation}
-	 */
-	private Roles loadRoles() {
-		AuthorizeInvocation authorizeInvocation = method.getAnnotation(AuthorizeInvocation.class);
-		Roles roles = new Roles();
-
-		if (authorizeInvocation != null) {
-			roles = new Roles(authorizeInvocation.value());
-		}
-		return roles;
-	}
-
 	/**
 	 * This method is invoked to populate the path parameters found in the
 	 * mapped URL with the values obtained from the current request.
@@ -122,15 +201,26 @@ public class MethodMappingInfo {
 	 * @return a Map containing the path parameters with their relative value.
 	 */
 	public LinkedHashMap<String, String> populatePathParameters(PageParameters pageParameters) {
+		return populatePathParameters(ParsedPath.fromPageParameters(pageParameters)
+				.getActualSegments());
+	}
+
+	/**
+	 * This method is invoked to populate the path parameters found in the
+	 * mapped URL with the values of the given segments.
+	 * 
+	 * @param actualSegments
+	 *            the segments of the current request, without matrix
+	 *            parameters.
+	 * @return a Map containing the path parameters with their relative value.
+	 */
+	public LinkedHashMap<String, String> populatePathParameters(String[] actualSegments) {
 		LinkedHashMap<String, String> pathParameters = new LinkedHashMap<String, String>();
-		int indexedCount = pageParameters.getIndexedCount();
 
-		for (int i = 0; i < indexedCount; i++) {
-			String segmentContent = AbstractURLSegment.getActualSegment(pageParameters.get(i)
-					.toString());
+		for (int i = 0; i < actualSegments.length; i++) {
 			AbstractURLSegment segment = segments.get(i);
 
-			segment.populatePathVariables(pathParameters, segmentContent);
+			segment.populatePathVariables(pathParameters, actualSegments[i]);
 		}
 
 		return pathParameters;
@@ -166,14 +256,92 @@ public class MethodMappingInfo {
 	}
 
 	/**
-	 * Gets the relative class method.
+	 * Gets the relative class method. For routes generated at compile time
+	 * the method is looked up with reflection the first time it's requested.
 	 * 
 	 * @return the class method
 	 */
 	public Method getMethod() {
+		Method method = this.method;
+
+		if (method == null) {
+			try {
+				method = route.findMethod();
+			} catch (NoSuchMethodException e) {
+				throw new WicketRuntimeException("Method '" + route.getMethodName()
+						+ "' not found in class " + route.getResourceClass().getName()
+						+ ". Its generated dispatcher is out of date.", e);
+			}
+
+			this.method = method;
+		}
+
 		return method;
 	}
 
+	/**
+	 * Gets the name of the method.
+	 * 
+	 * @return the method name
+	 */
+	public String getMethodName() {
+		return route.getMethodName();
+	}
+
+	/**
+	 * Gets the generic return type of the method, like List&lt;Person&gt;.
+	 * 
+	 * @return the generic return type
+	 */
+	public Type getGenericReturnType() {
+		return genericReturnType;
+	}
+
+	/**
+	 * Gets the descriptors of the method parameters, in the same order they
+	 * are declared. The returned array must not be modified.
+	 * 
+	 * @return the method parameters
+	 */
+	public MethodParameter[] getMethodParameters() {
+		return methodParameters;
+	}
+
+	/**
+	 * Gets the invoker used to call the method.
+	 * 
+	 * @return the invoker
+	 */
+	public IMethodInvoker getInvoker() {
+		return invoker;
+	}
+
+	/**
+	 * Tells if the result of the method is written to the response element by
+	 * element, as a JSON array or as newline-delimited JSON. This happens
+	 * when the method produces JSON or NDJSON and it returns an iterator, a
+	 * lazy iterable or a stream (see {@link ResultStreams}).
+	 * 
+	 * @return true if the result is streamed.
+	 */
+	public boolean isStreamingResult() {
+		return streamingResult;
+	}
+
+	/**
+	 * Gets the declared type of the elements of a streamed result, like
+	 * Person for a method returning Iterator&lt;Person&gt;.
+	 * 
+	 * @return the type of the streamed elements, or Object if the return type
+	 *         doesn't declare it.
+	 */
+	public Type getStreamedElementType() {
+		if (genericReturnType instanceof ParameterizedType)
+			return ((ParameterizedType) genericReturnType).getActualTypeArguments()[0];
+
+		return Object.class;
+	}
+
 	/**
 	 * Gets the optional authorization roles for this method.
 	 * 
@@ -200,4 +368,14 @@ public class MethodMappingInfo {
 	public String getMimeOutputFormat() {
 		return outputFormat;
 	}
-}
\ No newline at end of file
+
+	/**
+	 * Tells if the resolution of this method can be cached (see
+	 * {@link MethodMapping#cacheResolution()}).
+	 *
+	 * @return true if the resolution can be cached, false otherwise.
+	 */
+	public boolean isResolutionCacheable() {
+		return resolutionCacheable;
+	}
+}
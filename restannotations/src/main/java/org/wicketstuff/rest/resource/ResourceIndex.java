@@ -0,0 +1,221 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.apache.wicket.protocol.http.WebApplication;
+import org.apache.wicket.request.resource.IResource;
+import org.apache.wicket.request.resource.ResourceReference;
+import org.apache.wicket.util.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wicketstuff.rest.annotations.ResourcePath;
+
+/**
+ * Index of the resource classes annotated with {@link ResourcePath}, generated
+ * at compile time by the annotation processor of module
+ * wicketstuff-restannotations-processor. Every jar (or classes folder) has its
+ * own index file (see {@link #INDEX_LOCATION}) and {@link #load(ClassLoader)}
+ * merges them, hence resources can be mounted at startup without scanning
+ * the classpath.<br/>
+ * The index is a UTF-8 text file where every resource is described by a line
+ * with its class name and its mount path separated by a tab, followed by one
+ * line for each of its routes (HTTP method, path and method signature, each
+ * preceded by a tab). Lines starting with '#' are comments.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class ResourceIndex {
+	private static final Logger LOG = LoggerFactory.getLogger(ResourceIndex.class);
+
+	/** Location of the index file inside the classpath. */
+	public static final String INDEX_LOCATION = "META-INF/wicketstuff-rest/resources.idx";
+
+	private ResourceIndex() {
+	}
+
+	/**
+	 * Loads the resources listed in the index files visible to the given
+	 * class loader.
+	 * 
+	 * @param classLoader
+	 *            the class loader used to look up index files.
+	 * @return the indexed resources.
+	 */
+	public static List<Entry> load(ClassLoader classLoader) {
+		List<Entry> entries = new ArrayList<Entry>();
+		Enumeration<URL> indexFiles;
+
+		try {
+			indexFiles = classLoader.getResources(INDEX_LOCATION);
+		} catch (IOException e) {
+			throw new WicketRuntimeException("Resource index can't be loaded.", e);
+		}
+
+		while (indexFiles.hasMoreElements()) {
+			URL indexFile = indexFiles.nextElement();
+			Reader reader = null;
+
+			try {
+				reader = new InputStreamReader(indexFile.openStream(), "UTF-8");
+				entries.addAll(read(reader));
+			} catch (IOException e) {
+				throw new WicketRuntimeException("Resource index '" + indexFile
+						+ "' can't be read.", e);
+			} finally {
+				IOUtils.closeQuietly(reader);
+			}
+		}
+
+		return entries;
+	}
+
+	/**
+	 * Reads the resources listed in an index file.
+	 * 
+	 * @param reader
+	 *            the reader of the index file.
+	 * @return the resources listed in the file.
+	 * @throws IOException
+	 */
+	static List<Entry> read(Reader reader) throws IOException {
+		BufferedReader lineReader = new BufferedReader(reader);
+		List<Entry> entries = new ArrayList<Entry>();
+		String line;
+		Entry entry = null;
+
+		while ((line = lineReader.readLine()) != null) {
+			if (line.trim().length() == 0 || line.startsWith("#"))
+				continue;
+
+			if (line.charAt(0) == '\t') {
+				if (entry == null)
+					throw new IOException("Route listed before its resource: '" + line + "'.");
+
+				entry.routes.add(line.substring(1).replace('\t', ' '));
+				continue;
+			}
+
+			int separatorIndex = line.indexOf('\t');
+
+			if (separatorIndex < 0)
+				throw new IOException("Invalid resource line: '" + line + "'.");
+
+			entry = new Entry(line.substring(0, separatorIndex), line.substring(separatorIndex + 1));
+			entries.add(entry);
+		}
+
+		return entries;
+	}
+
+	/**
+	 * Mounts every indexed resource visible to the class loader of the given
+	 * application. Every resource class is instantiated once, with its
+	 * constructor with no arguments.
+	 * 
+	 * @param application
+	 *            the application to mount resources on.
+	 * @return the mounted resources.
+	 */
+	public static List<Entry> mountAll(WebApplication application) {
+		List<Entry> entries = load(application.getClass().getClassLoader());
+
+		for (Entry entry : entries) {
+			final IResource resource = newResource(application, entry);
+
+			application.mountResource(entry.getMountPath(),
+					new ResourceReference(entry.getResourceClassName()) {
+						@Override
+						public IResource getResource() {
+							return resource;
+						}
+					});
+
+			LOG.info("Mounted resource " + entry.getResourceClassName() + " on '"
+					+ entry.getMountPath() + "' with routes " + entry.getRoutes() + ".");
+		}
+
+		return entries;
+	}
+
+	/**
+	 * Instantiates the resource described by an index entry.
+	 */
+	private static IResource newResource(WebApplication application, Entry entry) {
+		try {
+			Class<?> resourceClass = Class.forName(entry.getResourceClassName(), true,
+					application.getClass().getClassLoader());
+
+			return (IResource) resourceClass.newInstance();
+		} catch (Exception e) {
+			throw new WicketRuntimeException("Indexed resource '" + entry.getResourceClassName()
+					+ "' can't be instantiated.", e);
+		}
+	}
+
+	/**
+	 * A resource listed in the index.
+	 */
+	public static class Entry {
+		private final String resourceClassName;
+		private final String mountPath;
+		private final List<String> routes = new ArrayList<String>();
+
+		Entry(String resourceClassName, String mountPath) {
+			this.resourceClassName = resourceClassName;
+			this.mountPath = mountPath;
+		}
+
+		/**
+		 * Gets the binary name of the resource class.
+		 * 
+		 * @return the class name.
+		 */
+		public String getResourceClassName() {
+			return resourceClassName;
+		}
+
+		/**
+		 * Gets the path the resource must be mounted on.
+		 * 
+		 * @return the mount path.
+		 */
+		public String getMountPath() {
+			return mountPath;
+		}
+
+		/**
+		 * Gets the routes of the resource, like 'GET /persons getAllPersons()'.
+		 * 
+		 * @return an unmodifiable list of routes.
+		 */
+		public List<String> getRoutes() {
+			return Collections.unmodifiableList(routes);
+		}
+	}
+}
@@ -0,0 +1,394 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import org.apache.wicket.util.lang.Args;
+import org.wicketstuff.rest.annotations.MethodMapping;
+import org.wicketstuff.rest.contenthandling.RestMimeTypes;
+import org.wicketstuff.rest.contenthandling.serialdeserial.MultiFormatSerialDeserial;
+import org.wicketstuff.rest.resource.routing.RouteMatchingEngine;
+import org.wicketstuff.rest.resource.urlsegments.RegExpMatchingPolicy;
+import org.wicketstuff.rest.utils.regex.RegExpEngine;
+
+/**
+ * Optional settings for {@link AbstractRestResource}. Settings are read when
+ * the resource is built, hence changing them later has no effect on existing
+ * resources.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class RestResourceSettings {
+	/** Maximum number of resolved routes to cache. 0 disables the cache. */
+	private int routeCacheSize = 0;
+
+	/** Maximum number of rejected requests to remember. 0 disables the cache. */
+	private int rejectedRoutesCacheSize = 0;
+
+	/** The engine used to select the method serving a request. */
+	private RouteMatchingEngine routeMatchingEngine = RouteMatchingEngine.SEGMENT_TRIE;
+
+	/** The engine used to match custom regular expressions of path parameters. */
+	private RegExpEngine regExpEngine = RegExpEngine.JDK;
+
+	/** Maximum number of steps of a regular expression match. 0 means no limit. */
+	private int regExpStepBudget = 0;
+
+	/** Tells if regular expressions with nested quantifiers must be rejected. */
+	private boolean rejectUnsafeRegExps = false;
+
+	/** Tells if requests must be served without using the Wicket session. */
+	private boolean stateless = false;
+
+	/** Locale used in stateless mode. Null to use the locale of the request. */
+	private Locale statelessLocale;
+
+	/** Role checker used in stateless mode. */
+	private IRequestRoleChecker requestRoleChecker;
+
+	/** Tells if binding a session in stateless mode must raise an error. */
+	private boolean failOnSessionBinding = false;
+
+	/** Number of streamed elements written between two flushes of the response. */
+	private int streamingFlushInterval = 100;
+
+	/** MIME types clients can ask for instead of the ones declared by methods. */
+	private final Set<String> negotiableMimeTypes = new LinkedHashSet<String>();
+
+	/**
+	 * Gets the maximum number of resolved routes kept in cache.
+	 * 
+	 * @return the route cache size. 0 means that the cache is disabled.
+	 */
+	public int getRouteCacheSize() {
+		return routeCacheSize;
+	}
+
+	/**
+	 * Sets the maximum number of resolved routes kept in cache. A resolved
+	 * route associates the HTTP method and the path of a request to the
+	 * mapped method serving it and to the values of its path parameters.
+	 * 
+	 * @param routeCacheSize
+	 *            the route cache size. 0 disables the cache.
+	 * @return this settings object.
+	 */
+	public RestResourceSettings setRouteCacheSize(int routeCacheSize) {
+		if (routeCacheSize < 0)
+			throw new IllegalArgumentException("Route cache size can't be negative.");
+
+		this.routeCacheSize = routeCacheSize;
+		return this;
+	}
+
+	/**
+	 * Gets the maximum number of rejected requests kept in cache.
+	 * 
+	 * @return the rejected requests cache size. 0 means that the cache is
+	 *         disabled.
+	 */
+	public int getRejectedRoutesCacheSize() {
+		return rejectedRoutesCacheSize;
+	}
+
+	/**
+	 * Sets the maximum number of rejected requests (i.e. requests that no
+	 * mapped method can serve) kept in cache. Recently rejected requests are
+	 * answered without matching their segments again.
+	 * 
+	 * @param rejectedRoutesCacheSize
+	 *            the rejected requests cache size. 0 disables the cache.
+	 * @return this settings object.
+	 */
+	public RestResourceSettings setRejectedRoutesCacheSize(int rejectedRoutesCacheSize) {
+		if (rejectedRoutesCacheSize < 0)
+			throw new IllegalArgumentException("Rejected routes cache size can't be negative.");
+
+		this.rejectedRoutesCacheSize = rejectedRoutesCacheSize;
+		return this;
+	}
+
+	/**
+	 * Gets the engine used to select the method serving a request.
+	 * 
+	 * @return the route matching engine.
+	 */
+	public RouteMatchingEngine getRouteMatchingEngine() {
+		return routeMatchingEngine;
+	}
+
+	/**
+	 * Sets the engine used to select the method serving a request. The
+	 * default engine is {@link RouteMatchingEngine#SEGMENT_TRIE}.
+	 * 
+	 * @param routeMatchingEngine
+	 *            the route matching engine.
+	 * @return this settings object.
+	 */
+	public RestResourceSettings setRouteMatchingEngine(RouteMatchingEngine routeMatchingEngine) {
+		this.routeMatchingEngine = Args.notNull(routeMatchingEngine, "routeMatchingEngine");
+		return this;
+	}
+
+	/**
+	 * Gets the engine used to match custom regular expressions of path
+	 * parameters.
+	 * 
+	 * @return the regular expression engine.
+	 */
+	public RegExpEngine getRegExpEngine() {
+		return regExpEngine;
+	}
+
+	/**
+	 * Sets the engine used to match custom regular expressions of path
+	 * parameters. The default engine is {@link RegExpEngine#JDK}. With
+	 * {@link RegExpEngine#LINEAR} the time needed to match a value grows
+	 * linearly with its length. Expressions not supported by the linear
+	 * engine still run on the JDK engine.
+	 * 
+	 * @param regExpEngine
+	 *            the regular expression engine.
+	 * @return this settings object.
+	 */
+	public RestResourceSettings setRegExpEngine(RegExpEngine regExpEngine) {
+		this.regExpEngine = Args.notNull(regExpEngine, "regExpEngine");
+		return this;
+	}
+
+	/**
+	 * Gets the maximum number of steps a match of a custom regular expression
+	 * can take.
+	 * 
+	 * @return the step budget. 0 means no limit.
+	 */
+	public int getRegExpStepBudget() {
+		return regExpStepBudget;
+	}
+
+	/**
+	 * Sets the maximum number of steps a match of a custom regular expression
+	 * can take. Requests whose matching exceeds the budget are answered with a
+	 * 400 HTTP code.
+	 * 
+	 * @param regExpStepBudget
+	 *            the step budget. 0 means no limit.
+	 * @return this settings object.
+	 */
+	public RestResourceSettings setRegExpStepBudget(int regExpStepBudget) {
+		if (regExpStepBudget < 0)
+			throw new IllegalArgumentException("Regular expression step budget can't be negative.");
+
+		this.regExpStepBudget = regExpStepBudget;
+		return this;
+	}
+
+	/**
+	 * Tells if custom regular expressions with nested quantifiers are rejected
+	 * when the resource is built.
+	 * 
+	 * @return true if unsafe regular expressions are rejected, false if they
+	 *         are only logged.
+	 */
+	public boolean isRejectUnsafeRegExps() {
+		return rejectUnsafeRegExps;
+	}
+
+	/**
+	 * Sets if custom regular expressions with nested quantifiers (like
+	 * '(a+)+') must be rejected when the resource is built. By default they are
+	 * only logged as warnings. Expressions matched by the linear engine are
+	 * never rejected.
+	 * 
+	 * @param rejectUnsafeRegExps
+	 *            true to reject unsafe regular expressions.
+	 * @return this settings object.
+	 */
+	public RestResourceSettings setRejectUnsafeRegExps(boolean rejectUnsafeRegExps) {
+		this.rejectUnsafeRegExps = rejectUnsafeRegExps;
+		return this;
+	}
+
+	/**
+	 * Tells if requests are served without using the Wicket session.
+	 * 
+	 * @return true if the resource is stateless.
+	 */
+	public boolean isStateless() {
+		return stateless;
+	}
+
+	/**
+	 * Sets if requests must be served without using the Wicket session. In
+	 * stateless mode the locale used to convert parameters is not read from
+	 * the session but from the Accept-Language header of the request, or it's
+	 * the fixed locale set with {@link #setStatelessLocale(Locale)}, and roles
+	 * are checked with the checker set with
+	 * {@link #setRequestRoleChecker(IRequestRoleChecker)} instead of the
+	 * role-checking strategy of the resource.<br/>
+	 * Note that the code of mapped methods can still use the session.
+	 * 
+	 * @param stateless
+	 *            true to serve requests without using the session.
+	 * @return this settings object.
+	 */
+	public RestResourceSettings setStateless(boolean stateless) {
+		this.stateless = stateless;
+		return this;
+	}
+
+	/**
+	 * Gets the locale used in stateless mode.
+	 * 
+	 * @return the locale, or null if the locale of the request is used.
+	 */
+	public Locale getStatelessLocale() {
+		return statelessLocale;
+	}
+
+	/**
+	 * Sets a fixed locale to use in stateless mode instead of the locale of
+	 * the request.
+	 * 
+	 * @param statelessLocale
+	 *            the locale. Null to use the locale of the request.
+	 * @return this settings object.
+	 */
+	public RestResourceSettings setStatelessLocale(Locale statelessLocale) {
+		this.statelessLocale = statelessLocale;
+		return this;
+	}
+
+	/**
+	 * Gets the role checker used in stateless mode.
+	 * 
+	 * @return the request role checker, or null if none has been set.
+	 */
+	public IRequestRoleChecker getRequestRoleChecker() {
+		return requestRoleChecker;
+	}
+
+	/**
+	 * Sets the role checker used in stateless mode (see
+	 * {@link #setStateless(boolean)}). A stateless resource that uses
+	 * {@link org.wicketstuff.rest.annotations.AuthorizeInvocation} requires it.
+	 * 
+	 * @param requestRoleChecker
+	 *            the request role checker.
+	 * @return this settings object.
+	 */
+	public RestResourceSettings setRequestRoleChecker(IRequestRoleChecker requestRoleChecker) {
+		this.requestRoleChecker = requestRoleChecker;
+		return this;
+	}
+
+	/**
+	 * Tells if an error is raised when a session is created or bound while a
+	 * stateless resource serves a request.
+	 * 
+	 * @return true if the guard is enabled.
+	 */
+	public boolean isFailOnSessionBinding() {
+		return failOnSessionBinding;
+	}
+
+	/**
+	 * Sets if an error must be raised when a session is created or bound
+	 * while a stateless resource serves a request. The guard is meant to be
+	 * enabled in tests and it has no effect if the resource is not stateless
+	 * (see {@link #setStateless(boolean)}).
+	 * 
+	 * @param failOnSessionBinding
+	 *            true to enable the guard.
+	 * @return this settings object.
+	 */
+	public RestResourceSettings setFailOnSessionBinding(boolean failOnSessionBinding) {
+		this.failOnSessionBinding = failOnSessionBinding;
+		return this;
+	}
+
+	/**
+	 * Gets the number of elements written between two flushes of the
+	 * response when a result is streamed.
+	 * 
+	 * @return the flush interval.
+	 */
+	public int getStreamingFlushInterval() {
+		return streamingFlushInterval;
+	}
+
+	/**
+	 * Sets the number of elements written between two flushes of the response
+	 * when the result of a method is streamed (see
+	 * {@link MethodMappingInfo#isStreamingResult()}). Flushing commits the
+	 * response, which is then sent with chunked transfer encoding.
+	 * 
+	 * @param streamingFlushInterval
+	 *            the flush interval. Must be greater than 0.
+	 * @return this settings object.
+	 */
+	public RestResourceSettings setStreamingFlushInterval(int streamingFlushInterval) {
+		Args.withinRange(1, Integer.MAX_VALUE, streamingFlushInterval, "streamingFlushInterval");
+		this.streamingFlushInterval = streamingFlushInterval;
+		return this;
+	}
+
+	/**
+	 * Gets the MIME types that can be negotiated by requests.
+	 * 
+	 * @return the negotiable MIME types. Empty if negotiation is disabled.
+	 */
+	public Set<String> getNegotiableMimeTypes() {
+		return Collections.unmodifiableSet(negotiableMimeTypes);
+	}
+
+	/**
+	 * Adds a MIME type that requests can use instead of the ones declared by
+	 * mapped methods (see {@link MethodMapping#consumes()} and
+	 * {@link MethodMapping#produces()}). A request body whose Content-Type is
+	 * a negotiable type is read with that type, and a result is written with
+	 * a negotiable type when the request lists it explicitly in its Accept
+	 * header. Wildcards in the Accept header are ignored, so clients like
+	 * browsers keep receiving the declared type. Methods producing
+	 * {@link RestMimeTypes#TEXT_PLAIN} and streamed results are never
+	 * negotiated.<br/>
+	 * The serializer/deserializer of the resource must support the type (see
+	 * {@link MultiFormatSerialDeserial}).
+	 * 
+	 * @param mimeType
+	 *            the negotiable MIME type.
+	 * @return this settings object.
+	 */
+	public RestResourceSettings addNegotiableMimeType(String mimeType) {
+		negotiableMimeTypes.add(Args.notEmpty(mimeType, "mimeType"));
+		return this;
+	}
+
+	/**
+	 * Gets the policy used by segments to match custom regular expressions.
+	 * 
+	 * @return the regular expression matching policy.
+	 */
+	public RegExpMatchingPolicy getRegExpMatchingPolicy() {
+		return new RegExpMatchingPolicy(regExpEngine, regExpStepBudget);
+	}
+}
@@ -0,0 +1,362 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.wicketstuff.rest.annotations.AuthorizeInvocation;
+import org.wicketstuff.rest.annotations.MethodMapping;
+import org.wicketstuff.rest.contenthandling.RestMimeTypes;
+import org.wicketstuff.rest.resource.routing.AmbiguousRoutesDetector;
+import org.wicketstuff.rest.resource.routing.CombinedRouteMatcher;
+import org.wicketstuff.rest.resource.routing.IRouteSelector;
+import org.wicketstuff.rest.resource.routing.RouteMatchingEngine;
+import org.wicketstuff.rest.resource.routing.RoutingTrie;
+import org.wicketstuff.rest.resource.routing.UnsafeRegExpDetector;
+import org.wicketstuff.rest.resource.urlsegments.RegExpMatchingPolicy;
+import org.wicketstuff.rest.utils.reflection.IResourceDispatcher;
+import org.wicketstuff.rest.utils.reflection.MethodParameter;
+import org.wicketstuff.rest.utils.reflection.MethodParameter.ValueSource;
+import org.wicketstuff.rest.utils.reflection.ResourceDispatchers;
+import org.wicketstuff.rest.utils.reflection.RouteDescriptor;
+
+/**
+ * The routes of a resource class: its mapped methods (see
+ * {@link MethodMapping}) and the engine used to select them. A route model is
+ * immutable and depends only on the resource class and on the settings used
+ * to compile the routes, hence it is built once and shared by every instance
+ * of the class (see {@link #forClass(Class, RestResourceSettings)}).<br/>
+ * If a dispatcher has been generated for the class at compile time (see
+ * {@link ResourceDispatchers}), the model is built from its route table and
+ * mapped methods are invoked through it, without using reflection. Otherwise,
+ * or if the dispatcher is out of date, mapped methods are read from the
+ * annotations of the class.<br/>
+ * Models are referenced weakly, both through their class and by themselves:
+ * they are kept while some resource uses them and they never prevent the
+ * class loader of a redeployed application from being collected.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class RouteModel {
+	/**
+	 * Route models built so far, by resource class and compile settings.
+	 * Models reference their class (and its methods), so they are held
+	 * through weak references, otherwise the weak keys would never be
+	 * cleared.
+	 */
+	private static final Map<Class<?>, Map<ModelKey, WeakReference<RouteModel>>> MODELS = Collections
+			.synchronizedMap(new WeakHashMap<Class<?>, Map<ModelKey, WeakReference<RouteModel>>>());
+
+	/** The mapped methods of the resource class. */
+	private final List<MethodMappingInfo> mappedMethods;
+
+	/** Segment trie compiled from the mapped methods. */
+	private final RoutingTrie routingTrie;
+
+	/** The engine used to select the method serving a request. */
+	private final IRouteSelector routeSelector;
+
+	/** Tells if some method is annotated with {@link AuthorizeInvocation}. */
+	private final boolean usingAuthorization;
+
+	/** Unsafe regular expressions used by the mapped methods. */
+	private final List<String> unsafeRegExps;
+
+	/** Types of request bodies and results of the mapped methods. */
+	private final Set<Type> serializedTypes;
+
+	/**
+	 * Returns the route model of the given resource class, building it the
+	 * first time it's requested (or again, if no resource used it any more
+	 * and it has been garbage collected).
+	 * 
+	 * @param resourceClass
+	 *            the resource class.
+	 * @param settings
+	 *            the settings of the resource. Only the settings used to
+	 *            compile routes (route matching engine, regular expression
+	 *            engine and step budget) are relevant.
+	 * @return the route model.
+	 * @throws org.apache.wicket.WicketRuntimeException
+	 *             if the mapped methods are ambiguous or some of them isn't
+	 *             public.
+	 */
+	public static RouteModel forClass(Class<?> resourceClass, RestResourceSettings settings) {
+		ModelKey key = new ModelKey(settings.getRouteMatchingEngine(),
+				settings.getRegExpMatchingPolicy());
+
+		synchronized (MODELS) {
+			Map<ModelKey, WeakReference<RouteModel>> classModels = MODELS.get(resourceClass);
+
+			if (classModels == null) {
+				classModels = new HashMap<ModelKey, WeakReference<RouteModel>>();
+				MODELS.put(resourceClass, classModels);
+			}
+
+			WeakReference<RouteModel> modelReference = classModels.get(key);
+			RouteModel routeModel = modelReference != null ? modelReference.get() : null;
+
+			if (routeModel == null) {
+				routeModel = new RouteModel(resourceClass, key.routeMatchingEngine,
+						key.regExpPolicy);
+				classModels.put(key, new WeakReference<RouteModel>(routeModel));
+			}
+
+			return routeModel;
+		}
+	}
+
+	private RouteModel(Class<?> resourceClass, RouteMatchingEngine routeMatchingEngine,
+			RegExpMatchingPolicy regExpPolicy) {
+		List<MethodMappingInfo> mappedMethods = new ArrayList<MethodMappingInfo>();
+		IResourceDispatcher dispatcher = ResourceDispatchers.findDispatcher(resourceClass);
+		boolean usingAuthorization;
+
+		RouteDescriptor[] routes = dispatcher != null ? dispatcher.getRoutes() : null;
+
+		if (routes != null && ResourceDispatchers.checkRoutes(resourceClass, routes)) {
+			for (RouteDescriptor route : routes)
+				mappedMethods.add(new MethodMappingInfo(route, regExpPolicy));
+
+			usingAuthorization = dispatcher.isUsingAuthorization();
+		} else {
+			usingAuthorization = loadMappedMethods(resourceClass, regExpPolicy, mappedMethods);
+		}
+
+		this.mappedMethods = Collections.unmodifiableList(mappedMethods);
+		this.usingAuthorization = usingAuthorization;
+		this.unsafeRegExps = Collections.unmodifiableList(UnsafeRegExpDetector.checkRoutes(
+				mappedMethods, false));
+		this.routingTrie = new RoutingTrie(mappedMethods);
+		AmbiguousRoutesDetector.checkRoutes(mappedMethods, routingTrie);
+		this.routeSelector = newRouteSelector(routeMatchingEngine, regExpPolicy);
+		this.serializedTypes = Collections.unmodifiableSet(collectSerializedTypes(mappedMethods));
+	}
+
+	/**
+	 * Reads the mapped methods of a class without an up-to-date dispatcher,
+	 * using reflection.
+	 * 
+	 * @param resourceClass
+	 *            the resource class.
+	 * @param regExpPolicy
+	 *            the policy used to match custom regular expressions.
+	 * @param mappedMethods
+	 *            the list the mapped methods are added to.
+	 * @return true if some method is annotated with {@link AuthorizeInvocation}.
+	 * @throws org.apache.wicket.WicketRuntimeException
+	 *             if a mapped method isn't public.
+	 */
+	private static boolean loadMappedMethods(Class<?> resourceClass,
+			RegExpMatchingPolicy regExpPolicy, List<MethodMappingInfo> mappedMethods) {
+		Method[] methods = resourceClass.getDeclaredMethods();
+		boolean usingAuthorization = false;
+
+		for (int i = 0; i < methods.length; i++) {
+			Method method = methods[i];
+			MethodMapping methodMapped = method.getAnnotation(MethodMapping.class);
+
+			usingAuthorization = usingAuthorization
+					|| method.getAnnotation(AuthorizeInvocation.class) != null;
+
+			if (methodMapped == null)
+				continue;
+
+			if (!Modifier.isPublic(method.getModifiers()))
+				throw new WicketRuntimeException("Method '" + method.getName() + "' of class '"
+						+ resourceClass.getName()
+						+ "' is annotated with @MethodMapping, but it isn't public.");
+
+			mappedMethods.add(new MethodMappingInfo(methodMapped, method, regExpPolicy));
+		}
+
+		return usingAuthorization;
+	}
+
+	/**
+	 * Collects the generic types of the objects deserialized from request
+	 * bodies and serialized to responses by the mapped methods. For streamed
+	 * results the type of their elements is collected.
+	 * 
+	 * @param mappedMethods
+	 *            the mapped methods.
+	 * @return the serialized types.
+	 */
+	private static Set<Type> collectSerializedTypes(List<MethodMappingInfo> mappedMethods) {
+		Set<Type> serializedTypes = new LinkedHashSet<Type>();
+
+		for (MethodMappingInfo mappedMethod : mappedMethods) {
+			for (MethodParameter methodParameter : mappedMethod.getMethodParameters()) {
+				if (methodParameter.getValueSource() == ValueSource.REQUEST_BODY)
+					addSerializedType(serializedTypes, methodParameter.getGenericType());
+			}
+
+			Type resultType = mappedMethod.getGenericReturnType();
+
+			if (resultType == void.class
+					|| RestMimeTypes.TEXT_PLAIN.equals(mappedMethod.getMimeOutputFormat()))
+				continue;
+
+			if (!mappedMethod.isStreamingResult())
+				addSerializedType(serializedTypes, resultType);
+			else if (resultType instanceof ParameterizedType)
+				addSerializedType(serializedTypes, mappedMethod.getStreamedElementType());
+		}
+
+		return serializedTypes;
+	}
+
+	/**
+	 * Adds a type to the serialized types, unless it's a type variable or a
+	 * wildcard, which can't be resolved in advance.
+	 */
+	private static void addSerializedType(Set<Type> serializedTypes, Type type) {
+		if (type instanceof Class || type instanceof ParameterizedType
+				|| type instanceof GenericArrayType)
+			serializedTypes.add(type);
+	}
+
+	/**
+	 * Creates the engine used to select the method serving a request.
+	 * 
+	 * @param routeMatchingEngine
+	 *            the type of engine to create.
+	 * @param regExpPolicy
+	 *            the policy used to match custom regular expressions.
+	 * @return the route selector.
+	 */
+	private IRouteSelector newRouteSelector(RouteMatchingEngine routeMatchingEngine,
+			RegExpMatchingPolicy regExpPolicy) {
+		switch (routeMatchingEngine) {
+		case COMBINED_PATTERN:
+			return new CombinedRouteMatcher(mappedMethods, routingTrie, regExpPolicy);
+		default:
+			return routingTrie;
+		}
+	}
+
+	/**
+	 * Gets the mapped methods of the resource class.
+	 * 
+	 * @return an unmodifiable list of mapped methods.
+	 */
+	public List<MethodMappingInfo> getMappedMethods() {
+		return mappedMethods;
+	}
+
+	/**
+	 * Gets the segment trie compiled from the mapped methods.
+	 * 
+	 * @return the routing trie.
+	 */
+	public RoutingTrie getRoutingTrie() {
+		return routingTrie;
+	}
+
+	/**
+	 * Gets the engine used to select the method serving a request.
+	 * 
+	 * @return the route selector.
+	 */
+	public IRouteSelector getRouteSelector() {
+		return routeSelector;
+	}
+
+	/**
+	 * Tells if some method of the class is annotated with
+	 * {@link AuthorizeInvocation}.
+	 * 
+	 * @return true if authorization annotations are used.
+	 */
+	public boolean isUsingAuthorization() {
+		return usingAuthorization;
+	}
+
+	/**
+	 * Gets the custom regular expressions with nested quantifiers matched with
+	 * the JDK engine (see {@link UnsafeRegExpDetector}).
+	 * 
+	 * @return an unmodifiable list of unsafe regular expressions.
+	 */
+	public List<String> getUnsafeRegExps() {
+		return unsafeRegExps;
+	}
+
+	/**
+	 * Gets the generic types of the objects deserialized from request bodies
+	 * and serialized to responses by the mapped methods.
+	 * 
+	 * @return an unmodifiable set of types.
+	 */
+	public Set<Type> getSerializedTypes() {
+		return serializedTypes;
+	}
+
+	/**
+	 * Key of a route model inside the models of its resource class: the
+	 * settings used to compile its routes.
+	 */
+	static class ModelKey {
+		private final RouteMatchingEngine routeMatchingEngine;
+		private final RegExpMatchingPolicy regExpPolicy;
+
+		ModelKey(RouteMatchingEngine routeMatchingEngine, RegExpMatchingPolicy regExpPolicy) {
+			this.routeMatchingEngine = routeMatchingEngine;
+			this.regExpPolicy = regExpPolicy;
+		}
+
+		@Override
+		public int hashCode() {
+			int result = routeMatchingEngine.hashCode();
+
+			result = 31 * result + regExpPolicy.getEngine().hashCode();
+			result = 31 * result + regExpPolicy.getStepBudget();
+
+			return result;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj)
+				return true;
+
+			if (!(obj instanceof ModelKey))
+				return false;
+
+			ModelKey other = (ModelKey) obj;
+
+			return routeMatchingEngine == other.routeMatchingEngine
+					&& regExpPolicy.getEngine() == other.regExpPolicy.getEngine()
+					&& regExpPolicy.getStepBudget() == other.regExpPolicy.getStepBudget();
+		}
+	}
+}
\ No newline at end of file
@@ -0,0 +1,163 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.routing;
+
+import java.util.List;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.wicketstuff.rest.resource.MethodMappingInfo;
+import org.wicketstuff.rest.resource.urlsegments.AbstractURLSegment;
+import org.wicketstuff.rest.resource.urlsegments.FixedURLSegment;
+
+/**
+ * Static analysis of the mapped methods of a resource. It looks for couples
+ * of methods that are provably ambiguous, i.e. for which exists at least one
+ * URL that both methods match with the same (highest) score.<br/>
+ * For every couple of methods with the same HTTP method and the same number of
+ * segments, the detector tries to build such a URL (the 'witness') taking the
+ * value of fixed segments and a neutral value for segments where both methods
+ * have an unconstrained parameter. The witness is then resolved with the
+ * {@link RoutingTrie} exactly like a real request.<br/>
+ * Methods with the same segments (or with parameter segments having the same
+ * pattern) are always ambiguous. Methods with parameter segments having
+ * different custom regular expressions can't be proved ambiguous and are left
+ * to runtime detection.
+ *
+ * @author andrea del bene
+ *
+ */
+public class AmbiguousRoutesDetector {
+	/**
+	 * Value used in the witness for positions where both methods have a
+	 * parameter segment. It can't be a valid fixed segment.
+	 */
+	static final String NEUTRAL_SEGMENT_VALUE = "\u0000";
+
+	/**
+	 * Checks the mapped methods of a resource, throwing an exception if two
+	 * of them are ambiguous.
+	 *
+	 * @param mappedMethods
+	 *            the mapped methods of the resource.
+	 * @param routingTrie
+	 *            the trie compiled from the mapped methods.
+	 * @throws WicketRuntimeException
+	 *             if two or more mapped methods are ambiguous.
+	 */
+	public static void checkRoutes(List<MethodMappingInfo> mappedMethods, RoutingTrie routingTrie) {
+		for (int i = 0; i < mappedMethods.size(); i++) {
+			for (int j = i + 1; j < mappedMethods.size(); j++) {
+				MethodMappingInfo first = mappedMethods.get(i);
+				MethodMappingInfo second = mappedMethods.get(j);
+
+				if (first.getHttpMethod() != second.getHttpMethod()
+						|| first.getSegmentsCount() != second.getSegmentsCount())
+					continue;
+
+				if (haveSameShape(first.getSegments(), second.getSegments()))
+					throwAmbiguousRoutesException(first, second);
+
+				String[] witness = buildWitness(first.getSegments(), second.getSegments());
+
+				if (witness == null)
+					continue;
+
+				RouteMatch routeMatch = routingTrie.select(first.getHttpMethod(), witness);
+				List<MethodMappingInfo> ambiguousMethods = routeMatch.getAmbiguousMethods();
+
+				if (ambiguousMethods.contains(first) && ambiguousMethods.contains(second))
+					throwAmbiguousRoutesException(first, second);
+			}
+		}
+	}
+
+	/**
+	 * Checks if two lists of segments match exactly the same URLs, i.e. if
+	 * they have the same fixed segments and the same parameter patterns in the
+	 * same positions.
+	 *
+	 * @param firstSegments
+	 *            the segments of the first method.
+	 * @param secondSegments
+	 *            the segments of the second method.
+	 * @return true if the two lists have the same shape, false otherwise.
+	 */
+	static boolean haveSameShape(List<AbstractURLSegment> firstSegments,
+			List<AbstractURLSegment> secondSegments) {
+		for (int i = 0; i < firstSegments.size(); i++) {
+			AbstractURLSegment firstSegment = firstSegments.get(i);
+			AbstractURLSegment secondSegment = secondSegments.get(i);
+			boolean firstIsFixed = firstSegment instanceof FixedURLSegment;
+
+			if (firstIsFixed != secondSegment instanceof FixedURLSegment)
+				return false;
+
+			if (firstIsFixed && !firstSegment.toString().equals(secondSegment.toString()))
+				return false;
+
+			if (!firstIsFixed
+					&& !firstSegment.getMatchingKey().equals(secondSegment.getMatchingKey()))
+				return false;
+		}
+
+		return true;
+	}
+
+	private static void throwAmbiguousRoutesException(MethodMappingInfo first,
+			MethodMappingInfo second) {
+		throw new WicketRuntimeException("Ambiguous methods mapped with HTTP method "
+				+ first.getHttpMethod() + ": '" + first.getMethodName() + "' and '"
+				+ second.getMethodName() + "' match the same URLs with the same score.");
+	}
+
+	/**
+	 * Builds a URL (as array of segments) matched by both the given lists of
+	 * segments.
+	 *
+	 * @param firstSegments
+	 *            the segments of the first method.
+	 * @param secondSegments
+	 *            the segments of the second method.
+	 * @return the segments of the URL, or null if it was not possible to
+	 *         build a URL matched by both methods.
+	 */
+	static String[] buildWitness(List<AbstractURLSegment> firstSegments,
+			List<AbstractURLSegment> secondSegments) {
+		String[] witness = new String[firstSegments.size()];
+
+		for (int i = 0; i < witness.length; i++) {
+			AbstractURLSegment firstSegment = firstSegments.get(i);
+			AbstractURLSegment secondSegment = secondSegments.get(i);
+			String segmentValue;
+
+			if (firstSegment instanceof FixedURLSegment)
+				segmentValue = firstSegment.toString();
+			else if (secondSegment instanceof FixedURLSegment)
+				segmentValue = secondSegment.toString();
+			else
+				segmentValue = NEUTRAL_SEGMENT_VALUE;
+
+			if (firstSegment.calculateScore(segmentValue) == 0
+					|| secondSegment.calculateScore(segmentValue) == 0)
+				return null;
+
+			witness[i] = segmentValue;
+		}
+
+		return witness;
+	}
+}
@@ -0,0 +1,425 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.routing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.wicket.util.parse.metapattern.MetaPattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wicketstuff.rest.resource.MethodMappingInfo;
+import org.wicketstuff.rest.resource.urlsegments.AbstractURLSegment;
+import org.wicketstuff.rest.resource.urlsegments.FixedURLSegment;
+import org.wicketstuff.rest.resource.urlsegments.MultiParamSegment;
+import org.wicketstuff.rest.resource.urlsegments.ParamSegment;
+import org.wicketstuff.rest.resource.urlsegments.RegExpMatchingPolicy;
+import org.wicketstuff.rest.resource.urlsegments.SegmentValueMatcher;
+import org.wicketstuff.rest.utils.http.HttpMethod;
+
+/**
+ * Route selector that compiles all the mapped URLs of an HTTP method into a
+ * single {@link java.util.regex} alternation. Every mapped method is an
+ * alternative of the expression and every path parameter is a capturing
+ * group, so the request path is matched and its parameters are captured with
+ * one matcher, instead of a matcher for every segment of every candidate
+ * method.<br/>
+ * Note that this is not an automaton: the JDK engine tries the alternatives
+ * one after the other and backtracks, so the cost of a lookup still grows
+ * with the number of routes. What's saved is the per-segment work of the
+ * trie (one matcher and one allocation for every tried segment).<br/>
+ * Alternatives are ordered by their score (see
+ * {@link AbstractURLSegment#calculateScore(String)}), hence the first matching
+ * alternative is the most suited method. Ties among alternatives with the same
+ * score are verified segment by segment.<br/>
+ * Routes with custom regular expressions that can't be safely embedded (for
+ * example because they contain anchors or back references, or because a
+ * custom {@link RegExpMatchingPolicy} is in use), as well as requests with
+ * segments containing a '/', are served by the fallback
+ * {@link RoutingTrie}.
+ *
+ * @author andrea del bene
+ *
+ */
+public class CombinedRouteMatcher implements IRouteSelector {
+	private static final Logger LOG = LoggerFactory.getLogger(CombinedRouteMatcher.class);
+
+	/** Separator used to join the segments of the request path. */
+	static final char SEPARATOR = '/';
+
+	/**
+	 * Regular expression used for path parameters without custom regexp. Like
+	 * '.+', it doesn't match line terminators.
+	 */
+	static final String ANY_SEGMENT_CONTENT = "[^/\\n\\r\\u0085\\u2028\\u2029]+";
+
+	/** Orders alternatives by their score, from the highest to the lowest. */
+	static final Comparator<MethodMappingInfo> SCORE_RANKING = new Comparator<MethodMappingInfo>() {
+		@Override
+		public int compare(MethodMappingInfo method1, MethodMappingInfo method2) {
+			return staticScore(method2) - staticScore(method1);
+		}
+	};
+
+	/** The combined patterns, one for every HTTP method. */
+	private final Map<HttpMethod, CombinedPattern> combinedPatterns = new EnumMap<HttpMethod, CombinedPattern>(
+			HttpMethod.class);
+
+	/** The selector used when the combined pattern can't be used. */
+	private final RoutingTrie fallbackSelector;
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param mappedMethods
+	 *            the mapped methods of the resource.
+	 * @param fallbackSelector
+	 *            the trie used for routes and requests that can't be served
+	 *            by the combined pattern.
+	 */
+	public CombinedRouteMatcher(List<MethodMappingInfo> mappedMethods, RoutingTrie fallbackSelector) {
+		this(mappedMethods, fallbackSelector, RegExpMatchingPolicy.DEFAULT);
+	}
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param mappedMethods
+	 *            the mapped methods of the resource.
+	 * @param fallbackSelector
+	 *            the trie used for routes and requests that can't be served
+	 *            by the combined pattern.
+	 * @param regExpPolicy
+	 *            the policy used to match custom regular expressions. If it's
+	 *            not the default one, routes with custom regular expressions
+	 *            are served by the trie, which applies the policy.
+	 */
+	public CombinedRouteMatcher(List<MethodMappingInfo> mappedMethods,
+			RoutingTrie fallbackSelector, RegExpMatchingPolicy regExpPolicy) {
+		this.fallbackSelector = fallbackSelector;
+
+		for (HttpMethod httpMethod : HttpMethod.values()) {
+			List<MethodMappingInfo> methods = new ArrayList<MethodMappingInfo>();
+
+			for (MethodMappingInfo mappedMethod : mappedMethods) {
+				if (mappedMethod.getHttpMethod() == httpMethod)
+					methods.add(mappedMethod);
+			}
+
+			if (methods.isEmpty())
+				continue;
+
+			Collections.sort(methods, SCORE_RANKING);
+			CombinedPattern combinedPattern = CombinedPattern.compile(methods, regExpPolicy);
+
+			if (combinedPattern != null)
+				combinedPatterns.put(httpMethod, combinedPattern);
+			else
+				LOG.warn("Routes of HTTP method {} can't be combined in a single pattern, "
+						+ "they are served by the routing trie.", httpMethod);
+		}
+	}
+
+	@Override
+	public RouteMatch select(HttpMethod httpMethod, String[] actualSegments) {
+		CombinedPattern combinedPattern = combinedPatterns.get(httpMethod);
+		String path = joinSegments(actualSegments);
+
+		if (combinedPattern == null || path == null)
+			return fallbackSelector.select(httpMethod, actualSegments);
+
+		RouteMatch routeMatch = combinedPattern.select(path, actualSegments);
+
+		if (routeMatch == null)
+			return fallbackSelector.select(httpMethod, actualSegments);
+
+		return routeMatch;
+	}
+
+	/**
+	 * Tells if the given HTTP method is served with the combined pattern.
+	 *
+	 * @param httpMethod
+	 *            the HTTP method.
+	 * @return true if the requests with the given HTTP method are matched with
+	 *         the combined pattern, false if they are served by the trie.
+	 */
+	public boolean isCombined(HttpMethod httpMethod) {
+		return combinedPatterns.containsKey(httpMethod);
+	}
+
+	/**
+	 * Joins the given segments with {@link #SEPARATOR}.
+	 *
+	 * @return the joined segments, or null if a segment contains the
+	 *         separator.
+	 */
+	static String joinSegments(String[] actualSegments) {
+		StringBuilder path = new StringBuilder();
+
+		for (int i = 0; i < actualSegments.length; i++) {
+			String segment = actualSegments[i];
+
+			if (segment.indexOf(SEPARATOR) >= 0)
+				return null;
+
+			if (i > 0)
+				path.append(SEPARATOR);
+
+			path.append(segment);
+		}
+
+		return path.toString();
+	}
+
+	/**
+	 * The score a method gets when it matches a request.
+	 */
+	static int staticScore(MethodMappingInfo mappedMethod) {
+		int score = 0;
+
+		for (AbstractURLSegment segment : mappedMethod.getSegments()) {
+			score += segment instanceof FixedURLSegment ? FixedURLSegment.FIXED_SCORE : 1;
+		}
+
+		return score;
+	}
+
+	/**
+	 * Removes the leading '^' and the trailing '$' from a custom regular
+	 * expression and checks that it can be embedded in the combined pattern.
+	 *
+	 * @return the regular expression to embed, or null if it contains anchors
+	 *         or back references.
+	 */
+	static String toEmbeddableRegExp(String regExp) {
+		if (regExp.startsWith("^"))
+			regExp = regExp.substring(1);
+
+		if (regExp.endsWith("$") && !regExp.endsWith("\\$"))
+			regExp = regExp.substring(0, regExp.length() - 1);
+
+		boolean inCharClass = false;
+
+		for (int i = 0; i < regExp.length(); i++) {
+			char currentChar = regExp.charAt(i);
+
+			if (currentChar == '\\') {
+				if (i + 1 < regExp.length() && Character.isDigit(regExp.charAt(i + 1))
+						&& !inCharClass)
+					return null;
+
+				i++;
+			} else if (currentChar == '[') {
+				inCharClass = true;
+			} else if (currentChar == ']') {
+				inCharClass = false;
+			} else if (!inCharClass && (currentChar == '^' || currentChar == '$')) {
+				return null;
+			}
+		}
+
+		return regExp;
+	}
+
+	/**
+	 * The combined pattern of an HTTP method.
+	 */
+	static class CombinedPattern {
+		private final Pattern pattern;
+		private final RouteAlternative[] alternatives;
+
+		private CombinedPattern(Pattern pattern, RouteAlternative[] alternatives) {
+			this.pattern = pattern;
+			this.alternatives = alternatives;
+		}
+
+		/**
+		 * Compiles the given methods, already ordered by score.
+		 *
+		 * @return the combined pattern, or null if a route can't be combined.
+		 */
+		static CombinedPattern compile(List<MethodMappingInfo> methods,
+				RegExpMatchingPolicy regExpPolicy) {
+			StringBuilder regExp = new StringBuilder();
+			RouteAlternative[] alternatives = new RouteAlternative[methods.size()];
+			int[] groupCounter = new int[] { 1 };
+
+			for (int i = 0; i < methods.size(); i++) {
+				MethodMappingInfo mappedMethod = methods.get(i);
+				RouteAlternative alternative = new RouteAlternative(mappedMethod, groupCounter[0]++);
+
+				if (i > 0)
+					regExp.append('|');
+
+				regExp.append('(');
+
+				List<AbstractURLSegment> segments = mappedMethod.getSegments();
+
+				for (int j = 0; j < segments.size(); j++) {
+					if (j > 0)
+						regExp.append(SEPARATOR);
+
+					if (!appendSegment(regExp, segments.get(j), alternative, groupCounter,
+							regExpPolicy))
+						return null;
+				}
+
+				regExp.append(')');
+				alternatives[i] = alternative;
+			}
+
+			return new CombinedPattern(Pattern.compile(regExp.toString()), alternatives);
+		}
+
+		private static boolean appendSegment(StringBuilder regExp, AbstractURLSegment segment,
+				RouteAlternative alternative, int[] groupCounter, RegExpMatchingPolicy regExpPolicy) {
+			if (segment instanceof FixedURLSegment) {
+				regExp.append(Pattern.quote(segment.toString()));
+				return true;
+			}
+
+			if (segment instanceof MultiParamSegment) {
+				for (AbstractURLSegment subSegment : ((MultiParamSegment) segment)
+						.getSubSegments()) {
+					if (!appendSegment(regExp, subSegment, alternative, groupCounter, regExpPolicy))
+						return false;
+				}
+
+				return true;
+			}
+
+			ParamSegment paramSegment = (ParamSegment) segment;
+			MetaPattern metaPattern = paramSegment.getMetaPattern();
+			String paramRegExp;
+
+			if (!regExpPolicy.isDefault()
+					&& paramSegment.getValueMatcher().getRegExpEngine() != null)
+				return false;
+
+			if (metaPattern == MetaPattern.ANYTHING_NON_EMPTY) {
+				paramRegExp = ANY_SEGMENT_CONTENT;
+			} else {
+				paramRegExp = toEmbeddableRegExp(metaPattern.toString());
+
+				if (paramRegExp == null)
+					return false;
+			}
+
+			alternative.addParameter(paramSegment, groupCounter[0]++);
+			regExp.append("((?:").append(paramRegExp).append("))");
+			// skip the groups declared inside the custom regular expression
+			groupCounter[0] += Pattern.compile(paramRegExp).matcher("").groupCount();
+
+			return true;
+		}
+
+		/**
+		 * Matches the given path.
+		 *
+		 * @return the result of the lookup, or null if the match must be
+		 *         verified with the trie.
+		 */
+		RouteMatch select(String path, String[] actualSegments) {
+			RouteMatch routeMatch = new RouteMatch();
+			Matcher matcher = pattern.matcher(path);
+
+			if (!matcher.matches())
+				return routeMatch;
+
+			int i = 0;
+
+			while (matcher.start(alternatives[i].routeGroup) < 0) {
+				i++;
+			}
+
+			RouteAlternative alternative = alternatives[i];
+			LinkedHashMap<String, String> pathParameters = new LinkedHashMap<String, String>();
+
+			for (int j = 0; j < alternative.paramSegments.size(); j++) {
+				String value = matcher.group(alternative.paramGroups.get(j));
+				ParamSegment paramSegment = alternative.paramSegments.get(j);
+
+				// a custom regexp has matched more than one segment
+				if (value.indexOf(SEPARATOR) >= 0)
+					return null;
+
+				// the regexp of a typed constraint doesn't check the range of values
+				if (SegmentValueMatcher.isTypedConstraint(paramSegment.getMatchingKey())
+						&& !paramSegment.getValueMatcher().matches(value))
+					return null;
+
+				pathParameters.put(paramSegment.getParamName(), value);
+			}
+
+			routeMatch.offer(alternative.mappedMethod, alternative.score);
+			routeMatch.setPathParameters(pathParameters);
+
+			// alternatives with the same score must be checked for ambiguity
+			for (int j = i + 1; j < alternatives.length
+					&& alternatives[j].score == alternative.score; j++) {
+				if (alternatives[j].matches(actualSegments))
+					routeMatch.offer(alternatives[j].mappedMethod, alternatives[j].score);
+			}
+
+			return routeMatch;
+		}
+	}
+
+	/**
+	 * A mapped method inside a combined pattern.
+	 */
+	static class RouteAlternative {
+		private final MethodMappingInfo mappedMethod;
+		private final int routeGroup;
+		private final int score;
+		private final List<ParamSegment> paramSegments = new ArrayList<ParamSegment>();
+		private final List<Integer> paramGroups = new ArrayList<Integer>();
+
+		RouteAlternative(MethodMappingInfo mappedMethod, int routeGroup) {
+			this.mappedMethod = mappedMethod;
+			this.routeGroup = routeGroup;
+			this.score = staticScore(mappedMethod);
+		}
+
+		void addParameter(ParamSegment paramSegment, int group) {
+			paramSegments.add(paramSegment);
+			paramGroups.add(group);
+		}
+
+		boolean matches(String[] actualSegments) {
+			List<AbstractURLSegment> segments = mappedMethod.getSegments();
+
+			if (segments.size() != actualSegments.length)
+				return false;
+
+			for (int i = 0; i < actualSegments.length; i++) {
+				if (segments.get(i).calculateScore(actualSegments[i]) == 0)
+					return false;
+			}
+
+			return true;
+		}
+	}
+}
@@ -0,0 +1,42 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.routing;
+
+import org.wicketstuff.rest.utils.http.HttpMethod;
+
+/**
+ * General interface for the engines used to select the mapped method that
+ * must serve a request.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public interface IRouteSelector {
+	/**
+	 * Selects the mapped methods with the highest score for the given
+	 * segments.
+	 * 
+	 * @param httpMethod
+	 *            the HTTP method of the request.
+	 * @param actualSegments
+	 *            the segments of the requested URL, without matrix parameters.
+	 * @return the result of the lookup. If the engine extracts path parameters
+	 *         while matching, they are available with
+	 *         {@link RouteMatch#getPathParameters()}.
+	 */
+	public RouteMatch select(HttpMethod httpMethod, String[] actualSegments);
+}
@@ -0,0 +1,83 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.routing;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.wicketstuff.rest.resource.MethodMappingInfo;
+
+/**
+ * The mapped method selected to serve a request, together with the values of
+ * the path parameters extracted from the request URL. Instances are immutable
+ * and can be shared among requests with the same HTTP method and path.
+ *
+ * @author andrea del bene
+ *
+ */
+public class ResolvedRoute {
+	/** The selected mapped method. */
+	private final MethodMappingInfo mappedMethod;
+	/** Path parameters, in the same order they appear in the mapped URL. */
+	private final Map<String, String> pathParameters;
+	/** Values of the path parameters, in the same order of the map. */
+	private final String[] pathParameterValues;
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param mappedMethod
+	 *            the selected mapped method.
+	 * @param pathParameters
+	 *            the values of the path parameters. The map must preserve the
+	 *            order of the parameters.
+	 */
+	public ResolvedRoute(MethodMappingInfo mappedMethod, Map<String, String> pathParameters) {
+		this.mappedMethod = mappedMethod;
+		this.pathParameters = Collections.unmodifiableMap(pathParameters);
+		this.pathParameterValues = pathParameters.values().toArray(
+				new String[pathParameters.size()]);
+	}
+
+	/**
+	 * Gets the selected mapped method.
+	 *
+	 * @return the mapped method.
+	 */
+	public MethodMappingInfo getMappedMethod() {
+		return mappedMethod;
+	}
+
+	/**
+	 * Gets the values of the path parameters.
+	 *
+	 * @return an unmodifiable map of the path parameters.
+	 */
+	public Map<String, String> getPathParameters() {
+		return pathParameters;
+	}
+
+	/**
+	 * Gets the values of the path parameters, in the same order they appear
+	 * in the mapped URL. The returned array must not be modified.
+	 *
+	 * @return the values of the path parameters.
+	 */
+	public String[] getPathParameterValues() {
+		return pathParameterValues;
+	}
+}
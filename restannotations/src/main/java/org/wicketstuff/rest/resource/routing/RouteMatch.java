@@ -0,0 +1,127 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.routing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.wicketstuff.rest.resource.MethodMappingInfo;
+
+/**
+ * Result of a lookup on a {@link IRouteSelector}. It keeps the mapped method with
+ * the highest score and, if more than one method has reached that score, the
+ * list of ambiguous methods.
+ *
+ * @author andrea del bene
+ *
+ */
+public class RouteMatch {
+	/** The best method found so far. */
+	private MethodMappingInfo method;
+	/** The score of the best method, -1 if no method has been found. */
+	private int score = -1;
+	/** Methods sharing the best score. Allocated only when a tie occurs. */
+	private List<MethodMappingInfo> ambiguousMethods;
+	/** Path parameters, if extracted by the engine while matching. */
+	private Map<String, String> pathParameters;
+
+	/**
+	 * Offers a candidate method with its score.
+	 *
+	 * @param candidate
+	 *            the candidate method.
+	 * @param candidateScore
+	 *            the score of the candidate.
+	 */
+	void offer(MethodMappingInfo candidate, int candidateScore) {
+		if (candidateScore > score) {
+			method = candidate;
+			score = candidateScore;
+			ambiguousMethods = null;
+		} else if (candidateScore == score) {
+			if (ambiguousMethods == null) {
+				ambiguousMethods = new ArrayList<MethodMappingInfo>();
+				ambiguousMethods.add(method);
+			}
+
+			ambiguousMethods.add(candidate);
+		}
+	}
+
+	/**
+	 * Sets the path parameters extracted while matching the selected method.
+	 *
+	 * @param pathParameters
+	 *            the path parameters, in the same order they appear in the
+	 *            mapped URL.
+	 */
+	void setPathParameters(Map<String, String> pathParameters) {
+		this.pathParameters = pathParameters;
+	}
+
+	/**
+	 * Gets the path parameters extracted while matching the selected method.
+	 *
+	 * @return the path parameters, or null if the engine doesn't extract them
+	 *         while matching.
+	 */
+	public Map<String, String> getPathParameters() {
+		return pathParameters;
+	}
+
+	/**
+	 * Gets the selected method.
+	 *
+	 * @return the method, or null if no method matches the request.
+	 */
+	public MethodMappingInfo getMethod() {
+		return method;
+	}
+
+	/**
+	 * Gets the score of the selected method.
+	 *
+	 * @return the score, or -1 if no method matches the request.
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * Checks if more than one method has the highest score.
+	 *
+	 * @return true if the selection is ambiguous.
+	 */
+	public boolean isAmbiguous() {
+		return ambiguousMethods != null;
+	}
+
+	/**
+	 * Gets the methods sharing the highest score.
+	 *
+	 * @return the ambiguous methods, or an empty list if the selection is not
+	 *         ambiguous.
+	 */
+	public List<MethodMappingInfo> getAmbiguousMethods() {
+		if (ambiguousMethods == null)
+			return Collections.emptyList();
+
+		return ambiguousMethods;
+	}
+}
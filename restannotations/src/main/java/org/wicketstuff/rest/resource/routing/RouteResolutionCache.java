@@ -0,0 +1,121 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.routing;
+
+import org.wicketstuff.rest.annotations.MethodMapping;
+import org.wicketstuff.rest.utils.collections.ConcurrentLruCache;
+import org.wicketstuff.rest.utils.http.HttpMethod;
+
+/**
+ * Size-bounded cache that maps the HTTP method and the path of a request to
+ * its {@link ResolvedRoute}. With this cache the most requested URLs skip
+ * segment matching and path parameters extraction. Methods can opt out of
+ * caching with {@link MethodMapping#cacheResolution()}.
+ *
+ * @author andrea del bene
+ *
+ */
+public class RouteResolutionCache {
+	/** The resolved routes. */
+	private final ConcurrentLruCache<String, ResolvedRoute> resolvedRoutes;
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param maxSize
+	 *            the maximum number of resolved routes to keep.
+	 */
+	public RouteResolutionCache(int maxSize) {
+		this.resolvedRoutes = new ConcurrentLruCache<String, ResolvedRoute>(maxSize);
+	}
+
+	/**
+	 * Gets the cached route for the given request key.
+	 *
+	 * @param routeKey
+	 *            the key of the request (see
+	 *            {@link #buildKey(HttpMethod, String[])}).
+	 * @return the cached route, or null if the route is not cached.
+	 */
+	public ResolvedRoute get(String routeKey) {
+		return resolvedRoutes.get(routeKey);
+	}
+
+	/**
+	 * Caches a route, unless its mapped method has opted out of caching.
+	 *
+	 * @param routeKey
+	 *            the key of the request (see
+	 *            {@link #buildKey(HttpMethod, String[])}).
+	 * @param resolvedRoute
+	 *            the route resolved for the request.
+	 */
+	public void put(String routeKey, ResolvedRoute resolvedRoute) {
+		if (!resolvedRoute.getMappedMethod().isResolutionCacheable())
+			return;
+
+		resolvedRoutes.put(routeKey, resolvedRoute);
+	}
+
+	/**
+	 * Gets the number of requests served with a cached route.
+	 *
+	 * @return the hit count.
+	 */
+	public long getHitCount() {
+		return resolvedRoutes.getHitCount();
+	}
+
+	/**
+	 * Gets the number of requests whose route was not cached.
+	 *
+	 * @return the miss count.
+	 */
+	public long getMissCount() {
+		return resolvedRoutes.getMissCount();
+	}
+
+	/**
+	 * Gets the number of cached routes.
+	 *
+	 * @return the number of cached routes.
+	 */
+	public int size() {
+		return resolvedRoutes.size();
+	}
+
+	/**
+	 * Builds the cache key for a request. Segments are decoded and may contain
+	 * a '/', so each of them is prefixed with its length to keep keys unique.
+	 *
+	 * @param httpMethod
+	 *            the HTTP method of the request.
+	 * @param actualSegments
+	 *            the segments of the request path, without matrix parameters.
+	 * @return the key of the request.
+	 */
+	public static String buildKey(HttpMethod httpMethod, String[] actualSegments) {
+		StringBuilder key = new StringBuilder(httpMethod.getMethod());
+
+		for (int i = 0; i < actualSegments.length; i++) {
+			String segment = actualSegments[i];
+			key.append('/').append(segment.length()).append(':').append(segment);
+		}
+
+		return key.toString();
+	}
+}
@@ -0,0 +1,235 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.routing;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.wicketstuff.rest.resource.MethodMappingInfo;
+import org.wicketstuff.rest.resource.urlsegments.AbstractURLSegment;
+import org.wicketstuff.rest.resource.urlsegments.FixedURLSegment;
+import org.wicketstuff.rest.utils.http.HttpMethod;
+
+/**
+ * Segment trie used to select the mapped method that must serve a request.
+ * The trie is compiled once when the resource is built and it contains a root
+ * node for every HTTP method. Fixed segments are stored as hash children of a
+ * node, while parameter segments ({@link org.wicketstuff.rest.resource.urlsegments.ParamSegment}
+ * and {@link org.wicketstuff.rest.resource.urlsegments.MultiParamSegment}) are
+ * stored as a list of fallback edges, ranked by the highest score they can
+ * lead to.<br/>
+ * The cost of a lookup depends on the number of segments of the requested URL
+ * and not on the number of mapped methods.
+ *
+ * @author andrea del bene
+ *
+ */
+public class RoutingTrie implements IRouteSelector {
+	/** Root nodes, one for every HTTP method. */
+	private final Map<HttpMethod, TrieNode> roots = new EnumMap<HttpMethod, TrieNode>(
+			HttpMethod.class);
+
+	/**
+	 * Builds the trie for the given mapped methods.
+	 *
+	 * @param mappedMethods
+	 *            the mapped methods of the resource.
+	 */
+	public RoutingTrie(List<MethodMappingInfo> mappedMethods) {
+		for (MethodMappingInfo mappedMethod : mappedMethods) {
+			TrieNode root = roots.get(mappedMethod.getHttpMethod());
+
+			if (root == null) {
+				root = new TrieNode();
+				roots.put(mappedMethod.getHttpMethod(), root);
+			}
+
+			root.addMethod(mappedMethod, 0);
+		}
+
+		for (TrieNode root : roots.values()) {
+			root.computeMaxScore();
+		}
+	}
+
+	/**
+	 * Selects the mapped methods with the highest score for the given
+	 * segments. Segments must not contain matrix parameters (see
+	 * {@link AbstractURLSegment#getActualSegment(String)}).
+	 *
+	 * @param httpMethod
+	 *            the HTTP method of the request.
+	 * @param actualSegments
+	 *            the segments of the requested URL.
+	 * @return the result of the lookup.
+	 */
+	@Override
+	public RouteMatch select(HttpMethod httpMethod, String[] actualSegments) {
+		RouteMatch match = new RouteMatch();
+		TrieNode root = roots.get(httpMethod);
+
+		if (root != null)
+			root.select(actualSegments, 0, 0, match);
+
+		return match;
+	}
+
+	/** Orders parameter edges by the highest score they can lead to. */
+	static final Comparator<ParamEdge> PARAM_EDGES_RANKING = new Comparator<ParamEdge>() {
+		@Override
+		public int compare(ParamEdge edge1, ParamEdge edge2) {
+			return edge2.child.maxScore - edge1.child.maxScore;
+		}
+	};
+
+	/**
+	 * Node of the trie. Every node corresponds to a segment position.
+	 */
+	static class TrieNode {
+		/** Children reachable with a fixed segment, indexed by segment value. */
+		private Map<String, TrieNode> fixedChildren;
+		/** Children reachable with a parameter segment, ranked by score. */
+		private final List<ParamEdge> paramEdges = new ArrayList<ParamEdge>();
+		/** Methods whose URL ends at this node. */
+		private final List<MethodMappingInfo> methods = new ArrayList<MethodMappingInfo>();
+		/** The highest score obtainable from this node to a terminal node. */
+		private int maxScore;
+
+		void addMethod(MethodMappingInfo mappedMethod, int depth) {
+			List<AbstractURLSegment> segments = mappedMethod.getSegments();
+
+			if (depth == segments.size()) {
+				methods.add(mappedMethod);
+				return;
+			}
+
+			AbstractURLSegment segment = segments.get(depth);
+			TrieNode child;
+
+			if (segment instanceof FixedURLSegment) {
+				if (fixedChildren == null)
+					fixedChildren = new HashMap<String, TrieNode>();
+
+				child = fixedChildren.get(segment.toString());
+
+				if (child == null) {
+					child = new TrieNode();
+					fixedChildren.put(segment.toString(), child);
+				}
+			} else {
+				child = findOrCreateParamChild(segment);
+			}
+
+			child.addMethod(mappedMethod, depth + 1);
+		}
+
+		/**
+		 * Parameter segments sharing the same pattern match exactly the same
+		 * values, hence they can share the same edge.
+		 */
+		private TrieNode findOrCreateParamChild(AbstractURLSegment segment) {
+			String patternKey = segment.getMatchingKey();
+
+			for (ParamEdge paramEdge : paramEdges) {
+				if (paramEdge.patternKey.equals(patternKey))
+					return paramEdge.child;
+			}
+
+			ParamEdge paramEdge = new ParamEdge(segment, patternKey, new TrieNode());
+			paramEdges.add(paramEdge);
+
+			return paramEdge.child;
+		}
+
+		int computeMaxScore() {
+			maxScore = methods.isEmpty() ? -1 : 0;
+
+			if (fixedChildren != null) {
+				for (TrieNode child : fixedChildren.values()) {
+					int childScore = child.computeMaxScore();
+
+					if (childScore >= 0)
+						maxScore = Math.max(maxScore, childScore + FixedURLSegment.FIXED_SCORE);
+				}
+			}
+
+			for (ParamEdge paramEdge : paramEdges) {
+				int childScore = paramEdge.child.computeMaxScore();
+
+				if (childScore >= 0)
+					maxScore = Math.max(maxScore, childScore + 1);
+			}
+
+			// edges leading to the highest scores are visited first, so that
+			// the other branches can be pruned as soon as possible.
+			Collections.sort(paramEdges, PARAM_EDGES_RANKING);
+
+			return maxScore;
+		}
+
+		void select(String[] actualSegments, int depth, int score, RouteMatch match) {
+			// this branch can't reach the best score found so far
+			if (score + maxScore < match.getScore())
+				return;
+
+			if (depth == actualSegments.length) {
+				for (MethodMappingInfo method : methods) {
+					match.offer(method, score);
+				}
+				return;
+			}
+
+			String actualSegment = actualSegments[depth];
+
+			if (fixedChildren != null) {
+				TrieNode child = fixedChildren.get(actualSegment);
+
+				if (child != null)
+					child.select(actualSegments, depth + 1,
+							score + FixedURLSegment.FIXED_SCORE, match);
+			}
+
+			for (int i = 0; i < paramEdges.size(); i++) {
+				ParamEdge paramEdge = paramEdges.get(i);
+				int partialScore = paramEdge.segment.calculateScore(actualSegment);
+
+				if (partialScore > 0)
+					paramEdge.child.select(actualSegments, depth + 1, score + partialScore, match);
+			}
+		}
+	}
+
+	/**
+	 * Edge that connects a node to a child node through a parameter segment.
+	 */
+	static class ParamEdge {
+		private final AbstractURLSegment segment;
+		private final String patternKey;
+		private final TrieNode child;
+
+		ParamEdge(AbstractURLSegment segment, String patternKey, TrieNode child) {
+			this.segment = segment;
+			this.patternKey = patternKey;
+			this.child = child;
+		}
+	}
+}
@@ -0,0 +1,196 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.routing;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.wicketstuff.rest.resource.MethodMappingInfo;
+import org.wicketstuff.rest.resource.urlsegments.AbstractURLSegment;
+import org.wicketstuff.rest.resource.urlsegments.FixedURLSegment;
+import org.wicketstuff.rest.utils.collections.ConcurrentLruCache;
+import org.wicketstuff.rest.utils.http.HttpMethod;
+
+/**
+ * Filter used to reject requests that can't be served by any mapped method
+ * without matching their segments. A request is rejected if:
+ * <ul>
+ * <li>no method is mapped with its HTTP method and its number of segments;</li>
+ * <li>all the methods mapped with its HTTP method and its number of segments
+ * start with a fixed segment, and none of them starts with the first segment
+ * of the request;</li>
+ * <li>its path has been recently rejected (optional, see
+ * {@link org.wicketstuff.rest.resource.RestResourceSettings#setRejectedRoutesCacheSize(int)}).</li>
+ * </ul>
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class UnmatchedRoutesFilter {
+	/**
+	 * Valid first segments for every HTTP method and segments count. A null
+	 * set means that any first segment is valid.
+	 */
+	private final Map<HttpMethod, Map<Integer, Set<String>>> firstSegments = new EnumMap<HttpMethod, Map<Integer, Set<String>>>(
+			HttpMethod.class);
+
+	/** Optional cache of recently rejected requests, null if disabled. */
+	private final ConcurrentLruCache<String, Boolean> rejectedRoutes;
+
+	/** Number of requests rejected with the first segment check. */
+	private final AtomicLong fastRejectCount = new AtomicLong();
+
+	/**
+	 * Class constructor.
+	 * 
+	 * @param mappedMethods
+	 *            the mapped methods of the resource.
+	 * @param rejectedRoutesCacheSize
+	 *            the maximum number of rejected requests to remember. 0
+	 *            disables the cache.
+	 */
+	public UnmatchedRoutesFilter(List<MethodMappingInfo> mappedMethods, int rejectedRoutesCacheSize) {
+		for (MethodMappingInfo mappedMethod : mappedMethods) {
+			Map<Integer, Set<String>> segmentsByCount = firstSegments.get(mappedMethod
+					.getHttpMethod());
+
+			if (segmentsByCount == null) {
+				segmentsByCount = new HashMap<Integer, Set<String>>();
+				firstSegments.put(mappedMethod.getHttpMethod(), segmentsByCount);
+			}
+
+			addFirstSegment(segmentsByCount, mappedMethod);
+		}
+
+		this.rejectedRoutes = rejectedRoutesCacheSize > 0 ? new ConcurrentLruCache<String, Boolean>(
+				rejectedRoutesCacheSize) : null;
+	}
+
+	private void addFirstSegment(Map<Integer, Set<String>> segmentsByCount,
+			MethodMappingInfo mappedMethod) {
+		Integer segmentsCount = mappedMethod.getSegmentsCount();
+		boolean countKnown = segmentsByCount.containsKey(segmentsCount);
+		Set<String> segments = segmentsByCount.get(segmentsCount);
+
+		// any first segment is already valid for this count
+		if (countKnown && segments == null)
+			return;
+
+		if (segmentsCount == 0) {
+			segmentsByCount.put(segmentsCount, null);
+			return;
+		}
+
+		AbstractURLSegment firstSegment = mappedMethod.getSegments().get(0);
+
+		if (!(firstSegment instanceof FixedURLSegment)) {
+			segmentsByCount.put(segmentsCount, null);
+			return;
+		}
+
+		if (segments == null) {
+			segments = new HashSet<String>();
+			segmentsByCount.put(segmentsCount, segments);
+		}
+
+		segments.add(firstSegment.toString());
+	}
+
+	/**
+	 * Checks if the request can be rejected using only its HTTP method, its
+	 * number of segments and its first segment.
+	 * 
+	 * @param httpMethod
+	 *            the HTTP method of the request.
+	 * @param actualSegments
+	 *            the segments of the request path, without matrix parameters.
+	 * @return true if no mapped method can serve the request, false if the
+	 *         request must be matched against the mapped methods.
+	 */
+	public boolean isRejected(HttpMethod httpMethod, String[] actualSegments) {
+		Map<Integer, Set<String>> segmentsByCount = firstSegments.get(httpMethod);
+		boolean rejected;
+
+		if (segmentsByCount == null || !segmentsByCount.containsKey(actualSegments.length)) {
+			rejected = true;
+		} else {
+			Set<String> segments = segmentsByCount.get(actualSegments.length);
+			rejected = segments != null && !segments.contains(actualSegments[0]);
+		}
+
+		if (rejected)
+			fastRejectCount.incrementAndGet();
+
+		return rejected;
+	}
+
+	/**
+	 * Checks if the request has been recently rejected.
+	 * 
+	 * @param routeKey
+	 *            the key of the request (see
+	 *            {@link RouteResolutionCache#buildKey(HttpMethod, String[])}).
+	 * @return true if the request has been recently rejected.
+	 */
+	public boolean isRecentlyRejected(String routeKey) {
+		return rejectedRoutes != null && rejectedRoutes.get(routeKey) != null;
+	}
+
+	/**
+	 * Remembers a request that no mapped method can serve.
+	 * 
+	 * @param routeKey
+	 *            the key of the request (see
+	 *            {@link RouteResolutionCache#buildKey(HttpMethod, String[])}).
+	 */
+	public void onRejected(String routeKey) {
+		if (rejectedRoutes != null)
+			rejectedRoutes.put(routeKey, Boolean.TRUE);
+	}
+
+	/**
+	 * Tells if rejected requests are remembered.
+	 * 
+	 * @return true if the cache of rejected requests is enabled.
+	 */
+	public boolean isRejectedRoutesCacheEnabled() {
+		return rejectedRoutes != null;
+	}
+
+	/**
+	 * Gets the number of requests rejected with the first segment check.
+	 * 
+	 * @return the number of fast rejected requests.
+	 */
+	public long getFastRejectCount() {
+		return fastRejectCount.get();
+	}
+
+	/**
+	 * Gets the number of requests rejected because recently rejected.
+	 * 
+	 * @return the number of requests found in the cache of rejected requests.
+	 */
+	public long getRecentlyRejectedCount() {
+		return rejectedRoutes != null ? rejectedRoutes.getHitCount() : 0;
+	}
+}
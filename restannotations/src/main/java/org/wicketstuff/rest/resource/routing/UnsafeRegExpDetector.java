@@ -0,0 +1,98 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.routing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.wicket.WicketRuntimeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wicketstuff.rest.resource.MethodMappingInfo;
+import org.wicketstuff.rest.resource.urlsegments.AbstractURLSegment;
+import org.wicketstuff.rest.resource.urlsegments.MultiParamSegment;
+import org.wicketstuff.rest.resource.urlsegments.ParamSegment;
+import org.wicketstuff.rest.utils.regex.RegExpAnalyzer;
+import org.wicketstuff.rest.utils.regex.RegExpEngine;
+
+/**
+ * Static analysis of the custom regular expressions used by the mapped
+ * methods of a resource. Expressions matched with the JDK engine that contain
+ * nested quantifiers (see {@link RegExpAnalyzer#hasNestedQuantifiers(String)})
+ * are logged as warnings or, if required, rejected.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class UnsafeRegExpDetector {
+	private static final Logger LOG = LoggerFactory.getLogger(UnsafeRegExpDetector.class);
+
+	/**
+	 * Checks the custom regular expressions of the given mapped methods.
+	 * 
+	 * @param mappedMethods
+	 *            the mapped methods of the resource.
+	 * @param rejectUnsafe
+	 *            true to throw an exception if an unsafe expression is found,
+	 *            false to log it.
+	 * @return the unsafe expressions found.
+	 * @throws WicketRuntimeException
+	 *             if an unsafe expression is found and rejectUnsafe is true.
+	 */
+	public static List<String> checkRoutes(List<MethodMappingInfo> mappedMethods,
+			boolean rejectUnsafe) {
+		List<String> unsafeRegExps = new ArrayList<String>();
+
+		for (MethodMappingInfo mappedMethod : mappedMethods) {
+			for (AbstractURLSegment segment : mappedMethod.getSegments()) {
+				checkSegment(segment, mappedMethod, rejectUnsafe, unsafeRegExps);
+			}
+		}
+
+		return unsafeRegExps;
+	}
+
+	private static void checkSegment(AbstractURLSegment segment, MethodMappingInfo mappedMethod,
+			boolean rejectUnsafe, List<String> unsafeRegExps) {
+		if (segment instanceof MultiParamSegment) {
+			for (AbstractURLSegment subSegment : ((MultiParamSegment) segment).getSubSegments()) {
+				checkSegment(subSegment, mappedMethod, rejectUnsafe, unsafeRegExps);
+			}
+			return;
+		}
+
+		if (!(segment instanceof ParamSegment)
+				|| ((ParamSegment) segment).getValueMatcher().getRegExpEngine() != RegExpEngine.JDK)
+			return;
+
+		String regExp = segment.getMetaPattern().toString();
+
+		if (!RegExpAnalyzer.hasNestedQuantifiers(regExp))
+			return;
+
+		String message = "Method '" + mappedMethod.getMethodName()
+				+ "' uses regular expression '" + regExp
+				+ "' with nested quantifiers, which can take exponential time to match.";
+
+		if (rejectUnsafe)
+			throw new WicketRuntimeException(message
+					+ " Rewrite the expression or use the linear regular expression engine.");
+
+		LOG.warn(message);
+		unsafeRegExps.add(regExp);
+	}
+}
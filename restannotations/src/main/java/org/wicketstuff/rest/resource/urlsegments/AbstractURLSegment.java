@@ -28,18 +28,18 @@ import java.util.regex.Pattern;
 import org.apache.wicket.util.encoding.UrlEncoder;
 import org.apache.wicket.util.parse.metapattern.MetaPattern;
 import org.apache.wicket.util.parse.metapattern.OptionalMetaPattern;
-import org.apache.wicket.util.parse.metapattern.parsers.VariableAssignmentParser;
-import org.apache.wicket.util.string.StringValue;
 
 /**
  * Base class to contain the informations of the segments that compose the URL
  * used to map a method. It's used to use simple segments with no path
- * parameters.
+ * parameters.<br/>
+ * Segments are immutable and fully compiled when they are created, hence they
+ * can be shared among threads and among mapped methods.
  * 
  * @author andrea del bene
  * 
  */
-public abstract class AbstractURLSegment extends StringValue {
+public abstract class AbstractURLSegment {
 	/** MetaPattern to identify the content of a regular expression. */
 	public static final MetaPattern REGEXP_BODY = new MetaPattern("([^\\}\\{]*|(\\{[\\d]+\\}))*");
 	/** MetaPattern to identify the declaration of a regular expression. */
@@ -51,35 +51,46 @@ public abstract class AbstractURLSegment extends StringValue {
 	public static final MetaPattern SEGMENT_PARAMETER = new MetaPattern(LEFT_CURLY, VARIABLE_NAME,
 			new OptionalMetaPattern(REGEXP_DECLARATION), RIGHT_CURLY);
 
+	/** The text of the segment. */
+	private final String text;
+
 	/** The MetaPattern (i.e regular expression) corresponding to the current segment. */
-	private volatile MetaPattern metaPattern;
+	private final MetaPattern metaPattern;
+
+	/** The compiled regular expression of the MetaPattern. */
+	private final Pattern pattern;
 
-	AbstractURLSegment(String text) {
-		super(text);
+	AbstractURLSegment(String text, MetaPattern metaPattern) {
+		this.text = text;
+		this.metaPattern = metaPattern;
+		this.pattern = metaPattern.pattern();
 	}
-	
+
 	/**
-	 * Method invoked to load the MetaPattern for the current segment.
+	 * Factory method to create new instances of AbstractURLSegment.
 	 * 
-	 * @return
-	 * 		the MetaPattern for the current segment.
+	 * @param segment The content of the new segment.
+	 * @return the new instance of AbstractURLSegment.
 	 */
-	protected abstract MetaPattern loadMetaPattern();
+	static public AbstractURLSegment newSegment(String segment) {
+		return newSegment(segment, RegExpMatchingPolicy.DEFAULT);
+	}
 
 	/**
 	 * Factory method to create new instances of AbstractURLSegment.
 	 * 
 	 * @param segment The content of the new segment.
+	 * @param regExpPolicy The policy used to match custom regular expressions.
 	 * @return the new instance of AbstractURLSegment.
 	 */
-	static public AbstractURLSegment newSegment(String segment) {
+	static public AbstractURLSegment newSegment(String segment, RegExpMatchingPolicy regExpPolicy) {
 		if (SEGMENT_PARAMETER.matcher(segment).matches())
-			return new ParamSegment(segment);
+			return new ParamSegment(segment, regExpPolicy);
 
 		if (SEGMENT_PARAMETER.matcher(segment).find())
-			return new MultiParamSegment(segment);
+			return new MultiParamSegment(segment, regExpPolicy);
 
-		return new FixedURLSegment(segment);
+		return FixedURLSegment.valueOf(segment);
 	}
 
 	/**
@@ -105,30 +116,28 @@ public abstract class AbstractURLSegment extends StringValue {
 	 * @return the value of the segment without matrix parameters.
 	 */
 	static public String getActualSegment(String fullSegment) {
-		String[] segmentParts = fullSegment.split(MetaPattern.SEMICOLON.toString());
-		return segmentParts[0];
+		int semicolonIndex = fullSegment.indexOf(';');
+		
+		return semicolonIndex < 0 ? fullSegment : fullSegment.substring(0, semicolonIndex);
 	}
 
 	/**
 	 * Extract matrix parameters from the segment in input.
 	 * 
+	 * To read a single parameter of the current request use
+	 * {@link ParsedPath#getMatrixParameter(int, String)}, which doesn't build
+	 * any map.
+	 * 
 	 * @param fullSegment
 	 *            the segment in input.
 	 * @return a map containing matrix parameters.
 	 */
 	static public Map<String, String> getSegmentMatrixParameters(String fullSegment) {
-		String[] segmentParts = fullSegment.split(MetaPattern.SEMICOLON.toString());
+		ParsedPath parsedPath = new ParsedPath(new String[] { fullSegment });
 		HashMap<String, String> matrixParameters = new HashMap<String, String>();
 
-		if (segmentParts.length < 2)
-			return matrixParameters;
-
-		for (int i = 1; i < segmentParts.length; i++) {
-			String parameterDeclar = segmentParts[i];
-			VariableAssignmentParser parser = new VariableAssignmentParser(parameterDeclar);
-
-			parser.matcher().find();
-			matrixParameters.put(parser.getKey(), parser.getValue());
+		for (String parameterName : parsedPath.getMatrixParameterNames(0)) {
+			matrixParameters.put(parameterName, parsedPath.getMatrixParameter(0, parameterName));
 		}
 
 		return matrixParameters;
@@ -145,21 +154,34 @@ public abstract class AbstractURLSegment extends StringValue {
 	 */
 	public abstract void populatePathVariables(Map<String, String> variables, String segment);
 
+	/**
+	 * Gets a key that identifies the values matched by the segment. Parameter
+	 * segments with the same key match exactly the same values.
+	 * 
+	 * @return the matching key of the segment.
+	 */
+	public String getMatchingKey() {
+		return getMetaPattern().toString();
+	}
+
 	/**
 	 * Getter method for segment MetaPattern.
 	 **/
 	public final MetaPattern getMetaPattern() {
-		if (metaPattern == null)
-			syncLoadMetaPattern();
-
 		return metaPattern;
 	}
 
 	/**
-	 * Good old double-checked locking... :)
-	 */
-	private synchronized final void syncLoadMetaPattern() {
-		if (metaPattern == null)
-			metaPattern = loadMetaPattern();
+	 * Getter method for the compiled regular expression of the segment.
+	 * Unlike {@link MetaPattern#matcher(CharSequence)}, matching with this
+	 * pattern doesn't acquire any lock.
+	 **/
+	public final Pattern getPattern() {
+		return pattern;
+	}
+
+	@Override
+	public final String toString() {
+		return text;
 	}
 }
\ No newline at end of file
@@ -16,32 +16,66 @@
  */
 package org.wicketstuff.rest.resource.urlsegments;
 
+import java.lang.ref.WeakReference;
 import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.regex.Pattern;
 
 import org.apache.wicket.util.parse.metapattern.MetaPattern;
 
 /**
  * Segment class for segments without path parameter (i.e. with a fixed value).
+ * Instances are shared flyweights: segments with the same value, even if they
+ * belong to different mapped methods or resources, are the same object (see
+ * {@link #valueOf(String)}). Shared instances are referenced weakly, so they
+ * are kept only while some route uses them and they never outlive the
+ * applications that have been undeployed.
  * 
  * @author andrea del bene
  *
  */
 public class FixedURLSegment extends AbstractURLSegment {
+	/** The score of a fixed segment matching the request (see {@link #calculateScore(String)}). */
+	public static final int FIXED_SCORE = 2;
 
-	FixedURLSegment(String text) {
-		super(text);
+	/**
+	 * Shared instances, indexed by segment value. Every key is the text of its
+	 * segment, so an entry is kept as long as its segment is used.
+	 */
+	private static final Map<String, WeakReference<FixedURLSegment>> SHARED_SEGMENTS = new WeakHashMap<String, WeakReference<FixedURLSegment>>();
+
+	private FixedURLSegment(String text) {
+		super(text, new MetaPattern(Pattern.quote(text)));
 	}
 
-	@Override
-	protected MetaPattern loadMetaPattern() {
-		return new MetaPattern(Pattern.quote(this.toString()));
+	/**
+	 * Gets the shared segment with the given value.
+	 * 
+	 * @param text
+	 *            the value of the segment.
+	 * @return the shared segment.
+	 */
+	static FixedURLSegment valueOf(String text) {
+		synchronized (SHARED_SEGMENTS) {
+			WeakReference<FixedURLSegment> segmentReference = SHARED_SEGMENTS.get(text);
+			FixedURLSegment segment = segmentReference != null ? segmentReference.get() : null;
+
+			if (segment == null) {
+				segment = new FixedURLSegment(text);
+				// a cleared entry would keep its old key
+				SHARED_SEGMENTS.remove(text);
+				SHARED_SEGMENTS.put(segment.toString(), new WeakReference<FixedURLSegment>(
+						segment));
+			}
+
+			return segment;
+		}
 	}
 
 	@Override
 	public int calculateScore(String segment) {
 		if (segment.equals(this.toString()))
-			return 2;
+			return FIXED_SCORE;
 
 		return 0;
 	}
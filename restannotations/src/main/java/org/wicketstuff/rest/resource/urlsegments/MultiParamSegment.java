@@ -21,8 +21,10 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.wicket.util.parse.metapattern.MetaPattern;
+import org.wicketstuff.rest.utils.regex.BudgetedCharSequence;
 
 /**
  * This kind of segment can contain more than one path parameter, for example
@@ -33,10 +35,34 @@ import org.apache.wicket.util.parse.metapattern.MetaPattern;
  */
 public class MultiParamSegment extends AbstractURLSegment {
 	final private List<AbstractURLSegment> subSegments;
+	
+	/** The matcher used to check the values of the whole segment. */
+	final private SegmentValueMatcher segmentMatcher;
 
-	MultiParamSegment(String text) {
-		super(text);
-		this.subSegments = Collections.unmodifiableList(loadSubSegments(text));
+	/**
+	 * The regular expression of the whole segment with a capturing group
+	 * around every sub segment, used to extract the values of the sub segments.
+	 */
+	final private Pattern extractionPattern;
+
+	/** The index of the capturing group of every sub segment. */
+	final private int[] subSegmentGroups;
+
+	/** The maximum number of steps of the extraction, 0 means no limit. */
+	final private int stepBudget;
+
+	MultiParamSegment(String text, RegExpMatchingPolicy regExpPolicy) {
+		this(text, loadSubSegments(text, regExpPolicy), regExpPolicy);
+	}
+
+	private MultiParamSegment(String text, List<AbstractURLSegment> subSegments,
+			RegExpMatchingPolicy regExpPolicy) {
+		super(text, loadMetaPattern(subSegments));
+		this.subSegments = Collections.unmodifiableList(subSegments);
+		this.segmentMatcher = regExpPolicy.newRegExpMatcher(getMetaPattern());
+		this.subSegmentGroups = new int[subSegments.size()];
+		this.extractionPattern = loadExtractionPattern(subSegments, subSegmentGroups);
+		this.stepBudget = regExpPolicy.getStepBudget();
 	}
 
 	/**
@@ -44,16 +70,18 @@ public class MultiParamSegment extends AbstractURLSegment {
 	 * {@link FixedURLSegment}) or parameter segments ({@link ParamSegment}).
 	 * 
 	 * @param text the segment in input.
+	 * @param regExpPolicy the policy used to match custom regular expressions.
 	 * @return the list of sub segments.
 	 */
-	private List<AbstractURLSegment> loadSubSegments(String text) {
+	private static List<AbstractURLSegment> loadSubSegments(String text,
+			RegExpMatchingPolicy regExpPolicy) {
 		Matcher matcher = SEGMENT_PARAMETER.matcher(text);
 		List<AbstractURLSegment> subSegments = new ArrayList<AbstractURLSegment>();
 		int fixedTextIndex = 0;
 
 		while (matcher.find()) {
 			String group = matcher.group();
-			AbstractURLSegment segment = AbstractURLSegment.newSegment(group);
+			AbstractURLSegment segment = AbstractURLSegment.newSegment(group, regExpPolicy);
 			String fixedText = text.substring(fixedTextIndex, matcher.start());
 
 			fixedTextIndex = matcher.end();
@@ -73,8 +101,7 @@ public class MultiParamSegment extends AbstractURLSegment {
 		return subSegments;
 	}
 
-	@Override
-	protected MetaPattern loadMetaPattern() {
+	private static MetaPattern loadMetaPattern(List<AbstractURLSegment> subSegments) {
 		List<MetaPattern> patterns = new ArrayList<MetaPattern>();
 
 		for (AbstractURLSegment segment : subSegments) {
@@ -84,32 +111,60 @@ public class MultiParamSegment extends AbstractURLSegment {
 		return new MetaPattern(patterns);
 	}
 
+	/**
+	 * Builds the regular expression of the whole segment wrapping every sub
+	 * segment in a capturing group. Sub segments can contain capturing groups
+	 * on their own, so the index of the group of every sub segment is stored
+	 * in the given array.
+	 * 
+	 * @param subSegments the sub segments.
+	 * @param subSegmentGroups the array where the group indexes are stored.
+	 * @return the regular expression used to extract the values.
+	 */
+	private static Pattern loadExtractionPattern(List<AbstractURLSegment> subSegments,
+			int[] subSegmentGroups) {
+		StringBuilder regExp = new StringBuilder();
+		int groupIndex = 1;
+
+		for (int i = 0; i < subSegments.size(); i++) {
+			Pattern pattern = subSegments.get(i).getPattern();
+
+			regExp.append('(').append(pattern.pattern()).append(')');
+			subSegmentGroups[i] = groupIndex;
+			groupIndex += pattern.matcher("").groupCount() + 1;
+		}
+
+		return Pattern.compile(regExp.toString());
+	}
+
 	@Override
 	public int calculateScore(String actualSegment) {
-		Matcher matcher = getMetaPattern().matcher(actualSegment);
-
-		return matcher.matches() ? 1 : 0;
+		return segmentMatcher.matches(actualSegment) ? 1 : 0;
 	}
 
+	/**
+	 * Populates the values of the sub segments with a single match of the
+	 * whole segment. The match runs within the step budget of the
+	 * {@link RegExpMatchingPolicy} of the segment, if any.
+	 */
 	@Override
 	public void populatePathVariables(Map<String, String> variables, String segment) {
-		int startingIndex = 0;
-
-		if (!getMetaPattern().matcher(segment).matches())
+		if (!segmentMatcher.matches(segment))
 			return;
 
-		for (AbstractURLSegment subSegment : subSegments) {
-			MetaPattern pattern = subSegment.getMetaPattern();
-			segment = segment.substring(startingIndex);
-			Matcher matcher = pattern.matcher(segment);
+		CharSequence value = segment;
 
-			if (matcher.find()) {
-				String group = matcher.group();
+		if (stepBudget > 0)
+			value = new BudgetedCharSequence(segment, extractionPattern.pattern(), stepBudget);
 
-				subSegment.populatePathVariables(variables, group);
+		Matcher matcher = extractionPattern.matcher(value);
 
-				startingIndex = matcher.end();
-			}
+		if (!matcher.matches())
+			return;
+
+		for (int i = 0; i < subSegments.size(); i++) {
+			subSegments.get(i).populatePathVariables(variables,
+					matcher.group(subSegmentGroups[i]));
 		}
 	}
 
@@ -20,11 +20,12 @@ import java.util.Map;
 import java.util.regex.Matcher;
 
 import org.apache.wicket.util.parse.metapattern.MetaPattern;
-import org.apache.wicket.util.string.StringValue;
 
 /**
- * {@link StringValue} subtype that represents a mounted segment containing a
- * parameter's value (for example '/{id}/').
+ * Segment class that represents a mounted segment containing a
+ * parameter's value (for example '/{id}/'). The parameter can declare a
+ * regular expression or a typed constraint (for example '/{id:int}/') that its
+ * values must match. See {@link SegmentValueMatcher}.
  * 
  * @author andrea del bene
  * 
@@ -33,53 +34,80 @@ public class ParamSegment extends AbstractURLSegment {
 	
 	final private String paramName;
 	
-	ParamSegment(String text) {
-		super(text);
+	/** The expression declared by the parameter, null if none is declared. */
+	final private String regExp;
+	
+	/** The matcher used to check the values of the parameter. */
+	final private SegmentValueMatcher valueMatcher;
+	
+	ParamSegment(String text, RegExpMatchingPolicy regExpPolicy) {
+		this(text, loadRegExp(text), regExpPolicy);
+	}
+	
+	private ParamSegment(String text, String regExp, RegExpMatchingPolicy regExpPolicy) {
+		super(text, loadMetaPattern(regExp));
 		
-		this.paramName = loadParamName();
+		this.paramName = loadParamName(text);
+		this.regExp = regExp;
+		this.valueMatcher = SegmentValueMatcher.newMatcher(regExp, getMetaPattern(), regExpPolicy);
 	}
 	
 	@Override
 	public int calculateScore(String actualSegment) {
-		Matcher matcher = getMetaPattern().matcher(actualSegment);
-		
-		return matcher.matches() ? 1 : 0;
+		return valueMatcher.matches(actualSegment) ? 1 : 0;
 	}
 
-	private String loadParamName() {
-		String segmentContent = this.toString();
+	private static String loadParamName(String segmentContent) {
 		Matcher matcher = MetaPattern.VARIABLE_NAME.matcher(segmentContent);
 		
 		matcher.find();
 		return matcher.group();
 	}
 	
-	@Override
-	protected MetaPattern loadMetaPattern() {
-		String segmentContent = this.toString();
+	private static String loadRegExp(String segmentContent) {
 		int semicolonIndex = segmentContent.indexOf(':');
 		
 		if(semicolonIndex < 0)
-			return MetaPattern.ANYTHING_NON_EMPTY;
+			return null;
 		
 		String regExp = segmentContent.substring(semicolonIndex + 1, segmentContent.length() - 1);
 		Matcher matcher = REGEXP_BODY.matcher(regExp);
 		
 		matcher.matches();
 		
-		String group = matcher.group();
+		return matcher.group();
+	}
+	
+	private static MetaPattern loadMetaPattern(String regExp) {
+		if(regExp == null)
+			return MetaPattern.ANYTHING_NON_EMPTY;
+		
+		if(SegmentValueMatcher.isTypedConstraint(regExp))
+			return new MetaPattern(SegmentValueMatcher.toRegExp(regExp));
 		
-		return new MetaPattern(group);
+		return new MetaPattern(regExp);
 	}
 	
 	@Override
 	public void populatePathVariables(Map<String, String> variables, String segment) {
-		Matcher matcher = getMetaPattern().matcher(segment);
-		matcher.matches();
-		variables.put(paramName, matcher.group());
+		variables.put(paramName, segment);
+	}
+	
+	@Override
+	public String getMatchingKey() {
+		return valueMatcher.getMatchingKey();
 	}
 	
 	public String getParamName() {
 		return paramName;
 	}
+	
+	/**
+	 * Getter method for the matcher used to check the values of the parameter.
+	 * 
+	 * @return the value matcher.
+	 */
+	public SegmentValueMatcher getValueMatcher() {
+		return valueMatcher;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,245 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.urlsegments;
+
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+
+/**
+ * Parsed view of the path of the current request, built once per request.
+ * For every segment it keeps the raw value (i.e. with matrix parameters) and
+ * the actual value (see {@link AbstractURLSegment#getActualSegment(String)}).
+ * Segments without matrix parameters use the raw value as actual value, so no
+ * substring is created for them.<br/>
+ * Matrix parameters are not extracted to a map: their boundaries are stored
+ * as offsets in the raw segments and they are looked up only when a mapped
+ * method asks for them.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public final class ParsedPath {
+	/** Empty array for segments without matrix parameters. */
+	private static final int[] NO_OFFSETS = new int[0];
+
+	/** The raw segments, with matrix parameters. */
+	private final String[] rawSegments;
+
+	/** The actual segments, without matrix parameters. */
+	private final String[] actualSegments;
+
+	/**
+	 * For every segment, the offsets of its matrix parameters: for the i-th
+	 * parameter, offsets[3i] is the start of the name, offsets[3i + 1] the
+	 * index of '=' (or the end of the parameter if there is no value) and
+	 * offsets[3i + 2] the end of the parameter.
+	 */
+	private final int[][] matrixOffsets;
+
+	/**
+	 * Builds the parsed path for the given raw segments.
+	 * 
+	 * @param rawSegments
+	 *            the segments of the path, with matrix parameters.
+	 */
+	public ParsedPath(String[] rawSegments) {
+		this.rawSegments = rawSegments;
+		this.actualSegments = new String[rawSegments.length];
+		this.matrixOffsets = new int[rawSegments.length][];
+
+		for (int i = 0; i < rawSegments.length; i++) {
+			String rawSegment = rawSegments[i];
+			int semicolonIndex = rawSegment.indexOf(';');
+
+			if (semicolonIndex < 0) {
+				actualSegments[i] = rawSegment;
+				matrixOffsets[i] = NO_OFFSETS;
+			} else {
+				actualSegments[i] = rawSegment.substring(0, semicolonIndex);
+				matrixOffsets[i] = parseMatrixOffsets(rawSegment, semicolonIndex);
+			}
+		}
+	}
+
+	/**
+	 * Builds the parsed path for the indexed parameters of the given
+	 * PageParameters.
+	 * 
+	 * @param pageParameters
+	 *            the PageParameters of the current request.
+	 * @return the parsed path.
+	 */
+	public static ParsedPath fromPageParameters(PageParameters pageParameters) {
+		int indexedCount = pageParameters.getIndexedCount();
+		String[] rawSegments = new String[indexedCount];
+
+		for (int i = 0; i < indexedCount; i++) {
+			rawSegments[i] = pageParameters.get(i).toString();
+		}
+
+		return new ParsedPath(rawSegments);
+	}
+
+	private static int[] parseMatrixOffsets(String rawSegment, int semicolonIndex) {
+		int paramsCount = 0;
+
+		for (int i = semicolonIndex; i >= 0; i = rawSegment.indexOf(';', i + 1)) {
+			paramsCount++;
+		}
+
+		int[] offsets = new int[paramsCount * 3];
+		int paramIndex = 0;
+		int paramStart = semicolonIndex + 1;
+
+		while (paramIndex < paramsCount) {
+			int paramEnd = rawSegment.indexOf(';', paramStart);
+
+			if (paramEnd < 0)
+				paramEnd = rawSegment.length();
+
+			int equalsIndex = rawSegment.indexOf('=', paramStart);
+
+			if (equalsIndex < 0 || equalsIndex > paramEnd)
+				equalsIndex = paramEnd;
+
+			offsets[paramIndex * 3] = paramStart;
+			offsets[paramIndex * 3 + 1] = equalsIndex;
+			offsets[paramIndex * 3 + 2] = paramEnd;
+
+			paramIndex++;
+			paramStart = paramEnd + 1;
+		}
+
+		return offsets;
+	}
+
+	/**
+	 * Gets the value of a matrix parameter.
+	 * 
+	 * @param segmentIndex
+	 *            the index of the segment containing the parameter.
+	 * @param parameterName
+	 *            the name of the parameter.
+	 * @return the value of the parameter, or null if the segment doesn't
+	 *         exist or it doesn't contain the parameter.
+	 */
+	public String getMatrixParameter(int segmentIndex, String parameterName) {
+		if (segmentIndex < 0 || segmentIndex >= rawSegments.length)
+			return null;
+
+		String rawSegment = rawSegments[segmentIndex];
+		int[] offsets = matrixOffsets[segmentIndex];
+
+		for (int i = 0; i < offsets.length; i += 3) {
+			int nameStart = skipWhitespaces(rawSegment, offsets[i], offsets[i + 1]);
+			int nameEnd = trimWhitespaces(rawSegment, nameStart, offsets[i + 1]);
+
+			if (nameEnd - nameStart != parameterName.length()
+					|| !rawSegment.regionMatches(nameStart, parameterName, 0, nameEnd - nameStart))
+				continue;
+
+			// parameters without '=' have no value
+			if (offsets[i + 1] == offsets[i + 2])
+				return null;
+
+			int valueStart = skipWhitespaces(rawSegment, offsets[i + 1] + 1, offsets[i + 2]);
+			int valueEnd = trimWhitespaces(rawSegment, valueStart, offsets[i + 2]);
+
+			return rawSegment.substring(valueStart, valueEnd);
+		}
+
+		return null;
+	}
+
+	private static int skipWhitespaces(String text, int start, int end) {
+		while (start < end && Character.isWhitespace(text.charAt(start))) {
+			start++;
+		}
+
+		return start;
+	}
+
+	private static int trimWhitespaces(String text, int start, int end) {
+		while (end > start && Character.isWhitespace(text.charAt(end - 1))) {
+			end--;
+		}
+
+		return end;
+	}
+
+	/**
+	 * Gets the names of the matrix parameters of a segment.
+	 * 
+	 * @param segmentIndex
+	 *            the index of the segment.
+	 * @return the names of the matrix parameters.
+	 */
+	public String[] getMatrixParameterNames(int segmentIndex) {
+		String rawSegment = rawSegments[segmentIndex];
+		int[] offsets = matrixOffsets[segmentIndex];
+		String[] names = new String[offsets.length / 3];
+
+		for (int i = 0; i < offsets.length; i += 3) {
+			int nameStart = skipWhitespaces(rawSegment, offsets[i], offsets[i + 1]);
+
+			names[i / 3] = rawSegment.substring(nameStart,
+					trimWhitespaces(rawSegment, nameStart, offsets[i + 1]));
+		}
+
+		return names;
+	}
+
+	/**
+	 * Gets the number of segments.
+	 * 
+	 * @return the segments count.
+	 */
+	public int getSegmentsCount() {
+		return rawSegments.length;
+	}
+
+	/**
+	 * Gets the segments without matrix parameters. The returned array is
+	 * shared and must not be modified.
+	 * 
+	 * @return the actual segments.
+	 */
+	public String[] getActualSegments() {
+		return actualSegments;
+	}
+
+	/**
+	 * Gets a segment without matrix parameters.
+	 * 
+	 * @param segmentIndex
+	 *            the index of the segment.
+	 * @return the actual segment.
+	 */
+	public String getActualSegment(int segmentIndex) {
+		return actualSegments[segmentIndex];
+	}
+
+	/**
+	 * Gets a segment with its matrix parameters.
+	 * 
+	 * @param segmentIndex
+	 *            the index of the segment.
+	 * @return the raw segment.
+	 */
+	public String getRawSegment(int segmentIndex) {
+		return rawSegments[segmentIndex];
+	}
+}
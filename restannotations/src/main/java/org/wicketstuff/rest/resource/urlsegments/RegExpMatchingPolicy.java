@@ -0,0 +1,109 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.urlsegments;
+
+import org.apache.wicket.util.lang.Args;
+import org.apache.wicket.util.parse.metapattern.MetaPattern;
+import org.wicketstuff.rest.utils.regex.LinearRegExp;
+import org.wicketstuff.rest.utils.regex.RegExpEngine;
+
+/**
+ * Immutable policy used by segments to match values against custom regular
+ * expressions. It specifies the engine to use and the maximum number of steps
+ * a single match can take (see
+ * {@link org.wicketstuff.rest.utils.regex.MatchBudgetExceededException}).
+ * 
+ * @author andrea del bene
+ * 
+ */
+public final class RegExpMatchingPolicy {
+	/** Default policy: JDK engine and no step budget. */
+	public static final RegExpMatchingPolicy DEFAULT = new RegExpMatchingPolicy(RegExpEngine.JDK, 0);
+
+	/** The preferred engine. */
+	private final RegExpEngine engine;
+
+	/** The maximum number of steps of a match, 0 means no limit. */
+	private final int stepBudget;
+
+	/**
+	 * Class constructor.
+	 * 
+	 * @param engine
+	 *            the preferred engine.
+	 * @param stepBudget
+	 *            the maximum number of steps of a match. 0 means no limit.
+	 */
+	public RegExpMatchingPolicy(RegExpEngine engine, int stepBudget) {
+		if (stepBudget < 0)
+			throw new IllegalArgumentException("Step budget can't be negative.");
+
+		this.engine = Args.notNull(engine, "engine");
+		this.stepBudget = stepBudget;
+	}
+
+	/**
+	 * Creates the matcher for the given regular expression. If the linear
+	 * engine is preferred but it doesn't support the expression, the JDK
+	 * engine is used.
+	 * 
+	 * @param metaPattern
+	 *            the regular expression.
+	 * @return the matcher for the regular expression.
+	 */
+	public SegmentValueMatcher newRegExpMatcher(MetaPattern metaPattern) {
+		if (engine == RegExpEngine.LINEAR) {
+			try {
+				LinearRegExp linearRegExp = LinearRegExp.compile(metaPattern.toString());
+
+				return new SegmentValueMatcher.LinearRegExpMatcher(linearRegExp, stepBudget);
+			} catch (IllegalArgumentException e) {
+				// not supported by the linear engine
+			}
+		}
+
+		return new SegmentValueMatcher.RegExpMatcher(metaPattern, stepBudget);
+	}
+
+	/**
+	 * Tells if this policy is the default one, i.e. custom regular expressions
+	 * run on the JDK engine without step budget.
+	 * 
+	 * @return true if this is the default policy.
+	 */
+	public boolean isDefault() {
+		return engine == RegExpEngine.JDK && stepBudget == 0;
+	}
+
+	/**
+	 * Gets the preferred engine.
+	 * 
+	 * @return the engine.
+	 */
+	public RegExpEngine getEngine() {
+		return engine;
+	}
+
+	/**
+	 * Gets the maximum number of steps of a match.
+	 * 
+	 * @return the step budget, 0 if there is no limit.
+	 */
+	public int getStepBudget() {
+		return stepBudget;
+	}
+}
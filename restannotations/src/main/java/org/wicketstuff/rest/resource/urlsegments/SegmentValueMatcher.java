@@ -0,0 +1,447 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource.urlsegments;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.wicket.util.parse.metapattern.MetaPattern;
+import org.wicketstuff.rest.utils.regex.BudgetedCharSequence;
+import org.wicketstuff.rest.utils.regex.LinearRegExp;
+import org.wicketstuff.rest.utils.regex.RegExpEngine;
+
+/**
+ * Matcher used by {@link ParamSegment} to check the value of a path parameter.
+ * The most common shapes of path parameters (any non-empty value, digits,
+ * alphanumeric values, etc...) are checked scanning their characters, without
+ * running a regular expression. Path parameters can also declare one of the
+ * following typed constraints in place of a regular expression:
+ * <ul>
+ * <li><b>int</b>: a 32-bit signed integer (for example '{id:int}');</li>
+ * <li><b>long</b>: a 64-bit signed integer;</li>
+ * <li><b>uuid</b>: a UUID in its canonical textual form.</li>
+ * </ul>
+ * Regular expressions that don't correspond to a known shape are checked with
+ * the regular expression engine chosen by the {@link RegExpMatchingPolicy}.
+ *
+ * @author andrea del bene
+ *
+ */
+public abstract class SegmentValueMatcher {
+	/** Typed constraint for 32-bit signed integers. */
+	public static final String TYPE_INT = "int";
+	/** Typed constraint for 64-bit signed integers. */
+	public static final String TYPE_LONG = "long";
+	/** Typed constraint for UUIDs. */
+	public static final String TYPE_UUID = "uuid";
+
+	/** Regular expression equivalent to the 'int' and 'long' constraints. */
+	static final String INTEGER_REGEXP = "-?\\d+";
+	/** Regular expression equivalent to the 'uuid' constraint. */
+	static final String UUID_REGEXP = "[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}";
+
+	/** Recognizes '\d+', '[0-9]*', '\d{2}', '[0-9]{4}', etc... */
+	private static final Pattern DIGITS_SHAPE = Pattern
+			.compile("(?:\\\\d|\\[0-9\\])(?:(\\+)|(\\*)|\\{(\\d+)\\})");
+
+	/**
+	 * Matcher for any non-empty value without line terminators, like the
+	 * regular expression '.+'.
+	 */
+	public static final SegmentValueMatcher ANYTHING_NON_EMPTY = new SegmentValueMatcher() {
+		@Override
+		public boolean matches(CharSequence value, int start, int end) {
+			if (end <= start)
+				return false;
+
+			for (int i = start; i < end; i++) {
+				if (isLineTerminator(value.charAt(i)))
+					return false;
+			}
+
+			return true;
+		}
+
+		@Override
+		public String getMatchingKey() {
+			return MetaPattern.ANYTHING_NON_EMPTY.toString();
+		}
+	};
+
+	/**
+	 * Checks if the given characters range is a valid value.
+	 *
+	 * @param value
+	 *            the characters sequence containing the value.
+	 * @param start
+	 *            the start index of the value (inclusive).
+	 * @param end
+	 *            the end index of the value (exclusive).
+	 * @return true if the value is valid, false otherwise.
+	 */
+	public abstract boolean matches(CharSequence value, int start, int end);
+
+	/**
+	 * Checks if the given string is a valid value.
+	 *
+	 * @param value
+	 *            the value to check.
+	 * @return true if the value is valid, false otherwise.
+	 */
+	public final boolean matches(CharSequence value) {
+		return matches(value, 0, value.length());
+	}
+
+	/**
+	 * Gets a key that identifies the values accepted by this matcher. Two
+	 * matchers with the same key accept the same values.
+	 *
+	 * @return the matching key.
+	 */
+	public abstract String getMatchingKey();
+
+	/**
+	 * Gets the regular expression engine used by this matcher.
+	 *
+	 * @return the engine, or null if values are checked scanning their
+	 *         characters.
+	 */
+	public RegExpEngine getRegExpEngine() {
+		return null;
+	}
+
+	/**
+	 * Checks if a character is a line terminator, i.e. one of the characters
+	 * not matched by '.' in regular expressions.
+	 */
+	static boolean isLineTerminator(char character) {
+		switch (character) {
+		case '\n':
+		case '\r':
+		case '\u0085':
+		case '\u2028':
+		case '\u2029':
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	/**
+	 * Checks if the given expression is a typed constraint.
+	 *
+	 * @param regExp
+	 *            the expression declared by the path parameter.
+	 * @return true if the expression is 'int', 'long' or 'uuid'.
+	 */
+	public static boolean isTypedConstraint(String regExp) {
+		return TYPE_INT.equals(regExp) || TYPE_LONG.equals(regExp) || TYPE_UUID.equals(regExp);
+	}
+
+	/**
+	 * Gets the regular expression equivalent to a typed constraint. Used to
+	 * compose the patterns of {@link MultiParamSegment}.
+	 *
+	 * @param typedConstraint
+	 *            the typed constraint.
+	 * @return the equivalent regular expression.
+	 */
+	public static String toRegExp(String typedConstraint) {
+		return TYPE_UUID.equals(typedConstraint) ? UUID_REGEXP : INTEGER_REGEXP;
+	}
+
+	/**
+	 * Factory method that creates the matcher for a path parameter.
+	 *
+	 * @param regExp
+	 *            the expression declared by the path parameter (a typed
+	 *            constraint or a regular expression), or null if the
+	 *            parameter doesn't declare any expression.
+	 * @param metaPattern
+	 *            the MetaPattern of the parameter, used for expressions that
+	 *            don't correspond to a known shape.
+	 * @param regExpPolicy
+	 *            the policy used for expressions that don't correspond to a
+	 *            known shape.
+	 * @return the matcher for the parameter.
+	 */
+	public static SegmentValueMatcher newMatcher(String regExp, MetaPattern metaPattern,
+			RegExpMatchingPolicy regExpPolicy) {
+		if (regExp == null)
+			return ANYTHING_NON_EMPTY;
+
+		if (TYPE_INT.equals(regExp))
+			return new IntegerMatcher(Integer.MIN_VALUE, Integer.MAX_VALUE, TYPE_INT);
+
+		if (TYPE_LONG.equals(regExp))
+			return new IntegerMatcher(Long.MIN_VALUE, Long.MAX_VALUE, TYPE_LONG);
+
+		if (TYPE_UUID.equals(regExp))
+			return new UuidMatcher();
+
+		if (regExp.equals("[a-zA-Z0-9]+") || regExp.equals("[A-Za-z0-9]+")
+				|| regExp.equals("[a-zA-Z\\d]+") || regExp.equals("[A-Za-z\\d]+"))
+			return new AlphanumericMatcher(false, regExp);
+
+		if (regExp.equals("\\w+"))
+			return new AlphanumericMatcher(true, regExp);
+
+		Matcher digitsMatcher = DIGITS_SHAPE.matcher(regExp);
+
+		if (digitsMatcher.matches())
+			return newDigitsMatcher(digitsMatcher, regExp);
+
+		return regExpPolicy.newRegExpMatcher(metaPattern);
+	}
+
+	private static SegmentValueMatcher newDigitsMatcher(Matcher digitsMatcher, String regExp) {
+		if (digitsMatcher.group(1) != null)
+			return new DigitsMatcher(1, Integer.MAX_VALUE, regExp);
+
+		if (digitsMatcher.group(2) != null)
+			return new DigitsMatcher(0, Integer.MAX_VALUE, regExp);
+
+		int length = Integer.parseInt(digitsMatcher.group(3));
+
+		return new DigitsMatcher(length, length, regExp);
+	}
+
+	/**
+	 * Matcher for sequences of digits with a given length range.
+	 */
+	static class DigitsMatcher extends SegmentValueMatcher {
+		private final int minLength;
+		private final int maxLength;
+		private final String matchingKey;
+
+		DigitsMatcher(int minLength, int maxLength, String matchingKey) {
+			this.minLength = minLength;
+			this.maxLength = maxLength;
+			this.matchingKey = matchingKey;
+		}
+
+		@Override
+		public boolean matches(CharSequence value, int start, int end) {
+			int length = end - start;
+
+			if (length < minLength || length > maxLength)
+				return false;
+
+			for (int i = start; i < end; i++) {
+				char currentChar = value.charAt(i);
+
+				if (currentChar < '0' || currentChar > '9')
+					return false;
+			}
+
+			return true;
+		}
+
+		@Override
+		public String getMatchingKey() {
+			return matchingKey;
+		}
+	}
+
+	/**
+	 * Matcher for non-empty sequences of ASCII letters and digits (and
+	 * optionally underscores).
+	 */
+	static class AlphanumericMatcher extends SegmentValueMatcher {
+		private final boolean underscoreAllowed;
+		private final String matchingKey;
+
+		AlphanumericMatcher(boolean underscoreAllowed, String matchingKey) {
+			this.underscoreAllowed = underscoreAllowed;
+			this.matchingKey = matchingKey;
+		}
+
+		@Override
+		public boolean matches(CharSequence value, int start, int end) {
+			if (end <= start)
+				return false;
+
+			for (int i = start; i < end; i++) {
+				char currentChar = value.charAt(i);
+
+				if (!isAsciiLetterOrDigit(currentChar)
+						&& !(underscoreAllowed && currentChar == '_'))
+					return false;
+			}
+
+			return true;
+		}
+
+		@Override
+		public String getMatchingKey() {
+			return matchingKey;
+		}
+	}
+
+	/**
+	 * Matcher for signed integers within a given range.
+	 */
+	static class IntegerMatcher extends SegmentValueMatcher {
+		private final long minValue;
+		private final long maxValue;
+		private final String matchingKey;
+
+		IntegerMatcher(long minValue, long maxValue, String matchingKey) {
+			this.minValue = minValue;
+			this.maxValue = maxValue;
+			this.matchingKey = matchingKey;
+		}
+
+		@Override
+		public boolean matches(CharSequence value, int start, int end) {
+			boolean negative = end > start && value.charAt(start) == '-';
+			int i = negative ? start + 1 : start;
+
+			if (i == end)
+				return false;
+
+			// accumulate as a negative number to handle Long.MIN_VALUE
+			long limit = negative ? minValue : -maxValue;
+			long result = 0;
+
+			for (; i < end; i++) {
+				char currentChar = value.charAt(i);
+
+				if (currentChar < '0' || currentChar > '9')
+					return false;
+
+				int digit = currentChar - '0';
+
+				if (result < (limit + digit) / 10)
+					return false;
+
+				result = result * 10 - digit;
+
+				if (result < limit)
+					return false;
+			}
+
+			return true;
+		}
+
+		@Override
+		public String getMatchingKey() {
+			return matchingKey;
+		}
+	}
+
+	/**
+	 * Matcher for UUIDs in their canonical textual form
+	 * (xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx).
+	 */
+	static class UuidMatcher extends SegmentValueMatcher {
+		@Override
+		public boolean matches(CharSequence value, int start, int end) {
+			if (end - start != 36)
+				return false;
+
+			for (int i = 0; i < 36; i++) {
+				char currentChar = value.charAt(start + i);
+
+				if (i == 8 || i == 13 || i == 18 || i == 23) {
+					if (currentChar != '-')
+						return false;
+				} else if (!isHexDigit(currentChar)) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		@Override
+		public String getMatchingKey() {
+			return TYPE_UUID;
+		}
+	}
+
+	/**
+	 * Matcher for custom regular expressions running on the JDK engine.
+	 */
+	static class RegExpMatcher extends SegmentValueMatcher {
+		private final Pattern pattern;
+		private final int stepBudget;
+
+		RegExpMatcher(MetaPattern metaPattern, int stepBudget) {
+			this.pattern = metaPattern.pattern();
+			this.stepBudget = stepBudget;
+		}
+
+		@Override
+		public boolean matches(CharSequence value, int start, int end) {
+			if (stepBudget > 0)
+				value = new BudgetedCharSequence(value, pattern.pattern(), stepBudget);
+
+			return pattern.matcher(value).region(start, end).matches();
+		}
+
+		@Override
+		public String getMatchingKey() {
+			return pattern.pattern();
+		}
+
+		@Override
+		public RegExpEngine getRegExpEngine() {
+			return RegExpEngine.JDK;
+		}
+	}
+
+	/**
+	 * Matcher for custom regular expressions running on the linear engine.
+	 */
+	static class LinearRegExpMatcher extends SegmentValueMatcher {
+		private final LinearRegExp linearRegExp;
+		private final int stepBudget;
+
+		LinearRegExpMatcher(LinearRegExp linearRegExp, int stepBudget) {
+			this.linearRegExp = linearRegExp;
+			this.stepBudget = stepBudget;
+		}
+
+		@Override
+		public boolean matches(CharSequence value, int start, int end) {
+			return linearRegExp.matches(value, start, end, stepBudget);
+		}
+
+		@Override
+		public String getMatchingKey() {
+			return linearRegExp.toString();
+		}
+
+		@Override
+		public RegExpEngine getRegExpEngine() {
+			return RegExpEngine.LINEAR;
+		}
+	}
+
+	static boolean isAsciiLetterOrDigit(char currentChar) {
+		return (currentChar >= 'a' && currentChar <= 'z')
+				|| (currentChar >= 'A' && currentChar <= 'Z')
+				|| (currentChar >= '0' && currentChar <= '9');
+	}
+
+	static boolean isHexDigit(char currentChar) {
+		return (currentChar >= '0' && currentChar <= '9')
+				|| (currentChar >= 'a' && currentChar <= 'f')
+				|| (currentChar >= 'A' && currentChar <= 'F');
+	}
+}
@@ -0,0 +1,193 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.collections;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Size-bounded cache with a least-recently-used eviction policy that can be
+ * safely accessed by concurrent threads. Entries are distributed among
+ * independently locked stripes, so threads working on different keys rarely
+ * contend on the same monitor. The sizes of the stripes add up to the maximum
+ * size of the cache, and every stripe holds at least {@value #MIN_STRIPE_SIZE}
+ * entries, so small caches use a single stripe and are exact LRU caches.
+ * Larger caches apply eviction per stripe, hence the LRU order is
+ * approximated across the whole cache.
+ * 
+ * @author andrea del bene
+ * 
+ * @param <K>
+ *            the type of the keys.
+ * @param <V>
+ *            the type of the values.
+ */
+public class ConcurrentLruCache<K, V> {
+	/** Maximum number of stripes. */
+	private static final int MAX_STRIPES = 16;
+
+	/** Minimum number of entries of a stripe. */
+	static final int MIN_STRIPE_SIZE = 16;
+
+	/** The stripes of the cache. */
+	private final LruStripe<K, V>[] stripes;
+
+	/** Number of lookups that have found a value. */
+	private final AtomicLong hitCount = new AtomicLong();
+
+	/** Number of lookups that haven't found a value. */
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * Builds a new cache.
+	 * 
+	 * @param maxSize
+	 *            the maximum number of entries kept by the cache.
+	 */
+	@SuppressWarnings("unchecked")
+	public ConcurrentLruCache(int maxSize) {
+		if (maxSize <= 0)
+			throw new IllegalArgumentException("Cache size must be greater than zero.");
+
+		int stripesCount = Math.max(1, Math.min(MAX_STRIPES, maxSize / MIN_STRIPE_SIZE));
+
+		stripes = new LruStripe[stripesCount];
+
+		// the first stripes take the remainder, so sizes add up to maxSize
+		for (int i = 0; i < stripesCount; i++) {
+			int stripeSize = maxSize / stripesCount + (i < maxSize % stripesCount ? 1 : 0);
+
+			stripes[i] = new LruStripe<K, V>(stripeSize);
+		}
+	}
+
+	/**
+	 * Gets the value for the given key, updating hit/miss counters.
+	 * 
+	 * @param key
+	 *            the key we look for.
+	 * @return the cached value, or null if the key is not cached.
+	 */
+	public V get(K key) {
+		LruStripe<K, V> stripe = stripeFor(key);
+		V value;
+
+		synchronized (stripe) {
+			value = stripe.get(key);
+		}
+
+		if (value != null)
+			hitCount.incrementAndGet();
+		else
+			missCount.incrementAndGet();
+
+		return value;
+	}
+
+	/**
+	 * Stores a value, evicting the least recently used entry of its stripe if
+	 * the stripe is full.
+	 * 
+	 * @param key
+	 *            the key of the value.
+	 * @param value
+	 *            the value to cache.
+	 */
+	public void put(K key, V value) {
+		LruStripe<K, V> stripe = stripeFor(key);
+
+		synchronized (stripe) {
+			stripe.put(key, value);
+		}
+	}
+
+	/**
+	 * Removes every entry from the cache. Counters are left untouched.
+	 */
+	public void clear() {
+		for (LruStripe<K, V> stripe : stripes) {
+			synchronized (stripe) {
+				stripe.clear();
+			}
+		}
+	}
+
+	/**
+	 * Gets the current number of entries.
+	 * 
+	 * @return the number of cached entries.
+	 */
+	public int size() {
+		int size = 0;
+
+		for (LruStripe<K, V> stripe : stripes) {
+			synchronized (stripe) {
+				size += stripe.size();
+			}
+		}
+
+		return size;
+	}
+
+	/**
+	 * Gets the number of lookups that have found a value.
+	 * 
+	 * @return the hit count.
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Gets the number of lookups that haven't found a value.
+	 * 
+	 * @return the miss count.
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	private LruStripe<K, V> stripeFor(K key) {
+		int hash = key.hashCode();
+		// spread the higher bits, like HashMap does
+		hash ^= (hash >>> 20) ^ (hash >>> 12);
+		hash ^= (hash >>> 7) ^ (hash >>> 4);
+
+		return stripes[(hash & 0x7fffffff) % stripes.length];
+	}
+
+	/**
+	 * A single stripe of the cache: an access-ordered LinkedHashMap that
+	 * removes its eldest entry when it exceeds its size.
+	 */
+	private static class LruStripe<K, V> extends LinkedHashMap<K, V> {
+		private static final long serialVersionUID = 1L;
+
+		private final int maxSize;
+
+		LruStripe(int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+			return size() > maxSize;
+		}
+	}
+}
@@ -0,0 +1,136 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.collections;
+
+import java.io.Closeable;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.apache.wicket.WicketRuntimeException;
+
+/**
+ * Utility methods for the values returned by mapped methods that can be
+ * written to the response element by element: iterators, lazy iterables
+ * (i.e. iterables that are not collections) and, on Java 8 or later,
+ * streams ({@code java.util.stream.BaseStream}). Streams are handled with
+ * reflection, hence this class works also on older JVMs.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class ResultStreams {
+	/** The BaseStream class, or null if it's not available. */
+	private static final Class<?> BASE_STREAM_CLASS = loadBaseStreamClass();
+
+	private static final Method STREAM_ITERATOR = getBaseStreamMethod("iterator");
+
+	private static final Method STREAM_CLOSE = getBaseStreamMethod("close");
+
+	private ResultStreams() {
+	}
+
+	/**
+	 * Tells if values of the given type can be written element by element.
+	 * 
+	 * @param type
+	 *            the return type of a mapped method.
+	 * @return true if the type is an iterator, a lazy iterable or a stream.
+	 */
+	public static boolean isStreamable(Class<?> type) {
+		if (Iterator.class.isAssignableFrom(type))
+			return true;
+
+		if (Iterable.class.isAssignableFrom(type) && !Collection.class.isAssignableFrom(type))
+			return true;
+
+		return BASE_STREAM_CLASS != null && BASE_STREAM_CLASS.isAssignableFrom(type);
+	}
+
+	/**
+	 * Gets an iterator over the elements of a streamable value.
+	 * 
+	 * @param result
+	 *            an iterator, an iterable or a stream.
+	 * @return the iterator over the elements of the value.
+	 */
+	public static Iterator<?> toIterator(Object result) {
+		if (result instanceof Iterator)
+			return (Iterator<?>) result;
+
+		if (result instanceof Iterable)
+			return ((Iterable<?>) result).iterator();
+
+		if (BASE_STREAM_CLASS != null && BASE_STREAM_CLASS.isInstance(result))
+			return (Iterator<?>) invoke(STREAM_ITERATOR, result);
+
+		throw new IllegalArgumentException("Value of type " + result.getClass().getName()
+				+ " can't be iterated.");
+	}
+
+	/**
+	 * Releases the resources held by a streamable value once it has been
+	 * written, if it's a stream or a {@link Closeable} object.
+	 * 
+	 * @param result
+	 *            the value written.
+	 */
+	public static void close(Object result) {
+		if (BASE_STREAM_CLASS != null && BASE_STREAM_CLASS.isInstance(result)) {
+			invoke(STREAM_CLOSE, result);
+			return;
+		}
+
+		if (result instanceof Closeable) {
+			try {
+				((Closeable) result).close();
+			} catch (Exception e) {
+				throw new WicketRuntimeException("Error closing result.", e);
+			}
+		}
+	}
+
+	private static Object invoke(Method method, Object target) {
+		try {
+			return method.invoke(target);
+		} catch (InvocationTargetException e) {
+			throw new WicketRuntimeException(e.getCause());
+		} catch (Exception e) {
+			throw new WicketRuntimeException(e);
+		}
+	}
+
+	private static Class<?> loadBaseStreamClass() {
+		try {
+			return Class.forName("java.util.stream.BaseStream");
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+	}
+
+	private static Method getBaseStreamMethod(String name) {
+		if (BASE_STREAM_CLASS == null)
+			return null;
+
+		try {
+			return BASE_STREAM_CLASS.getMethod(name);
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.convert;
+
+import java.util.Locale;
+
+/**
+ * General interface for the parsers used to convert the string values of
+ * method parameters. Unlike Wicket converters, parsers don't throw an exception
+ * when a value can't be parsed: they return null and leave the value to the
+ * standard conversion mechanism.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public interface IValueParser {
+	/**
+	 * Parses the given value.
+	 * 
+	 * @param value
+	 *            the value to parse, not null.
+	 * @param locale
+	 *            the locale of the current request. It's null if the parser is
+	 *            not locale sensitive (see {@link #isLocaleSensitive()}).
+	 * @return the parsed value, or null if the value can't be parsed.
+	 */
+	public Object parse(String value, Locale locale);
+
+	/**
+	 * Tells if the result of the parser depends on the locale of the request.
+	 * 
+	 * @return true if the parser needs the locale, false otherwise.
+	 */
+	public boolean isLocaleSensitive();
+}
@@ -0,0 +1,358 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.convert;
+
+import java.text.DecimalFormatSymbols;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Built-in parsers for the most common types of method parameters: numbers,
+ * booleans, enums, UUIDs and dates. Every parser accepts only a plain syntax
+ * that it can check without relying on exceptions:
+ * <ul>
+ * <li>integral numbers: an optional minus sign followed by digits;</li>
+ * <li>decimal numbers: like integral numbers, optionally followed by the
+ * decimal separator of the request locale and by other digits;</li>
+ * <li>booleans: true or false, ignoring case;</li>
+ * <li>enums: the exact name of a constant;</li>
+ * <li>UUIDs: the canonical form with 36 characters;</li>
+ * <li>dates: ISO 8601 calendar dates (yyyy-MM-dd), in the default time zone.</li>
+ * </ul>
+ * Values with any other syntax are left to Wicket converters.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class ValueParsers {
+	/** Decimal separators of the locales used so far. */
+	private static final Map<Locale, Character> DECIMAL_SEPARATORS = new ConcurrentHashMap<Locale, Character>();
+
+	private ValueParsers() {
+	}
+
+	/**
+	 * Returns the built-in parser for the given type.
+	 * 
+	 * @param type
+	 *            the type of the method parameter.
+	 * @return the parser, or null if there isn't a built-in parser for the
+	 *         type.
+	 */
+	public static IValueParser forType(Class<?> type) {
+		if (type == Integer.TYPE || type == Integer.class)
+			return new IntegerParser(Integer.TYPE, Integer.MIN_VALUE, Integer.MAX_VALUE);
+
+		if (type == Long.TYPE || type == Long.class)
+			return new IntegerParser(Long.TYPE, Long.MIN_VALUE, Long.MAX_VALUE);
+
+		if (type == Short.TYPE || type == Short.class)
+			return new IntegerParser(Short.TYPE, Short.MIN_VALUE, Short.MAX_VALUE);
+
+		if (type == Byte.TYPE || type == Byte.class)
+			return new IntegerParser(Byte.TYPE, Byte.MIN_VALUE, Byte.MAX_VALUE);
+
+		if (type == Boolean.TYPE || type == Boolean.class)
+			return new BooleanParser();
+
+		if (type == Double.TYPE || type == Double.class)
+			return new DecimalParser(false);
+
+		if (type == Float.TYPE || type == Float.class)
+			return new DecimalParser(true);
+
+		if (type.isEnum())
+			return new EnumParser(type);
+
+		if (type == UUID.class)
+			return new UuidParser();
+
+		if (type == Date.class)
+			return new IsoDateParser();
+
+		return null;
+	}
+
+	/**
+	 * Parser for integral numbers within the range of their type. Digits are
+	 * accumulated directly, without creating intermediate objects.
+	 */
+	static class IntegerParser implements IValueParser {
+		private final Class<?> primitiveType;
+		private final long minValue;
+		private final long maxValue;
+
+		IntegerParser(Class<?> primitiveType, long minValue, long maxValue) {
+			this.primitiveType = primitiveType;
+			this.minValue = minValue;
+			this.maxValue = maxValue;
+		}
+
+		@Override
+		public Object parse(String value, Locale locale) {
+			int length = value.length();
+			boolean negative = length > 0 && value.charAt(0) == '-';
+			int i = negative ? 1 : 0;
+
+			if (i == length)
+				return null;
+
+			// accumulate as a negative number to handle Long.MIN_VALUE
+			long limit = negative ? minValue : -maxValue;
+			long result = 0;
+
+			for (; i < length; i++) {
+				char c = value.charAt(i);
+
+				if (c < '0' || c > '9')
+					return null;
+
+				int digit = c - '0';
+
+				if (result < (limit + digit) / 10)
+					return null;
+
+				result = result * 10 - digit;
+
+				if (result < limit)
+					return null;
+			}
+
+			return box(negative ? result : -result);
+		}
+
+		private Object box(long number) {
+			if (primitiveType == Integer.TYPE)
+				return Integer.valueOf((int) number);
+
+			if (primitiveType == Short.TYPE)
+				return Short.valueOf((short) number);
+
+			if (primitiveType == Byte.TYPE)
+				return Byte.valueOf((byte) number);
+
+			return Long.valueOf(number);
+		}
+
+		@Override
+		public boolean isLocaleSensitive() {
+			return false;
+		}
+	}
+
+	/**
+	 * Parser for the literals true and false, ignoring case.
+	 */
+	static class BooleanParser implements IValueParser {
+		@Override
+		public Object parse(String value, Locale locale) {
+			if (value.equalsIgnoreCase("true"))
+				return Boolean.TRUE;
+
+			if (value.equalsIgnoreCase("false"))
+				return Boolean.FALSE;
+
+			return null;
+		}
+
+		@Override
+		public boolean isLocaleSensitive() {
+			return false;
+		}
+	}
+
+	/**
+	 * Parser for decimal numbers. The decimal separator depends on the locale
+	 * of the request, while grouping separators are not accepted.
+	 */
+	static class DecimalParser implements IValueParser {
+		private final boolean floatValue;
+
+		DecimalParser(boolean floatValue) {
+			this.floatValue = floatValue;
+		}
+
+		@Override
+		public Object parse(String value, Locale locale) {
+			char decimalSeparator = getDecimalSeparator(locale);
+			int length = value.length();
+			int i = 0;
+			int separatorIndex = -1;
+
+			if (i < length && value.charAt(i) == '-')
+				i++;
+
+			int firstDigit = i;
+
+			for (; i < length; i++) {
+				char c = value.charAt(i);
+
+				if (c == decimalSeparator && separatorIndex < 0)
+					separatorIndex = i;
+				else if (c < '0' || c > '9')
+					return null;
+			}
+
+			// at least a digit before and after the separator
+			if (separatorIndex == firstDigit || separatorIndex == length - 1 || firstDigit == length)
+				return null;
+
+			String plainValue = separatorIndex < 0 || decimalSeparator == '.' ? value : value
+					.replace(decimalSeparator, '.');
+			// Wicket converters parse a double and then narrow it to float
+			double number = Double.parseDouble(plainValue);
+
+			if (floatValue)
+				return Float.valueOf((float) number);
+
+			return Double.valueOf(number);
+		}
+
+		@Override
+		public boolean isLocaleSensitive() {
+			return true;
+		}
+
+		private static char getDecimalSeparator(Locale locale) {
+			Character decimalSeparator = DECIMAL_SEPARATORS.get(locale);
+
+			if (decimalSeparator == null) {
+				decimalSeparator = DecimalFormatSymbols.getInstance(locale).getDecimalSeparator();
+				DECIMAL_SEPARATORS.put(locale, decimalSeparator);
+			}
+
+			return decimalSeparator;
+		}
+	}
+
+	/**
+	 * Parser for enums. Constants are looked up by name.
+	 */
+	static class EnumParser implements IValueParser {
+		private final Map<String, Object> constants;
+
+		EnumParser(Class<?> enumType) {
+			Map<String, Object> constants = new HashMap<String, Object>();
+
+			for (Object constant : enumType.getEnumConstants()) {
+				constants.put(((Enum<?>) constant).name(), constant);
+			}
+
+			this.constants = Collections.unmodifiableMap(constants);
+		}
+
+		@Override
+		public Object parse(String value, Locale locale) {
+			return constants.get(value);
+		}
+
+		@Override
+		public boolean isLocaleSensitive() {
+			return false;
+		}
+	}
+
+	/**
+	 * Parser for UUIDs in their canonical form.
+	 */
+	static class UuidParser implements IValueParser {
+		@Override
+		public Object parse(String value, Locale locale) {
+			if (value.length() != 36)
+				return null;
+
+			for (int i = 0; i < 36; i++) {
+				char c = value.charAt(i);
+
+				if (i == 8 || i == 13 || i == 18 || i == 23) {
+					if (c != '-')
+						return null;
+				} else if (!isHexDigit(c)) {
+					return null;
+				}
+			}
+
+			return UUID.fromString(value);
+		}
+
+		@Override
+		public boolean isLocaleSensitive() {
+			return false;
+		}
+
+		private static boolean isHexDigit(char c) {
+			return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+		}
+	}
+
+	/**
+	 * Parser for ISO 8601 calendar dates (yyyy-MM-dd).
+	 */
+	static class IsoDateParser implements IValueParser {
+		@Override
+		public Object parse(String value, Locale locale) {
+			if (value.length() != 10 || value.charAt(4) != '-' || value.charAt(7) != '-')
+				return null;
+
+			int year = parseDigits(value, 0, 4);
+			int month = parseDigits(value, 5, 7);
+			int day = parseDigits(value, 8, 10);
+
+			if (year < 0 || month < 1 || month > 12 || day < 1)
+				return null;
+
+			Calendar calendar = new GregorianCalendar();
+
+			calendar.clear();
+			calendar.set(year, month - 1, 1);
+
+			if (day > calendar.getActualMaximum(Calendar.DAY_OF_MONTH))
+				return null;
+
+			calendar.set(Calendar.DAY_OF_MONTH, day);
+
+			return calendar.getTime();
+		}
+
+		@Override
+		public boolean isLocaleSensitive() {
+			return false;
+		}
+
+		private static int parseDigits(String value, int start, int end) {
+			int result = 0;
+
+			for (int i = start; i < end; i++) {
+				char c = value.charAt(i);
+
+				if (c < '0' || c > '9')
+					return -1;
+
+				result = result * 10 + (c - '0');
+			}
+
+			return result;
+		}
+	}
+}
@@ -16,12 +16,18 @@
  */
 package org.wicketstuff.rest.utils.http;
 
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 
 import javax.servlet.http.HttpServletRequest;
 
 import org.apache.wicket.request.http.WebRequest;
+import org.apache.wicket.util.io.IOUtils;
 
 /**
  * Utility class for HTTP-related operations.
@@ -41,16 +47,160 @@ public class HttpUtils {
 	 */
 	public static String readStringFromRequest(WebRequest request) throws IOException{
 		HttpServletRequest httpRequest = (HttpServletRequest) request.getContainerRequest();
-		BufferedReader bufReader = httpRequest.getReader();
-		StringBuilder builder = new StringBuilder();
-		String stringLine;
-
-		while ((stringLine = bufReader.readLine()) != null)
-			builder.append(stringLine);
-		
-		return builder.toString();
+
+		return IOUtils.toString(httpRequest.getReader());
+	}
+
+	/**
+	 * Gets the reader of the body of the current request. Characters are
+	 * decoded with the charset declared by the request or, if no charset has
+	 * been declared, with the given default charset.
+	 * 
+	 * @param request
+	 *            the current request
+	 * @param defaultCharset
+	 *            the charset to use if the request doesn't declare one.
+	 * @return the reader of the request body.
+	 * @throws IOException
+	 */
+	public static Reader getRequestReader(WebRequest request, String defaultCharset)
+			throws IOException {
+		HttpServletRequest httpRequest = (HttpServletRequest) request.getContainerRequest();
+
+		if (httpRequest.getCharacterEncoding() == null)
+			httpRequest.setCharacterEncoding(defaultCharset);
+
+		return httpRequest.getReader();
+	}
+
+	/**
+	 * Gets the binary stream of the body of the current request, for
+	 * serializers that decode characters on their own.
+	 *
+	 * @param request
+	 *            the current request
+	 * @return the input stream of the request body.
+	 * @throws IOException
+	 */
+	public static InputStream getRequestInputStream(WebRequest request) throws IOException {
+		HttpServletRequest httpRequest = (HttpServletRequest) request.getContainerRequest();
+
+		return httpRequest.getInputStream();
+	}
+
+	/**
+	 * Gets the MIME type of the body of the current request, without
+	 * parameters like the charset.
+	 * 
+	 * @param request
+	 *            the current request
+	 * @return the MIME type of the request body, or null if the request
+	 *         doesn't declare it.
+	 */
+	public static String getRequestMimeType(WebRequest request) {
+		HttpServletRequest httpRequest = (HttpServletRequest) request.getContainerRequest();
+
+		return stripMimeTypeParameters(httpRequest.getContentType());
+	}
+
+	/**
+	 * Gets the MIME types listed in the Accept header of the current request,
+	 * without parameters like the quality factor. Types are ordered by their
+	 * quality factor ("q" parameter, 1 if missing) and, when it's the same,
+	 * in the order they are listed. Types with quality factor 0 are not
+	 * acceptable and are left out.
+	 * 
+	 * @param request
+	 *            the current request
+	 * @return the accepted MIME types. Empty if the request has no Accept
+	 *         header.
+	 */
+	public static List<String> getAcceptedMimeTypes(WebRequest request) {
+		String acceptHeader = request.getHeader("Accept");
+
+		if (acceptHeader == null)
+			return Collections.emptyList();
+
+		List<AcceptedMimeType> acceptedTypes = new ArrayList<AcceptedMimeType>();
+
+		for (String mediaRange : acceptHeader.split(",")) {
+			String mimeType = stripMimeTypeParameters(mediaRange);
+			float quality = getQualityFactor(mediaRange);
+
+			if (mimeType.length() > 0 && quality > 0)
+				acceptedTypes.add(new AcceptedMimeType(mimeType, quality));
+		}
+
+		// the sort is stable, so types with the same quality keep their order
+		Collections.sort(acceptedTypes);
+
+		List<String> mimeTypes = new ArrayList<String>();
+
+		for (AcceptedMimeType acceptedType : acceptedTypes)
+			mimeTypes.add(acceptedType.mimeType);
+
+		return mimeTypes;
 	}
-	
+
+	/**
+	 * Reads the quality factor of a media range of the Accept header.
+	 * 
+	 * @param mediaRange
+	 *            the media range, with its parameters.
+	 * @return the value of parameter "q", 1 if it's missing and 0 if it's
+	 *         not a valid number.
+	 */
+	private static float getQualityFactor(String mediaRange) {
+		String[] parameters = mediaRange.split(";");
+
+		for (int i = 1; i < parameters.length; i++) {
+			String parameter = parameters[i].trim();
+
+			if (parameter.length() < 2 || Character.toLowerCase(parameter.charAt(0)) != 'q')
+				continue;
+
+			String value = parameter.substring(1).trim();
+
+			if (!value.startsWith("="))
+				continue;
+
+			try {
+				return Float.parseFloat(value.substring(1).trim());
+			} catch (NumberFormatException e) {
+				return 0;
+			}
+		}
+
+		return 1;
+	}
+
+	private static class AcceptedMimeType implements Comparable<AcceptedMimeType> {
+		private final String mimeType;
+		private final float quality;
+
+		public AcceptedMimeType(String mimeType, float quality) {
+			this.mimeType = mimeType;
+			this.quality = quality;
+		}
+
+		@Override
+		public int compareTo(AcceptedMimeType other) {
+			return Float.compare(other.quality, quality);
+		}
+	}
+
+	private static String stripMimeTypeParameters(String mimeType) {
+		if (mimeType == null)
+			return null;
+
+		int parametersStart = mimeType.indexOf(';');
+
+		if (parametersStart >= 0)
+			mimeType = mimeType.substring(0, parametersStart);
+
+		return mimeType.trim().toLowerCase(Locale.ENGLISH);
+	}
+
 	/**
 	 * Utility method to extract the HTTP request method.
 	 * 
@@ -0,0 +1,233 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.reflection;
+
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.WildcardType;
+import java.util.Arrays;
+
+/**
+ * Factory methods for generic types, used by generated dispatchers (see
+ * {@link IResourceDispatcher#getRoutes()}) to describe types like
+ * List&lt;Person&gt; without reflection. The returned types are equal (and
+ * have the same hash code) to the ones returned by the reflection API for
+ * the same declarations, so they can be used interchangeably as keys.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class GenericTypes {
+	private static final Type[] NO_TYPES = new Type[0];
+
+	private GenericTypes() {
+	}
+
+	/**
+	 * Creates a parameterized type, like List&lt;Person&gt;.
+	 * 
+	 * @param rawType
+	 *            the raw class, like List.
+	 * @param typeArguments
+	 *            the type arguments, like Person.
+	 * @return the parameterized type.
+	 */
+	public static ParameterizedType parameterized(Class<?> rawType, Type... typeArguments) {
+		return new ParameterizedTypeImpl(rawType, typeArguments.clone());
+	}
+
+	/**
+	 * Creates the type of an array with generic components, like
+	 * List&lt;Person&gt;[].
+	 * 
+	 * @param componentType
+	 *            the type of the components.
+	 * @return the generic array type.
+	 */
+	public static GenericArrayType arrayOf(Type componentType) {
+		return new GenericArrayTypeImpl(componentType);
+	}
+
+	/**
+	 * Creates a wildcard with an upper bound, like '? extends Person'. The
+	 * unbounded wildcard '?' has Object as upper bound.
+	 * 
+	 * @param upperBound
+	 *            the upper bound.
+	 * @return the wildcard type.
+	 */
+	public static WildcardType subtypeOf(Type upperBound) {
+		return new WildcardTypeImpl(new Type[] { upperBound }, NO_TYPES);
+	}
+
+	/**
+	 * Creates a wildcard with a lower bound, like '? super Person'.
+	 * 
+	 * @param lowerBound
+	 *            the lower bound.
+	 * @return the wildcard type.
+	 */
+	public static WildcardType supertypeOf(Type lowerBound) {
+		return new WildcardTypeImpl(new Type[] { Object.class }, new Type[] { lowerBound });
+	}
+
+	private static boolean equal(Object first, Object second) {
+		return first == null ? second == null : first.equals(second);
+	}
+
+	private static int hashCodeOf(Object object) {
+		return object == null ? 0 : object.hashCode();
+	}
+
+	private static String nameOf(Type type) {
+		return type instanceof Class ? ((Class<?>) type).getName() : type.toString();
+	}
+
+	private static class ParameterizedTypeImpl implements ParameterizedType {
+		private final Class<?> rawType;
+		private final Type[] typeArguments;
+
+		public ParameterizedTypeImpl(Class<?> rawType, Type[] typeArguments) {
+			this.rawType = rawType;
+			this.typeArguments = typeArguments;
+		}
+
+		@Override
+		public Type[] getActualTypeArguments() {
+			return typeArguments.clone();
+		}
+
+		@Override
+		public Type getRawType() {
+			return rawType;
+		}
+
+		@Override
+		public Type getOwnerType() {
+			return rawType.getDeclaringClass();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof ParameterizedType))
+				return false;
+
+			ParameterizedType other = (ParameterizedType) obj;
+
+			return equal(getOwnerType(), other.getOwnerType())
+					&& equal(rawType, other.getRawType())
+					&& Arrays.equals(typeArguments, other.getActualTypeArguments());
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(typeArguments) ^ hashCodeOf(getOwnerType())
+					^ rawType.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			StringBuilder name = new StringBuilder(rawType.getName()).append('<');
+
+			for (int i = 0; i < typeArguments.length; i++) {
+				if (i > 0)
+					name.append(", ");
+
+				name.append(nameOf(typeArguments[i]));
+			}
+
+			return name.append('>').toString();
+		}
+	}
+
+	private static class GenericArrayTypeImpl implements GenericArrayType {
+		private final Type componentType;
+
+		public GenericArrayTypeImpl(Type componentType) {
+			this.componentType = componentType;
+		}
+
+		@Override
+		public Type getGenericComponentType() {
+			return componentType;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof GenericArrayType
+					&& equal(componentType, ((GenericArrayType) obj).getGenericComponentType());
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCodeOf(componentType);
+		}
+
+		@Override
+		public String toString() {
+			return nameOf(componentType) + "[]";
+		}
+	}
+
+	private static class WildcardTypeImpl implements WildcardType {
+		private final Type[] upperBounds;
+		private final Type[] lowerBounds;
+
+		public WildcardTypeImpl(Type[] upperBounds, Type[] lowerBounds) {
+			this.upperBounds = upperBounds;
+			this.lowerBounds = lowerBounds;
+		}
+
+		@Override
+		public Type[] getUpperBounds() {
+			return upperBounds.clone();
+		}
+
+		@Override
+		public Type[] getLowerBounds() {
+			return lowerBounds.clone();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof WildcardType))
+				return false;
+
+			WildcardType other = (WildcardType) obj;
+
+			return Arrays.equals(upperBounds, other.getUpperBounds())
+					&& Arrays.equals(lowerBounds, other.getLowerBounds());
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(upperBounds) ^ Arrays.hashCode(lowerBounds);
+		}
+
+		@Override
+		public String toString() {
+			if (lowerBounds.length > 0)
+				return "? super " + nameOf(lowerBounds[0]);
+
+			if (upperBounds[0] == Object.class)
+				return "?";
+
+			return "? extends " + nameOf(upperBounds[0]);
+		}
+	}
+}
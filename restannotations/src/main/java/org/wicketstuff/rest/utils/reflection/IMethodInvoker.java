@@ -0,0 +1,41 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.reflection;
+
+/**
+ * General interface for the objects used to invoke a mapped method of a
+ * resource. An invoker is created once for every mapped method and it is
+ * shared among requests.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public interface IMethodInvoker {
+	/**
+	 * Invokes the method on the given target.
+	 * 
+	 * @param target
+	 *            the resource the method belongs to.
+	 * @param arguments
+	 *            the arguments of the method, already converted to the
+	 *            parameters types.
+	 * @return the value returned by the method, or null for void methods.
+	 * @throws Exception
+	 *             the exception thrown by the method itself, not wrapped.
+	 */
+	public Object invoke(Object target, Object[] arguments) throws Exception;
+}
@@ -0,0 +1,58 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.reflection;
+
+/**
+ * General interface for the dispatchers generated at compile time for
+ * resource classes. A dispatcher provides the route table of its class, i.e.
+ * the routes and the parameter bindings of the mapped methods, and an
+ * invoker for every mapped method it can call directly, so resources need
+ * reflection neither to build their routes nor to invoke their methods (see
+ * {@link ResourceDispatchers}).
+ * 
+ * @author andrea del bene
+ * 
+ */
+public interface IResourceDispatcher {
+	/**
+	 * Gets the invoker for a mapped method of the resource class.
+	 * 
+	 * @param methodSignature
+	 *            the signature of the method (see
+	 *            {@link ResourceDispatchers#getMethodSignature(java.lang.reflect.Method)}).
+	 * @return the invoker, or null if the dispatcher can't invoke the method.
+	 */
+	public IMethodInvoker getInvoker(String methodSignature);
+
+	/**
+	 * Gets the route table of the resource class: a descriptor for every
+	 * mapped method, in the order methods are declared. Methods that the
+	 * dispatcher can't call directly have no invoker (see
+	 * {@link RouteDescriptor#getInvoker()}).
+	 * 
+	 * @return the route descriptors.
+	 */
+	public RouteDescriptor[] getRoutes();
+
+	/**
+	 * Tells if some method of the resource class is annotated with
+	 * {@link org.wicketstuff.rest.annotations.AuthorizeInvocation}.
+	 * 
+	 * @return true if authorization annotations are used.
+	 */
+	public boolean isUsingAuthorization();
+}
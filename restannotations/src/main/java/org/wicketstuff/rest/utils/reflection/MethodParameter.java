@@ -17,33 +17,96 @@
 package org.wicketstuff.rest.utils.reflection;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
 
+import org.apache.wicket.Application;
+import org.apache.wicket.util.convert.IConverter;
+import org.wicketstuff.rest.annotations.parameters.CookieParam;
+import org.wicketstuff.rest.annotations.parameters.HeaderParam;
+import org.wicketstuff.rest.annotations.parameters.MatrixParam;
+import org.wicketstuff.rest.annotations.parameters.PathParam;
+import org.wicketstuff.rest.annotations.parameters.RequestBody;
+import org.wicketstuff.rest.annotations.parameters.RequestParam;
 import org.wicketstuff.rest.resource.MethodMappingInfo;
+import org.wicketstuff.rest.utils.convert.IValueParser;
+import org.wicketstuff.rest.utils.convert.ValueParsers;
 
-// TODO: Auto-generated Javadoc
 /**
  * The class contains the informations of a method parameter, like its type or
- * its index in the array of method parameters.
+ * its index in the array of method parameters. It also describes where the
+ * value of the parameter must be read from (see {@link ValueSource}). These
+ * informations are resolved once when the resource is built (see
+ * {@link ParameterBinding}), so that binding the parameters of a request
+ * doesn't require any reflective call.
  * 
  * @author andrea del bene
  */
 public class MethodParameter {
 
+	/**
+	 * The possible sources of a parameter's value.
+	 */
+	public enum ValueSource {
+		/** Not annotated parameter, read positionally from path parameters. */
+		PATH_POSITION,
+		/** Parameter annotated with {@link PathParam}. */
+		PATH_PARAM,
+		/** Parameter annotated with {@link RequestParam}. */
+		REQUEST_PARAM,
+		/** Parameter annotated with {@link HeaderParam}. */
+		HEADER_PARAM,
+		/** Parameter annotated with {@link CookieParam}. */
+		COOKIE_PARAM,
+		/** Parameter annotated with {@link MatrixParam}. */
+		MATRIX_PARAM,
+		/** Parameter annotated with {@link RequestBody}. */
+		REQUEST_BODY
+	}
+
 	/** The parameter class. */
 	final private Class<?> parameterClass;
 
+	/** The generic type of the parameter, like List&lt;Person&gt;. */
+	final private Type genericType;
+
 	/** The owner method. */
 	final private MethodMappingInfo ownerMethod;
 
 	/** The param index. */
 	final private int paramIndex;
 
+	/** The source of the parameter's value. */
+	final private ValueSource valueSource;
+
+	/**
+	 * The name of the value (path parameter, query parameter, header, cookie
+	 * or matrix parameter), null if the source is not a named one.
+	 */
+	final private String valueName;
+
+	/**
+	 * The position of the value among path parameters for
+	 * {@link ValueSource#PATH_POSITION}, or the segment index for
+	 * {@link ValueSource#MATRIX_PARAM}. -1 for the other sources.
+	 */
+	final private int valueIndex;
+
 	/** Indicates if the parameter is required or not. */
 	final private boolean required;
 	
 	/** Default value of the method parameter. */
 	final private String deaultValue;
 
+	/** The built-in parser for the parameter class, null if there isn't one. */
+	final private IValueParser valueParser;
+
+	/**
+	 * The default value converted to the parameter class, or null if it can't
+	 * be converted independently of the request.
+	 */
+	final private Object convertedDefaultValue;
+
 	/**
 	 * Instantiates a new method parameter.
 	 * 
@@ -56,32 +119,99 @@ public class MethodParameter {
 	 *            parameters.
 	 */
 	public MethodParameter(Class<?> type, MethodMappingInfo ownerMethod, int paramIndex) {
-		this.parameterClass = type;
+		this(type, ownerMethod, paramIndex, ReflectionUtils.getAnnotationParam(paramIndex,
+				ownerMethod.getMethod()), countNotAnnotatedParams(ownerMethod.getMethod(),
+				paramIndex));
+	}
+
+	/**
+	 * Instantiates a new method parameter.
+	 * 
+	 * @param type
+	 *            the type of the parameter.
+	 * @param ownerMethod
+	 *            the owner method for the parameter.
+	 * @param paramIndex
+	 *            the index of the parameter in the array of method's
+	 *            parameters.
+	 * @param annotation
+	 *            the annotation of the parameter (see
+	 *            {@link org.wicketstuff.rest.annotations.parameters.AnnotatedParam}),
+	 *            or null if the parameter is not annotated.
+	 * @param pathPosition
+	 *            the number of not annotated parameters that precede this
+	 *            one. It's used only if the parameter is not annotated.
+	 */
+	public MethodParameter(Class<?> type, MethodMappingInfo ownerMethod, int paramIndex,
+			Annotation annotation, int pathPosition) {
+		this(ParameterBinding.fromAnnotation(type, ownerMethod.getMethod()
+				.getGenericParameterTypes()[paramIndex], annotation, pathPosition), ownerMethod,
+				paramIndex);
+	}
+
+	/**
+	 * Instantiates a new method parameter.
+	 * 
+	 * @param binding
+	 *            the binding of the parameter, read from its annotations or
+	 *            generated at compile time.
+	 * @param ownerMethod
+	 *            the owner method for the parameter.
+	 * @param paramIndex
+	 *            the index of the parameter in the array of method's
+	 *            parameters.
+	 */
+	public MethodParameter(ParameterBinding binding, MethodMappingInfo ownerMethod,
+			int paramIndex) {
+		this.parameterClass = binding.getType();
+		this.genericType = binding.getGenericType();
 		this.ownerMethod = ownerMethod;
 		this.paramIndex = paramIndex;
-		
-		this.required = loadParamAnnotationField("required", true);
-		this.deaultValue = loadParamAnnotationField("defaultValue", "");
+		this.valueSource = binding.getValueSource();
+		this.valueName = binding.getValueName();
+		this.valueIndex = binding.getValueIndex();
+		this.required = binding.isRequired();
+		this.deaultValue = binding.getDefaultValue();
+		this.valueParser = ValueParsers.forType(parameterClass);
+		this.convertedDefaultValue = convertDefaultValue(parameterClass, valueParser, deaultValue);
 	}
 
 	/**
-	 * Load param annotation field.
-	 *
-	 * @param <T> the generic type
-	 * @param fieldName the field name
-	 * @param defaultValue the default value
-	 * @return the t
-	 */
-	private <T> T loadParamAnnotationField(String fieldName, T defaultValue) {
-		Annotation annotation = ReflectionUtils.getAnnotationParam(paramIndex, ownerMethod.getMethod());
-		T methodResult = null;
-				
-		if(annotation != null)
-			methodResult = ReflectionUtils.invokeMethod(annotation, fieldName);
-		
-		return methodResult != null ? methodResult : defaultValue;
+	 * Counts the parameters of a method that are not annotated and that
+	 * precede the given parameter.
+	 */
+	private static int countNotAnnotatedParams(Method method, int paramIndex) {
+		Annotation[][] parametersAnnotations = method.getParameterAnnotations();
+		int count = 0;
+
+		for (int i = 0; i < paramIndex && i < parametersAnnotations.length; i++) {
+			if (ReflectionUtils.getAnnotationParam(parametersAnnotations[i]) == null)
+				count++;
+		}
+
+		return count;
 	}
-	
+
+	/**
+	 * Converts the default value of a parameter when the result doesn't depend
+	 * on the request, i.e. for strings and for types with a built-in parser
+	 * that is not locale sensitive. Other values are converted when they are
+	 * used.
+	 */
+	private static Object convertDefaultValue(Class<?> type, IValueParser valueParser,
+			String defaultValue) {
+		if (defaultValue.isEmpty())
+			return null;
+
+		if (type == String.class)
+			return defaultValue;
+
+		if (valueParser == null || valueParser.isLocaleSensitive())
+			return null;
+
+		return valueParser.parse(defaultValue, null);
+	}
+
 	/**
 	 * Gets the type of the method parameter.
 	 * 
@@ -91,6 +221,17 @@ public class MethodParameter {
 		return parameterClass;
 	}
 
+	/**
+	 * Gets the generic type of the method parameter, which is the same of
+	 * {@link #getParameterClass()} unless the parameter has a parameterized
+	 * or generic array type.
+	 * 
+	 * @return the generic parameter type
+	 */
+	public Type getGenericType() {
+		return genericType;
+	}
+
 	/**
 	 * Gets the owner method.
 	 * 
@@ -109,6 +250,36 @@ public class MethodParameter {
 		return paramIndex;
 	}
 
+	/**
+	 * Gets the source of the parameter's value.
+	 * 
+	 * @return the value source
+	 */
+	public ValueSource getValueSource() {
+		return valueSource;
+	}
+
+	/**
+	 * Gets the name of the parameter's value, i.e. the name of the path
+	 * parameter, query parameter, header, cookie or matrix parameter.
+	 * 
+	 * @return the value name, or null if the source is not a named one
+	 */
+	public String getValueName() {
+		return valueName;
+	}
+
+	/**
+	 * Gets the position of the value among path parameters (for
+	 * {@link ValueSource#PATH_POSITION}) or the index of the segment that
+	 * contains the value (for {@link ValueSource#MATRIX_PARAM}).
+	 * 
+	 * @return the value index, or -1 for the other sources
+	 */
+	public int getValueIndex() {
+		return valueIndex;
+	}
+
 	/**
 	 * Checks if the parameter required.
 	 *
@@ -127,4 +298,46 @@ public class MethodParameter {
 		return deaultValue;
 	}
 
+	/**
+	 * Checks if the parameter has a default value.
+	 *
+	 * @return true, if the default value is not empty
+	 */
+	public boolean hasDefaultValue() {
+		return !deaultValue.isEmpty();
+	}
+
+	/**
+	 * Gets the default value already converted to the parameter class.
+	 *
+	 * @return the converted default value, or null if the value must be
+	 *         converted using the locale of the current request
+	 */
+	public Object getConvertedDefaultValue() {
+		return convertedDefaultValue;
+	}
+
+	/**
+	 * Gets the built-in parser for the parameter class (see
+	 * {@link ValueParsers}).
+	 *
+	 * @return the parser, or null if the parameter class has no built-in
+	 *         parser
+	 */
+	public IValueParser getValueParser() {
+		return valueParser;
+	}
+
+	/**
+	 * Gets the Wicket converter for the parameter class. The converter is
+	 * looked up with the converter locator of the current application every
+	 * time, since method parameters are shared by all the applications that
+	 * use the same resource class (see
+	 * {@link org.wicketstuff.rest.resource.RouteModel}).
+	 *
+	 * @return the converter
+	 */
+	public IConverter<?> getConverter() {
+		return Application.get().getConverterLocator().getConverter(parameterClass);
+	}
 }
@@ -0,0 +1,216 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.reflection;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import org.wicketstuff.rest.annotations.parameters.CookieParam;
+import org.wicketstuff.rest.annotations.parameters.HeaderParam;
+import org.wicketstuff.rest.annotations.parameters.MatrixParam;
+import org.wicketstuff.rest.annotations.parameters.PathParam;
+import org.wicketstuff.rest.annotations.parameters.RequestParam;
+import org.wicketstuff.rest.utils.reflection.MethodParameter.ValueSource;
+
+/**
+ * Describes how the value of a parameter of a mapped method is obtained from
+ * a request: its type and where its value must be read from. Bindings are
+ * either read from the annotations of the parameter (see
+ * {@link #fromAnnotation(Class, Type, Annotation, int)}) or generated at
+ * compile time (see {@link IResourceDispatcher#getRoutes()}).
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class ParameterBinding {
+	/** The parameter class. */
+	private final Class<?> type;
+
+	/** The generic type of the parameter, like List&lt;Person&gt;. */
+	private final Type genericType;
+
+	/** The source of the parameter's value. */
+	private final ValueSource valueSource;
+
+	/** The name of the value, null if the source is not a named one. */
+	private final String valueName;
+
+	/** The position among path parameters or the segment index, or -1. */
+	private final int valueIndex;
+
+	/** Indicates if the parameter is required or not. */
+	private final boolean required;
+
+	/** Default value of the parameter, empty if there isn't one. */
+	private final String defaultValue;
+
+	/**
+	 * Instantiates a new parameter binding.
+	 * 
+	 * @param type
+	 *            the class of the parameter.
+	 * @param genericType
+	 *            the generic type of the parameter.
+	 * @param valueSource
+	 *            the source of the parameter's value.
+	 * @param valueName
+	 *            the name of the value, or null if the source is not a named
+	 *            one.
+	 * @param valueIndex
+	 *            the position of the value among path parameters (for
+	 *            {@link ValueSource#PATH_POSITION}), the segment index (for
+	 *            {@link ValueSource#MATRIX_PARAM}), or -1.
+	 * @param required
+	 *            tells if the parameter is required.
+	 * @param defaultValue
+	 *            the default value, empty if there isn't one.
+	 */
+	public ParameterBinding(Class<?> type, Type genericType, ValueSource valueSource,
+			String valueName, int valueIndex, boolean required, String defaultValue) {
+		this.type = type;
+		this.genericType = genericType;
+		this.valueSource = valueSource;
+		this.valueName = valueName;
+		this.valueIndex = valueIndex;
+		this.required = required;
+		this.defaultValue = defaultValue;
+	}
+
+	/**
+	 * Reads the binding of a parameter from its annotation.
+	 * 
+	 * @param type
+	 *            the class of the parameter.
+	 * @param genericType
+	 *            the generic type of the parameter.
+	 * @param annotation
+	 *            the annotation of the parameter (see
+	 *            {@link org.wicketstuff.rest.annotations.parameters.AnnotatedParam}),
+	 *            or null if the parameter is not annotated.
+	 * @param pathPosition
+	 *            the number of not annotated parameters that precede this
+	 *            one. It's used only if the parameter is not annotated.
+	 * @return the parameter binding.
+	 */
+	public static ParameterBinding fromAnnotation(Class<?> type, Type genericType,
+			Annotation annotation, int pathPosition) {
+		if (annotation == null)
+			return new ParameterBinding(type, genericType, ValueSource.PATH_POSITION, null,
+					pathPosition, true, "");
+
+		if (annotation instanceof PathParam)
+			return new ParameterBinding(type, genericType, ValueSource.PATH_PARAM,
+					((PathParam) annotation).value(), -1, true, "");
+
+		if (annotation instanceof RequestParam) {
+			RequestParam requestParam = (RequestParam) annotation;
+
+			return new ParameterBinding(type, genericType, ValueSource.REQUEST_PARAM,
+					requestParam.value(), -1, requestParam.required(),
+					requestParam.defaultValue());
+		}
+
+		if (annotation instanceof HeaderParam) {
+			HeaderParam headerParam = (HeaderParam) annotation;
+
+			return new ParameterBinding(type, genericType, ValueSource.HEADER_PARAM,
+					headerParam.value(), -1, headerParam.required(), headerParam.defaultValue());
+		}
+
+		if (annotation instanceof CookieParam) {
+			CookieParam cookieParam = (CookieParam) annotation;
+
+			return new ParameterBinding(type, genericType, ValueSource.COOKIE_PARAM,
+					cookieParam.value(), -1, cookieParam.required(), cookieParam.defaultValue());
+		}
+
+		if (annotation instanceof MatrixParam) {
+			MatrixParam matrixParam = (MatrixParam) annotation;
+
+			return new ParameterBinding(type, genericType, ValueSource.MATRIX_PARAM,
+					matrixParam.parameterName(), matrixParam.segmentIndex(),
+					matrixParam.required(), matrixParam.defaultValue());
+		}
+
+		return new ParameterBinding(type, genericType, ValueSource.REQUEST_BODY, null, -1, true,
+				"");
+	}
+
+	/**
+	 * Gets the class of the parameter.
+	 * 
+	 * @return the parameter class
+	 */
+	public Class<?> getType() {
+		return type;
+	}
+
+	/**
+	 * Gets the generic type of the parameter.
+	 * 
+	 * @return the generic type
+	 */
+	public Type getGenericType() {
+		return genericType;
+	}
+
+	/**
+	 * Gets the source of the parameter's value.
+	 * 
+	 * @return the value source
+	 */
+	public ValueSource getValueSource() {
+		return valueSource;
+	}
+
+	/**
+	 * Gets the name of the parameter's value.
+	 * 
+	 * @return the value name, or null if the source is not a named one
+	 */
+	public String getValueName() {
+		return valueName;
+	}
+
+	/**
+	 * Gets the position of the value among path parameters or the index of
+	 * the segment that contains the value.
+	 * 
+	 * @return the value index, or -1 for the other sources
+	 */
+	public int getValueIndex() {
+		return valueIndex;
+	}
+
+	/**
+	 * Checks if the parameter is required.
+	 * 
+	 * @return true, if is required
+	 */
+	public boolean isRequired() {
+		return required;
+	}
+
+	/**
+	 * Gets the default value of the parameter.
+	 * 
+	 * @return the default value, empty if there isn't one
+	 */
+	public String getDefaultValue() {
+		return defaultValue;
+	}
+}
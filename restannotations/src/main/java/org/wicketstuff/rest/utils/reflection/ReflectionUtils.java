@@ -17,7 +17,13 @@
 package org.wicketstuff.rest.utils.reflection;
 
 import java.lang.annotation.Annotation;
+import java.lang.reflect.Array;
+import java.lang.reflect.GenericArrayType;
 import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
 
 import org.wicketstuff.rest.annotations.parameters.AnnotatedParam;
 
@@ -28,6 +34,38 @@ import org.wicketstuff.rest.annotations.parameters.AnnotatedParam;
  *
  */
 public class ReflectionUtils {
+	/**
+	 * Gets the class corresponding to a generic type, i.e. its raw type for
+	 * parameterized types and the upper bound for type variables and
+	 * wildcards.
+	 * 
+	 * @param type
+	 *            the generic type.
+	 * @return the raw class of the type.
+	 */
+	static public Class<?> getRawClass(Type type) {
+		if (type instanceof Class)
+			return (Class<?>) type;
+
+		if (type instanceof ParameterizedType)
+			return getRawClass(((ParameterizedType) type).getRawType());
+
+		if (type instanceof GenericArrayType) {
+			Class<?> componentClass = getRawClass(((GenericArrayType) type)
+					.getGenericComponentType());
+
+			return Array.newInstance(componentClass, 0).getClass();
+		}
+
+		if (type instanceof TypeVariable)
+			return getRawClass(((TypeVariable<?>) type).getBounds()[0]);
+
+		if (type instanceof WildcardType)
+			return getRawClass(((WildcardType) type).getUpperBounds()[0]);
+
+		return Object.class;
+	}
+
 	/**
 	 * Check if a parameter is annotated with a given annotation.
 	 * 
@@ -75,8 +113,18 @@ public class ReflectionUtils {
 		if (parametersAnnotations.length == 0)
 			return null;
 
-		Annotation[] parameterAnnotations = parametersAnnotations[i];
+		return getAnnotationParam(parametersAnnotations[i]);
+	}
 
+	/**
+	 * Returns the {@link AnnotatedParam} annotation found among the given
+	 * annotations of a method parameter.
+	 * 
+	 * @param parameterAnnotations
+	 *            the annotations of a method parameter.
+	 * @return the annotation found, or null if no such annotation is present.
+	 */
+	static public Annotation getAnnotationParam(Annotation[] parameterAnnotations) {
 		for (int j = 0; j < parameterAnnotations.length; j++) {
 			Annotation annotation = parameterAnnotations[j];
 			AnnotatedParam isAnnotatedParam = annotation.annotationType().getAnnotation(
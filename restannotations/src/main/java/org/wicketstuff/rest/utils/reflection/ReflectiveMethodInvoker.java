@@ -0,0 +1,70 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.reflection;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Invoker based on {@link Method#invoke(Object, Object...)}. Language access
+ * checks are not suppressed, so only accessible methods can be invoked.
+ * Exceptions thrown by the invoked method are propagated without the
+ * {@link InvocationTargetException} wrapper.
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class ReflectiveMethodInvoker implements IMethodInvoker {
+	/** The invoked method. */
+	private final Method method;
+
+	/**
+	 * Class constructor.
+	 * 
+	 * @param method
+	 *            the method to invoke.
+	 */
+	public ReflectiveMethodInvoker(Method method) {
+		this.method = method;
+	}
+
+	@Override
+	public Object invoke(Object target, Object[] arguments) throws Exception {
+		try {
+			return method.invoke(target, arguments);
+		} catch (InvocationTargetException e) {
+			Throwable cause = e.getCause();
+
+			if (cause instanceof Exception)
+				throw (Exception) cause;
+
+			if (cause instanceof Error)
+				throw (Error) cause;
+
+			throw e;
+		}
+	}
+
+	/**
+	 * Gets the invoked method.
+	 * 
+	 * @return the method
+	 */
+	public Method getMethod() {
+		return method;
+	}
+}
@@ -0,0 +1,201 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.reflection;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.wicketstuff.rest.annotations.MethodMapping;
+
+/**
+ * Utility methods to find the dispatcher generated for a resource class.
+ * Dispatchers are generated by the annotation processor of module
+ * wicketstuff-restannotations-processor: a dispatcher is placed in the same
+ * package of its resource class and it's named after the binary name of the
+ * class followed by {@link #DISPATCHER_SUFFIX}. In the simple name of the
+ * class '_' is escaped as '__' and '$' as '_0', so that different classes
+ * (like 'a.B$C' and 'a.B_C') never share the same dispatcher.<br>
+ * A dispatcher is used only if its routes match the mapped methods of the
+ * loaded class (see {@link #checkRoutes(Class, RouteDescriptor[])}).
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class ResourceDispatchers {
+	private static final Logger LOG = LoggerFactory.getLogger(ResourceDispatchers.class);
+
+	/** Suffix of the name of generated dispatchers. */
+	public static final String DISPATCHER_SUFFIX = "_RestDispatcher";
+
+	private ResourceDispatchers() {
+	}
+
+	/**
+	 * Gets the name of the dispatcher class for the given resource class.
+	 * 
+	 * @param resourceClassName
+	 *            the binary name of the resource class.
+	 * @return the binary name of the dispatcher class.
+	 */
+	public static String getDispatcherClassName(String resourceClassName) {
+		int simpleNameStart = resourceClassName.lastIndexOf('.') + 1;
+		StringBuilder dispatcherName = new StringBuilder(resourceClassName.substring(0,
+				simpleNameStart));
+
+		for (int i = simpleNameStart; i < resourceClassName.length(); i++) {
+			char currentChar = resourceClassName.charAt(i);
+
+			switch (currentChar) {
+			case '_':
+				dispatcherName.append("__");
+				break;
+			case '$':
+				dispatcherName.append("_0");
+				break;
+			default:
+				dispatcherName.append(currentChar);
+			}
+		}
+
+		return dispatcherName.append(DISPATCHER_SUFFIX).toString();
+	}
+
+	/**
+	 * Gets the signature used to identify a mapped method, i.e. its name
+	 * followed by the canonical names of its parameter types, like
+	 * 'deletePerson(int)' or 'createPerson(org.example.Person)'.
+	 * 
+	 * @param method
+	 *            the mapped method.
+	 * @return the method signature.
+	 */
+	public static String getMethodSignature(Method method) {
+		StringBuilder signature = new StringBuilder(method.getName()).append('(');
+		Class<?>[] parameterTypes = method.getParameterTypes();
+
+		for (int i = 0; i < parameterTypes.length; i++) {
+			if (i > 0)
+				signature.append(',');
+
+			signature.append(parameterTypes[i].getCanonicalName());
+		}
+
+		return signature.append(')').toString();
+	}
+
+	/**
+	 * Finds and instantiates the dispatcher generated for the given resource
+	 * class.
+	 * 
+	 * @param resourceClass
+	 *            the resource class.
+	 * @return the dispatcher, or null if no dispatcher has been generated.
+	 */
+	public static IResourceDispatcher findDispatcher(Class<?> resourceClass) {
+		String dispatcherName = getDispatcherClassName(resourceClass.getName());
+		Class<?> dispatcherClass;
+
+		try {
+			dispatcherClass = Class.forName(dispatcherName, true, resourceClass.getClassLoader());
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+
+		if (!IResourceDispatcher.class.isAssignableFrom(dispatcherClass)) {
+			LOG.warn("Class '" + dispatcherName + "' doesn't implement IResourceDispatcher.");
+			return null;
+		}
+
+		try {
+			return (IResourceDispatcher) dispatcherClass.newInstance();
+		} catch (Exception e) {
+			LOG.warn("Dispatcher '" + dispatcherName + "' can't be instantiated.", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Checks that the routes of a dispatcher describe the mapped methods of the
+	 * loaded resource class. Every route must refer to a public method
+	 * declared by the class with the same parameter types, mapping and return
+	 * type, and every mapped method of the class must have a route. Routes of a
+	 * stale dispatcher (for example one left over by an incremental build) fail
+	 * the check, as their invokers might call a method different from the
+	 * mapped one.
+	 * 
+	 * @param resourceClass
+	 *            the resource class.
+	 * @param routes
+	 *            the routes of the dispatcher.
+	 * @return true if the routes match the class, false otherwise.
+	 */
+	public static boolean checkRoutes(Class<?> resourceClass, RouteDescriptor[] routes) {
+		if (routesMatchClass(resourceClass, routes))
+			return true;
+
+		LOG.warn("Dispatcher of class '" + resourceClass.getName()
+				+ "' is out of date, mapped methods are read with reflection.");
+		return false;
+	}
+
+	private static boolean routesMatchClass(Class<?> resourceClass, RouteDescriptor[] routes) {
+		Set<String> signatures = new HashSet<String>();
+
+		for (int i = 0; i < routes.length; i++) {
+			RouteDescriptor route = routes[i];
+			Method method;
+
+			if (route.getResourceClass() != resourceClass)
+				return false;
+
+			try {
+				method = route.findMethod();
+			} catch (NoSuchMethodException e) {
+				return false;
+			}
+
+			if (!Modifier.isPublic(method.getModifiers()) || !matchesMapping(route, method)
+					|| !signatures.add(getMethodSignature(method)))
+				return false;
+		}
+
+		Method[] methods = resourceClass.getDeclaredMethods();
+		int mappedMethods = 0;
+
+		for (int i = 0; i < methods.length; i++) {
+			if (methods[i].getAnnotation(MethodMapping.class) != null)
+				mappedMethods++;
+		}
+
+		return mappedMethods == signatures.size();
+	}
+
+	private static boolean matchesMapping(RouteDescriptor route, Method method) {
+		MethodMapping methodMapping = method.getAnnotation(MethodMapping.class);
+
+		return methodMapping != null && methodMapping.value().equals(route.getPath())
+				&& methodMapping.httpMethod() == route.getHttpMethod()
+				&& methodMapping.consumes().equals(route.getConsumes())
+				&& methodMapping.produces().equals(route.getProduces())
+				&& methodMapping.cacheResolution() == route.isCacheResolution()
+				&& method.getReturnType() == route.getReturnClass();
+	}
+}
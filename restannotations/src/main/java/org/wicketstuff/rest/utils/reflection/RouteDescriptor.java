@@ -0,0 +1,293 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.reflection;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+
+import org.wicketstuff.rest.annotations.AuthorizeInvocation;
+import org.wicketstuff.rest.annotations.MethodMapping;
+import org.wicketstuff.rest.utils.http.HttpMethod;
+
+/**
+ * Describes a mapped method of a resource class (see {@link MethodMapping}):
+ * its route, the binding of its parameters (see {@link ParameterBinding}),
+ * its result and how to invoke it. Descriptors are generated at compile time
+ * along with the dispatcher of the class (see
+ * {@link IResourceDispatcher#getRoutes()}), so resources can build their
+ * routes without reflection. For classes without a dispatcher, descriptors
+ * are read with reflection (see
+ * {@link #fromMethod(MethodMapping, Method, IMethodInvoker)}).
+ * 
+ * @author andrea del bene
+ * 
+ */
+public class RouteDescriptor {
+	private static final String[] NO_ROLES = new String[0];
+
+	/** The class that declares the method. */
+	private final Class<?> resourceClass;
+
+	/** The name of the method. */
+	private final String methodName;
+
+	/** The mapped path (see {@link MethodMapping#value()}). */
+	private final String path;
+
+	/** The mapped HTTP method. */
+	private final HttpMethod httpMethod;
+
+	/** The MIME type to use in input. */
+	private final String consumes;
+
+	/** The MIME type to use in output. */
+	private final String produces;
+
+	/** Tells if the resolution of the method can be cached. */
+	private final boolean cacheResolution;
+
+	/** The roles of {@link AuthorizeInvocation}, empty if it's not used. */
+	private final String[] roles;
+
+	/** The return class of the method. */
+	private final Class<?> returnClass;
+
+	/** The generic return type of the method. */
+	private final Type genericReturnType;
+
+	/** The bindings of the method parameters. */
+	private final ParameterBinding[] parameters;
+
+	/** The invoker of the method, null if it must be invoked with reflection. */
+	private final IMethodInvoker invoker;
+
+	/**
+	 * Instantiates a new route descriptor.
+	 * 
+	 * @param resourceClass
+	 *            the class that declares the method.
+	 * @param methodName
+	 *            the name of the method.
+	 * @param path
+	 *            the mapped path.
+	 * @param httpMethod
+	 *            the mapped HTTP method.
+	 * @param consumes
+	 *            the MIME type to use in input.
+	 * @param produces
+	 *            the MIME type to use in output.
+	 * @param cacheResolution
+	 *            tells if the resolution of the method can be cached.
+	 * @param roles
+	 *            the roles required to invoke the method, empty if there
+	 *            aren't any.
+	 * @param returnClass
+	 *            the return class of the method.
+	 * @param genericReturnType
+	 *            the generic return type of the method.
+	 * @param parameters
+	 *            the bindings of the method parameters, in the same order
+	 *            they are declared.
+	 * @param invoker
+	 *            the invoker of the method, or null if it must be invoked
+	 *            with reflection.
+	 */
+	public RouteDescriptor(Class<?> resourceClass, String methodName, String path,
+			HttpMethod httpMethod, String consumes, String produces, boolean cacheResolution,
+			String[] roles, Class<?> returnClass, Type genericReturnType,
+			ParameterBinding[] parameters, IMethodInvoker invoker) {
+		this.resourceClass = resourceClass;
+		this.methodName = methodName;
+		this.path = path;
+		this.httpMethod = httpMethod;
+		this.consumes = consumes;
+		this.produces = produces;
+		this.cacheResolution = cacheResolution;
+		this.roles = roles;
+		this.returnClass = returnClass;
+		this.genericReturnType = genericReturnType;
+		this.parameters = parameters;
+		this.invoker = invoker;
+	}
+
+	/**
+	 * Reads the descriptor of a mapped method with reflection.
+	 * 
+	 * @param methodMapping
+	 *            the mapping annotation of the method.
+	 * @param method
+	 *            the mapped method.
+	 * @param invoker
+	 *            the invoker of the method, or null if it must be invoked
+	 *            with reflection.
+	 * @return the route descriptor.
+	 */
+	public static RouteDescriptor fromMethod(MethodMapping methodMapping, Method method,
+			IMethodInvoker invoker) {
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		Type[] genericParameterTypes = method.getGenericParameterTypes();
+		Annotation[][] parametersAnnotations = method.getParameterAnnotations();
+		ParameterBinding[] parameters = new ParameterBinding[parameterTypes.length];
+		AuthorizeInvocation authorizeInvocation = method.getAnnotation(AuthorizeInvocation.class);
+		int pathPosition = 0;
+
+		for (int i = 0; i < parameterTypes.length; i++) {
+			Annotation annotation = ReflectionUtils.getAnnotationParam(parametersAnnotations[i]);
+
+			parameters[i] = ParameterBinding.fromAnnotation(parameterTypes[i],
+					genericParameterTypes[i], annotation, pathPosition);
+
+			if (annotation == null)
+				pathPosition++;
+		}
+
+		return new RouteDescriptor(method.getDeclaringClass(), method.getName(),
+				methodMapping.value(), methodMapping.httpMethod(), methodMapping.consumes(),
+				methodMapping.produces(), methodMapping.cacheResolution(),
+				authorizeInvocation != null ? authorizeInvocation.value() : NO_ROLES,
+				method.getReturnType(), method.getGenericReturnType(), parameters, invoker);
+	}
+
+	/**
+	 * Looks up the described method in its class.
+	 * 
+	 * @return the method.
+	 * @throws NoSuchMethodException
+	 *             if the class doesn't declare the method, i.e. if the
+	 *             descriptor is out of date.
+	 */
+	public Method findMethod() throws NoSuchMethodException {
+		Class<?>[] parameterTypes = new Class<?>[parameters.length];
+
+		for (int i = 0; i < parameters.length; i++)
+			parameterTypes[i] = parameters[i].getType();
+
+		return resourceClass.getDeclaredMethod(methodName, parameterTypes);
+	}
+
+	/**
+	 * Gets the class that declares the method.
+	 * 
+	 * @return the resource class
+	 */
+	public Class<?> getResourceClass() {
+		return resourceClass;
+	}
+
+	/**
+	 * Gets the name of the method.
+	 * 
+	 * @return the method name
+	 */
+	public String getMethodName() {
+		return methodName;
+	}
+
+	/**
+	 * Gets the mapped path.
+	 * 
+	 * @return the path
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * Gets the mapped HTTP method.
+	 * 
+	 * @return the HTTP method
+	 */
+	public HttpMethod getHttpMethod() {
+		return httpMethod;
+	}
+
+	/**
+	 * Gets the MIME type to use in input.
+	 * 
+	 * @return the input MIME type
+	 */
+	public String getConsumes() {
+		return consumes;
+	}
+
+	/**
+	 * Gets the MIME type to use in output.
+	 * 
+	 * @return the output MIME type
+	 */
+	public String getProduces() {
+		return produces;
+	}
+
+	/**
+	 * Tells if the resolution of the method can be cached.
+	 * 
+	 * @return true if the resolution can be cached
+	 */
+	public boolean isCacheResolution() {
+		return cacheResolution;
+	}
+
+	/**
+	 * Gets the roles required to invoke the method. The returned array must
+	 * not be modified.
+	 * 
+	 * @return the roles, empty if there aren't any
+	 */
+	public String[] getRoles() {
+		return roles;
+	}
+
+	/**
+	 * Gets the return class of the method.
+	 * 
+	 * @return the return class
+	 */
+	public Class<?> getReturnClass() {
+		return returnClass;
+	}
+
+	/**
+	 * Gets the generic return type of the method.
+	 * 
+	 * @return the generic return type
+	 */
+	public Type getGenericReturnType() {
+		return genericReturnType;
+	}
+
+	/**
+	 * Gets the bindings of the method parameters. The returned array must not
+	 * be modified.
+	 * 
+	 * @return the parameter bindings
+	 */
+	public ParameterBinding[] getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * Gets the invoker of the method.
+	 * 
+	 * @return the invoker, or null if the method must be invoked with
+	 *         reflection
+	 */
+	public IMethodInvoker getInvoker() {
+		return invoker;
+	}
+}
@@ -0,0 +1,84 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.regex;
+
+/**
+ * Characters sequence that counts the characters read by the regular
+ * expression engine and throws a {@link MatchBudgetExceededException} when
+ * they exceed a given budget. Since a backtracking engine reads characters
+ * again every time it retries a match, the count is a good measure of the
+ * work done by the engine.
+ *
+ * @author andrea del bene
+ *
+ */
+public class BudgetedCharSequence implements CharSequence {
+	/** The wrapped sequence. */
+	private final CharSequence sequence;
+	/** The regular expression being matched, used for error messages. */
+	private final String regExp;
+	/** The maximum number of characters that can be read. */
+	private final int stepBudget;
+	/** Characters read so far. Shared with the subsequences. */
+	private final int[] steps;
+
+	/**
+	 * Class constructor.
+	 *
+	 * @param sequence
+	 *            the wrapped sequence.
+	 * @param regExp
+	 *            the regular expression being matched.
+	 * @param stepBudget
+	 *            the maximum number of characters that can be read.
+	 */
+	public BudgetedCharSequence(CharSequence sequence, String regExp, int stepBudget) {
+		this(sequence, regExp, stepBudget, new int[1]);
+	}
+
+	private BudgetedCharSequence(CharSequence sequence, String regExp, int stepBudget,
+			int[] steps) {
+		this.sequence = sequence;
+		this.regExp = regExp;
+		this.stepBudget = stepBudget;
+		this.steps = steps;
+	}
+
+	@Override
+	public char charAt(int index) {
+		if (++steps[0] > stepBudget)
+			throw new MatchBudgetExceededException(regExp, stepBudget);
+
+		return sequence.charAt(index);
+	}
+
+	@Override
+	public int length() {
+		return sequence.length();
+	}
+
+	@Override
+	public CharSequence subSequence(int start, int end) {
+		return new BudgetedCharSequence(sequence.subSequence(start, end), regExp, stepBudget,
+				steps);
+	}
+
+	@Override
+	public String toString() {
+		return sequence.toString();
+	}
+}
@@ -0,0 +1,842 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.regex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Regular expression compiled to a Thompson NFA. Matching simulates all the
+ * states of the automaton in parallel, so the time needed to match a value
+ * grows linearly with its length and can't explode because of backtracking.<br/>
+ * Only a subset of the syntax of {@link java.util.regex.Pattern} is supported:
+ * literals, escaped characters, quoted text ('\Q...\E'), the predefined
+ * classes \d \D \w \W \s \S, character classes with ranges and negation,
+ * '.', groups (capturing, non-capturing and named), alternation, greedy and
+ * reluctant quantifiers (*, +, ?, {n}, {n,}, {n,m}) and the anchors '^' and
+ * '$'. Expressions using other constructs (back references, lookaround,
+ * possessive quantifiers, flags, etc...) are rejected by
+ * {@link #compile(String)}.
+ *
+ * @author andrea del bene
+ *
+ */
+public final class LinearRegExp {
+	/** Maximum number of instructions of a compiled expression. */
+	static final int MAX_PROGRAM_SIZE = 10000;
+
+	static final int CHAR = 0;
+	static final int SPLIT = 1;
+	static final int JUMP = 2;
+	static final int ASSERT_START = 3;
+	static final int ASSERT_END = 4;
+	static final int MATCH = 5;
+
+	/** The source expression. */
+	private final String regExp;
+	/** Opcodes of the program. */
+	private final int[] opcodes;
+	/** First operand of the instructions (jump targets). */
+	private final int[] operands1;
+	/** Second operand of the instructions (jump targets). */
+	private final int[] operands2;
+	/** Character sets of the CHAR instructions. */
+	private final CharSet[] charSets;
+
+	private LinearRegExp(String regExp, Program program) {
+		int size = program.size();
+
+		this.regExp = regExp;
+		this.opcodes = new int[size];
+		this.operands1 = new int[size];
+		this.operands2 = new int[size];
+		this.charSets = new CharSet[size];
+
+		for (int i = 0; i < size; i++) {
+			Instruction instruction = program.instructions.get(i);
+
+			opcodes[i] = instruction.opcode;
+			operands1[i] = instruction.operand1;
+			operands2[i] = instruction.operand2;
+			charSets[i] = instruction.charSet;
+		}
+	}
+
+	/**
+	 * Compiles the given regular expression.
+	 *
+	 * @param regExp
+	 *            the regular expression.
+	 * @return the compiled expression.
+	 * @throws IllegalArgumentException
+	 *             if the expression is not valid or it uses constructs not
+	 *             supported by this engine.
+	 */
+	public static LinearRegExp compile(String regExp) {
+		Node root = new Parser(regExp).parse();
+		Program program = new Program();
+
+		root.emit(program);
+		program.add(MATCH, 0, 0, null);
+
+		return new LinearRegExp(regExp, program);
+	}
+
+	/**
+	 * Checks if the given regular expression can be compiled by this engine.
+	 *
+	 * @param regExp
+	 *            the regular expression.
+	 * @return true if the expression is supported, false otherwise.
+	 */
+	public static boolean isSupported(String regExp) {
+		try {
+			compile(regExp);
+			return true;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Checks if the whole given characters range matches the expression.
+	 *
+	 * @param value
+	 *            the characters sequence.
+	 * @param start
+	 *            the start index of the range (inclusive).
+	 * @param end
+	 *            the end index of the range (exclusive).
+	 * @param stepBudget
+	 *            the maximum number of steps the automaton can execute. 0
+	 *            means no limit.
+	 * @return true if the range matches the expression.
+	 * @throws MatchBudgetExceededException
+	 *             if the match needs more steps than the given budget.
+	 */
+	public boolean matches(CharSequence value, int start, int end, int stepBudget) {
+		int size = opcodes.length;
+		StateSet current = new StateSet(size);
+		StateSet next = new StateSet(size);
+		// every state is added at most once and pushes at most two states
+		int[] stack = new int[size * 2 + 1];
+		long steps = 0;
+
+		addState(current, 0, start, start, end, stack);
+
+		for (int position = start; position < end && current.size > 0; position++) {
+			char currentChar = value.charAt(position);
+
+			for (int i = 0; i < current.size; i++) {
+				int pc = current.dense[i];
+
+				if (opcodes[pc] == CHAR && charSets[pc].contains(currentChar))
+					addState(next, pc + 1, position + 1, start, end, stack);
+			}
+
+			steps += current.size;
+
+			if (stepBudget > 0 && steps > stepBudget)
+				throw new MatchBudgetExceededException(regExp, stepBudget);
+
+			StateSet swap = current;
+			current = next;
+			next = swap;
+			next.clear();
+		}
+
+		for (int i = 0; i < current.size; i++) {
+			if (opcodes[current.dense[i]] == MATCH)
+				return true;
+		}
+
+		return false;
+	}
+
+	/**
+	 * Checks if the whole given characters sequence matches the expression.
+	 *
+	 * @param value
+	 *            the characters sequence.
+	 * @return true if the sequence matches the expression.
+	 */
+	public boolean matches(CharSequence value) {
+		return matches(value, 0, value.length(), 0);
+	}
+
+	/**
+	 * Adds the given state and all the states reachable from it without
+	 * consuming characters.
+	 */
+	private void addState(StateSet states, int pc, int position, int start, int end, int[] stack) {
+		int stackSize = 0;
+
+		stack[stackSize++] = pc;
+
+		while (stackSize > 0) {
+			int currentPc = stack[--stackSize];
+
+			if (!states.add(currentPc))
+				continue;
+
+			switch (opcodes[currentPc]) {
+			case JUMP:
+				stack[stackSize++] = operands1[currentPc];
+				break;
+			case SPLIT:
+				// the second branch is pushed first to visit the first one
+				// before it
+				stack[stackSize++] = operands2[currentPc];
+				stack[stackSize++] = operands1[currentPc];
+				break;
+			case ASSERT_START:
+				if (position == start)
+					stack[stackSize++] = currentPc + 1;
+				break;
+			case ASSERT_END:
+				if (position == end)
+					stack[stackSize++] = currentPc + 1;
+				break;
+			default:
+				break;
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return regExp;
+	}
+
+	/**
+	 * Sparse set of automaton states, cleared in constant time.
+	 */
+	static final class StateSet {
+		private final int[] dense;
+		private final int[] sparse;
+		private int size;
+
+		StateSet(int capacity) {
+			dense = new int[capacity];
+			sparse = new int[capacity];
+		}
+
+		boolean add(int state) {
+			int index = sparse[state];
+
+			if (index < size && dense[index] == state)
+				return false;
+
+			sparse[state] = size;
+			dense[size++] = state;
+
+			return true;
+		}
+
+		void clear() {
+			size = 0;
+		}
+	}
+
+	/**
+	 * Set of characters expressed as a list of ranges, optionally negated.
+	 */
+	static final class CharSet {
+		/** Range bounds: the i-th range is ranges[2i]-ranges[2i+1]. */
+		private char[] ranges = new char[8];
+		private int rangesCount;
+		private boolean negated;
+
+		static CharSet of(char lowerBound, char upperBound) {
+			CharSet charSet = new CharSet();
+			charSet.addRange(lowerBound, upperBound);
+
+			return charSet;
+		}
+
+		void addRange(char lowerBound, char upperBound) {
+			if (rangesCount * 2 == ranges.length) {
+				char[] newRanges = new char[ranges.length * 2];
+
+				System.arraycopy(ranges, 0, newRanges, 0, ranges.length);
+				ranges = newRanges;
+			}
+
+			ranges[rangesCount * 2] = lowerBound;
+			ranges[rangesCount * 2 + 1] = upperBound;
+			rangesCount++;
+		}
+
+		void addAll(CharSet charSet) {
+			for (int i = 0; i < charSet.rangesCount; i++) {
+				addRange(charSet.ranges[i * 2], charSet.ranges[i * 2 + 1]);
+			}
+		}
+
+		/**
+		 * Gets the complement of this set, expressed as positive ranges. The
+		 * set must not be negated.
+		 */
+		CharSet complement() {
+			boolean[] covered = new boolean[Character.MAX_VALUE + 1];
+			CharSet complement = new CharSet();
+
+			for (int i = 0; i < rangesCount; i++) {
+				for (int c = ranges[i * 2]; c <= ranges[i * 2 + 1]; c++) {
+					covered[c] = true;
+				}
+			}
+
+			int rangeStart = -1;
+
+			for (int c = 0; c <= Character.MAX_VALUE; c++) {
+				if (!covered[c] && rangeStart < 0)
+					rangeStart = c;
+
+				if (covered[c] && rangeStart >= 0) {
+					complement.addRange((char) rangeStart, (char) (c - 1));
+					rangeStart = -1;
+				}
+			}
+
+			if (rangeStart >= 0)
+				complement.addRange((char) rangeStart, Character.MAX_VALUE);
+
+			return complement;
+		}
+
+		void negate() {
+			negated = !negated;
+		}
+
+		boolean contains(char c) {
+			for (int i = 0; i < rangesCount; i++) {
+				if (c >= ranges[i * 2] && c <= ranges[i * 2 + 1])
+					return !negated;
+			}
+
+			return negated;
+		}
+	}
+
+	/**
+	 * Instruction of the automaton program.
+	 */
+	static final class Instruction {
+		private int opcode;
+		private int operand1;
+		private int operand2;
+		private CharSet charSet;
+	}
+
+	/**
+	 * The program of the automaton, built while visiting the syntax tree.
+	 */
+	static final class Program {
+		private final List<Instruction> instructions = new ArrayList<Instruction>();
+
+		int add(int opcode, int operand1, int operand2, CharSet charSet) {
+			if (instructions.size() >= MAX_PROGRAM_SIZE)
+				throw new IllegalArgumentException("Regular expression is too large.");
+
+			Instruction instruction = new Instruction();
+
+			instruction.opcode = opcode;
+			instruction.operand1 = operand1;
+			instruction.operand2 = operand2;
+			instruction.charSet = charSet;
+			instructions.add(instruction);
+
+			return instructions.size() - 1;
+		}
+
+		void patch(int pc, int operand1, int operand2) {
+			Instruction instruction = instructions.get(pc);
+
+			instruction.operand1 = operand1;
+			instruction.operand2 = operand2;
+		}
+
+		int size() {
+			return instructions.size();
+		}
+	}
+
+	/**
+	 * Node of the syntax tree.
+	 */
+	abstract static class Node {
+		abstract void emit(Program program);
+	}
+
+	static final class CharNode extends Node {
+		private final CharSet charSet;
+
+		CharNode(CharSet charSet) {
+			this.charSet = charSet;
+		}
+
+		@Override
+		void emit(Program program) {
+			program.add(CHAR, 0, 0, charSet);
+		}
+	}
+
+	static final class AssertNode extends Node {
+		private final int opcode;
+
+		AssertNode(int opcode) {
+			this.opcode = opcode;
+		}
+
+		@Override
+		void emit(Program program) {
+			program.add(opcode, 0, 0, null);
+		}
+	}
+
+	static final class ConcatNode extends Node {
+		private final List<Node> nodes;
+
+		ConcatNode(List<Node> nodes) {
+			this.nodes = nodes;
+		}
+
+		@Override
+		void emit(Program program) {
+			for (Node node : nodes) {
+				node.emit(program);
+			}
+		}
+	}
+
+	static final class AlternationNode extends Node {
+		private final List<Node> alternatives;
+
+		AlternationNode(List<Node> alternatives) {
+			this.alternatives = alternatives;
+		}
+
+		@Override
+		void emit(Program program) {
+			List<Integer> jumps = new ArrayList<Integer>();
+
+			for (int i = 0; i < alternatives.size() - 1; i++) {
+				int split = program.add(SPLIT, 0, 0, null);
+
+				alternatives.get(i).emit(program);
+				jumps.add(program.add(JUMP, 0, 0, null));
+				program.patch(split, split + 1, program.size());
+			}
+
+			alternatives.get(alternatives.size() - 1).emit(program);
+
+			for (int jump : jumps) {
+				program.patch(jump, program.size(), 0);
+			}
+		}
+	}
+
+	static final class RepeatNode extends Node {
+		private final Node node;
+		private final int min;
+		/** Maximum number of repetitions, -1 if unbounded. */
+		private final int max;
+
+		RepeatNode(Node node, int min, int max) {
+			this.node = node;
+			this.min = min;
+			this.max = max;
+		}
+
+		@Override
+		void emit(Program program) {
+			for (int i = 0; i < min; i++) {
+				node.emit(program);
+			}
+
+			if (max < 0) {
+				// L1: split L2, L3; L2: node; jump L1; L3:
+				int split = program.add(SPLIT, 0, 0, null);
+
+				node.emit(program);
+				program.add(JUMP, split, 0, null);
+				program.patch(split, split + 1, program.size());
+				return;
+			}
+
+			List<Integer> splits = new ArrayList<Integer>();
+
+			for (int i = min; i < max; i++) {
+				splits.add(program.add(SPLIT, 0, 0, null));
+				node.emit(program);
+			}
+
+			for (int split : splits) {
+				program.patch(split, split + 1, program.size());
+			}
+		}
+	}
+
+	/**
+	 * Recursive descent parser of the supported syntax.
+	 */
+	static final class Parser {
+		private final String regExp;
+		private int position;
+
+		Parser(String regExp) {
+			this.regExp = regExp;
+		}
+
+		Node parse() {
+			Node node = parseAlternation();
+
+			if (position < regExp.length())
+				throw error("Unmatched closing ')'");
+
+			return node;
+		}
+
+		private Node parseAlternation() {
+			List<Node> alternatives = new ArrayList<Node>();
+
+			alternatives.add(parseConcatenation());
+
+			while (position < regExp.length() && regExp.charAt(position) == '|') {
+				position++;
+				alternatives.add(parseConcatenation());
+			}
+
+			return alternatives.size() == 1 ? alternatives.get(0)
+					: new AlternationNode(alternatives);
+		}
+
+		private Node parseConcatenation() {
+			List<Node> nodes = new ArrayList<Node>();
+
+			while (position < regExp.length()) {
+				char currentChar = regExp.charAt(position);
+
+				if (currentChar == '|' || currentChar == ')')
+					break;
+
+				nodes.add(parseQuantified(parseAtom()));
+			}
+
+			return new ConcatNode(nodes);
+		}
+
+		private Node parseQuantified(Node atom) {
+			while (position < regExp.length()) {
+				char currentChar = regExp.charAt(position);
+				int min, max;
+
+				if (currentChar == '*') {
+					min = 0;
+					max = -1;
+					position++;
+				} else if (currentChar == '+') {
+					min = 1;
+					max = -1;
+					position++;
+				} else if (currentChar == '?') {
+					min = 0;
+					max = 1;
+					position++;
+				} else if (currentChar == '{') {
+					int closing = regExp.indexOf('}', position);
+
+					if (closing < 0)
+						throw error("Unclosed counted repetition");
+
+					String[] bounds = regExp.substring(position + 1, closing).split(",", -1);
+
+					try {
+						min = Integer.parseInt(bounds[0]);
+						max = bounds.length == 1 ? min : bounds[1].isEmpty() ? -1 : Integer
+								.parseInt(bounds[1]);
+					} catch (NumberFormatException e) {
+						throw error("Illegal counted repetition");
+					}
+
+					if (bounds.length > 2 || (max >= 0 && max < min))
+						throw error("Illegal counted repetition");
+
+					position = closing + 1;
+				} else {
+					return atom;
+				}
+
+				if (position < regExp.length() && regExp.charAt(position) == '+')
+					throw error("Possessive quantifiers are not supported");
+
+				// reluctant quantifiers match the same values as greedy ones
+				if (position < regExp.length() && regExp.charAt(position) == '?')
+					position++;
+
+				atom = new RepeatNode(atom, min, max);
+			}
+
+			return atom;
+		}
+
+		private Node parseAtom() {
+			char currentChar = regExp.charAt(position++);
+
+			switch (currentChar) {
+			case '(':
+				return parseGroup();
+			case '[':
+				return new CharNode(parseCharClass());
+			case '.':
+				CharSet anyChar = CharSet.of('\n', '\n');
+
+				anyChar.addRange('\r', '\r');
+				anyChar.addRange('\u0085', '\u0085');
+				anyChar.addRange('\u2028', '\u2029');
+				anyChar.negate();
+
+				return new CharNode(anyChar);
+			case '^':
+				return new AssertNode(ASSERT_START);
+			case '$':
+				return new AssertNode(ASSERT_END);
+			case '\\':
+				if (regExp.startsWith("Q", position))
+					return parseQuotation();
+
+				return new CharNode(parseEscape(false));
+			case '*':
+			case '+':
+			case '?':
+			case '{':
+				throw error("Dangling meta character '" + currentChar + "'");
+			default:
+				return new CharNode(CharSet.of(currentChar, currentChar));
+			}
+		}
+
+		/**
+		 * Parses the literal text quoted between '\Q' and '\E', like the one
+		 * produced by {@link java.util.regex.Pattern#quote(String)}.
+		 */
+		private Node parseQuotation() {
+			int quotationEnd = regExp.indexOf("\\E", ++position);
+
+			if (quotationEnd < 0)
+				quotationEnd = regExp.length();
+
+			List<Node> nodes = new ArrayList<Node>();
+
+			for (; position < quotationEnd; position++) {
+				char currentChar = regExp.charAt(position);
+
+				nodes.add(new CharNode(CharSet.of(currentChar, currentChar)));
+			}
+
+			position = Math.min(quotationEnd + 2, regExp.length());
+
+			// a quantifier would apply only to the last quoted character
+			if (position < regExp.length() && "*+?{".indexOf(regExp.charAt(position)) >= 0)
+				throw error("Quantified quotations are not supported");
+
+			return new ConcatNode(nodes);
+		}
+
+		private Node parseGroup() {
+			if (regExp.startsWith("?:", position)) {
+				position += 2;
+			} else if (regExp.startsWith("?<", position) && position + 2 < regExp.length()
+					&& Character.isLetter(regExp.charAt(position + 2))) {
+				int closing = regExp.indexOf('>', position);
+
+				if (closing < 0)
+					throw error("Unclosed group name");
+
+				position = closing + 1;
+			} else if (regExp.startsWith("?", position)) {
+				throw error("Special groups are not supported");
+			}
+
+			Node node = parseAlternation();
+
+			if (position >= regExp.length() || regExp.charAt(position) != ')')
+				throw error("Unclosed group");
+
+			position++;
+
+			return node;
+		}
+
+		private CharSet parseCharClass() {
+			CharSet charSet = new CharSet();
+			boolean negated = false;
+			boolean first = true;
+
+			if (position < regExp.length() && regExp.charAt(position) == '^') {
+				negated = true;
+				position++;
+			}
+
+			while (true) {
+				if (position >= regExp.length())
+					throw error("Unclosed character class");
+
+				char currentChar = regExp.charAt(position++);
+
+				if (currentChar == ']' && !first)
+					break;
+
+				first = false;
+
+				if (currentChar == '[' || (currentChar == '&' && position < regExp.length()
+						&& regExp.charAt(position) == '&'))
+					throw error("Nested character classes are not supported");
+
+				CharSet item;
+
+				if (currentChar == '\\') {
+					item = parseEscape(true);
+				} else {
+					item = CharSet.of(currentChar, currentChar);
+				}
+
+				boolean isRange = item.rangesCount == 1 && item.ranges[0] == item.ranges[1]
+						&& position + 1 < regExp.length() && regExp.charAt(position) == '-'
+						&& regExp.charAt(position + 1) != ']';
+
+				if (!isRange) {
+					charSet.addAll(item);
+					continue;
+				}
+
+				position++;
+
+				char upperChar = regExp.charAt(position++);
+				char upperBound = upperChar;
+
+				if (upperChar == '\\') {
+					CharSet upperItem = parseEscape(true);
+
+					if (upperItem.rangesCount != 1 || upperItem.ranges[0] != upperItem.ranges[1])
+						throw error("Illegal character range");
+
+					upperBound = upperItem.ranges[0];
+				}
+
+				if (upperBound < item.ranges[0])
+					throw error("Illegal character range");
+
+				charSet.addRange(item.ranges[0], upperBound);
+			}
+
+			if (negated)
+				charSet.negate();
+
+			return charSet;
+		}
+
+		private CharSet parseEscape(boolean inCharClass) {
+			if (position >= regExp.length())
+				throw error("Unexpected end of expression");
+
+			char escaped = regExp.charAt(position++);
+
+			switch (escaped) {
+			case 'd':
+				return digits();
+			case 'D':
+				return digits().complement();
+			case 'w':
+				return wordChars();
+			case 'W':
+				return wordChars().complement();
+			case 's':
+				return spaces();
+			case 'S':
+				return spaces().complement();
+			case 't':
+				return CharSet.of('\t', '\t');
+			case 'n':
+				return CharSet.of('\n', '\n');
+			case 'r':
+				return CharSet.of('\r', '\r');
+			case 'f':
+				return CharSet.of('\f', '\f');
+			case 'a':
+				return CharSet.of('\u0007', '\u0007');
+			case 'e':
+				return CharSet.of('\u001B', '\u001B');
+			case 'x':
+				return parseHexEscape(2);
+			case 'u':
+				return parseHexEscape(4);
+			default:
+				break;
+			}
+
+			if (Character.isLetterOrDigit(escaped))
+				throw error("Escape sequence '\\" + escaped + "' is not supported");
+
+			return CharSet.of(escaped, escaped);
+		}
+
+		private CharSet parseHexEscape(int digits) {
+			if (position + digits > regExp.length())
+				throw error("Illegal hexadecimal escape sequence");
+
+			try {
+				char c = (char) Integer.parseInt(regExp.substring(position, position + digits),
+						16);
+
+				position += digits;
+
+				return CharSet.of(c, c);
+			} catch (NumberFormatException e) {
+				throw error("Illegal hexadecimal escape sequence");
+			}
+		}
+
+		private static CharSet digits() {
+			return CharSet.of('0', '9');
+		}
+
+		private static CharSet wordChars() {
+			CharSet charSet = CharSet.of('a', 'z');
+
+			charSet.addRange('A', 'Z');
+			charSet.addRange('_', '_');
+			charSet.addRange('0', '9');
+
+			return charSet;
+		}
+
+		private static CharSet spaces() {
+			CharSet charSet = CharSet.of(' ', ' ');
+
+			charSet.addRange('\t', '\r');
+
+			return charSet;
+		}
+
+		private IllegalArgumentException error(String message) {
+			return new IllegalArgumentException(message + " near index " + position + ": "
+					+ regExp);
+		}
+	}
+}
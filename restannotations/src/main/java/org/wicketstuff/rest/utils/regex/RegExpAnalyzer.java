@@ -0,0 +1,165 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.regex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Static checks on regular expressions used to spot patterns that can make a
+ * backtracking engine take exponential time.
+ *
+ * @author andrea del bene
+ *
+ */
+public class RegExpAnalyzer {
+	/** The expression has no quantifier at the current position. */
+	private static final int NO_QUANTIFIER = 0;
+	/** A quantifier that matches its operand at most once (e.g. '?'). */
+	private static final int OPTIONAL_QUANTIFIER = 1;
+	/** A quantifier with a finite upper bound greater than one. */
+	private static final int BOUNDED_QUANTIFIER = 2;
+	/** A quantifier without upper bound (e.g. '*', '+'). */
+	private static final int UNBOUNDED_QUANTIFIER = 3;
+
+	/**
+	 * Checks if the given expression contains a group with an unbounded
+	 * quantifier that is itself repeated by another quantifier, like in
+	 * '(a+)+' or '(\w*\s?)*'. This kind of pattern is the most common cause of
+	 * catastrophic backtracking.
+	 *
+	 * @param regExp
+	 *            the regular expression.
+	 * @return true if the expression contains nested quantifiers.
+	 */
+	public static boolean hasNestedQuantifiers(String regExp) {
+		// for every open group, tells if it contains an unbounded quantifier
+		List<Boolean> groups = new ArrayList<Boolean>();
+		groups.add(Boolean.FALSE);
+
+		int i = 0;
+
+		while (i < regExp.length()) {
+			char currentChar = regExp.charAt(i);
+
+			if (currentChar == '\\') {
+				i += 2;
+			} else if (currentChar == '[') {
+				i = skipCharClass(regExp, i);
+			} else if (currentChar == '(') {
+				groups.add(Boolean.FALSE);
+				i++;
+				continue;
+			} else if (currentChar == ')' && groups.size() > 1) {
+				boolean innerUnbounded = groups.remove(groups.size() - 1);
+				int quantifier = quantifierAt(regExp, i + 1);
+
+				if (innerUnbounded && quantifier >= BOUNDED_QUANTIFIER)
+					return true;
+
+				if (innerUnbounded || quantifier == UNBOUNDED_QUANTIFIER)
+					groups.set(groups.size() - 1, Boolean.TRUE);
+
+				i = skipQuantifier(regExp, i + 1);
+				continue;
+			} else {
+				i++;
+			}
+
+			if (quantifierAt(regExp, i) == UNBOUNDED_QUANTIFIER)
+				groups.set(groups.size() - 1, Boolean.TRUE);
+
+			i = skipQuantifier(regExp, i);
+		}
+
+		return false;
+	}
+
+	/**
+	 * Gets the index following the character class starting at the given
+	 * index.
+	 */
+	private static int skipCharClass(String regExp, int start) {
+		int i = start + 1;
+
+		if (i < regExp.length() && regExp.charAt(i) == '^')
+			i++;
+
+		// a closing bracket right after the opening one is a literal
+		if (i < regExp.length() && regExp.charAt(i) == ']')
+			i++;
+
+		while (i < regExp.length() && regExp.charAt(i) != ']') {
+			i += regExp.charAt(i) == '\\' ? 2 : 1;
+		}
+
+		return i + 1;
+	}
+
+	/**
+	 * Gets the kind of quantifier found at the given index.
+	 */
+	private static int quantifierAt(String regExp, int index) {
+		if (index >= regExp.length())
+			return NO_QUANTIFIER;
+
+		char currentChar = regExp.charAt(index);
+
+		if (currentChar == '*' || currentChar == '+')
+			return UNBOUNDED_QUANTIFIER;
+
+		if (currentChar == '?')
+			return OPTIONAL_QUANTIFIER;
+
+		if (currentChar != '{')
+			return NO_QUANTIFIER;
+
+		int closing = regExp.indexOf('}', index);
+
+		if (closing < 0)
+			return NO_QUANTIFIER;
+
+		String[] bounds = regExp.substring(index + 1, closing).split(",", -1);
+
+		try {
+			if (bounds.length == 2 && bounds[1].isEmpty())
+				return UNBOUNDED_QUANTIFIER;
+
+			int max = Integer.parseInt(bounds[bounds.length - 1].trim());
+
+			return max > 1 ? BOUNDED_QUANTIFIER : OPTIONAL_QUANTIFIER;
+		} catch (NumberFormatException e) {
+			return NO_QUANTIFIER;
+		}
+	}
+
+	/**
+	 * Gets the index following the quantifier (and its optional reluctant or
+	 * possessive modifier) found at the given index.
+	 */
+	private static int skipQuantifier(String regExp, int index) {
+		if (quantifierAt(regExp, index) == NO_QUANTIFIER)
+			return index;
+
+		int i = regExp.charAt(index) == '{' ? regExp.indexOf('}', index) + 1 : index + 1;
+
+		if (i < regExp.length() && (regExp.charAt(i) == '?' || regExp.charAt(i) == '+'))
+			i++;
+
+		return i;
+	}
+}
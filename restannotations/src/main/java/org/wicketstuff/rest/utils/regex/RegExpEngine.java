@@ -0,0 +1,38 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.utils.regex;
+
+/**
+ * Engines available to match path parameters with custom regular
+ * expressions.
+ *
+ * @author andrea del bene
+ *
+ */
+public enum RegExpEngine {
+	/**
+	 * The backtracking engine of {@link java.util.regex.Pattern}. It supports
+	 * the whole regular expressions syntax, but badly written patterns can take
+	 * exponential time to match.
+	 */
+	JDK,
+	/**
+	 * A linear-time engine (see {@link LinearRegExp}). Expressions using
+	 * constructs it doesn't support are matched with {@link #JDK}.
+	 */
+	LINEAR
+}
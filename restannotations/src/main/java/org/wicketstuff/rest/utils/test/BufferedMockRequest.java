@@ -17,17 +17,20 @@
 package org.wicketstuff.rest.utils.test;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.StringReader;
 
 import javax.servlet.ServletContext;
+import javax.servlet.ServletInputStream;
 import javax.servlet.http.HttpSession;
 
 import org.apache.wicket.Application;
 import org.apache.wicket.protocol.http.mock.MockHttpServletRequest;
 
 /**
- * Mock request that allows to use a custom BufferedReader as request body.
+ * Mock request that allows to use a custom BufferedReader or an array of
+ * bytes as request body.
  * 
  * @author andrea del bene
  *
@@ -35,6 +38,10 @@ import org.apache.wicket.protocol.http.mock.MockHttpServletRequest;
 public class BufferedMockRequest extends MockHttpServletRequest {
 	BufferedReader reader;
 	
+	String contentType;
+	
+	byte[] binaryBody;
+	
 	public BufferedMockRequest(Application application, HttpSession session, ServletContext context, String httpMethod) {
 		super(application, session, context);
 		setMethod(httpMethod);
@@ -55,4 +62,40 @@ public class BufferedMockRequest extends MockHttpServletRequest {
 	public void setTextAsRequestBody(String requestBody) {
 		this.reader = new BufferedReader(new StringReader(requestBody));
 	}
+	
+	@Override
+	public ServletInputStream getInputStream() throws IOException {
+		if(binaryBody == null)
+			return super.getInputStream();
+		
+		final ByteArrayInputStream inputStream = new ByteArrayInputStream(binaryBody);
+		
+		return new ServletInputStream() {
+			@Override
+			public int read() throws IOException {
+				return inputStream.read();
+			}
+			
+			@Override
+			public int read(byte[] buffer, int offset, int length) throws IOException {
+				return inputStream.read(buffer, offset, length);
+			}
+		};
+	}
+
+	public void setBinaryRequestBody(byte[] binaryBody) {
+		this.binaryBody = binaryBody;
+	}
+	
+	@Override
+	public String getContentType() {
+		if(contentType != null)
+			return contentType;
+		
+		return super.getContentType();
+	}
+
+	public void setContentType(String contentType) {
+		this.contentType = contentType;
+	}
 }
@@ -21,26 +21,75 @@ import static org.junit.Assert.assertEquals;
 import java.io.BufferedReader;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
 
 import javax.servlet.http.Cookie;
 import javax.xml.bind.JAXB;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.stream.StreamResult;
 
 import junit.framework.Assert;
 
+import org.apache.wicket.ConverterLocator;
+import org.apache.wicket.IConverterLocator;
 import org.apache.wicket.Session;
+import org.apache.wicket.ThreadContext;
 import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.authroles.authorization.strategies.role.Roles;
+import org.apache.wicket.mock.MockWebResponse;
+import org.apache.wicket.protocol.http.servlet.ServletWebRequest;
+import org.apache.wicket.request.http.WebRequest;
+import org.apache.wicket.request.http.WebResponse;
+import org.apache.wicket.util.convert.IConverter;
+import org.apache.wicket.util.io.IOUtils;
 import org.apache.wicket.util.tester.WicketTester;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.wicketstuff.rest.annotations.MethodMapping;
 import org.wicketstuff.rest.annotations.parameters.RequestBody;
+import org.wicketstuff.rest.contenthandling.IObjectSerialDeserial;
 import org.wicketstuff.rest.contenthandling.RestMimeTypes;
+import org.wicketstuff.rest.contenthandling.SerialDeserialUtils;
+import org.wicketstuff.rest.contenthandling.serialdeserial.JaxbSerialDeserial;
+import org.wicketstuff.rest.contenthandling.serialdeserial.MultiFormatSerialDeserial;
 import org.wicketstuff.rest.contenthandling.serialdeserial.TestJsonDesSer;
+import org.wicketstuff.rest.resource.AmbiguousRestResource;
+import org.wicketstuff.rest.resource.MethodMappingInfo;
+import org.wicketstuff.rest.resource.MultiFormatRestResource;
+import org.wicketstuff.rest.resource.PrivateMethodRestResource;
+import org.wicketstuff.rest.resource.RegExpRestResource;
 import org.wicketstuff.rest.resource.RestResourceFullAnnotated;
+import org.wicketstuff.rest.resource.RestResourceSettings;
+import org.wicketstuff.rest.resource.RouteModel;
+import org.wicketstuff.rest.resource.StaleDispatchedRestResource;
+import org.wicketstuff.rest.resource.UnsafeRegExpRestResource;
+import org.wicketstuff.rest.resource.routing.CombinedRouteMatcher;
+import org.wicketstuff.rest.resource.routing.RouteMatchingEngine;
+import org.wicketstuff.rest.resource.routing.RouteResolutionCache;
+import org.wicketstuff.rest.resource.routing.UnmatchedRoutesFilter;
+import org.wicketstuff.rest.utils.collections.ConcurrentLruCache;
+import org.wicketstuff.rest.utils.http.HttpMethod;
+import org.wicketstuff.rest.utils.http.HttpUtils;
+import org.wicketstuff.rest.utils.reflection.IMethodInvoker;
+import org.wicketstuff.rest.utils.reflection.MethodParameter;
+import org.wicketstuff.rest.utils.reflection.MethodParameter.ValueSource;
+import org.wicketstuff.rest.utils.reflection.ReflectionUtils;
+import org.wicketstuff.rest.utils.reflection.ReflectiveMethodInvoker;
+import org.wicketstuff.rest.utils.reflection.ResourceDispatchers;
+import org.wicketstuff.rest.utils.regex.RegExpEngine;
 import org.wicketstuff.rest.utils.test.BufferedMockRequest;
 
 /**
@@ -49,6 +98,8 @@ import org.wicketstuff.rest.utils.test.BufferedMockRequest;
 public class TestRestResources {
 	private WicketTester tester;
 	private Roles roles = new Roles();
+	/** Field used to get the generic type List<Person> */
+	private List<Person> personList;
 
 	@Rule
 	public ExpectedException exception = ExpectedException.none();
@@ -116,6 +167,466 @@ public class TestRestResources {
 		testIfResponseStringIsEqual("testRequiredDefault");
 	}
 
+	@Test
+	public void testMethodParametersBindingPlan() throws Exception {
+		Method method = RestResourceFullAnnotated.class.getMethod("testMethodCookieParameter",
+				String.class, int.class, float.class);
+		MethodMappingInfo mappedMethod = new MethodMappingInfo(
+				method.getAnnotation(MethodMapping.class), method);
+		MethodParameter[] methodParameters = mappedMethod.getMethodParameters();
+
+		assertEquals(3, methodParameters.length);
+		assertEquals(ValueSource.COOKIE_PARAM, methodParameters[0].getValueSource());
+		assertEquals("name", methodParameters[0].getValueName());
+		// not annotated parameters are bound to path parameters by position
+		assertEquals(ValueSource.PATH_POSITION, methodParameters[1].getValueSource());
+		assertEquals(0, methodParameters[1].getValueIndex());
+		assertEquals(ValueSource.MATRIX_PARAM, methodParameters[2].getValueSource());
+		assertEquals("height", methodParameters[2].getValueName());
+		assertEquals(1, methodParameters[2].getValueIndex());
+
+		method = RestResourceFullAnnotated.class.getMethod("testRequiredDefault", String.class,
+				boolean.class, float.class, int.class);
+		methodParameters = new MethodMappingInfo(method.getAnnotation(MethodMapping.class),
+				method).getMethodParameters();
+
+		Assert.assertFalse(methodParameters[0].isRequired());
+		Assert.assertFalse(methodParameters[0].hasDefaultValue());
+		// locale-independent defaults are converted once
+		assertEquals(Boolean.TRUE, methodParameters[1].getConvertedDefaultValue());
+		assertEquals(0, methodParameters[3].getConvertedDefaultValue());
+		// decimal defaults depend on the locale of the request
+		Assert.assertNull(methodParameters[2].getConvertedDefaultValue());
+		assertEquals("12.6", methodParameters[2].getDeaultValue());
+	}
+
+	@Test
+	public void testMethodInvoker() throws Exception {
+		Method method = RestResourceFullAnnotated.class.getMethod("testMethodNoArgs");
+		IMethodInvoker invoker = new MethodMappingInfo(method.getAnnotation(MethodMapping.class),
+				method).getInvoker();
+
+		assertEquals("testMethodNoArgs", invoker.invoke(new RestResourceFullAnnotated(
+				new TestJsonDesSer(), (WicketApplication) tester.getApplication()), new Object[0]));
+
+		// exceptions thrown by the invoked method are not wrapped
+		invoker = new ReflectiveMethodInvoker(Integer.class.getMethod("parseInt", String.class));
+		exception.expect(NumberFormatException.class);
+		invoker.invoke(null, new Object[] { "notanumber" });
+	}
+
+	@Test
+	public void testStaleDispatcher() throws Exception {
+		// different classes never share the same dispatcher
+		Assert.assertFalse(ResourceDispatchers.getDispatcherClassName("a.B$C").equals(
+				ResourceDispatchers.getDispatcherClassName("a.B_C")));
+		Assert.assertFalse(ResourceDispatchers.getDispatcherClassName("a.B_$C").equals(
+				ResourceDispatchers.getDispatcherClassName("a.B$_C")));
+		assertEquals("a_b.B__C_0D_RestDispatcher",
+				ResourceDispatchers.getDispatcherClassName("a_b.B_C$D"));
+
+		// the dispatcher describes getValue(int), while the class declares
+		// getValue(String)
+		Assert.assertNotNull(ResourceDispatchers.findDispatcher(StaleDispatchedRestResource.class));
+
+		StaleDispatchedRestResource resource = new StaleDispatchedRestResource(
+				new TestJsonDesSer());
+		List<MethodMappingInfo> mappedMethods = resource.getRouteModel().getMappedMethods();
+
+		assertEquals(1, mappedMethods.size());
+		assertEquals(String.class, mappedMethods.get(0).getMethodParameters()[0]
+				.getParameterClass());
+		Assert.assertTrue(mappedMethods.get(0).getInvoker() instanceof ReflectiveMethodInvoker);
+		assertEquals("value", mappedMethods.get(0).getInvoker()
+				.invoke(resource, new Object[] { "value" }));
+	}
+
+	@Test
+	public void testSharedRouteModel() {
+		WicketApplication application = (WicketApplication) tester.getApplication();
+		RestResourceFullAnnotated resource = new RestResourceFullAnnotated(new TestJsonDesSer(),
+				application);
+		RestResourceFullAnnotated otherResource = new RestResourceFullAnnotated(
+				new TestJsonDesSer(), application);
+
+		Assert.assertSame(resource.getRouteModel(), otherResource.getRouteModel());
+
+		RestResourceFullAnnotated combinedResource = new RestResourceFullAnnotated(
+				new TestJsonDesSer(), application, new RestResourceSettings()
+						.setRouteMatchingEngine(RouteMatchingEngine.COMBINED_PATTERN));
+
+		Assert.assertNotSame(resource.getRouteModel(), combinedResource.getRouteModel());
+	}
+
+	@Test
+	public void testRouteModelsDontPinClassLoaders() throws Exception {
+		ClassLoader classLoader = new ChildFirstClassLoader(RegExpRestResource.class);
+		WeakReference<ClassLoader> loaderReference = new WeakReference<ClassLoader>(classLoader);
+		Class<?> resourceClass = classLoader.loadClass(RegExpRestResource.class.getName());
+
+		Assert.assertNotSame(RegExpRestResource.class, resourceClass);
+		Assert.assertFalse(RouteModel.forClass(resourceClass, new RestResourceSettings())
+				.getMappedMethods().isEmpty());
+
+		// once the model isn't used any more, the class loader can be collected
+		classLoader = null;
+		resourceClass = null;
+
+		for (int i = 0; i < 20 && loaderReference.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+
+		Assert.assertNull(loaderReference.get());
+	}
+
+	@Test
+	public void testConvertersOfEachApplication() throws Exception {
+		RouteModel routeModel = RouteModel.forClass(RestResourceFullAnnotated.class,
+				new RestResourceSettings());
+		MethodParameter titleParameter = null;
+
+		for (MethodMappingInfo mappedMethod : routeModel.getMappedMethods()) {
+			if (mappedMethod.getMethodName().equals("testPostRequestParameter"))
+				titleParameter = mappedMethod.getMethodParameters()[1];
+		}
+
+		Assert.assertEquals("title", titleParameter.getConverter().convertToObject("title",
+				Locale.ENGLISH));
+
+		// the model is shared, but converters come from the current application
+		ThreadContext threadContext = ThreadContext.get(false);
+		WicketTester otherTester = new WicketTester(new WicketApplication(roles) {
+			@Override
+			protected IConverterLocator newConverterLocator() {
+				ConverterLocator converterLocator = new ConverterLocator();
+
+				converterLocator.set(String.class, new IConverter<String>() {
+					@Override
+					public String convertToObject(String value, Locale locale) {
+						return value.toUpperCase(locale);
+					}
+
+					@Override
+					public String convertToString(String value, Locale locale) {
+						return value;
+					}
+				});
+
+				return converterLocator;
+			}
+		});
+
+		try {
+			Assert.assertSame(routeModel, RouteModel.forClass(RestResourceFullAnnotated.class,
+					new RestResourceSettings()));
+			Assert.assertEquals("TITLE", titleParameter.getConverter().convertToObject("title",
+					Locale.ENGLISH));
+		} finally {
+			otherTester.destroy();
+			ThreadContext.restore(threadContext);
+		}
+
+		Assert.assertEquals("title", titleParameter.getConverter().convertToObject("title",
+				Locale.ENGLISH));
+	}
+
+	@Test
+	public void testSerializedTypes() throws Exception {
+		RouteModel routeModel = RouteModel.forClass(RestResourceFullAnnotated.class,
+				new RestResourceSettings());
+		Method streamedPersons = RestResourceFullAnnotated.class.getMethod("testStreamedPersons");
+
+		Assert.assertEquals(Iterator.class,
+				ReflectionUtils.getRawClass(streamedPersons.getGenericReturnType()));
+		Assert.assertTrue(routeModel.getSerializedTypes().contains(Person.class));
+		Assert.assertFalse(routeModel.getSerializedTypes().contains(
+				streamedPersons.getGenericReturnType()));
+	}
+
+	@Test
+	public void testMostSuitedMethodSelection() {
+		// the method with the highest total score wins, even if the first
+		// segment of the other method is a fixed one.
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./api/scoring/deep/route");
+		testIfResponseStringIsEqual("testHighestScoreFixedSegments");
+
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./api/scoring/shallow/route");
+		testIfResponseStringIsEqual("testHighestScoreParamSegments");
+
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./api/other/deep/route");
+		testIfResponseStringIsEqual("testHighestScoreFixedSegments");
+
+		// no method mapped for PUT
+		tester.getRequest().setMethod("PUT");
+		tester.executeUrl("./api/scoring/deep/route");
+		Assert.assertEquals(400, tester.getLastResponse().getStatus());
+	}
+
+	@Test
+	public void testRouteResolutionCache() {
+		WicketApplication application = (WicketApplication) tester.getApplication();
+		RouteResolutionCache routeCache = application.getCachedRoutesResource()
+				.getRouteResolutionCache();
+
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./apicache/12345");
+		testIfResponseStringIsEqual("12345");
+
+		assertEquals(0, routeCache.getHitCount());
+		assertEquals(1, routeCache.getMissCount());
+
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./apicache/12345");
+		testIfResponseStringIsEqual("12345");
+
+		assertEquals(1, routeCache.getHitCount());
+		assertEquals(1, routeCache.size());
+
+		// path parameters are cached with the route
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./apicache/54321");
+		testIfResponseStringIsEqual("54321");
+		assertEquals(2, routeCache.size());
+
+		// testMethodNotCached has opted out of caching
+		tester.getRequest().setMethod("POST");
+		tester.executeUrl("./apicache/uncached");
+		testIfResponseStringIsEqual("testMethodNotCached");
+		assertEquals(2, routeCache.size());
+
+		tester.getRequest().setMethod("POST");
+		tester.executeUrl("./apicache/monoseg");
+		testIfResponseStringIsEqual("testMethodPostSegFixed");
+		assertEquals(3, routeCache.size());
+	}
+
+	@Test
+	public void testLruCacheCapacity() {
+		ConcurrentLruCache<String, Integer> cache = new ConcurrentLruCache<String, Integer>(100);
+
+		for (int i = 0; i < 1000; i++) {
+			cache.put("key" + i, i);
+		}
+
+		// stripes never hold more entries than the maximum size
+		assertEquals(100, cache.size());
+
+		// small caches evict the least recently used entry of the whole cache
+		cache = new ConcurrentLruCache<String, Integer>(3);
+		cache.put("a", 1);
+		cache.put("b", 2);
+		cache.put("c", 3);
+		cache.get("a");
+		cache.put("d", 4);
+
+		assertEquals(3, cache.size());
+		assertEquals(Integer.valueOf(1), cache.get("a"));
+		Assert.assertNull(cache.get("b"));
+		assertEquals(Integer.valueOf(4), cache.get("d"));
+	}
+
+	@Test
+	public void testUnmatchedRoutesRejection() {
+		WicketApplication application = (WicketApplication) tester.getApplication();
+		UnmatchedRoutesFilter routesFilter = application.getCachedRoutesResource()
+				.getUnmatchedRoutesFilter();
+
+		// no GET method starts with 'wp-admin'
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./apicache/wp-admin/setup.php");
+		Assert.assertEquals(400, tester.getLastResponse().getStatus());
+		assertEquals(1, routesFilter.getFastRejectCount());
+
+		// no GET method with 5 segments
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./apicache/a/b/c/d/e");
+		Assert.assertEquals(400, tester.getLastResponse().getStatus());
+		assertEquals(2, routesFilter.getFastRejectCount());
+
+		// '/{prefix}/deep/route' starts with a parameter, hence the request
+		// must be matched once before being remembered as rejected.
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./apicache/a/b/c");
+		Assert.assertEquals(400, tester.getLastResponse().getStatus());
+		assertEquals(0, routesFilter.getRecentlyRejectedCount());
+
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./apicache/a/b/c");
+		Assert.assertEquals(400, tester.getLastResponse().getStatus());
+		assertEquals(1, routesFilter.getRecentlyRejectedCount());
+		assertEquals(2, routesFilter.getFastRejectCount());
+	}
+
+	@Test
+	public void testCombinedPatternEngine() {
+		// resources of the same class and settings share the selector of the mounted ones
+		WicketApplication application = (WicketApplication) tester.getApplication();
+		RestResourceSettings settings = new RestResourceSettings()
+				.setRouteMatchingEngine(RouteMatchingEngine.COMBINED_PATTERN);
+		CombinedRouteMatcher selector = (CombinedRouteMatcher) new RestResourceFullAnnotated(
+				new TestJsonDesSer(), application, settings).getRouteModel().getRouteSelector();
+		CombinedRouteMatcher regExpSelector = (CombinedRouteMatcher) new RegExpRestResource(
+				new TestJsonDesSer(), application, settings).getRouteModel().getRouteSelector();
+
+		Assert.assertTrue(selector.isCombined(HttpMethod.GET));
+		Assert.assertTrue(selector.isCombined(HttpMethod.POST));
+		Assert.assertTrue(regExpSelector.isCombined(HttpMethod.GET));
+
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./apicombined");
+		testIfResponseStringIsEqual("testMethodNoArgs");
+
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./apicombined/12345");
+		testIfResponseStringIsEqual("12345");
+
+		// both engines reject line terminators in parameters without regexp
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./api/line%0Abreak/deep/route");
+		int trieStatus = tester.getLastResponse().getStatus();
+
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./apicombined/line%0Abreak/deep/route");
+		Assert.assertEquals(trieStatus, tester.getLastResponse().getStatus());
+		Assert.assertFalse(200 == trieStatus);
+
+		tester.getRequest().setMethod("POST");
+		tester.executeUrl("./apicombined/monoseg");
+		testIfResponseStringIsEqual("testMethodPostSegFixed");
+
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./apicombined/variable/31/order/segtext");
+		testIfResponseStringIsEqual("testParamOutOfOrder");
+
+		tester.getRequest().setMethod("POST");
+		tester.getRequest().setCookies(new Cookie[] { new Cookie("name", "bob") });
+		tester.executeUrl("./apicombined/person/113;height=170");
+		testIfResponseStringIsEqual("testMethodCookieParameter:113bob");
+
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./apicombined/scoring/deep/route");
+		testIfResponseStringIsEqual("testHighestScoreFixedSegments");
+
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./apicombined/scoring/shallow/route");
+		testIfResponseStringIsEqual("testHighestScoreParamSegments");
+
+		tester.getRequest().setMethod("GET");
+		tester.getRequest().setCookies(new Cookie[] { new Cookie("credential", "bob") });
+		tester.executeUrl("./api2combined/recordlog/message/07-23-2007_success");
+		Assert.assertEquals(200, tester.getLastResponse().getStatus());
+
+		tester.getRequest().setMethod("GET");
+		tester.getRequest().setCookies(new Cookie[] { new Cookie("credential", "bob") });
+		tester.executeUrl("./api2combined/recordlog/message/34xxxxx");
+		Assert.assertEquals(400, tester.getLastResponse().getStatus());
+	}
+
+	@Test
+	public void testStatelessMode() {
+		// the locale is read from the Accept-Language header
+		tester.getRequest().setMethod("GET");
+		tester.getRequest().setHeader("Accept-Language", "it-IT");
+		tester.getRequest().setParameter("price", "12,5");
+		tester.executeUrl("./apistateless/pricecheck");
+		testIfResponseStringIsEqual("testLocalizedParameter:12.5");
+
+		tester.getRequest().setMethod("GET");
+		tester.getRequest().setHeader("Accept-Language", "en-US");
+		tester.getRequest().setParameter("price", "12.5");
+		tester.executeUrl("./apistateless/pricecheck");
+		testIfResponseStringIsEqual("testLocalizedParameter:12.5");
+
+		// the fixed locale wins over the request
+		tester.getRequest().setMethod("GET");
+		tester.getRequest().setHeader("Accept-Language", "en-US");
+		tester.getRequest().setParameter("price", "12,5");
+		tester.executeUrl("./apistatelessfixed/pricecheck");
+		testIfResponseStringIsEqual("testLocalizedParameter:12.5");
+
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./apistateless/12345");
+		testIfResponseStringIsEqual("12345");
+
+		// roles are checked with the request, ignoring the role-checking strategy
+		roles.add("ROLE_ADMIN");
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./apistateless/admin");
+		Assert.assertEquals(401, tester.getLastResponse().getStatus());
+
+		tester.getRequest().setMethod("GET");
+		tester.getRequest().setHeader("roles", "ROLE_USER,ROLE_ADMIN");
+		tester.executeUrl("./apistateless/admin");
+		Assert.assertEquals(200, tester.getLastResponse().getStatus());
+		Assert.assertTrue(tester.getSession().isTemporary());
+
+		try {
+			new RestResourceFullAnnotated(new TestJsonDesSer(), null,
+					new RestResourceSettings().setStateless(true));
+			Assert.fail("Stateless resources using AuthorizeInvocation need a request role checker.");
+		} catch (WicketRuntimeException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testStatelessSessionBindingGuard() {
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./apistateless/12345");
+		Assert.assertTrue(tester.getSession().isTemporary());
+
+		try {
+			tester.getRequest().setMethod("GET");
+			tester.executeUrl("./apistateless/session/bind");
+			Assert.fail("Binding the session must be rejected by stateless resources.");
+		} catch (WicketRuntimeException e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains(
+					"A session has been bound while serving a request with a stateless resource."));
+		}
+		
+		// the session has been bound anyway, start again with a temporary one
+		tester.destroy();
+		setUp();
+	}
+
+	@Test
+	public void testRegExpMatchingPolicy() {
+		String evilSegment = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./apiregexpbudget/unsafe/aab");
+		testIfResponseStringIsEqual("aab");
+
+		// the JDK engine exceeds the budget and the request is rejected
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./apiregexpbudget/unsafe/" + evilSegment);
+		Assert.assertEquals(400, tester.getLastResponse().getStatus());
+
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./apiregexplinear/unsafe/aab");
+		testIfResponseStringIsEqual("aab");
+
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./apiregexplinear/unsafe/" + evilSegment);
+		Assert.assertEquals(400, tester.getLastResponse().getStatus());
+
+		try {
+			new UnsafeRegExpRestResource(new TestJsonDesSer(),
+					new RestResourceSettings().setRejectUnsafeRegExps(true));
+			Assert.fail("Regular expressions with nested quantifiers must be rejected.");
+		} catch (WicketRuntimeException e) {
+			// expected
+		}
+
+		// the linear engine can safely match the expression
+		new UnsafeRegExpRestResource(new TestJsonDesSer(), new RestResourceSettings()
+				.setRejectUnsafeRegExps(true).setRegExpEngine(RegExpEngine.LINEAR));
+	}
+
 	@Test
 	public void testJsonDeserializedParamRequest() {
 		// test @RequestBody annotation 
@@ -136,6 +647,58 @@ public class TestRestResources {
 		Assert.assertEquals(TestJsonDesSer.getJSON(), tester.getLastResponseAsString());
 	}
 
+	@Test
+	public void testStreamedResponse() {
+		String json = TestJsonDesSer.getJSON();
+
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./api/persons/stream");
+
+		Assert.assertEquals("[" + json + "," + json + "]", tester.getLastResponseAsString());
+
+		tester.getRequest().setMethod("GET");
+		tester.executeUrl("./api/persons/ndjson");
+
+		Assert.assertEquals(RestMimeTypes.APPLICATION_NDJSON, tester.getLastResponse()
+				.getContentType());
+		Assert.assertEquals(json + "\n" + json + "\n", tester.getLastResponseAsString());
+	}
+
+	@Test
+	public void testStreamedElementsWriting() throws Exception {
+		final List<Type> writtenTypes = new ArrayList<Type>();
+		TestJsonDesSer serialDeserial = new TestJsonDesSer() {
+			@Override
+			public void objectToWriter(Object targetObject, Type targetType, Writer writer,
+					String mimeType) throws Exception {
+				writtenTypes.add(targetType);
+				super.objectToWriter(targetObject, targetType, writer, mimeType);
+			}
+		};
+		String json = TestJsonDesSer.getJSON();
+		Type listType = getClass().getDeclaredField("personList").getGenericType();
+		List<List<Person>> lists = new ArrayList<List<Person>>();
+		MockWebResponse response = new MockWebResponse();
+
+		lists.add(new ArrayList<Person>());
+		lists.add(new ArrayList<Person>());
+		serialDeserial.elementsToResponse(lists.iterator(), listType, response,
+				RestMimeTypes.APPLICATION_JSON, 1);
+
+		// delimiters and elements are written through the same writer
+		Assert.assertEquals("[" + json + "," + json + "]",
+				new String(response.getBinaryResponse(), "UTF-8"));
+		Assert.assertNull(response.getTextResponse());
+		Assert.assertEquals(Arrays.asList(listType, listType), writtenTypes);
+
+		// non-generic types are replaced by the runtime class of elements
+		writtenTypes.clear();
+		serialDeserial.elementsToResponse(Arrays.asList(RestResourceFullAnnotated.createTestPerson()).iterator(), Object.class,
+				new MockWebResponse(), RestMimeTypes.APPLICATION_NDJSON, 100);
+
+		Assert.assertEquals(Arrays.<Type>asList(Person.class), writtenTypes);
+	}
+
 	@Test
 	public void rolesAuthorizationMethod() {
 		roles.add("ROLE_ADMIN");
@@ -158,6 +721,23 @@ public class TestRestResources {
 				new TestJsonDesSer());
 	}
 
+	@Test
+	public void testAmbiguousMethodsAtStartup() {
+		// '/ambiguous/path' would be matched by both methods with the same
+		// score, so the resource can't be built.
+		exception.expect(WicketRuntimeException.class);
+		new AmbiguousRestResource(new TestJsonDesSer());
+	}
+
+	@Test
+	public void testPrivateMethodsAtStartup() {
+		// mapped methods must be public, like they had to be when they were
+		// invoked with reflection
+		exception.expect(WicketRuntimeException.class);
+		exception.expectMessage("getPrivateValue");
+		new PrivateMethodRestResource(new TestJsonDesSer());
+	}
+
 	@Test
 	public void testMethodParamWithOtherAnnotations() {
 		tester.getRequest().setMethod("POST");
@@ -196,7 +776,236 @@ public class TestRestResources {
 		
 		assertEquals(writer.toString(), tester.getLastResponseAsString());
 	}
+
+	@Test
+	public void testNegotiatedFormat() throws Exception {
+		// browsers keep receiving the declared format
+		tester.getRequest().setMethod("GET");
+		tester.getRequest().setHeader("Accept", "text/html,application/xml;q=0.9,*/*;q=0.8");
+		tester.executeUrl("./api3negotiated/person");
+		
+		assertEquals(RestMimeTypes.APPLICATION_XML, tester.getLastResponse().getContentType());
+		
+		tester.getRequest().setMethod("GET");
+		tester.getRequest().setHeader("Accept", "application/json");
+		tester.executeUrl("./api3negotiated/person");
+		
+		assertEquals(RestMimeTypes.APPLICATION_JSON, tester.getLastResponse().getContentType());
+		assertEquals("Accept", tester.getLastResponse().getHeader("Vary"));
+		testIfResponseStringIsEqual(TestJsonDesSer.getJSON());
+		
+		// types with quality factor 0 are not acceptable
+		tester.getRequest().setMethod("GET");
+		tester.getRequest().setHeader("Accept", "application/json;q=0, application/xml");
+		tester.executeUrl("./api3negotiated/person");
+		
+		assertEquals(RestMimeTypes.APPLICATION_XML, tester.getLastResponse().getContentType());
+		assertEquals("Accept", tester.getLastResponse().getHeader("Vary"));
+		
+		// types are preferred by quality factor, not by the order they are listed
+		tester.getRequest().setMethod("GET");
+		tester.getRequest().setHeader("Accept", "application/xml;q=0.5, application/json");
+		tester.executeUrl("./api3negotiated/person");
+		
+		assertEquals(RestMimeTypes.APPLICATION_JSON, tester.getLastResponse().getContentType());
+		
+		BufferedMockRequest mockRequest = new BufferedMockRequest(tester.getApplication(),
+				tester.getHttpSession(), tester.getServletContext(), "POST");
+		
+		mockRequest.setContentType("Application/JSON; charset=UTF-8");
+		assertEquals(RestMimeTypes.APPLICATION_JSON,
+				HttpUtils.getRequestMimeType(new ServletWebRequest(mockRequest, "")));
+		
+		try {
+			new MultiFormatRestResource(new MultiFormatSerialDeserial(), new RestResourceSettings()
+					.addNegotiableMimeType(RestMimeTypes.APPLICATION_CBOR));
+			Assert.fail("Unsupported negotiable MIME types must be rejected.");
+		} catch (WicketRuntimeException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testRequestBodyReading() throws Exception {
+		BufferedMockRequest mockRequest = new BufferedMockRequest(tester.getApplication(),
+				tester.getHttpSession(), tester.getServletContext(), "POST");
+		String requestBody = "{\"name\" : \"Mary\",\n\"surname\" : \"Smith\"}\n";
+
+		mockRequest.setTextAsRequestBody(requestBody);
+
+		assertEquals(requestBody,
+				HttpUtils.readStringFromRequest(new ServletWebRequest(mockRequest, "")));
+	}
+
+	@Test
+	public void testJaxbCollections() throws Exception {
+		JaxbSerialDeserial jaxbSerialDeserial = new JaxbSerialDeserial();
+		List<Person> persons = Arrays.asList(RestResourceFullAnnotated.createTestPerson(),
+				new Person("John", "Smith", "j.smith@gmail.com"));
+		String xml = jaxbSerialDeserial.objectToString(persons, RestMimeTypes.APPLICATION_XML);
+
+		Assert.assertTrue(xml.contains("<collection><person><email>m.smith@gmail.com</email>"));
+
+		Type listType = getClass().getDeclaredField("personList").getGenericType();
+		List<Person> readPersons = (List<Person>) jaxbSerialDeserial.readerToObject(
+				new StringReader(xml), listType, RestMimeTypes.APPLICATION_XML);
+
+		Assert.assertEquals(2, readPersons.size());
+		Assert.assertEquals("Mary", readPersons.get(0).getName());
+		Assert.assertEquals("John", readPersons.get(1).getName());
+
+		// comments and processing instructions between elements are skipped
+		String commentedXml = xml.replace("<person>", "<!-- a person -->\n<?pi data?> <person>");
+
+		readPersons = (List<Person>) jaxbSerialDeserial.readerToObject(new StringReader(
+				commentedXml), listType, RestMimeTypes.APPLICATION_XML);
+
+		Assert.assertEquals(2, readPersons.size());
+		Assert.assertEquals("John", readPersons.get(1).getName());
+
+		try {
+			jaxbSerialDeserial.readerToObject(new StringReader(xml.replace("</person><person>",
+					"</person>text<person>")), listType, RestMimeTypes.APPLICATION_XML);
+			Assert.fail("Text between collection elements must be rejected.");
+		} catch (WicketRuntimeException e) {
+			Assert.assertTrue(e.getCause().getMessage().contains("'text'"));
+		}
+
+		// the root element must be the collection element
+		try {
+			jaxbSerialDeserial.readerToObject(new StringReader(xml.replace("collection>",
+					"persons>")), listType, RestMimeTypes.APPLICATION_XML);
+			Assert.fail("A root element other than 'collection' must be rejected.");
+		} catch (WicketRuntimeException e) {
+			Assert.assertTrue(e.getCause() instanceof XMLStreamException);
+		}
+	}
+
+	@Test
+	public void testPlainSerialDeserial() throws Exception {
+		// implements only the methods of IObjectSerialDeserial
+		final List<Object> writtenObjects = new ArrayList<Object>();
+		IObjectSerialDeserial plainSerialDeserial = new IObjectSerialDeserial() {
+			@Override
+			public void objectToResponse(Object targetObject, WebResponse response,
+					String mimeType) throws Exception {
+				writtenObjects.add(targetObject);
+			}
+
+			@Override
+			public <T> T requestToObject(WebRequest request, Class<T> argClass, String mimeType)
+					throws Exception {
+				writtenObjects.add(argClass);
+				return null;
+			}
+
+			@Override
+			public boolean isMimeTypeSupported(String mimeType) {
+				return RestMimeTypes.APPLICATION_JSON.equals(mimeType);
+			}
+		};
+		Type listType = getClass().getDeclaredField("personList").getGenericType();
+		List<Person> persons = Arrays.asList(RestResourceFullAnnotated.createTestPerson());
+		MockWebResponse response = new MockWebResponse();
+
+		SerialDeserialUtils.warmUp(plainSerialDeserial, Arrays.asList(listType));
+		SerialDeserialUtils.objectToResponse(plainSerialDeserial, persons, listType, response,
+				RestMimeTypes.APPLICATION_JSON);
+		// streamed elements are collected in a list
+		SerialDeserialUtils.elementsToResponse(plainSerialDeserial, persons.iterator(),
+				Person.class, response, RestMimeTypes.APPLICATION_JSON, 1);
+
+		// generic types are read as their raw class
+		SerialDeserialUtils.requestToObject(plainSerialDeserial, null, listType,
+				RestMimeTypes.APPLICATION_JSON);
+
+		Assert.assertEquals(Arrays.<Object> asList(persons, persons, List.class), writtenObjects);
+	}
+
+	@Test
+	public void testObjectStreamedToResponse() throws Exception {
+		MockWebResponse response = new MockWebResponse();
+		String payload = "{\"name\" : \"Zoë\", \"surname\" : \"Müller\"}";
+
+		new StreamingDesSer("ISO-8859-1").objectToResponse(payload, response,
+				RestMimeTypes.APPLICATION_JSON);
+
+		// the object is encoded with the charset of the serializer while it's written
+		Assert.assertNull(response.getTextResponse());
+		Assert.assertTrue(Arrays.equals(payload.getBytes("ISO-8859-1"),
+				response.getBinaryResponse()));
+
+		response = new MockWebResponse();
+		new StreamingDesSer("UTF-8").objectToResponse(payload, response,
+				RestMimeTypes.APPLICATION_JSON);
+
+		Assert.assertEquals(payload, new String(response.getBinaryResponse(), "UTF-8"));
+	}
+
 	protected void testIfResponseStringIsEqual(String value) {
 		Assert.assertEquals(value, tester.getLastResponseAsString());
 	}
+
+	/**
+	 * Serializer that writes objects only through the writer of the response,
+	 * one character at a time.
+	 */
+	private static class StreamingDesSer extends TestJsonDesSer {
+		public StreamingDesSer(String charset) {
+			super(charset);
+		}
+
+		@Override
+		public String objectToString(Object targetObject, String mimeType) {
+			throw new UnsupportedOperationException("Objects must not be converted to strings.");
+		}
+
+		@Override
+		public void objectToWriter(Object targetObject, Writer writer, String mimeType)
+				throws Exception {
+			String text = targetObject.toString();
+
+			for (int i = 0; i < text.length(); i++) {
+				writer.write(text.charAt(i));
+			}
+		}
+	}
+
+	/**
+	 * Class loader that defines its own copy of a class, like the class
+	 * loader of a redeployed application.
+	 */
+	private static class ChildFirstClassLoader extends ClassLoader {
+		private final String className;
+
+		public ChildFirstClassLoader(Class<?> clazz) {
+			super(clazz.getClassLoader());
+			this.className = clazz.getName();
+		}
+
+		@Override
+		protected synchronized Class<?> loadClass(String name, boolean resolve)
+				throws ClassNotFoundException {
+			if (!className.equals(name))
+				return super.loadClass(name, resolve);
+
+			Class<?> clazz = findLoadedClass(name);
+
+			if (clazz != null)
+				return clazz;
+
+			InputStream classStream = getParent().getResourceAsStream(
+					name.replace('.', '/') + ".class");
+
+			try {
+				byte[] bytes = IOUtils.toByteArray(classStream);
+
+				return defineClass(name, bytes, 0, bytes.length);
+			} catch (IOException e) {
+				throw new ClassNotFoundException(name, e);
+			} finally {
+				IOUtils.closeQuietly(classStream);
+			}
+		}
+	}
 }
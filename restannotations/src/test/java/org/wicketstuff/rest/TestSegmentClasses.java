@@ -16,17 +16,34 @@
  */
 package org.wicketstuff.rest;
 
+import java.lang.ref.WeakReference;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.UUID;
 import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.wicket.util.parse.metapattern.MetaPattern;
 import org.junit.Assert;
 import org.junit.Test;
 import org.wicketstuff.rest.resource.urlsegments.AbstractURLSegment;
+import org.wicketstuff.rest.resource.urlsegments.FixedURLSegment;
 import org.wicketstuff.rest.resource.urlsegments.MultiParamSegment;
 import org.wicketstuff.rest.resource.urlsegments.ParamSegment;
+import org.wicketstuff.rest.resource.urlsegments.ParsedPath;
+import org.wicketstuff.rest.resource.urlsegments.RegExpMatchingPolicy;
+import org.wicketstuff.rest.resource.urlsegments.SegmentValueMatcher;
+import org.wicketstuff.rest.utils.convert.IValueParser;
+import org.wicketstuff.rest.utils.convert.ValueParsers;
+import org.wicketstuff.rest.utils.regex.LinearRegExp;
+import org.wicketstuff.rest.utils.regex.MatchBudgetExceededException;
+import org.wicketstuff.rest.utils.regex.RegExpAnalyzer;
+import org.wicketstuff.rest.utils.regex.RegExpEngine;
 
 public class TestSegmentClasses extends Assert {
 
@@ -92,6 +109,19 @@ public class TestSegmentClasses extends Assert {
 		assertEquals(2, matrixParams.size());
 		assertEquals("value", matrixParams.get("param"));
 		assertEquals("'hello world'", matrixParams.get("param1"));
+		
+		ParsedPath parsedPath = new ParsedPath(new String[] { "orders", segmentMatrixParamsQuotes,
+				"items; size = 10 ;flag" });
+		
+		assertSame("orders", parsedPath.getActualSegment(0));
+		assertEquals(segment, parsedPath.getActualSegment(1));
+		assertEquals("items", parsedPath.getActualSegment(2));
+		assertEquals("value", parsedPath.getMatrixParameter(1, "param"));
+		assertEquals("'hello world'", parsedPath.getMatrixParameter(1, "param1"));
+		assertEquals("10", parsedPath.getMatrixParameter(2, "size"));
+		assertNull(parsedPath.getMatrixParameter(2, "flag"));
+		assertNull(parsedPath.getMatrixParameter(0, "param"));
+		assertNull(parsedPath.getMatrixParameter(3, "param"));
 	}
 
 	@Test
@@ -145,5 +175,246 @@ public class TestSegmentClasses extends Assert {
 		assertEquals("1.2.3", map.get("version"));
 		assertEquals(".zip", map.get("extension"));
 		
+		//values are split as in the match of the whole segment
+		segment = AbstractURLSegment.newSegment("{name}-{release:(\\d)+}.{extension}");
+		segment.populatePathVariables(map = new HashMap<String, String>(), "foo-bar-12.tar");
+		
+		assertEquals("foo-bar", map.get("name"));
+		assertEquals("12", map.get("release"));
+		assertEquals("tar", map.get("extension"));
+	}
+
+	@Test
+	public void testSharedFixedSegments() throws Exception {
+		AbstractURLSegment segment = AbstractURLSegment.newSegment("orders");
+
+		assertTrue(segment instanceof FixedURLSegment);
+		assertSame(segment, AbstractURLSegment.newSegment("orders"));
+		assertNotSame(segment, AbstractURLSegment.newSegment("order"));
+		assertEquals("orders", segment.toString());
+		assertTrue(segment.getPattern().matcher("orders").matches());
+
+		MultiParamSegment multiParamSegment = (MultiParamSegment) AbstractURLSegment
+				.newSegment("orders{id}");
+
+		assertSame(segment, multiParamSegment.getSubSegments().get(0));
+		
+		// unused segments are not kept
+		WeakReference<AbstractURLSegment> segmentReference = new WeakReference<AbstractURLSegment>(
+				AbstractURLSegment.newSegment(new StringBuilder("unused").toString()));
+		
+		for (int i = 0; i < 20 && segmentReference.get() != null; i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		
+		assertNull(segmentReference.get());
+		assertEquals("unused", AbstractURLSegment.newSegment("unused").toString());
+	}
+
+	@Test
+	public void testSegmentValueMatchers() throws Exception {
+		ParamSegment segment = (ParamSegment) AbstractURLSegment.newSegment("{id}");
+		
+		assertSame(SegmentValueMatcher.ANYTHING_NON_EMPTY, segment.getValueMatcher());
+		assertEquals(1, segment.calculateScore("anything"));
+		assertEquals(0, segment.calculateScore(""));
+		
+		// same values of '.+', line terminators are rejected
+		Pattern anythingNonEmpty = Pattern.compile(".+");
+		
+		for (String value : new String[] { "any thing", "12\n45", "\n", "a\r", "\u0085b",
+				"a\u2028b", "\u2029", "\t" })
+			assertEquals(anythingNonEmpty.matcher(value).matches(),
+					segment.getValueMatcher().matches(value));
+		
+		segment = (ParamSegment) AbstractURLSegment.newSegment("{id:\\d+}");
+		
+		assertEquals(1, segment.calculateScore("1234"));
+		assertEquals(0, segment.calculateScore("12a4"));
+		assertEquals(0, segment.calculateScore(""));
+		
+		segment = (ParamSegment) AbstractURLSegment.newSegment("{year:[0-9]{4}}");
+		
+		assertEquals(1, segment.calculateScore("2013"));
+		assertEquals(0, segment.calculateScore("201"));
+		assertEquals(0, segment.calculateScore("20133"));
+		
+		segment = (ParamSegment) AbstractURLSegment.newSegment("{name:[a-zA-Z0-9]+}");
+		
+		assertEquals(1, segment.calculateScore("abcXYZ019"));
+		assertEquals(0, segment.calculateScore("abc_019"));
+		
+		segment = (ParamSegment) AbstractURLSegment.newSegment("{id:int}");
+		
+		assertEquals("-?\\d+", segment.getMetaPattern().toString());
+		assertEquals(1, segment.calculateScore("-2147483648"));
+		assertEquals(1, segment.calculateScore("2147483647"));
+		assertEquals(0, segment.calculateScore("2147483648"));
+		assertEquals(0, segment.calculateScore("-"));
+		assertEquals(0, segment.calculateScore("1.5"));
+		
+		segment = (ParamSegment) AbstractURLSegment.newSegment("{id:long}");
+		
+		assertEquals(1, segment.calculateScore("-9223372036854775808"));
+		assertEquals(1, segment.calculateScore("9223372036854775807"));
+		assertEquals(0, segment.calculateScore("9223372036854775808"));
+		
+		segment = (ParamSegment) AbstractURLSegment.newSegment("{id:uuid}");
+		
+		assertEquals(1, segment.calculateScore("123e4567-e89b-12d3-a456-426655440000"));
+		assertEquals(0, segment.calculateScore("123e4567-e89b-12d3-a456-42665544000g"));
+		assertEquals(0, segment.calculateScore("123e4567e89b-12d3-a456-4266554400000"));
+		
+		//custom regular expressions still use the regexp engine
+		segment = (ParamSegment) AbstractURLSegment.newSegment("{id:[0-9]*:abba}");
+		
+		assertEquals(1, segment.calculateScore("12:abba"));
+		assertEquals(0, segment.calculateScore("12:abb"));
+		assertTrue(segment.getValueMatcher().matches("x12:abbax", 1, 8));
+		
+		//typed constraints can be used inside multi-parameter segments
+		AbstractURLSegment multiParamSegment = AbstractURLSegment.newSegment("item-{id:int}.json");
+		HashMap<String, String> map = new HashMap<String, String>();
+		
+		assertEquals(1, multiParamSegment.calculateScore("item-42.json"));
+		multiParamSegment.populatePathVariables(map, "item-42.json");
+		assertEquals("42", map.get("id"));
+	}
+
+	@Test
+	public void testLinearRegExpEngine() throws Exception {
+		String[] regExps = { "[0-9]*:abba", "\\d{2}-\\d{2}", "(a|b)*c?", "^\\(?\\d{3}\\)?[ -]?\\d{3}$",
+				"[^/]+\\.(json|xml)", "(?:x{2,3})+", "[\\w-]+", ".*", "(a+)+b", "[]a]+", "\\W\\S\\D",
+				"\\Qfile.\\E(json|xml)" };
+		String[] values = { "", "1:abba", ":abba", "12-34", "1-34", "ababc", "abd", "(123) 456",
+				"123-456", "file.json", "file.txt", "xxxxx", "xx", "xxxxxxx", "a_b-c", "a b",
+				"aaab", "aaa", "]a]", "! a", "a b", "\n" };
+
+		for (String regExp : regExps) {
+			LinearRegExp linearRegExp = LinearRegExp.compile(regExp);
+			Pattern pattern = Pattern.compile(regExp);
+
+			for (String value : values) {
+				assertEquals(regExp + " on '" + value + "'", pattern.matcher(value).matches(),
+						linearRegExp.matches(value));
+			}
+		}
+
+		assertFalse(LinearRegExp.isSupported("(a)\\1"));
+		assertFalse(LinearRegExp.isSupported("a(?=b)"));
+		assertFalse(LinearRegExp.isSupported("a++"));
+		assertFalse(LinearRegExp.isSupported("\\Qab\\E+"));
+
+		assertTrue(RegExpAnalyzer.hasNestedQuantifiers("(a+)+b"));
+		assertTrue(RegExpAnalyzer.hasNestedQuantifiers("(\\w*\\s?)*"));
+		assertTrue(RegExpAnalyzer.hasNestedQuantifiers("((ab)*c)+"));
+		assertFalse(RegExpAnalyzer.hasNestedQuantifiers("(a+)b+"));
+		assertFalse(RegExpAnalyzer.hasNestedQuantifiers("[(a+)]+"));
+		assertFalse(RegExpAnalyzer.hasNestedQuantifiers("\\d{2}-\\d{2}"));
+
+		String evilValue = "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa";
+		RegExpMatchingPolicy budgetPolicy = new RegExpMatchingPolicy(RegExpEngine.JDK, 1000);
+		AbstractURLSegment segment = AbstractURLSegment.newSegment("{value:(a+)+b}", budgetPolicy);
+
+		assertEquals(1, segment.calculateScore("aab"));
+
+		try {
+			segment.calculateScore(evilValue);
+			fail("Match should exceed the step budget.");
+		} catch (MatchBudgetExceededException e) {
+			// expected
+		}
+
+		RegExpMatchingPolicy linearPolicy = new RegExpMatchingPolicy(RegExpEngine.LINEAR, 0);
+		segment = AbstractURLSegment.newSegment("{value:(a+)+b}", linearPolicy);
+
+		assertEquals(RegExpEngine.LINEAR, ((ParamSegment) segment).getValueMatcher()
+				.getRegExpEngine());
+		assertEquals(0, segment.calculateScore(evilValue));
+		assertEquals(1, segment.calculateScore("aab"));
+
+		// expressions not supported by the linear engine fall back to the JDK
+		segment = AbstractURLSegment.newSegment("{value:(a)\\1}", linearPolicy);
+
+		assertEquals(RegExpEngine.JDK, ((ParamSegment) segment).getValueMatcher()
+				.getRegExpEngine());
+		assertEquals(1, segment.calculateScore("aa"));
+
+		// values of multi-parameter segments are extracted within the budget
+		RegExpMatchingPolicy linearBudgetPolicy = new RegExpMatchingPolicy(RegExpEngine.LINEAR,
+				10000);
+		segment = AbstractURLSegment.newSegment("item-{value:(?:(a+)+b|a*c)}", linearBudgetPolicy);
+
+		assertEquals(1, segment.calculateScore("item-" + evilValue + "c"));
+
+		try {
+			segment.populatePathVariables(new HashMap<String, String>(), "item-" + evilValue
+					+ "c");
+			fail("Extraction should exceed the step budget.");
+		} catch (MatchBudgetExceededException e) {
+			// expected
+		}
+
+		HashMap<String, String> map = new HashMap<String, String>();
+
+		segment.populatePathVariables(map, "item-aab");
+		assertEquals("aab", map.get("value"));
+	}
+
+	@Test
+	public void testValueParsers() throws Exception {
+		IValueParser intParser = ValueParsers.forType(int.class);
+
+		assertFalse(intParser.isLocaleSensitive());
+		assertEquals(12345, intParser.parse("12345", null));
+		assertEquals(-7, intParser.parse("-7", null));
+		assertEquals(Integer.MAX_VALUE, intParser.parse("2147483647", null));
+		assertEquals(Integer.MIN_VALUE, intParser.parse("-2147483648", null));
+		// values without a plain syntax are left to Wicket converters
+		assertNull(intParser.parse("2147483648", null));
+		assertNull(intParser.parse("1,000", null));
+		assertNull(intParser.parse("-", null));
+		assertNull(intParser.parse("", null));
+
+		assertEquals(12, ValueParsers.forType(Integer.class).parse("12", null));
+		assertEquals(Long.MIN_VALUE, ValueParsers.forType(long.class).parse(
+				"-9223372036854775808", null));
+		assertNull(ValueParsers.forType(long.class).parse("9223372036854775808", null));
+		assertEquals(Boolean.TRUE, ValueParsers.forType(boolean.class).parse("TRUE", null));
+		assertEquals(Boolean.FALSE, ValueParsers.forType(Boolean.class).parse("false", null));
+		assertNull(ValueParsers.forType(boolean.class).parse("yes", null));
+		assertEquals((short) -3, ValueParsers.forType(short.class).parse("-3", null));
+		assertNull(ValueParsers.forType(byte.class).parse("300", null));
+
+		IValueParser doubleParser = ValueParsers.forType(double.class);
+
+		assertTrue(doubleParser.isLocaleSensitive());
+		assertEquals(12.34, doubleParser.parse("12.34", Locale.ENGLISH));
+		assertEquals(12.34, doubleParser.parse("12,34", Locale.ITALIAN));
+		// grouping separators are left to Wicket converters
+		assertNull(doubleParser.parse("12.345,6", Locale.ITALIAN));
+		assertNull(doubleParser.parse("1.", Locale.ENGLISH));
+		assertEquals(0.5f, ValueParsers.forType(Float.class).parse("0.5", Locale.ENGLISH));
+
+		IValueParser enumParser = ValueParsers.forType(RegExpEngine.class);
+
+		assertEquals(RegExpEngine.LINEAR, enumParser.parse("LINEAR", null));
+		assertNull(enumParser.parse("linear", null));
+
+		String uuid = "123e4567-e89b-12d3-a456-426655440000";
+
+		assertEquals(UUID.fromString(uuid), ValueParsers.forType(UUID.class).parse(uuid, null));
+		assertNull(ValueParsers.forType(UUID.class).parse("123e4567e89b12d3a456426655440000",
+				null));
+
+		IValueParser dateParser = ValueParsers.forType(Date.class);
+		Calendar calendar = new GregorianCalendar(2013, Calendar.FEBRUARY, 28);
+
+		assertEquals(calendar.getTime(), dateParser.parse("2013-02-28", null));
+		assertNull(dateParser.parse("2013-02-29", null));
+		assertNull(dateParser.parse("28/02/2013", null));
+
+		assertNull(ValueParsers.forType(String.class));
 	}
 }
@@ -25,15 +25,21 @@ import org.apache.wicket.markup.html.WebPage;
 import org.apache.wicket.protocol.http.WebApplication;
 import org.apache.wicket.request.Request;
 import org.apache.wicket.request.Response;
+import org.apache.wicket.request.http.WebRequest;
 import org.apache.wicket.request.resource.IResource;
 import org.apache.wicket.request.resource.ResourceReference;
 import org.wicketstuff.rest.contenthandling.RestMimeTypes;
+import org.wicketstuff.rest.contenthandling.serialdeserial.JaxbSerialDeserial;
 import org.wicketstuff.rest.contenthandling.serialdeserial.MultiFormatSerialDeserial;
 import org.wicketstuff.rest.contenthandling.serialdeserial.TestJsonDesSer;
-import org.wicketstuff.rest.contenthandling.serialdeserial.XmlSerialDeser;
 import org.wicketstuff.rest.resource.MultiFormatRestResource;
+import org.wicketstuff.rest.resource.IRequestRoleChecker;
 import org.wicketstuff.rest.resource.RegExpRestResource;
 import org.wicketstuff.rest.resource.RestResourceFullAnnotated;
+import org.wicketstuff.rest.resource.RestResourceSettings;
+import org.wicketstuff.rest.resource.UnsafeRegExpRestResource;
+import org.wicketstuff.rest.resource.routing.RouteMatchingEngine;
+import org.wicketstuff.rest.utils.regex.RegExpEngine;
 
 
 
@@ -44,8 +50,20 @@ import org.wicketstuff.rest.resource.RestResourceFullAnnotated;
  */
 public class WicketApplication extends WebApplication implements IRoleCheckingStrategy
 {    	
+	/** Reads the roles of the caller from header 'roles' of the request. */
+	public static final IRequestRoleChecker HEADER_ROLE_CHECKER = new IRequestRoleChecker() {
+		@Override
+		public boolean hasAnyRole(Roles roles, WebRequest request) {
+			String callerRoles = request.getHeader("roles");
+			
+			return callerRoles != null && roles.hasAnyRole(new Roles(callerRoles));
+		}
+	};
+	
 	private final Roles roles;
 	
+	private RestResourceFullAnnotated cachedRoutesResource;
+	
 	public WicketApplication(Roles roles) {
 		this.roles = roles;
 	}
@@ -86,6 +104,102 @@ public class WicketApplication extends WebApplication implements IRoleCheckingSt
 			
 		});
 		
+		cachedRoutesResource = new RestResourceFullAnnotated(new TestJsonDesSer(), this,
+				new RestResourceSettings().setRouteCacheSize(16).setRejectedRoutesCacheSize(16));
+		
+		mountResource("/apicache", new ResourceReference("cachedRoutesResource"){
+
+			@Override
+			public IResource getResource() {
+				return cachedRoutesResource;
+			}
+			
+		});
+		
+		mountResource("/apicombined", new ResourceReference("combinedPatternResource"){
+			RestResourceSettings settings = new RestResourceSettings()
+					.setRouteMatchingEngine(RouteMatchingEngine.COMBINED_PATTERN);
+			
+			RestResourceFullAnnotated resource = new RestResourceFullAnnotated(
+					new TestJsonDesSer(), WicketApplication.this, settings);
+
+			@Override
+			public IResource getResource() {
+				return resource;
+			}
+			
+		});
+		
+		mountResource("/api2combined", new ResourceReference("combinedPatternRegExpResource"){
+			RestResourceSettings settings = new RestResourceSettings()
+					.setRouteMatchingEngine(RouteMatchingEngine.COMBINED_PATTERN);
+			
+			RegExpRestResource resource = new RegExpRestResource(new TestJsonDesSer(),
+					WicketApplication.this, settings);
+
+			@Override
+			public IResource getResource() {
+				return resource;
+			}
+			
+		});
+		
+		mountResource("/apiregexpbudget", new ResourceReference("regExpBudgetResource"){
+			RestResourceSettings settings = new RestResourceSettings().setRegExpStepBudget(1000);
+			
+			UnsafeRegExpRestResource resource = new UnsafeRegExpRestResource(
+					new TestJsonDesSer(), settings);
+
+			@Override
+			public IResource getResource() {
+				return resource;
+			}
+			
+		});
+		
+		mountResource("/apiregexplinear", new ResourceReference("linearRegExpResource"){
+			RestResourceSettings settings = new RestResourceSettings()
+					.setRegExpEngine(RegExpEngine.LINEAR).setRegExpStepBudget(1000);
+			
+			UnsafeRegExpRestResource resource = new UnsafeRegExpRestResource(
+					new TestJsonDesSer(), settings);
+
+			@Override
+			public IResource getResource() {
+				return resource;
+			}
+			
+		});
+		
+		mountResource("/apistateless", new ResourceReference("statelessResource"){
+			RestResourceSettings settings = new RestResourceSettings().setStateless(true)
+					.setFailOnSessionBinding(true).setRequestRoleChecker(HEADER_ROLE_CHECKER);
+			
+			RestResourceFullAnnotated resource = new RestResourceFullAnnotated(
+					new TestJsonDesSer(), WicketApplication.this, settings);
+
+			@Override
+			public IResource getResource() {
+				return resource;
+			}
+			
+		});
+		
+		mountResource("/apistatelessfixed", new ResourceReference("statelessFixedLocaleResource"){
+			RestResourceSettings settings = new RestResourceSettings().setStateless(true)
+					.setStatelessLocale(Locale.ITALIAN).setFailOnSessionBinding(true)
+					.setRequestRoleChecker(HEADER_ROLE_CHECKER);
+			
+			RestResourceFullAnnotated resource = new RestResourceFullAnnotated(
+					new TestJsonDesSer(), WicketApplication.this, settings);
+
+			@Override
+			public IResource getResource() {
+				return resource;
+			}
+			
+		});
+		
 		mountResource("/api3", new ResourceReference("multiFormatRestResource"){
 
 			@Override
@@ -93,12 +207,33 @@ public class WicketApplication extends WebApplication implements IRoleCheckingSt
 				MultiFormatSerialDeserial multiFormat = new MultiFormatSerialDeserial();
 				
 				multiFormat.registerSerDeser(new TestJsonDesSer(), RestMimeTypes.APPLICATION_JSON);
-				multiFormat.registerSerDeser(new XmlSerialDeser(), RestMimeTypes.APPLICATION_XML);
+				multiFormat.registerSerDeser(new JaxbSerialDeserial("UTF-8",
+						RestMimeTypes.APPLICATION_XML, true), RestMimeTypes.APPLICATION_XML);
 				
 				return new MultiFormatRestResource(multiFormat);
 			}
 			
 		});
+		
+		mountResource("/api3negotiated", new ResourceReference("negotiatedFormatRestResource"){
+
+			@Override
+			public IResource getResource() {
+				MultiFormatSerialDeserial multiFormat = new MultiFormatSerialDeserial();
+				
+				multiFormat.registerSerDeser(new TestJsonDesSer(), RestMimeTypes.APPLICATION_JSON);
+				multiFormat.registerSerDeser(new JaxbSerialDeserial("UTF-8",
+						RestMimeTypes.APPLICATION_XML, true), RestMimeTypes.APPLICATION_XML);
+				
+				return new MultiFormatRestResource(multiFormat, new RestResourceSettings()
+						.addNegotiableMimeType(RestMimeTypes.APPLICATION_JSON));
+			}
+			
+		});
+	}
+	
+	public RestResourceFullAnnotated getCachedRoutesResource() {
+		return cachedRoutesResource;
 	}
 	
 	@Override
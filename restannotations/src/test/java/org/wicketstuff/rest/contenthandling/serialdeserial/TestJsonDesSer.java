@@ -21,7 +21,11 @@ import org.wicketstuff.rest.resource.RestResourceFullAnnotated;
 
 public class TestJsonDesSer extends TextualObjectSerialDeserial {
 	public TestJsonDesSer() {
-		super("UTF-8", RestMimeTypes.APPLICATION_JSON);
+		this("UTF-8");
+	}
+
+	public TestJsonDesSer(String charset) {
+		super(charset, RestMimeTypes.APPLICATION_JSON);
 	}
 
 	static public Object getObject(){
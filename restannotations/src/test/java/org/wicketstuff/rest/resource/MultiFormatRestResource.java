@@ -34,6 +34,11 @@ public class MultiFormatRestResource extends AbstractRestResource<MultiFormatSer
 	public MultiFormatRestResource(MultiFormatSerialDeserial jsonSerialDeserial) {
 		super(jsonSerialDeserial);
 	}
+
+	public MultiFormatRestResource(MultiFormatSerialDeserial jsonSerialDeserial,
+			RestResourceSettings settings) {
+		super(jsonSerialDeserial, null, settings);
+	}
 	
 	@MethodMapping(value = "/person", produces = RestMimeTypes.APPLICATION_XML)
 	public Person returnMarshaledObject(){
@@ -32,6 +32,11 @@ public class RegExpRestResource extends RestResourceFullAnnotated{
 		super(jsonSerialDeserial);
 	}
 
+	public RegExpRestResource(TestJsonDesSer jsonSerialDeserial,
+			IRoleCheckingStrategy roleCheckingStrategy, RestResourceSettings settings) {
+		super(jsonSerialDeserial, roleCheckingStrategy, settings);
+	}
+
 	@MethodMapping("recordlog/message/{day:\\d{2}}-{month:\\d{2}}-{year:\\d{4}}_{message}")
 	public void testLogMessage(@CookieParam("credential") String credential, int day, int month, int year, String message){
 		Args.notNull(credential, "credential");
@@ -20,9 +20,12 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.util.Arrays;
+import java.util.Iterator;
 
 import junit.framework.Assert;
 
+import org.apache.wicket.Session;
 import org.apache.wicket.authroles.authorization.strategies.role.IRoleCheckingStrategy;
 import org.apache.wicket.util.lang.Args;
 import org.wicketstuff.rest.Person;
@@ -48,6 +51,11 @@ public class RestResourceFullAnnotated extends AbstractRestResource<TestJsonDesS
 		super(jsonSerialDeserial);
 	}
 
+	public RestResourceFullAnnotated(TestJsonDesSer jsonSerialDeserial,
+			IRoleCheckingStrategy roleCheckingStrategy, RestResourceSettings settings) {
+		super(jsonSerialDeserial, roleCheckingStrategy, settings);
+	}
+
 	/**
 	 * Method for GET requests and URLs like '<resource path>/5'. The id
 	 * parameter is automatically extracted from URL.
@@ -78,6 +86,11 @@ public class RestResourceFullAnnotated extends AbstractRestResource<TestJsonDesS
 		return "testMethodPostSegFixed";
 	}
 
+	@MethodMapping(value = "/uncached", httpMethod = HttpMethod.POST, produces = RestMimeTypes.TEXT_PLAIN, cacheResolution = false)
+	public String testMethodNotCached() {
+		return "testMethodNotCached";
+	}
+
 	@MethodMapping(value = "/", produces = RestMimeTypes.TEXT_PLAIN)
 	public String testMethodNoArgs() {
 		return "testMethodNoArgs";
@@ -103,6 +116,11 @@ public class RestResourceFullAnnotated extends AbstractRestResource<TestJsonDesS
 		return "testMethodGetParameter";
 	}
 
+	@MethodMapping(value = "/pricecheck", produces = RestMimeTypes.TEXT_PLAIN)
+	public String testLocalizedParameter(@RequestParam("price") double price) {
+		return "testLocalizedParameter:" + price;
+	}
+
 	@MethodMapping(value = "/book/{id}", produces = RestMimeTypes.TEXT_PLAIN)
 	public String testMethodHeaderParameter(int productId, @HeaderParam("price") float prodPrice) {
 		Args.notNull(productId, "productId");
@@ -168,6 +186,37 @@ public class RestResourceFullAnnotated extends AbstractRestResource<TestJsonDesS
 		return "testRequiredDefault";
 	}
 	
+	@MethodMapping(value = "/{prefix}/deep/route", produces = RestMimeTypes.TEXT_PLAIN)
+	public String testHighestScoreFixedSegments(String prefix) {
+		return "testHighestScoreFixedSegments";
+	}
+
+	@MethodMapping(value = "/scoring/{first}/{second}", produces = RestMimeTypes.TEXT_PLAIN)
+	public String testHighestScoreParamSegments(String first, String second) {
+		return "testHighestScoreParamSegments";
+	}
+
+	@MethodMapping(value = "/session/bind", produces = RestMimeTypes.TEXT_PLAIN)
+	public String testSessionBinding() {
+		Session.get().bind();
+		return "testSessionBinding";
+	}
+
+	@MethodMapping("/persons/stream")
+	public Iterator<Person> testStreamedPersons() {
+		return Arrays.asList(createTestPerson(), createTestPerson()).iterator();
+	}
+
+	@MethodMapping(value = "/persons/ndjson", produces = RestMimeTypes.APPLICATION_NDJSON)
+	public Iterable<Person> testNewlineDelimitedPersons() {
+		return new Iterable<Person>() {
+			@Override
+			public Iterator<Person> iterator() {
+				return testStreamedPersons();
+			}
+		};
+	}
+
 	public static Person createTestPerson() {
 		return new Person("Mary", "Smith", "m.smith@gmail.com");
 	}
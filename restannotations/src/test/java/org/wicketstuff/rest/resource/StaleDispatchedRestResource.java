@@ -14,33 +14,24 @@
  *  See the License for the specific language governing permissions and
  *  limitations under the License.
  */
-package org.wicketstuff.rest.contenthandling.serialdeserial;
+package org.wicketstuff.rest.resource;
 
-import java.io.StringWriter;
-
-import javax.xml.bind.JAXB;
-
-import org.apache.wicket.request.cycle.RequestCycle;
-import org.apache.wicket.request.http.WebResponse;
+import org.wicketstuff.rest.annotations.MethodMapping;
 import org.wicketstuff.rest.contenthandling.RestMimeTypes;
+import org.wicketstuff.rest.contenthandling.serialdeserial.TestJsonDesSer;
 
-public class XmlSerialDeser extends TextualObjectSerialDeserial {
-
-	public XmlSerialDeser() {
-		super("UTF-8", RestMimeTypes.APPLICATION_XML);
-	}
+/**
+ * Resource with an out-of-date dispatcher (see
+ * {@link StaleDispatchedRestResource_RestDispatcher}).
+ */
+public class StaleDispatchedRestResource extends AbstractRestResource<TestJsonDesSer> {
 
-	@Override
-	public String objectToString(Object targetObject, String mimeType) {
-		 WebResponse response = (WebResponse) RequestCycle.get().getResponse();
-		 StringWriter stringWriter = new StringWriter();
-		 JAXB.marshal(targetObject, stringWriter);
-		 
-		 return stringWriter.toString();
+	public StaleDispatchedRestResource(TestJsonDesSer jsonSerialDeserial) {
+		super(jsonSerialDeserial);
 	}
 
-	@Override
-	public <T> T stringToObject(String source, Class<T> targetClass, String mimeType) {
-		return JAXB.unmarshal(source, targetClass);
+	@MethodMapping(value = "/value/{value}", produces = RestMimeTypes.TEXT_PLAIN)
+	public String getValue(String value) {
+		return value;
 	}
 }
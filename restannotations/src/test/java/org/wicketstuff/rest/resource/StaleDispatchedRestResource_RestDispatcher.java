@@ -0,0 +1,54 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource;
+
+import org.wicketstuff.rest.contenthandling.RestMimeTypes;
+import org.wicketstuff.rest.utils.http.HttpMethod;
+import org.wicketstuff.rest.utils.reflection.IMethodInvoker;
+import org.wicketstuff.rest.utils.reflection.IResourceDispatcher;
+import org.wicketstuff.rest.utils.reflection.MethodParameter.ValueSource;
+import org.wicketstuff.rest.utils.reflection.ParameterBinding;
+import org.wicketstuff.rest.utils.reflection.RouteDescriptor;
+
+/**
+ * Dispatcher generated for a previous version of
+ * {@link StaleDispatchedRestResource}, where the mapped method took an int.
+ */
+public final class StaleDispatchedRestResource_RestDispatcher implements IResourceDispatcher {
+
+	public IMethodInvoker getInvoker(String methodSignature) {
+		return "getValue(int)".equals(methodSignature) ? new StaleInvoker() : null;
+	}
+
+	public RouteDescriptor[] getRoutes() {
+		return new RouteDescriptor[] { new RouteDescriptor(StaleDispatchedRestResource.class,
+				"getValue", "/value/{value}", HttpMethod.GET, RestMimeTypes.APPLICATION_JSON,
+				RestMimeTypes.TEXT_PLAIN, true, new String[] {}, String.class, String.class,
+				new ParameterBinding[] { new ParameterBinding(int.class, int.class,
+						ValueSource.PATH_POSITION, null, 0, true, "") }, new StaleInvoker()) };
+	}
+
+	public boolean isUsingAuthorization() {
+		return false;
+	}
+
+	private static final class StaleInvoker implements IMethodInvoker {
+		public Object invoke(Object target, Object[] arguments) throws Exception {
+			return "stale";
+		}
+	}
+}
@@ -0,0 +1,34 @@
+/**
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.wicketstuff.rest.resource;
+
+import org.wicketstuff.rest.annotations.MethodMapping;
+import org.wicketstuff.rest.contenthandling.RestMimeTypes;
+import org.wicketstuff.rest.contenthandling.serialdeserial.TestJsonDesSer;
+
+public class UnsafeRegExpRestResource extends AbstractRestResource<TestJsonDesSer> {
+
+	public UnsafeRegExpRestResource(TestJsonDesSer jsonSerialDeserial,
+			RestResourceSettings settings) {
+		super(jsonSerialDeserial, null, settings);
+	}
+
+	@MethodMapping(value = "/unsafe/{value:(a+)+b}", produces = RestMimeTypes.TEXT_PLAIN)
+	public String unsafeRegExp(String value) {
+		return value;
+	}
+}